@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package arq;
+
+import java.io.File ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+
+import org.apache.jena.atlas.io.IO ;
+import arq.cmd.CmdException ;
+import arq.cmdline.ArgDecl ;
+import arq.cmdline.CmdARQ ;
+import arq.cmdline.ModDataset ;
+import arq.cmdline.ModDatasetGeneralAssembler ;
+
+import com.hp.hpl.jena.query.Dataset ;
+import com.hp.hpl.jena.sparql.engine.optimizer.StatsCollector ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Gather statistics for a dataset and write them as a rules file for
+ *  the weighted BGP optimizer.  With <tt>--refresh</tt>, an existing rules
+ *  file is read and only the predicates whose triples have changed are
+ *  rescanned.
+ */
+public class stats extends CmdARQ
+{
+    static private final ArgDecl refreshDecl = new ArgDecl(ArgDecl.HasValue, "refresh") ;
+    static private final ArgDecl outDecl     = new ArgDecl(ArgDecl.HasValue, "out", "output") ;
+
+    ModDataset modDataset = new ModDatasetGeneralAssembler() ;
+    String refreshFile = null ;
+    String outFile = null ;
+
+    public static void main(String... argv)
+    {
+        new stats(argv).mainRun() ;
+    }
+
+    public stats(String[] argv)
+    {
+        super(argv) ;
+        super.addModule(modDataset) ;
+        super.getUsage().startCategory("Statistics") ;
+        super.add(refreshDecl, "--refresh=FILE", "Update an existing stats file") ;
+        super.add(outDecl, "--out=FILE", "Write the stats to a file (default: stdout, or the --refresh file)") ;
+    }
+
+    @Override
+    protected void processModulesAndArgs()
+    {
+        super.processModulesAndArgs() ;
+        refreshFile = getValue(refreshDecl) ;
+        outFile = getValue(outDecl) ;
+        if ( outFile == null )
+            outFile = refreshFile ;
+    }
+
+    @Override
+    protected String getSummary()
+    {
+        return getCommandName()+" [--data FILE | --desc assembler] [--refresh=FILE] [--out=FILE]" ;
+    }
+
+    @Override
+    protected String getCommandName() { return Utils.className(this) ; }
+
+    @Override
+    protected void exec()
+    {
+        Dataset ds = modDataset.getDataset() ;
+        if ( ds == null )
+            throw new CmdException("No dataset") ;
+
+        StatsCollector collector ;
+        if ( refreshFile != null && new File(refreshFile).exists() )
+        {
+            collector = StatsCollector.read(refreshFile) ;
+            collector.refresh(ds.asDatasetGraph()) ;
+            if ( isVerbose() )
+                System.err.println("Rescanned "+collector.getRescanCount()+" of "+collector.getPredicates().size()+" predicates") ;
+        }
+        else
+            collector = StatsCollector.gather(ds.asDatasetGraph()) ;
+
+        if ( outFile == null )
+        {
+            collector.write(System.out) ;
+            return ;
+        }
+
+        OutputStream out = null ;
+        try {
+            out = new FileOutputStream(outFile) ;
+            collector.write(out) ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+        finally { IO.close(out) ; }
+    }
+}
@@ -232,7 +232,7 @@ public class ARQ
      * choosing the value.
      * <p/>
      * Operations currently affected by this symbol: <br/>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY (including ORDER BY with LIMIT), GROUP BY, MINUS, SPARQL Update, CONSTRUCT (optionally)
      * <p/>
      * TODO: Give a reasonable suggested value here.  10,000?
      * <p/>
@@ -240,9 +240,108 @@ public class ARQ
      */
     // Some possible additions to the list:
     // Sort: DISTINCT, merge joins<br/>
-    // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br/>
+    // Hash table: SERVICE, VALUES, and hash joins <br/>
     public static final Symbol spillToDiskThreshold = ARQConstants.allocSymbol("spillToDiskThreshold") ;
     
+    /**
+     * The format used for bindings spilled to disk: "text" (the default) or
+     * "binary", a compact form that is faster to write and read.
+     * @see #spillToDiskThreshold
+     */
+    public static final Symbol spillBindingFormat = ARQConstants.allocSymbol("spillBindingFormat") ;
+    
+    /**
+     * Whether the binary spill format writes each node once per spill file
+     * and then refers to it by number.  Default "true".
+     * @see #spillBindingFormat
+     */
+    public static final Symbol spillNodeDictionary = ARQConstants.allocSymbol("spillNodeDictionary") ;
+    
+    /**
+     * Whether the binary spill format compresses the spill file.  Default "false".
+     * @see #spillBindingFormat
+     */
+    public static final Symbol spillCompression = ARQConstants.allocSymbol("spillCompression") ;
+    
+    /**
+     * The number of threads used by a disk sort to sort and write spill files while
+     * results are still arriving, and to merge spill files.  Default 1 (no extra threads).
+     * @see #spillToDiskThreshold
+     */
+    public static final Symbol spillSortThreads = ARQConstants.allocSymbol("spillSortThreads") ;
+    
+    /**
+     * The maximum number of spill files a disk sort merges at once.  If there are more
+     * files, they are merged in several levels.  Default 100.
+     * @see #spillToDiskThreshold
+     */
+    public static final Symbol spillMergeFanIn = ARQConstants.allocSymbol("spillMergeFanIn") ;
+    
+    /**
+     * The number of branches of a UNION to execute at the same time, each on its own thread.
+     * The value is an integer, or "true" for the number of processors.
+     * The default is to execute the branches one after another.
+     * <p/>
+     * This is useful when the branches are slow for reasons other than
+     * local processing, such as SERVICE calls to different endpoints.
+     * The dataset must support concurrent reads.
+     */
+    public static final Symbol parallelUnion = ARQConstants.allocSymbol("parallelUnion") ;
+    
+    /**
+     * The number of results a parallel UNION buffers between the branches and
+     * the consumer before the branches wait.  Default 1000.
+     * @see #parallelUnion
+     */
+    public static final Symbol parallelUnionBufferSize = ARQConstants.allocSymbol("parallelUnionBufferSize") ;
+    
+    /**
+     * A {@link java.util.concurrent.ExecutorService} for the branches of parallel UNIONs.
+     * The default is a shared pool of bounded size.
+     * @see #parallelUnion
+     */
+    public static final Symbol parallelUnionExecutor = ARQConstants.allocSymbol("parallelUnionExecutor") ;
+    
+    /**
+     * Cache the algebra, as generated and as optimized, for each query, keyed
+     * by the normalized query string and the optimizer settings in the context.
+     * Repeated executions of the same query then skip algebra generation and
+     * optimization.  Default "false".
+     * @see com.hp.hpl.jena.sparql.engine.QueryPlanCache
+     */
+    public static final Symbol queryPlanCache = ARQConstants.allocSymbol("queryPlanCache") ;
+    
+    /**
+     * Cache the nodes reachable along a {@code path*} or {@code path+} from a start node,
+     * per graph.  Entries are invalidated by the graph's change events, so only use this
+     * with graphs that notify their listeners of updates.  Default "false".
+     * @see com.hp.hpl.jena.sparql.path.eval.PathClosureCache
+     */
+    public static final Symbol pathClosureCache = ARQConstants.allocSymbol("pathClosureCache") ;
+    
+    /**
+     * The number of input rows whose triple pattern lookups are sent together to a graph
+     * that implements {@link com.hp.hpl.jena.sparql.graph.GraphBatchFind}.
+     * Default 100; 1 or less turns batching off.
+     */
+    public static final Symbol findBatchSize = ARQConstants.allocSymbol("findBatchSize") ;
+    
+    /**
+     * Execute the filter, extend, project, triple pattern and hash join iterators a block of
+     * bindings at a time: the number of bindings in a block, or "true" for the default size.
+     * Default unset (one binding at a time).
+     * @see com.hp.hpl.jena.sparql.engine.iterator.QueryIterBlocks
+     */
+    public static final Symbol executionBlockSize = ARQConstants.allocSymbol("executionBlockSize") ;
+    
+    /**
+     * Use flat arrays of nodes for the bindings made during query execution, with the
+     * variables given slots once for the query, instead of chains of binding levels.
+     * Default false.
+     * @see com.hp.hpl.jena.sparql.engine.binding.BindingArray
+     */
+    public static final Symbol compactBindings = ARQConstants.allocSymbol("compactBindings") ;
+    
     // Optimizer controls.
     
     /** 
@@ -289,6 +388,13 @@ public class ARQ
      *  Default is "true" - the reduced operator does not need to keep a data structure with all previously seen bindings.
      */  
     public static final Symbol optDistinctToReduced = ARQConstants.allocSymbol("optDistinctToReduced") ;
+    
+    /** 
+     *  Context key controlling whether function calls with constant arguments in FILTER, BIND and
+     *  LET expressions are evaluated once when the query is optimized.
+     *  Default is "true".
+     */  
+    public static final Symbol optConstantFolding = ARQConstants.allocSymbol("optConstantFolding") ;
 
     /** 
      *  Context key controlling whether the standard optimizer applies
@@ -322,6 +428,31 @@ public class ARQ
      *  optimizations to disjunctions (||) in filters.
      */  
     public static final Symbol optFilterDisjunction = ARQConstants.allocSymbol("optFilterDisjunction") ;
+
+    /** 
+     *  Context key controlling whether a join that can not be streamed is 
+     *  executed as a hash join on the variables bound on both sides.
+     *  Default is "true".
+     */  
+    public static final Symbol optHashJoin = ARQConstants.allocSymbol("optHashJoin") ;
+
+    /** 
+     *  Context key controlling whether the standard optimizer turns 
+     *  FILTER NOT EXISTS into MINUS, executed as a hash anti-join, when
+     *  that does not change the results.
+     *  Default is "true".
+     */  
+    public static final Symbol optFilterNotExists = ARQConstants.allocSymbol("optFilterNotExists") ;
+
+    /** 
+     *  Context key controlling whether basic graph patterns on graphs without
+     *  statistics (e.g. union graphs and wrapped graphs) are reordered using
+     *  cardinalities estimated by looking in the graph.  This costs extra
+     *  calls of <tt>find</tt> on the graph, which may be expensive (for example,
+     *  a remote graph), so it is off unless set.
+     *  Default is "false".
+     */  
+    public static final Symbol optReorderSampling = ARQConstants.allocSymbol("optReorderSampling") ;
     
     /** 
      *  Context key controlling whether the main query engine 
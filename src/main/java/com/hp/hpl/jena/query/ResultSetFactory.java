@@ -104,6 +104,9 @@ public class ResultSetFactory
         if ( format.equals(ResultsFormat.FMT_RS_BIO) )
             return BIOInput.fromBIO(input) ;
         
+        if ( format.equals(ResultsFormat.FMT_RS_BINARY) )
+            return BinaryInput.fromBinary(input) ;
+        
         if ( format.equals(ResultsFormat.FMT_RS_XML) )
             return ResultSetFactory.fromXML(input) ;
 
@@ -267,7 +270,8 @@ public class ResultSetFactory
         }
         
         if ( format.equals(ResultsFormat.FMT_RS_XML) || format.equals(ResultsFormat.FMT_RS_JSON) ||
-             format.equals(ResultsFormat.FMT_RS_TSV) || format.equals(ResultsFormat.FMT_RS_CSV) )
+             format.equals(ResultsFormat.FMT_RS_TSV) || format.equals(ResultsFormat.FMT_RS_CSV) ||
+             format.equals(ResultsFormat.FMT_RS_BINARY) )
         {
             InputStream in = null ;
             try { 
@@ -299,6 +303,8 @@ public class ResultSetFactory
                 return new SPARQLResult(rs) ;
                 
             }
+            else if ( format.equals(ResultsFormat.FMT_RS_BINARY) )
+                return BinaryInput.make(in) ;
         }
         
         if (  ResultsFormat.isRDFGraphSyntax(format) )
@@ -363,6 +369,16 @@ public class ResultSetFactory
         return TSVInput.fromTSV(in) ;
     }
     
+    /** Read from an input stream which is the binary result set format.
+     * 
+     * @param in    InputStream
+     * @return      ResultSet
+     */  
+    public static ResultSet fromBinary(InputStream in)
+    {
+        return BinaryInput.fromBinary(in) ;
+    }
+    
     /** Read from an input stream which is the format of the SPARQL result set format in SSE.
      * 
      * @param in    InputStream
@@ -160,8 +160,12 @@ public class ARQConstants
     /** Marker for variables renamed to make variables hidden because of quad transformation */
     public static final String allocVarQuad =  "*g" ;
 
-    // Spare primary marker.
-    //private static final String executionVar =  "@" ;
+    /** Marker for the variables that carry precomputed ORDER BY keys in a binding being sorted */
+    public static final String allocVarSortKey =  "@k" ;
+
+    /** Marker for the variables that carry the partial state of aggregators when grouping spills to disk */
+    public static final String allocVarAggState =  "@a" ;
+    
     
     // These strings are without the leading "?"
 
@@ -195,6 +199,10 @@ public class ARQConstants
     /** Context key for the optimizer used in this execution */
     public static final Symbol sysOptimizer             = Symbol.create(systemVarNS+"optimizer") ;
 
+    /** Context key for the variable slot table of the current query execution,
+     *  when {@link ARQ#compactBindings} is set. */
+    public static final Symbol sysVarSlots              = Symbol.create(systemVarNS+"varSlots") ;
+
     /** Context key for the dataset for the current query execution. */
     public static final Symbol sysCurrentDataset        = Symbol.create(systemVarNS+"dataset") ;
 
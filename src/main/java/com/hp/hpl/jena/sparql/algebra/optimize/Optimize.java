@@ -154,6 +154,10 @@ public class Optimize implements Rewrite
         // e..g CONSTRUCT {} WHERE { SELECT ... } 
         //op = TransformTopLevelSelect.simplify(op) ;
         
+        // Before preparing expressions: folding makes new expressions.
+        if ( context.isTrueOrUndef(ARQ.optConstantFolding) )
+            op = apply("Constant folding", new TransformConstantFold(), op) ;
+        
         // Prepare expressions.
         OpWalker.walk(op, new OpVisitorExprPrepare(context)) ;
         
@@ -168,6 +172,10 @@ public class Optimize implements Rewrite
         if ( context.isTrueOrUndef(ARQ.optFilterExpandOneOf) )
             op = apply("Break up IN and NOT IN", new TransformExpandOneOf(), op) ;
 
+        // Before filter placement: needs the filter over the whole group.
+        if ( context.isTrueOrUndef(ARQ.optFilterNotExists) )
+            op = apply("FILTER NOT EXISTS to MINUS", new TransformFilterNotExists(), op) ;
+
         // Either, do filter placement and other sequence generating transformations.
         // or improve to place in a sequence (latter is better?)
         
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.algebra.optimize;
+
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.TransformCopy ;
+import com.hp.hpl.jena.sparql.algebra.op.OpAssign ;
+import com.hp.hpl.jena.sparql.algebra.op.OpExtend ;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter ;
+import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.core.VarExprList ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+import com.hp.hpl.jena.sparql.expr.ExprTransform ;
+import com.hp.hpl.jena.sparql.expr.ExprTransformConstantFold ;
+import com.hp.hpl.jena.sparql.expr.ExprTransformer ;
+
+/** Evaluate the constant parts of FILTER, OPTIONAL-FILTER, BIND and LET expressions
+ *  once, when the query is optimized.
+ *  @see ExprTransformConstantFold
+ */
+public class TransformConstantFold extends TransformCopy
+{
+    private final ExprTransform exprTransform = new ExprTransformConstantFold() ;
+
+    @Override
+    public Op transform(OpFilter opFilter, Op subOp)
+    {
+        ExprList exprList = fold(opFilter.getExprs()) ;
+        if ( exprList == null )
+            return super.transform(opFilter, subOp) ;
+        return OpFilter.filterDirect(exprList, subOp) ;
+    }
+
+    @Override
+    public Op transform(OpLeftJoin opLeftJoin, Op opLeft, Op opRight)
+    {
+        ExprList exprList = fold(opLeftJoin.getExprs()) ;
+        if ( exprList == null )
+            return super.transform(opLeftJoin, opLeft, opRight) ;
+        return OpLeftJoin.create(opLeft, opRight, exprList) ;
+    }
+
+    @Override
+    public Op transform(OpExtend opExtend, Op subOp)
+    {
+        VarExprList varExprList = fold(opExtend.getVarExprList()) ;
+        if ( varExprList == null )
+            return super.transform(opExtend, subOp) ;
+        return OpExtend.extendDirect(subOp, varExprList) ;
+    }
+
+    @Override
+    public Op transform(OpAssign opAssign, Op subOp)
+    {
+        VarExprList varExprList = fold(opAssign.getVarExprList()) ;
+        if ( varExprList == null )
+            return super.transform(opAssign, subOp) ;
+        return OpAssign.assignDirect(subOp, varExprList) ;
+    }
+
+    /** Fold the expressions; null if there is no change */
+    private ExprList fold(ExprList exprList)
+    {
+        if ( exprList == null )
+            return null ;
+        boolean changed = false ;
+        ExprList exprList2 = new ExprList() ;
+        for ( Expr e : exprList )
+        {
+            Expr e2 = ExprTransformer.transform(exprTransform, e) ;
+            changed = changed || ( e2 != e ) ;
+            exprList2.add(e2) ;
+        }
+        return changed ? exprList2 : null ;
+    }
+
+    private VarExprList fold(VarExprList varExprList)
+    {
+        boolean changed = false ;
+        VarExprList varExprList2 = new VarExprList() ;
+        for ( Var v : varExprList.getVars() )
+        {
+            Expr e = varExprList.getExpr(v) ;
+            Expr e2 = ( e == null ) ? null : ExprTransformer.transform(exprTransform, e) ;
+            changed = changed || ( e2 != e ) ;
+            if ( e2 == null )
+                varExprList2.add(v) ;
+            else
+                varExprList2.add(v, e2) ;
+        }
+        return changed ? varExprList2 : null ;
+    }
+}
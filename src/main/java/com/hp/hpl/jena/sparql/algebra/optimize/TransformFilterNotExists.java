@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.algebra.optimize;
+
+import java.util.ArrayList ;
+import java.util.Collection ;
+import java.util.List ;
+import java.util.Set ;
+
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpVars ;
+import com.hp.hpl.jena.sparql.algebra.TransformCopy ;
+import com.hp.hpl.jena.sparql.algebra.op.OpBGP ;
+import com.hp.hpl.jena.sparql.algebra.op.OpFilter ;
+import com.hp.hpl.jena.sparql.algebra.op.OpMinus ;
+import com.hp.hpl.jena.sparql.algebra.op.OpQuadPattern ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.main.VarFinder ;
+import com.hp.hpl.jena.sparql.expr.E_NotExists ;
+import com.hp.hpl.jena.sparql.expr.Expr ;
+import com.hp.hpl.jena.sparql.expr.ExprList ;
+
+/** Redo FILTER NOT EXISTS { pattern } as MINUS { pattern } where that does not
+ *  change the results, so it is executed as a hash anti-join rather than
+ *  evaluating the pattern once per row.
+ *  <p>
+ *  This is done when the pattern is a basic graph pattern and every variable it
+ *  shares with the filtered pattern is always bound there, and there is at least
+ *  one such variable.  Then a row has a compatible solution of the pattern, with
+ *  a non-empty shared domain, exactly when the pattern, with the row substituted,
+ *  has a solution.
+ *  <p>
+ *  This must be done before filter placement so the filtered pattern is the
+ *  whole group the filter applies to.
+ */
+
+public class TransformFilterNotExists extends TransformCopy
+{
+    public TransformFilterNotExists() {}
+    
+    @Override
+    public Op transform(OpFilter opFilter, Op subOp)
+    {
+        ExprList remaining = new ExprList() ;
+        List<Op> antiJoins = new ArrayList<Op>() ;
+        
+        for ( Expr expr : opFilter.getExprs() )
+        {
+            if ( expr instanceof E_NotExists )
+            {
+                Op pattern = ((E_NotExists)expr).getGraphPattern() ;
+                if ( uncorrelated(subOp, pattern) )
+                {
+                    antiJoins.add(pattern) ;
+                    continue ;
+                }
+            }
+            remaining.add(expr) ;
+        }
+        
+        if ( antiJoins.isEmpty() )
+            return super.transform(opFilter, subOp) ;
+        
+        Op op = subOp ;
+        if ( ! remaining.isEmpty() )
+            op = OpFilter.filterDirect(remaining, op) ;
+        for ( Op pattern : antiJoins )
+            op = OpMinus.create(op, pattern) ;
+        return op ;
+    }
+    
+    private static boolean uncorrelated(Op subOp, Op pattern)
+    {
+        if ( ! ( pattern instanceof OpBGP ) && ! ( pattern instanceof OpQuadPattern ) )
+            return false ;
+        
+        Collection<Var> patternVars = OpVars.allVars(pattern) ;
+        Collection<Var> subVars = OpVars.allVars(subOp) ;
+        Set<Var> fixed = VarFinder.fixed(subOp) ;
+        // MINUS only compares on variables that appear in the patterns of both sides. 
+        Set<Var> subPatternVars = OpVars.patternVars(subOp) ;
+        
+        boolean shared = false ;
+        for ( Var v : patternVars )
+        {
+            if ( ! subVars.contains(v) )
+                continue ;
+            if ( ! fixed.contains(v) || ! subPatternVars.contains(v) )
+                return false ;
+            shared = true ;
+        }
+        return shared ;
+    }
+}
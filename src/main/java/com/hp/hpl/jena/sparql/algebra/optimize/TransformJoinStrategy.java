@@ -56,7 +56,10 @@ public class TransformJoinStrategy extends TransformCopy
             // Streamed evaluation
             return OpSequence.create(left, right) ;
         }
-        // Can't do better.
+        // Can't stream - leave as a join.  OpExecutor evaluates this with a
+        // hash join keyed on the variables fixed on both sides
+        // (JoinClassifier.joinKeys) or, if there are none, by materializing
+        // the right hand side.
         return super.transform(opJoin, left,right) ;
     }
     
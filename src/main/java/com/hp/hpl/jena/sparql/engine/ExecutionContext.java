@@ -20,6 +20,7 @@ package com.hp.hpl.jena.sparql.engine;
 
 import java.util.ArrayList ;
 import java.util.Collection ;
+import java.util.Collections ;
 import java.util.Iterator ;
 
 import com.hp.hpl.jena.graph.Graph ;
@@ -64,9 +65,9 @@ public class ExecutionContext implements FunctionEnv
     {
         this.context = params ;
         this.dataset = dataset ;
-        this.openIterators = new ArrayList<QueryIterator>() ;
+        this.openIterators = Collections.synchronizedList(new ArrayList<QueryIterator>()) ;
         if ( TrackAllIterators )
-            this.allIterators  = new ArrayList<QueryIterator>() ;
+            this.allIterators  = Collections.synchronizedList(new ArrayList<QueryIterator>()) ;
         this.activeGraph = activeGraph ;
         this.executor = factory ;
     }
@@ -79,6 +80,7 @@ public class ExecutionContext implements FunctionEnv
     
     public void openIterator(QueryIterator qIter)
     {
+        // Iterators may be created and closed on other threads (parallel union). 
         openIterators.add(qIter) ;
         if ( allIterators != null )
             allIterators.add(qIter) ;
@@ -89,11 +91,21 @@ public class ExecutionContext implements FunctionEnv
         openIterators.remove(qIter) ;
     }
 
-    public Iterator<QueryIterator> listOpenIterators()  { return openIterators.iterator() ; }
+    /** A copy of the iterators not yet closed */ 
+    public Iterator<QueryIterator> listOpenIterators()  { return snapshot(openIterators) ; }
+    /** A copy of all iterators, if iterator tracking is enabled, else null */ 
     public Iterator<QueryIterator> listAllIterators()
     { 
         if ( allIterators == null ) return null ;
-        return allIterators.iterator() ;
+        return snapshot(allIterators) ;
+    }
+    
+    private static Iterator<QueryIterator> snapshot(Collection<QueryIterator> iterators)
+    {
+        synchronized(iterators)
+        {
+            return new ArrayList<QueryIterator>(iterators).iterator() ;
+        }
     }
     
     public OpExecutorFactory getExecutor()
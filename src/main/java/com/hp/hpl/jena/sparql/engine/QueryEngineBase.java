@@ -44,6 +44,9 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     private Query query = null ;
     private Op queryOp = null ;
     private Plan plan = null ;
+    // Plan caching: the key when enabled and the cached plan, if any.
+    private Object planKey = null ;
+    private Op cachedPlanOp = null ;
     
     protected QueryEngineBase(Query query,
                               DatasetGraph dataset, 
@@ -53,6 +56,18 @@ public abstract class QueryEngineBase implements OpEval, Closeable
         this(dataset, input, cxt) ;
         this.query = query ;
         query.setResultVars() ;
+        if ( QueryPlanCache.isEnabled(context) )
+        {
+            QueryPlanCache cache = QueryPlanCache.get() ;
+            planKey = cache.key(query, context, getClass()) ;
+            QueryPlanCache.Entry entry = cache.get(planKey) ;
+            if ( entry != null )
+            {
+                cachedPlanOp = entry.getPlan() ;
+                setOp(entry.getOp()) ;
+                return ;
+            }
+        }
         // Unoptimized so far.
         setOp(createOp(query)) ;
     }
@@ -91,7 +106,13 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     protected Plan createPlan()
     {
         // Decide the algebra to actually execute.
-        Op op = modifyOp(queryOp) ;
+        Op op = cachedPlanOp ;
+        if ( op == null )
+        {
+            op = modifyOp(queryOp) ;
+            if ( planKey != null )
+                QueryPlanCache.get().put(planKey, queryOp, op) ;
+        }
 
         QueryIterator queryIterator = null ;
         if ( dataset != null )
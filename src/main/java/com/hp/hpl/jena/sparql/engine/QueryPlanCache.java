@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.HashSet ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.TreeMap ;
+
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.CacheStats ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.optimize.Optimize ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
+
+/** Cache of the algebra for a query, before and after the query engine has
+ *  modified (optimized) it.
+ *  <p>
+ *  The key is the query in its serialized, normalized form, the query engine
+ *  class and all the settings in the context, other than those set afresh
+ *  for each execution (such as the current time and dataset).  Simple values
+ *  (strings, numbers, booleans, symbols and nodes) are compared by value;
+ *  any other object, such as a registry or factory, by identity.  So any
+ *  change to the context is a different plan.  Any dataset description in
+ *  the query is part of the query string.
+ *  <p>
+ *  Used by {@link QueryEngineBase} when {@link ARQ#queryPlanCache} is true.
+ *  The cache is thread-safe; statistics are available through JMX.
+ */
+public class QueryPlanCache
+{
+    public static final int DefaultCacheSize = 1000 ;
+
+    private static QueryPlanCache singleton = new QueryPlanCache(DefaultCacheSize) ;
+
+    /** The cache used by the query engines */
+    public static QueryPlanCache get()      { return singleton ; }
+
+    /** Replace the global cache with an empty one of the given size */
+    public static void setCacheSize(int size)
+    {
+        singleton = new QueryPlanCache(size) ;
+    }
+
+    /** Is plan caching enabled for this context? */
+    public static boolean isEnabled(Context context)
+    {
+        return context != null && context.isTrue(ARQ.queryPlanCache) ;
+    }
+
+    /** The algebra for a query: as generated and as modified by the query engine */
+    public static final class Entry
+    {
+        private final Op op ;
+        private final Op plan ;
+        Entry(Op op, Op plan) { this.op = op ; this.plan = plan ; }
+
+        /** The algebra generated from the query */
+        public Op getOp()       { return op ; }
+        /** The algebra after the query engine has modified it */
+        public Op getPlan()     { return plan ; }
+    }
+
+    private final int size ;
+    private final CacheStats<Key, Entry> cache ;
+
+    private QueryPlanCache(int size)
+    {
+        this.size = size ;
+        this.cache = CacheFactory.createStats(CacheFactory.createSync(CacheFactory.<Key, Entry>createCache(size))) ;
+    }
+
+    /** Create the cache key for a query (call after any changes to the query or context) */
+    public Object key(Query query, Context context, Class<?> engine)
+    {
+        return new Key(query.serialize(), engine, settings(context)) ;
+    }
+
+    public Entry get(Object key)
+    {
+        return cache.get((Key)key) ;
+    }
+
+    public void put(Object key, Op op, Op plan)
+    {
+        cache.put((Key)key, new Entry(op, plan)) ;
+    }
+
+    public void clear()                 { cache.clear() ; }
+
+    public int getMaxSize()             { return size ; }
+    public long getCacheSize()          { return cache.size() ; }
+    public long getCacheHits()          { return cache.getCacheHits() ; }
+    public long getCacheMisses()        { return cache.getCacheMisses() ; }
+    public long getCacheEjects()        { return cache.getCacheEjects() ; }
+
+    // Context entries that are set for each execution and do not change the plan.
+    private static final Set<Symbol> perExecution = new HashSet<Symbol>(Arrays.asList(
+        ARQConstants.sysCurrentQuery,
+        ARQConstants.sysCurrentDataset,
+        ARQConstants.sysCurrentAlgebra,
+        ARQConstants.sysCurrentTime,
+        ARQConstants.sysOptimizer)) ;
+
+    private static List<Object> settings(Context context)
+    {
+        List<Object> x = new ArrayList<Object>() ;
+        Map<String, Object> entries = new TreeMap<String, Object>() ;
+        for ( Symbol sym : context.keys() )
+        {
+            if ( perExecution.contains(sym) )
+                continue ;
+            entries.put(sym.getSymbol(), settingValue(context.get(sym))) ;
+        }
+        x.add(entries) ;
+        // The global optimizer factory, used when the context does not set one.
+        x.add(new Identity(Optimize.getFactory(null))) ;
+        return x ;
+    }
+
+    private static Object settingValue(Object value)
+    {
+        if ( value == null || value instanceof String || value instanceof Boolean || value instanceof Number ||
+             value instanceof Symbol || value instanceof Node || value instanceof Enum<?> )
+            // Distinguish "true" and true.
+            return Arrays.asList(value == null ? null : value.getClass(), String.valueOf(value)) ;
+        return new Identity(value) ;
+    }
+
+    private static final class Identity
+    {
+        private final Object obj ;
+        Identity(Object obj) { this.obj = obj ; }
+
+        @Override
+        public int hashCode()       { return System.identityHashCode(obj) ; }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Identity && ((Identity)other).obj == obj ;
+        }
+    }
+
+    private static final class Key
+    {
+        private final String queryString ;
+        private final Class<?> engine ;
+        private final List<Object> settings ;
+        private final int hash ;
+
+        Key(String queryString, Class<?> engine, List<Object> settings)
+        {
+            this.queryString = queryString ;
+            this.engine = engine ;
+            this.settings = settings ;
+            this.hash = queryString.hashCode() ^ engine.hashCode() ^ settings.hashCode() ;
+        }
+
+        @Override
+        public int hashCode()   { return hash ; }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if ( this == other ) return true ;
+            if ( ! ( other instanceof Key ) ) return false ;
+            Key k = (Key)other ;
+            return hash == k.hash &&
+                   engine == k.engine &&
+                   queryString.equals(k.queryString) &&
+                   settings.equals(k.settings) ;
+        }
+    }
+}
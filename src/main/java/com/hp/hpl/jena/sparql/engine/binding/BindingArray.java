@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.iterator.IteratorConcat ;
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+
+/** A binding that is a flat array of nodes, indexed by the slots of a
+ *  {@link VarSlots} table shared by all the bindings of a query execution.
+ *  <p>
+ *  Extending a BindingArray (see {@link BindingFactory}) copies the array
+ *  instead of making a new level, so {@code get} is an array access
+ *  and not a walk up the chain of parents.  Variables that are not in the
+ *  table are kept in a separate map.
+ */
+public class BindingArray extends BindingBase implements BindingMap
+{
+    private final VarSlots slots ;
+    private final Node[] values ;
+    private int count = 0 ;
+    // Variables not in the slot table.
+    private BindingHashMap overflow = null ;
+
+    /** A BindingArray with the bindings of another binding (which can be null) */
+    public static BindingArray create(Binding binding, VarSlots slots)
+    {
+        BindingArray b = new BindingArray(BindingFactory.noParent, slots) ;
+        if ( binding != null )
+            b.addAll(binding) ;
+        return b ;
+    }
+
+    /** Using BindingFactory.create is better */
+    public BindingArray(Binding parent, VarSlots slots)
+    {
+        super(parent) ;
+        this.slots = slots ;
+        this.values = new Node[slots.size()] ;
+    }
+
+    /** A new binding with the same bindings as this one, for adding more to.
+     *  The array is copied, so this binding does not become a parent. */
+    BindingArray extend()
+    {
+        if ( overflow != null )
+            // Keep the chain rather than copy the map.
+            return new BindingArray(this, slots) ;
+        BindingArray b = new BindingArray(parent, slots) ;
+        System.arraycopy(values, 0, b.values, 0, values.length) ;
+        b.count = count ;
+        return b ;
+    }
+
+    public VarSlots getSlots()      { return slots ; }
+
+    @Override
+    protected int size1()
+    {
+        return ( overflow == null ) ? count : count + overflow.size() ;
+    }
+
+    @Override
+    protected boolean isEmpty1()    { return size1() == 0 ; }
+
+    @Override
+    protected Iterator<Var> vars1()
+    {
+        Iterator<Var> iter = new SlotIterator() ;
+        if ( overflow != null )
+            iter = IteratorConcat.concat(iter, overflow.vars()) ;
+        return iter ;
+    }
+
+    @Override
+    protected boolean contains1(Var var)
+    {
+        return get1(var) != null ;
+    }
+
+    @Override
+    protected Node get1(Var var)
+    {
+        int i = slots.slot(var) ;
+        if ( i >= 0 )
+            return values[i] ;
+        if ( overflow != null )
+            return overflow.get(var) ;
+        return null ;
+    }
+
+    /** Add a (var,value) - the node value is never null */
+    @Override
+    public void add(Var var, Node node)
+    {
+        if ( node == null )
+        {
+            Log.warn(this, "Binding.add: null value - ignored") ;
+            return ;
+        }
+        checkAdd(var, node) ;
+        if ( Var.isAnonVar(var) )
+            return ;
+        int i = slots.slot(var) ;
+        if ( i >= 0 )
+        {
+            values[i] = node ;
+            count++ ;
+            return ;
+        }
+        if ( overflow == null )
+            overflow = new BindingHashMap(BindingFactory.noParent) ;
+        overflow.add(var, node) ;
+    }
+
+    @Override
+    public void addAll(Binding other)
+    {
+        BindingUtils.addAll(this, other) ;
+    }
+
+    private void checkAdd(Var var, Node node)
+    {
+        if ( ! CHECKING )
+            return ;
+        if ( var == null )
+            throw new ARQInternalErrorException("check("+var+", "+node+"): null var" ) ;
+        if ( UNIQUE_NAMES_CHECK && contains(var) )
+            throw new ARQInternalErrorException("Attempt to reassign '"+var+
+                                                "' from '"+FmtUtils.stringForNode(get(var))+
+                                                "' to '"+FmtUtils.stringForNode(node)+"'") ;
+    }
+
+    private class SlotIterator implements Iterator<Var>
+    {
+        private int i = -1 ;
+        SlotIterator() { advance() ; }
+
+        private void advance()
+        {
+            i++ ;
+            while ( i < values.length && values[i] == null )
+                i++ ;
+        }
+
+        @Override
+        public boolean hasNext()    { return i < values.length ; }
+
+        @Override
+        public Var next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Var v = slots.var(i) ;
+            advance() ;
+            return v ;
+        }
+
+        @Override
+        public void remove()        { throw new UnsupportedOperationException() ; }
+    }
+}
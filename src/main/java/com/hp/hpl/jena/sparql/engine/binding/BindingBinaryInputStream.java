@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import static com.hp.hpl.jena.sparql.engine.binding.BindingBinaryOutputStream.* ;
+
+import java.io.ByteArrayInputStream ;
+import java.io.DataInputStream ;
+import java.io.EOFException ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.zip.Inflater ;
+import java.util.zip.InflaterInputStream ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.riot.RiotException ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.rdf.model.AnonId ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+/** Read bindings written by {@link BindingBinaryOutputStream}. */
+public class BindingBinaryInputStream implements Iterator<Binding>, Closeable
+{
+    private final InputStream in ;
+    private final Inflater inflater ;
+    private final List<Node> nodeDict ;
+    private final List<Var> varDict = new ArrayList<Var>() ;
+    private byte[] buffer = new byte[1024] ;
+    private Binding slot = null ;
+    private boolean finished = false ;
+
+    public BindingBinaryInputStream(InputStream in)
+    {
+        try {
+            for ( byte b : MAGIC )
+            {
+                if ( in.read() != b )
+                    throw new RiotException("Not a binary binding stream") ;
+            }
+            int flags = in.read() ;
+            if ( flags < 0 )
+                throw new RiotException("Truncated binary binding stream") ;
+            if ( (flags & FLAG_DEFLATE) != 0 )
+            {
+                inflater = new Inflater() ;
+                in = new InflaterInputStream(in, inflater, BufferSize) ;
+            }
+            else
+                inflater = null ;
+            nodeDict = ( (flags & FLAG_DICTIONARY) != 0 ) ? new ArrayList<Node>() : null ;
+        } catch (IOException ex) { throw new RiotException(ex) ; }
+        this.in = in ;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if ( finished )
+            return false ;
+        if ( slot != null )
+            return true ;
+        slot = readBinding() ;
+        if ( slot == null )
+        {
+            close() ;
+            return false ;
+        }
+        return true ;
+    }
+
+    @Override
+    public Binding next()
+    {
+        if ( ! hasNext() )
+            throw new NoSuchElementException("BindingBinaryInputStream") ;
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    @Override
+    public void remove()
+    { throw new UnsupportedOperationException("BindingBinaryInputStream.remove") ; }
+
+    private Binding readBinding()
+    {
+        try {
+            int len = readInt(in, true) ;
+            if ( len < 0 )
+                return null ;
+            if ( buffer.length < len )
+                buffer = new byte[Math.max(len, 2*buffer.length)] ;
+            readFully(in, buffer, len) ;
+            DataInputStream row = new DataInputStream(new ByteArrayInputStream(buffer, 0, len)) ;
+            int n = readInt(row, false) ;
+            BindingMap binding = BindingFactory.create() ;
+            for ( int i = 0 ; i < n ; i++ )
+            {
+                Var v = readVar(row) ;
+                binding.add(v, readNode(row)) ;
+            }
+            if ( row.available() != 0 )
+                throw new RiotException("Bad binary binding record") ;
+            return binding ;
+        } catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+
+    private Var readVar(DataInputStream row) throws IOException
+    {
+        int id = readInt(row, false) ;
+        if ( id != 0 )
+            return varDict.get(id-1) ;
+        Var v = Var.alloc(readString(row)) ;
+        varDict.add(v) ;
+        return v ;
+    }
+
+    private Node readNode(DataInputStream row) throws IOException
+    {
+        int tag = row.read() ;
+        if ( tag == TAG_REF )
+            return nodeDict.get(readInt(row, false)) ;
+
+        Node n ;
+        switch (tag)
+        {
+            case TAG_URI:
+                n = Node.createURI(readString(row)) ;
+                break ;
+            case TAG_BNODE:
+                n = Node.createAnon(new AnonId(readString(row))) ;
+                break ;
+            case TAG_LITERAL:
+                n = Node.createLiteral(readString(row)) ;
+                break ;
+            case TAG_LITERAL_LANG:
+            {
+                String lex = readString(row) ;
+                n = NodeFactory.createLiteralNode(lex, readString(row), null) ;
+                break ;
+            }
+            case TAG_LITERAL_DT:
+            {
+                String lex = readString(row) ;
+                n = NodeFactory.createLiteralNode(lex, null, readString(row)) ;
+                break ;
+            }
+            case TAG_VAR:
+                n = Var.alloc(readString(row)) ;
+                break ;
+            default:
+                throw new RiotException("Bad node tag in binary binding record: "+tag) ;
+        }
+        if ( nodeDict != null && nodeDict.size() < MaxDictionarySize )
+            nodeDict.add(n) ;
+        return n ;
+    }
+
+    private static String readString(DataInputStream row) throws IOException
+    {
+        int len = readInt(row, false) ;
+        byte[] b = new byte[len] ;
+        row.readFully(b) ;
+        return new String(b, "UTF-8") ;
+    }
+
+    /** Read a variable length integer; return -1 at end of stream if allowed */
+    private static int readInt(InputStream in, boolean eofAllowed) throws IOException
+    {
+        int x = 0 ;
+        for ( int shift = 0 ; ; shift += 7 )
+        {
+            int b = in.read() ;
+            if ( b < 0 )
+            {
+                if ( eofAllowed && shift == 0 )
+                    return -1 ;
+                throw new EOFException() ;
+            }
+            x |= (b & 0x7F) << shift ;
+            if ( (b & 0x80) == 0 )
+                return x ;
+        }
+    }
+
+    private static void readFully(InputStream in, byte[] bytes, int len) throws IOException
+    {
+        int off = 0 ;
+        while ( off < len )
+        {
+            int n = in.read(bytes, off, len-off) ;
+            if ( n < 0 )
+                throw new EOFException() ;
+            off += n ;
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if ( finished )
+            return ;
+        finished = true ;
+        slot = null ;
+        IO.close(in) ;
+        if ( inflater != null )
+            inflater.end() ;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.io.ByteArrayOutputStream ;
+import java.io.DataOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+import java.util.zip.Deflater ;
+import java.util.zip.DeflaterOutputStream ;
+
+import org.apache.jena.atlas.lib.Sink ;
+import org.apache.jena.riot.RiotException ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** Write bindings in a compact binary form, for example when spilling to disk.
+ *  Read with {@link BindingBinaryInputStream}.
+ *  <p>
+ *  The stream starts with a 4 byte header: 3 magic bytes and a flags byte
+ *  (node dictionary, compression).  Each binding is then a length-prefixed
+ *  record: the number of variables, and for each variable, a reference to the
+ *  variable and the node.  Variable names are only written the first time
+ *  they occur.  With a node dictionary, each node is also written in full
+ *  only once; after that, a reference to it is written.  With compression,
+ *  everything after the header is compressed with deflate.
+ *  <p>
+ *  Integers are written as variable length (7 bits per byte); strings
+ *  as a length and UTF-8 bytes.
+ */
+public class BindingBinaryOutputStream implements Sink<Binding>
+{
+    static final byte[] MAGIC           = { 'B', 'R', 'B' } ;
+    static final int FLAG_DICTIONARY    = 0x01 ;
+    static final int FLAG_DEFLATE       = 0x02 ;
+
+    static final int TAG_REF            = 0 ;
+    static final int TAG_URI            = 1 ;
+    static final int TAG_BNODE          = 2 ;
+    static final int TAG_LITERAL        = 3 ;
+    static final int TAG_LITERAL_LANG   = 4 ;
+    static final int TAG_LITERAL_DT     = 5 ;
+    static final int TAG_VAR            = 6 ;
+
+    /** Limit on the number of nodes in the dictionary for one stream */
+    public static final int MaxDictionarySize = 100*1000 ;
+
+    static final int BufferSize = 64*1024 ;
+
+    private final OutputStream out ;
+    private final Deflater deflater ;
+    private final Map<Node, Integer> nodeDict ;
+    private final Map<Var, Integer> varDict = new HashMap<Var, Integer>() ;
+    private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream() ;
+    private final DataOutputStream row = new DataOutputStream(rowBytes) ;
+
+    public BindingBinaryOutputStream(OutputStream out)
+    {
+        this(out, true, false) ;
+    }
+
+    public BindingBinaryOutputStream(OutputStream out, boolean nodeDictionary, boolean compress)
+    {
+        try {
+            int flags = ( nodeDictionary ? FLAG_DICTIONARY : 0 ) | ( compress ? FLAG_DEFLATE : 0 ) ;
+            out.write(MAGIC) ;
+            out.write(flags) ;
+            if ( compress )
+            {
+                deflater = new Deflater(Deflater.BEST_SPEED) ;
+                out = new DeflaterOutputStream(out, deflater, BufferSize) ;
+            }
+            else
+                deflater = null ;
+        } catch (IOException ex) { throw new RiotException(ex) ; }
+        this.out = out ;
+        this.nodeDict = nodeDictionary ? new HashMap<Node, Integer>() : null ;
+    }
+
+    public final void write(Binding binding) { send(binding) ; }
+
+    @Override
+    public void send(Binding binding)
+    {
+        try {
+            rowBytes.reset() ;
+            writeInt(row, binding.size()) ;
+            for ( Iterator<Var> iter = binding.vars() ; iter.hasNext() ; )
+            {
+                Var v = iter.next() ;
+                writeVar(v) ;
+                writeNode(binding.get(v)) ;
+            }
+            writeInt(out, rowBytes.size()) ;
+            rowBytes.writeTo(out) ;
+        } catch (IOException ex)
+        {
+            throw new RiotException(ex) ;
+        }
+    }
+
+    private void writeVar(Var v) throws IOException
+    {
+        Integer id = varDict.get(v) ;
+        if ( id != null )
+        {
+            writeInt(row, id) ;
+            return ;
+        }
+        // 0 is "new variable" - ids start at 1.
+        varDict.put(v, varDict.size()+1) ;
+        writeInt(row, 0) ;
+        writeString(row, v.getVarName()) ;
+    }
+
+    private void writeNode(Node n) throws IOException
+    {
+        if ( nodeDict != null )
+        {
+            Integer id = nodeDict.get(n) ;
+            if ( id != null )
+            {
+                row.write(TAG_REF) ;
+                writeInt(row, id) ;
+                return ;
+            }
+            if ( nodeDict.size() < MaxDictionarySize )
+                nodeDict.put(n, nodeDict.size()) ;
+        }
+
+        if ( n.isURI() )
+        {
+            row.write(TAG_URI) ;
+            writeString(row, n.getURI()) ;
+        }
+        else if ( n.isBlank() )
+        {
+            row.write(TAG_BNODE) ;
+            writeString(row, n.getBlankNodeLabel()) ;
+        }
+        else if ( n.isLiteral() )
+        {
+            String lang = n.getLiteralLanguage() ;
+            String dt = n.getLiteralDatatypeURI() ;
+            if ( lang != null && ! lang.equals("") )
+            {
+                row.write(TAG_LITERAL_LANG) ;
+                writeString(row, n.getLiteralLexicalForm()) ;
+                writeString(row, lang) ;
+            }
+            else if ( dt != null )
+            {
+                row.write(TAG_LITERAL_DT) ;
+                writeString(row, n.getLiteralLexicalForm()) ;
+                writeString(row, dt) ;
+            }
+            else
+            {
+                row.write(TAG_LITERAL) ;
+                writeString(row, n.getLiteralLexicalForm()) ;
+            }
+        }
+        else if ( n.isVariable() )
+        {
+            row.write(TAG_VAR) ;
+            writeString(row, n.getName()) ;
+        }
+        else
+            throw new RiotException("Can't write node: "+n) ;
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException
+    {
+        byte[] b = s.getBytes("UTF-8") ;
+        writeInt(out, b.length) ;
+        out.write(b) ;
+    }
+
+    static void writeInt(OutputStream out, int x) throws IOException
+    {
+        while ( (x & ~0x7F) != 0 )
+        {
+            out.write((x & 0x7F) | 0x80) ;
+            x >>>= 7 ;
+        }
+        out.write(x) ;
+    }
+
+    @Override
+    public void flush()
+    {
+        try { out.flush() ; }
+        catch (IOException ex) { throw new RiotException(ex) ; }
+    }
+
+    @Override
+    public void close()
+    {
+        try { out.close() ; }
+        catch (IOException ex) { throw new RiotException(ex) ; }
+        finally {
+            if ( deflater != null )
+                deflater.end() ;
+        }
+    }
+}
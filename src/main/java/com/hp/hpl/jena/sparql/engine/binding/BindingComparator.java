@@ -73,30 +73,63 @@ public class BindingComparator implements java.util.Comparator<Binding>
     // Node comparsion is:
     //  Compare by 
 
+    /** Evaluate the sort conditions for a binding, once, so that comparisons
+     * do not need to evaluate them again.  Use {@link #undecorate} to get the
+     * binding back after sorting.
+     */
+    public BindingSortKeys decorate(Binding binding)
+    {
+        if ( binding instanceof BindingSortKeys )
+            return (BindingSortKeys)binding ;
+        NodeValue[] keys = new NodeValue[conditions.size()] ;
+        int i = 0 ;
+        for ( SortCondition sc : conditions )
+        {
+            if ( sc.expression == null )
+                throw new QueryExecException("Broken sort condition") ;
+            keys[i++] = eval(sc.expression, binding) ;
+        }
+        return new BindingSortKeys(binding, keys) ;
+    }
+
+    /** Rebuild a decorated binding that has been written out and read back */
+    public BindingSortKeys restore(Binding binding)
+    {
+        return BindingSortKeys.restore(binding, conditions.size()) ;
+    }
+
+    /** The original binding for a decorated one */
+    public static Binding undecorate(Binding binding)
+    {
+        if ( binding instanceof BindingSortKeys )
+            return ((BindingSortKeys)binding).getBinding() ;
+        return binding ;
+    }
+
+    private NodeValue eval(Expr expr, Binding binding)
+    {
+        try { return expr.eval(binding, env) ; }
+        catch (VariableNotBoundException ex) {}
+        catch (ExprEvalException ex)
+        { Log.warn(this, ex.getMessage()) ; }
+        return null ;
+    }
+
     @Override
     public int compare(Binding bind1, Binding bind2)
     {
+        if ( bind1 instanceof BindingSortKeys && bind2 instanceof BindingSortKeys )
+            return compare((BindingSortKeys)bind1, (BindingSortKeys)bind2) ;
+        bind1 = undecorate(bind1) ;
+        bind2 = undecorate(bind2) ;
         for ( Iterator<SortCondition> iter = conditions.iterator() ; iter.hasNext() ; )
         {
             SortCondition sc = iter.next() ;
             if ( sc.expression == null )
                 throw new QueryExecException("Broken sort condition") ;
 
-            NodeValue nv1 = null ;
-            NodeValue nv2 = null ;
-            
-            try { nv1 = sc.expression.eval(bind1, env) ; }
-            catch (VariableNotBoundException ex) {}
-            catch (ExprEvalException ex)
-            { Log.warn(this, ex.getMessage()) ; }
-            
-            try { nv2 = sc.expression.eval(bind2, env) ; }
-            catch (VariableNotBoundException ex) {}
-            catch (ExprEvalException ex)
-            { Log.warn(this, ex.getMessage()) ; }
-            
-            Node n1 = NodeValue.toNode(nv1) ;
-            Node n2 = NodeValue.toNode(nv2) ;
+            NodeValue nv1 = eval(sc.expression, bind1) ;
+            NodeValue nv2 = eval(sc.expression, bind2) ;
             int x = compareNodes(nv1, nv2, sc.direction) ;
             if ( x != Expr.CMP_EQUAL )
                 return x ;
@@ -106,6 +139,21 @@ public class BindingComparator implements java.util.Comparator<Binding>
         //return 0 ;
     }
     
+    private int compare(BindingSortKeys bind1, BindingSortKeys bind2)
+    {
+        NodeValue[] keys1 = bind1.getKeys() ;
+        NodeValue[] keys2 = bind2.getKeys() ;
+        int i = 0 ;
+        for ( SortCondition sc : conditions )
+        {
+            int x = compareNodes(keys1[i], keys2[i], sc.direction) ;
+            if ( x != Expr.CMP_EQUAL )
+                return x ;
+            i++ ;
+        }
+        return compareBindingsSyntactic(bind1.getBinding(), bind2.getBinding()) ;
+    }
+
     private static int compareNodes(NodeValue nv1, NodeValue nv2, int direction)
     {
         int x = compareNodesRaw(nv1, nv2) ;
@@ -38,11 +38,30 @@ public class BindingFactory
     {
         if ( Var.isAnonVar(var) )
             return new Binding0(parent) ;
+        if ( parent instanceof BindingArray )
+        {
+            BindingArray b = ((BindingArray)parent).extend() ;
+            b.add(var, node) ;
+            return b ;
+        }
         return new Binding1(parent, var, node) ;
     }
     
     public static BindingMap create() { return create(noParent) ; }
-    public static BindingMap create(Binding parent) { return new BindingHashMap(parent)  ; }
+    
+    /** Create a binding for adding to, with the parent's bindings.
+     *  If the parent is a {@link BindingArray}, the new binding is a copy of it
+     *  using the same slots rather than a new level. */
+    public static BindingMap create(Binding parent)
+    {
+        if ( parent instanceof BindingArray )
+            return ((BindingArray)parent).extend() ;
+        return new BindingHashMap(parent)  ;
+    }
+    
+    /** Create a binding of no pairs that stores its values in the slots of the table;
+     *  bindings made from it by this factory do the same.  */
+    public static BindingMap create(VarSlots slots) { return new BindingArray(noParent, slots) ; }
     
     public static Binding root() { return BindingRoot.create() ; }
 }
@@ -150,6 +150,8 @@ public class BindingOutputStream implements Sink<Binding>
     private static boolean needVars(List<Var> vars, Binding binding)
     {
         if ( vars == null ) return true ;
+        // A variable in the binding but not in the VARS.
+        if ( binding.size() != vars.size() ) return true ;
         for ( Var v : vars )
         {
             if ( ! binding.contains(v) )
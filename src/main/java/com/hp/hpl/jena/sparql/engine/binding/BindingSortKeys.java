@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+
+/** A binding with the values of the ORDER BY expressions already calculated.
+ *  <p>
+ *  The parent is the binding being sorted.  The sort keys also appear as
+ *  variables of this binding (<tt>?@k0</tt>, <tt>?@k1</tt>, ...; unbound if
+ *  the expression has no value) so that they are written out when the binding
+ *  is spilled to disk; {@link #restore} rebuilds the object when it is read
+ *  back.
+ *
+ * @see BindingComparator#decorate
+ */
+public class BindingSortKeys extends BindingBase
+{
+    private static final List<Var> keyVars = new ArrayList<Var>() ;
+
+    /** The variable for the i'th sort key */
+    public static Var keyVar(int i)
+    {
+        synchronized(keyVars)
+        {
+            while ( keyVars.size() <= i )
+                keyVars.add(Var.alloc(ARQConstants.allocVarSortKey+keyVars.size())) ;
+            return keyVars.get(i) ;
+        }
+    }
+
+    /** Is this variable the variable for a sort key? */
+    public static boolean isKeyVar(Var var)
+    {
+        return var.getVarName().startsWith(ARQConstants.allocVarSortKey) ;
+    }
+
+    private final NodeValue[] keys ;
+    private final Var[] vars ;
+
+    public BindingSortKeys(Binding binding, NodeValue[] keys)
+    {
+        super(binding) ;
+        this.keys = keys ;
+        this.vars = new Var[keys.length] ;
+        for ( int i = 0 ; i < keys.length ; i++ )
+            vars[i] = keyVar(i) ;
+    }
+
+    /** The binding without the sort keys */
+    public Binding getBinding()     { return getParent() ; }
+
+    /** The sort keys - null for an expression that had no value */
+    public NodeValue[] getKeys()    { return keys ; }
+
+    /** Rebuild from a binding that has the sort keys as variables, for
+     * example, one that has been written to disk and read back.
+     */
+    public static BindingSortKeys restore(Binding binding, int numKeys)
+    {
+        if ( binding instanceof BindingSortKeys )
+            return (BindingSortKeys)binding ;
+        BindingMap b = BindingFactory.create() ;
+        for ( Iterator<Var> iter = binding.vars() ; iter.hasNext() ; )
+        {
+            Var v = iter.next() ;
+            if ( ! isKeyVar(v) )
+                b.add(v, binding.get(v)) ;
+        }
+        NodeValue[] keys = new NodeValue[numKeys] ;
+        for ( int i = 0 ; i < numKeys ; i++ )
+        {
+            Node n = binding.get(keyVar(i)) ;
+            keys[i] = ( n == null ) ? null : NodeValue.makeNode(n) ;
+        }
+        return new BindingSortKeys(b, keys) ;
+    }
+
+    @Override
+    protected Iterator<Var> vars1()
+    {
+        List<Var> x = new ArrayList<Var>(vars.length) ;
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            if ( keys[i] != null )
+                x.add(vars[i]) ;
+        }
+        return x.iterator() ;
+    }
+
+    @Override
+    protected int size1()
+    {
+        int n = 0 ;
+        for ( NodeValue nv : keys )
+            if ( nv != null ) n++ ;
+        return n ;
+    }
+
+    @Override
+    protected boolean isEmpty1()
+    {
+        return size1() == 0 ;
+    }
+
+    @Override
+    protected boolean contains1(Var var)
+    {
+        return get1(var) != null ;
+    }
+
+    @Override
+    protected Node get1(Var var)
+    {
+        for ( int i = 0 ; i < vars.length ; i++ )
+        {
+            if ( vars[i].equals(var) )
+                return keys[i] == null ? null : keys[i].asNode() ;
+        }
+        return null ;
+    }
+}
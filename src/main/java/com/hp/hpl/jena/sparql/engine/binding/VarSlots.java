@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import java.util.Arrays ;
+import java.util.Collection ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** A fixed table from variables to slot numbers, made once for a query
+ *  execution and shared by all the {@link BindingArray}s of that execution.
+ *  Immutable, so it can be shared between threads.
+ */
+public final class VarSlots
+{
+    private final Var[] vars ;
+    private final Map<Var, Integer> index ;
+
+    public static VarSlots create(Collection<Var> vars)
+    {
+        return new VarSlots(vars) ;
+    }
+
+    private VarSlots(Collection<Var> vars)
+    {
+        this.index = new HashMap<Var, Integer>(2*vars.size()+1) ;
+        for ( Var v : vars )
+        {
+            if ( Var.isAnonVar(v) || index.containsKey(v) )
+                continue ;
+            index.put(v, index.size()) ;
+        }
+        this.vars = new Var[index.size()] ;
+        for ( Map.Entry<Var, Integer> e : index.entrySet() )
+            this.vars[e.getValue()] = e.getKey() ;
+    }
+
+    /** The slot for a variable, or -1 if the variable is not in the table */
+    public int slot(Var var)
+    {
+        Integer x = index.get(var) ;
+        return ( x == null ) ? -1 : x.intValue() ;
+    }
+
+    /** The variable in a slot */
+    public Var var(int slot)        { return vars[slot] ; }
+
+    /** The number of slots */
+    public int size()               { return vars.length ; }
+
+    @Override
+    public String toString()        { return Arrays.asList(vars).toString() ; }
+}
@@ -26,14 +26,24 @@ import java.net.URL ;
 import java.util.ArrayList ;
 import java.util.Iterator ;
 import java.util.List ;
-import java.util.Map ;
 import java.util.regex.Pattern ;
-import java.util.zip.DeflaterInputStream ;
 import java.util.zip.GZIPInputStream ;
+import java.util.zip.InflaterInputStream ;
 
 import org.apache.commons.codec.binary.Base64 ;
+import org.apache.http.Header ;
+import org.apache.http.HttpEntity ;
+import org.apache.http.HttpResponse ;
+import org.apache.http.client.methods.HttpGet ;
+import org.apache.http.client.methods.HttpPost ;
+import org.apache.http.client.methods.HttpRequestBase ;
+import org.apache.http.conn.ConnectTimeoutException ;
+import org.apache.http.entity.StringEntity ;
+import org.apache.http.params.HttpConnectionParams ;
+import org.apache.http.util.EntityUtils ;
 import org.apache.jena.atlas.lib.StrUtils ;
 import org.apache.jena.riot.WebContent ;
+import org.apache.jena.riot.web.HttpConnectionPool ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -61,7 +71,6 @@ public class HttpQuery extends Params
     String serviceURL ;
     
     String contentTypeResult = WebContent.contentTypeResultsXML ;
-    HttpURLConnection httpConnection = null ;
     
     // An object indicate no value associated with parameter name 
     final static Object noValue = new Object() ;
@@ -124,7 +133,11 @@ public class HttpQuery extends Params
         return queryString ;
     }
 
-    public HttpURLConnection getConnection() { return httpConnection ; }
+    /** Always null.  Requests go over connections from the {@link HttpConnectionPool},
+     *  which are not {@link HttpURLConnection}s.
+     *  @deprecated Use {@link #getResponseCode()} and {@link #getContentType()} */
+    @Deprecated
+    public HttpURLConnection getConnection() { return null ; }
     
     /** Set the content type (Accept header) for the results
      */
@@ -267,40 +280,24 @@ public class HttpQuery extends Params
         { throw new QueryExceptionHTTP(0, "Malformed URL: "+malEx) ; }
         log.trace("GET "+target.toExternalForm()) ;
         
+        HttpGet request ;
+        try { request = new HttpGet(target.toExternalForm()) ; }
+        catch (IllegalArgumentException ex)
+        { throw new QueryExceptionHTTP(0, "Malformed URL: "+ex.getMessage()) ; }
+        // Redirects (3xx) are followed for GET.
+        request.setHeader("Accept", contentTypeResult) ;
         try
         {
-            httpConnection = (HttpURLConnection) target.openConnection();
-            // This is the default setting - but be clear about it.
-            httpConnection.setInstanceFollowRedirects(true) ;       
-            httpConnection.setRequestProperty("Accept", contentTypeResult) ;
-            
-            int x = httpConnection.getReadTimeout() ;
-            
-            // By default, following 3xx redirects is true
-            //conn.setFollowRedirects(true) ;
-            basicAuthentication(httpConnection) ;
-            applyTimeouts(httpConnection);
-            applyEncodings(httpConnection);
-            
-            httpConnection.setDoInput(true);
-            httpConnection.connect();
-            try
-            {
-                return execCommon();
-            }
-            catch (QueryExceptionHTTP qEx)
-            {
-                // Back-off and try POST if something complain about long URIs
-                // Broken 
-                if (qEx.getResponseCode() == 414 /*HttpServletResponse.SC_REQUEST_URI_TOO_LONG*/ )
-                    return execPost();
-                throw qEx;
-            }
+            return execCommon(request);
+        }
+        catch (QueryExceptionHTTP qEx)
+        {
+            // Back-off and try POST if something complain about long URIs
+            // Broken 
+            if (qEx.getResponseCode() == 414 /*HttpServletResponse.SC_REQUEST_URI_TOO_LONG*/ )
+                return execPost();
+            throw qEx;
         }
-        catch (java.net.ConnectException connEx)
-        { throw new QueryExceptionHTTP(QueryExceptionHTTP.NoServer, "Failed to connect to remote server"); }
-        catch (IOException ioEx)
-        { throw new QueryExceptionHTTP(ioEx); }
     }
     
     private InputStream execPost() throws QueryExceptionHTTP
@@ -313,45 +310,37 @@ public class HttpQuery extends Params
         
         ARQ.getHttpRequestLogger().trace(target.toExternalForm()) ;
 
-        try
+        HttpPost request ;
+        try { request = new HttpPost(target.toExternalForm()) ; }
+        catch (IllegalArgumentException ex)
+        { throw new QueryExceptionHTTP(0, "Malformed URL: "+ex.getMessage()) ; }
+        request.setHeader("Accept", contentTypeResult) ;
+        
+        StringBuilder body = new StringBuilder() ;
+        boolean first = true ;
+        for ( Iterator<Pair> iter = pairs().listIterator() ; iter.hasNext() ; )
         {
-            httpConnection = (HttpURLConnection) target.openConnection();
-            httpConnection.setRequestMethod("POST") ;
-            httpConnection.setRequestProperty("Accept", contentTypeResult) ;
-            httpConnection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded") ;
-            basicAuthentication(httpConnection) ;
-            applyTimeouts(httpConnection);
-            applyEncodings(httpConnection);
-            httpConnection.setDoOutput(true) ;
-            
-            boolean first = true ;
-            OutputStream out = httpConnection.getOutputStream() ;
-            for ( Iterator<Pair> iter = pairs().listIterator() ; iter.hasNext() ; )
-            {
-                if ( ! first )
-                    out.write('&') ;
-                first = false ;
-                Pair p = iter.next() ;
-                out.write(p.getName().getBytes()) ;
-                out.write('=') ;
-                String x = p.getValue() ;
-                x = Convert.encWWWForm(x) ;
-                out.write(x.getBytes()) ;
-                ARQ.getHttpRequestLogger().trace("Param: "+x) ;
-            }
-            out.flush() ;
-            httpConnection.connect() ;
-            return execCommon() ;
+            if ( ! first )
+                body.append('&') ;
+            first = false ;
+            Pair p = iter.next() ;
+            body.append(p.getName()) ;
+            body.append('=') ;
+            String x = p.getValue() ;
+            x = Convert.encWWWForm(x) ;
+            body.append(x) ;
+            ARQ.getHttpRequestLogger().trace("Param: "+x) ;
         }
-        catch (java.net.ConnectException connEx)
-        { throw new QueryExceptionHTTP(-1, "Failed to connect to remote server"); }
-        catch (SocketTimeoutException timeoutEx)
-        { throw new QueryExceptionHTTP(-1, "Failed to connect to remove server within specified timeout"); }
-        catch (IOException ioEx)
-        { throw new QueryExceptionHTTP(ioEx); }
+        try {
+            StringEntity entity = new StringEntity(body.toString(), "UTF-8") ;
+            entity.setContentType("application/x-www-form-urlencoded") ;
+            request.setEntity(entity) ;
+        } catch (UnsupportedEncodingException ex)
+        { throw new ARQInternalErrorException("UTF-8 is broken on this platform", ex) ; }
+        return execCommon(request) ;
     }
     
-    private void basicAuthentication(HttpURLConnection httpConnection2)
+    private void basicAuthentication(HttpRequestBase request)
     {
         // Do basic authentication : do directly, not via an Authenticator, because it 
         // avoids an extra round trip (Java normally does the request without authetication,
@@ -368,9 +357,9 @@ public class HttpQuery extends Params
                 StringBuffer x = new StringBuffer() ;
                 byte b[] = x.append(user).append(":").append(password).toString().getBytes("UTF-8") ;
                 String y = Base64.encodeBase64String(b) ;
-                httpConnection.setRequestProperty("Authorization", "Basic "+y) ;
+                request.setHeader("Authorization", "Basic "+y) ;
                 // Overwrite any password details we copied.
-                // Still leaves the copy in the HTTP connection.  But this only basic auth. 
+                // Still leaves the copy in the HTTP request.  But this only basic auth. 
                 for ( int i = 0 ; i < x.length() ; i++ ) x.setCharAt(i, '*') ;
                 for ( int i = 0 ; i < b.length ; i++ ) b[i] = (byte)0 ; 
             } catch (UnsupportedEncodingException ex)
@@ -381,19 +370,19 @@ public class HttpQuery extends Params
         }
     }
 
-    private void applyTimeouts(HttpURLConnection conn)
+    private void applyTimeouts(HttpRequestBase request)
     {
     	if (connectTimeout > 0)
     	{
-    		conn.setConnectTimeout(connectTimeout);
+    		HttpConnectionParams.setConnectionTimeout(request.getParams(), connectTimeout);
     	}
     	if (readTimeout > 0)
     	{
-    		conn.setReadTimeout(readTimeout);
+    		HttpConnectionParams.setSoTimeout(request.getParams(), readTimeout);
     	}
     }
     
-    private void applyEncodings(HttpURLConnection conn)
+    private void applyEncodings(HttpRequestBase request)
     {
     	List<String> encodings = new ArrayList<String>();
     	if (allowGZip) encodings.add("gzip");
@@ -401,21 +390,38 @@ public class HttpQuery extends Params
     	if (encodings.size() > 0)
     	{
     		//Apply the Accept-Encoding header if at least one encoding has been selected
-    		conn.setRequestProperty("Accept-Encoding", StrUtils.strjoin(", ", encodings));
+    		request.setHeader("Accept-Encoding", StrUtils.strjoin(", ", encodings));
     	}
     }
 
-    private InputStream execCommon() throws QueryExceptionHTTP
+    private InputStream execCommon(HttpRequestBase request) throws QueryExceptionHTTP
     {
+        basicAuthentication(request) ;
+        applyTimeouts(request) ;
+        applyEncodings(request) ;
+        
+        HttpResponse response ;
         try {
-            try {
-                responseCode = httpConnection.getResponseCode() ;
-                responseMessage = Convert.decWWWForm(httpConnection.getResponseMessage()) ;
-            } catch (NullPointerException ex) {
-                // This happens if you talk to a non-HTTP port.
-                // e.g. memcached!
-                throw new QueryExceptionHTTP("Problems with HTTP response (was it an HTTP server?)", ex) ;
-            }
+            // Connections come from, and go back to, the shared pool.
+            response = HttpConnectionPool.get().getHttpClient().execute(request) ;
+        }
+        catch (java.net.ConnectException connEx)
+        { throw new QueryExceptionHTTP(QueryExceptionHTTP.NoServer, "Failed to connect to remote server"); }
+        catch (ConnectTimeoutException timeoutEx)
+        {
+            // Report as HttpURLConnection did.
+            SocketTimeoutException ex = new SocketTimeoutException(timeoutEx.getMessage()) ;
+            ex.initCause(timeoutEx) ;
+            throw new QueryExceptionHTTP(ex) ;
+        }
+        catch (IOException ioEx)
+        { throw new QueryExceptionHTTP(ioEx); }
+        
+        try {
+            responseCode = response.getStatusLine().getStatusCode() ;
+            responseMessage = Convert.decWWWForm(response.getStatusLine().getReasonPhrase()) ;
+            HttpEntity entity = response.getEntity() ;
+            
             // 1xx: Informational 
             // 2xx: Success 
             // 3xx: Redirection 
@@ -423,19 +429,18 @@ public class HttpQuery extends Params
             // 5xx: Server Error 
             
             if ( 300 <= responseCode && responseCode < 400 )
+            {
+                EntityUtils.consume(entity) ;
                 throw new QueryExceptionHTTP(responseCode, responseMessage) ;
+            }
             
             // Other 400 and 500 - errors 
             
             if ( responseCode >= 400 )
             {
-                
-                InputStream x = httpConnection.getErrorStream() ;
-                if ( x != null )
+                if ( entity != null )
                 {
-                    //String ct = httpConnection.getContentType() ;
-                    //httpConnection.getContentEncoding() ;
-                    String str = FileUtils.readWholeFileAsUTF8(x) ;
+                    String str = EntityUtils.toString(entity, FileUtils.encodingUTF8) ;
                     throw new QueryExceptionHTTP(responseCode, responseMessage+"\n"+str) ;
                 }
                 else
@@ -443,14 +448,16 @@ public class HttpQuery extends Params
             }
             
             // Request succeeded
-            //httpConnection.setReadTimeout(10) ;
-            InputStream in = httpConnection.getInputStream() ;
+            if ( entity == null )
+                return new ByteArrayInputStream(new byte[0]) ;
+            InputStream in = new ResponseInputStream(entity.getContent(), request) ;
 
             //Get the returned content type so we can expose this later via the getContentType() method
             //We strip any parameters off the returned content type e.g. ;charset=UTF-8 since code that
             //consumes our getContentType() method will expect a bare MIME type
-            contentTypeResult = httpConnection.getContentType() ;
-            if (contentTypeResult.contains(";"))
+            Header contentType = entity.getContentType() ;
+            contentTypeResult = ( contentType == null ) ? null : contentType.getValue() ;
+            if (contentTypeResult != null && contentTypeResult.contains(";"))
             {
             	contentTypeResult = contentTypeResult.substring(0, contentTypeResult.indexOf(';'));
             }
@@ -458,58 +465,21 @@ public class HttpQuery extends Params
             
             //If compression was enabled and we got a compressed response as indicated by the presence of
             //a Content-Encoding header we need to ensure the input stream is appropriately wrapped in
-            //the relevant stream type but checking that the JVM hasn't been clever enough to do
-            //this for us already
-            String contentEnc = httpConnection.getContentEncoding() ;
+            //the relevant stream type
+            Header contentEnc = entity.getContentEncoding() ;
             
             if (contentEnc != null)
             {
-            	if (contentEnc.equalsIgnoreCase("gzip"))
+            	if (contentEnc.getValue().equalsIgnoreCase("gzip"))
             	{
-            		if (!(in instanceof GZIPInputStream))
-            		{
-            			in = new GZIPInputStream(in);
-            		}
+            		in = new GZIPInputStream(in);
             	}
-            	else if (contentEnc.equalsIgnoreCase("deflate"))
+            	else if (contentEnc.getValue().equalsIgnoreCase("deflate"))
             	{
-            		if (!(in instanceof DeflaterInputStream))
-            		{
-            			in = new DeflaterInputStream(in);
-            		}
+            		in = new InflaterInputStream(in);
             	}
             }
             
-            if ( false )
-            {
-                // Dump the header
-                Map<String,List<String>> map = httpConnection.getHeaderFields() ;
-                for ( Iterator<String> iter = map.keySet().iterator() ; iter.hasNext() ; )
-                {
-                    String k = iter.next();
-                    List<String> v = map.get(k) ;
-                    System.out.println(k+" = "+v) ;
-                }
-            }
-            
-            // Dump response body
-            if ( false )
-            {
-                StringBuffer b = new StringBuffer(1000) ;
-                byte[] chars = new byte[1000] ;
-                while(true)
-                {
-                    int x = in.read(chars) ;
-                    if ( x < 0 ) break ;
-                    b.append(new String(chars, 0, x, FileUtils.encodingUTF8)) ;
-                }
-                System.out.println(b.toString()) ;
-                System.out.flush() ;
-                // Reset
-                in = new ByteArrayInputStream(b.toString().getBytes(FileUtils.encodingUTF8)) ;
-            }
-            
-            
             // +++ WORKAROUND for badly behaved apps.
             // Apps sometimes call QueryExecution.close straight after .execSelect.
             // that results in some resuls being seen, not all of them => XMl parse errors.
@@ -522,6 +492,7 @@ public class HttpQuery extends Params
         }
         catch (IOException ioEx)
         {
+            request.abort() ;
             throw new QueryExceptionHTTP(ioEx) ;
         } 
         catch (QueryExceptionHTTP httpEx)
@@ -532,10 +503,64 @@ public class HttpQuery extends Params
         }
         catch (JenaException rdfEx)
         {
+            request.abort() ;
             throw new QueryExceptionHTTP(rdfEx) ;
         }
     }
     
+    /** The response body.  Closing it at, or near, the end returns the
+     *  connection to the pool; closing it well before the end drops the
+     *  connection rather than read the rest of the response. */
+    private static class ResponseInputStream extends FilterInputStream
+    {
+        // Parsers often stop just before the end (e.g. after the last XML end tag).
+        private static final int DrainLimit = 8*1024 ;
+        private final HttpRequestBase request ;
+        private boolean eof = false ;
+        
+        ResponseInputStream(InputStream in, HttpRequestBase request)
+        {
+            super(in) ;
+            this.request = request ;
+        }
+        
+        @Override
+        public int read() throws IOException
+        {
+            int x = super.read() ;
+            if ( x < 0 ) eof = true ;
+            return x ;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException
+        {
+            int x = super.read(b, off, len) ;
+            if ( x < 0 ) eof = true ;
+            return x ;
+        }
+        
+        @Override
+        public void close() throws IOException
+        {
+            if ( ! eof )
+            {
+                byte[] buffer = new byte[1024] ;
+                try {
+                    for ( int n = 0 ; n < DrainLimit ; )
+                    {
+                        int x = read(buffer) ;
+                        if ( x < 0 ) break ;
+                        n += x ;
+                    }
+                } catch (IOException ex) {}
+                if ( ! eof )
+                    request.abort() ;
+            }
+            super.close() ;
+        }
+    }
+    
     @Override
     public String toString()
     {
@@ -27,6 +27,7 @@ import java.util.Map ;
 import java.util.concurrent.TimeUnit ;
 
 import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.iterator.IteratorResourceClosing ;
 import org.apache.jena.riot.* ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -271,9 +272,15 @@ public class QueryEngineHTTP implements QueryExecution
         
         //Try to select language appropriately here based on the model content type
         Lang lang = WebContent.contentTypeToLang(actualContentType);
-        if (! RDFLanguages.isTriples(lang)) 
-           throw new QueryException("Endpoint returned Content Type: " + actualContentType + " which is not a valid RDF Graph syntax");
-        RDFDataMgr.read(model, in, lang) ;
+        try {
+            if (! RDFLanguages.isTriples(lang)) 
+               throw new QueryException("Endpoint returned Content Type: " + actualContentType + " which is not a valid RDF Graph syntax");
+            RDFDataMgr.read(model, in, lang) ;
+        } finally {
+            // Ensure connection is released
+            try { in.close(); }
+            catch (java.io.IOException e) { log.warn("Failed to close connection", e); }
+        }
         this.close() ; 
         return model ;
     }
@@ -296,10 +303,16 @@ public class QueryEngineHTTP implements QueryExecution
         
         //Try to select language appropriately here based on the model content type
         Lang lang = WebContent.contentTypeToLang(actualContentType);
-        if (! RDFLanguages.isTriples(lang)) 
+        if (! RDFLanguages.isTriples(lang))
+        {
+            try { in.close(); }
+            catch (java.io.IOException e) { log.warn("Failed to close connection", e); }
             throw new QueryException("Endpoint returned Content Type: " + actualContentType + " which is not a valid RDF Graph syntax");
+        }
         
-        return RiotReader.createIteratorTriples(in, lang, null);
+        // The connection is released when the triples have all been read, or on close().
+        retainedConnection = in; 
+        return new IteratorResourceClosing<Triple>(RiotReader.createIteratorTriples(in, lang, null), in);
     }
     
     @Override
@@ -91,6 +91,15 @@ public class Service
      */
     public static final Symbol queryTimeout = ARQConstants.allocSymbol(base, "queryTimeout");
 
+    /**
+     * Set the number of bindings sent to the remote endpoint in one request
+     * as a VALUES block (a bind join).  The value is a Number or a string.
+     * The default is 1: one request for each binding.
+     * 
+     * @see com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterServiceBatched
+     */
+    public static final Symbol serviceBatchSize = ARQConstants.allocSymbol(base, "serviceBatchSize");
+
     public static QueryIterator exec(OpService op, Context context)
     {
         if ( ! op.getService().isURI() )
@@ -207,7 +207,7 @@ public class HashIndexTable implements IndexTable {
                 
                 if ( nLeft != null && nRight != null )
             	{
-            		if ( nLeft.equals(nRight) )
+            		if ( ! nLeft.equals(nRight) )
             			return false ;
             		sharedDomain = true ;
             	}
@@ -23,10 +23,13 @@ import org.apache.jena.atlas.io.IndentedWriter ;
 
 import com.hp.hpl.jena.graph.Graph ;
 import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.ARQException ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.graph.GraphBatchFind ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.FmtUtils ;
 import com.hp.hpl.jena.sparql.util.Utils ;
@@ -36,6 +39,8 @@ public class QueryIterBlockTriples extends QueryIter1
     private BasicPattern pattern ;
     private Graph graph ;
     private QueryIterator output ;
+    /** Default for {@link ARQ#findBatchSize} */ 
+    public static final int DefaultBatchSize = 100 ;
     
     public static QueryIterator create(QueryIterator input,
                                        BasicPattern pattern , 
@@ -53,11 +58,34 @@ public class QueryIterBlockTriples extends QueryIter1
         graph = execContext.getActiveGraph() ;
         // Create a chain of triple iterators.
         QueryIterator chain = getInput() ;
+        int batchSize = batchSize(execContext) ;
+        int blockSize = QueryIterBlocks.blockSize(execContext) ;
         for (Triple triple : pattern)
-            chain = new QueryIterTriplePattern(chain, triple, execContext) ;
+        {
+            if ( batchSize > 1 )
+                chain = new QueryIterTriplePatternBatch(chain, triple, batchSize, execContext) ;
+            else if ( blockSize > 0 )
+                chain = new QueryIterTriplePatternBlock(chain, triple, blockSize, execContext) ;
+            else
+                chain = new QueryIterTriplePattern(chain, triple, execContext) ;
+        }
         output = chain ;
     }
 
+    /** Batch size for lookups: 0 if the graph does not support batch find */
+    private static int batchSize(ExecutionContext execContext)
+    {
+        if ( ! ( execContext.getActiveGraph() instanceof GraphBatchFind ) )
+            return 0 ;
+        Object x = execContext.getContext().get(ARQ.findBatchSize) ;
+        if ( x == null )
+            return DefaultBatchSize ;
+        if ( x instanceof Number )
+            return ((Number)x).intValue() ;
+        try { return Integer.parseInt(x.toString().trim()) ; }
+        catch (NumberFormatException ex) { throw new ARQException("Bad value for "+ARQ.findBatchSize+": "+x) ; }
+    }
+
     @Override
     protected boolean hasNextBinding()
     {
@@ -70,6 +98,12 @@ public class QueryIterBlockTriples extends QueryIter1
         return output.nextBinding() ;
     }
 
+    @Override
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        return QueryIterBlocks.nextBlock(output, block, max) ;
+    }
+
     @Override
     protected void closeSubIterator()
     {
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.ARQException ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+
+/** Support for block-at-a-time execution: iterators pass arrays of bindings
+ *  to each other with {@link QueryIteratorBase#nextBlock}, instead of one binding
+ *  per {@code hasNext}/{@code nextBinding} call.  Enabled by setting
+ *  {@link ARQ#executionBlockSize} to more than 1.
+ *  <p>
+ *  An iterator that works in blocks keeps a {@link Buffer} for callers that take
+ *  one binding at a time; the iterators below it are then still driven a block at
+ *  a time.  Iterators in block mode read ahead by up to a block.
+ */
+public class QueryIterBlocks
+{
+    /** Block size used when {@link ARQ#executionBlockSize} is set to "true" */
+    public static final int DefaultBlockSize = 256 ;
+
+    /** The block size for iterators in this execution; 0 means one binding at a time. */
+    public static int blockSize(ExecutionContext execCxt)
+    {
+        if ( execCxt == null || execCxt.getContext() == null )
+            return 0 ;
+        Object x = execCxt.getContext().get(ARQ.executionBlockSize) ;
+        if ( x == null )
+            return 0 ;
+        int size ;
+        if ( x instanceof Number )
+            size = ((Number)x).intValue() ;
+        else if ( x instanceof Boolean || x.toString().equalsIgnoreCase("true") || x.toString().equalsIgnoreCase("false") )
+            size = Boolean.parseBoolean(x.toString()) ? DefaultBlockSize : 0 ;
+        else
+        {
+            try { size = Integer.parseInt(x.toString().trim()) ; }
+            catch (NumberFormatException ex) { throw new ARQException("Bad value for "+ARQ.executionBlockSize+": "+x) ; }
+        }
+        return ( size > 1 ) ? size : 0 ;
+    }
+
+    /** Fill the array with up to {@code max} bindings from any QueryIterator, returning the number (0 at the end). */
+    public static int nextBlock(QueryIterator iter, Binding[] block, int max)
+    {
+        if ( iter instanceof QueryIteratorBase )
+            return ((QueryIteratorBase)iter).nextBlock(block, max) ;
+        int n = 0 ;
+        while ( n < max && iter.hasNext() )
+            block[n++] = iter.nextBinding() ;
+        return n ;
+    }
+
+    /** Bindings produced a block at a time, for taking one at a time. */
+    static final class Buffer
+    {
+        private final Binding[] bindings ;
+        private int pos = 0 ;
+        private int len = 0 ;
+
+        Buffer(int size)                { bindings = new Binding[size] ; }
+
+        /** The array to fill; then call {@link #set} */
+        Binding[] array()               { return bindings ; }
+        int capacity()                  { return bindings.length ; }
+
+        /** Set the number of bindings in the array. Returns true if there are any. */
+        boolean set(int n)
+        {
+            pos = 0 ;
+            len = n ;
+            return n > 0 ;
+        }
+
+        boolean hasNext()               { return pos < len ; }
+
+        Binding next()
+        {
+            Binding b = bindings[pos] ;
+            bindings[pos++] = null ;
+            return b ;
+        }
+
+        /** Move up to max buffered bindings to the array, returning the number moved */
+        int drain(Binding[] block, int max)
+        {
+            int n = Math.min(max, len - pos) ;
+            if ( n <= 0 )
+                return 0 ;
+            System.arraycopy(bindings, pos, block, 0, n) ;
+            for ( int i = pos ; i < pos + n ; i++ )
+                bindings[i] = null ;
+            pos += n ;
+            return n ;
+        }
+
+        void clear()
+        {
+            for ( int i = pos ; i < len ; i++ )
+                bindings[i] = null ;
+            pos = len = 0 ;
+        }
+    }
+}
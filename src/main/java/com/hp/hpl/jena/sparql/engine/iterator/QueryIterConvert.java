@@ -65,6 +65,15 @@ public class QueryIterConvert extends QueryIter1
         return converter.convert(getInput().nextBinding()) ;
     }
 
+    @Override
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        int n = QueryIterBlocks.nextBlock(getInput(), block, max) ;
+        for ( int i = 0 ; i < n ; i++ )
+            block[i] = converter.convert(block[i]) ;
+        return n ;
+    }
+
     @Override
     protected void details(IndentedWriter out, SerializationContext cxt)
     { 
@@ -49,7 +49,7 @@ public class QueryIterDistinct extends QueryIterDistinctReduced
         super(qIter, context) ;
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(context.getContext()) ;
         Comparator<Binding> comparator = new BindingComparator(new ArrayList<SortCondition>(), context) ;
-        this.db = BagFactory.newDistinctNet(policy, SerializationFactoryFinder.bindingSerializationFactory(), comparator) ;
+        this.db = BagFactory.newDistinctNet(policy, SerializationFactoryFinder.bindingSerializationFactory(context.getContext()), comparator) ;
     }
     
     @Override
@@ -20,14 +20,29 @@ package com.hp.hpl.jena.sparql.engine.iterator;
 
 import java.util.ArrayList ;
 import java.util.Collection ;
+import java.util.Comparator ;
+import java.util.HashMap ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.Map ;
+import java.util.NoSuchElementException ;
+import java.util.concurrent.atomic.AtomicLong ;
 
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.SortedDataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.iterator.PeekIterator ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.MultiMap ;
 import org.apache.jena.atlas.lib.Pair ;
+import org.openjena.riot.SerializationFactoryFinder ;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.core.VarExprList ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
@@ -38,7 +53,23 @@ import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.expr.ExprAggregator ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
 import com.hp.hpl.jena.sparql.expr.aggregate.Accumulator ;
+import com.hp.hpl.jena.sparql.expr.aggregate.AccumulatorMergeable ;
+import com.hp.hpl.jena.sparql.util.NodeUtils ;
 
+/**
+ * Grouping and aggregation.
+ * <p>
+ * By default, groups and their accumulators are kept in memory.  If 
+ * {@link com.hp.hpl.jena.query.ARQ#spillToDiskThreshold} is set, and every
+ * aggregator has an {@link AccumulatorMergeable}, groups are aggregated in memory
+ * until there are more than the threshold; then the partial state of each group
+ * is written to a {@link SortedDataBag}, sorted by group key, and the partial
+ * states of each group are merged as they are read back.
+ * <p>
+ * Otherwise, the input is sorted by group key in a {@link SortedDataBag}, and
+ * each group is aggregated as it is read back, so only one group's accumulators
+ * are in memory at any one time. 
+ */
 public class QueryIterGroup extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;
@@ -50,7 +81,12 @@ public class QueryIterGroup extends QueryIterPlainWrapper
     {
         super(null, execCxt) ;
         this.embeddedIterator = qIter;
-        Iterator<Binding> iter = calc(qIter, groupVars, aggregators, execCxt) ;
+        ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
+        Iterator<Binding> iter ;
+        if ( policy == ThresholdPolicyFactory.<Binding>never() )
+            iter = calc(qIter, groupVars, aggregators, execCxt) ;
+        else
+            iter = calcSpill(qIter, groupVars, aggregators, policy, execCxt) ;
         setIterator(iter) ;
     }
 
@@ -120,30 +156,7 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                 //   If there are aggregators, then they may have a default value. 
 
                 if ( accumulators.isEmpty() )
-                {
-                    if ( noAggregators )
-                    {
-                        // No rows to group, no aggregators.
-                        // ==> No result rows.
-                        return new QueryIterNullIterator(execCxt) ;
-                    }
-                    
-                    BindingMap binding = BindingFactory.create() ;
-
-                    for ( Iterator<ExprAggregator> aggIter = aggregators.iterator() ; aggIter.hasNext() ; )
-                    {
-                        ExprAggregator agg = aggIter.next();
-                        Var v = agg.getVar() ;
-                        Node value = agg.getAggregator().getValueEmpty() ;
-                        if ( value != null )
-                            binding.add(v, value) ;
-                    }
-                        
-                    if ( binding == null )
-                        // This does not happen if there are any aggregators. 
-                        return new QueryIterNullIterator(execCxt) ;
-                    return QueryIterSingleton.create(binding, execCxt) ;
-                }
+                    return calcEmpty(aggregators, execCxt) ;
 
                 // Phase 2 : There was input and so there are some groups.
                 // For each bucket, get binding, add aggregator values to the binding.
@@ -176,6 +189,457 @@ public class QueryIterGroup extends QueryIterPlainWrapper
             }
         };
     }
+
+    /** Result when there are no input rows. */
+    private static Iterator<Binding> calcEmpty(List<ExprAggregator> aggregators, ExecutionContext execCxt)
+    {
+        boolean noAggregators =  ( aggregators == null || aggregators.size() == 0 ) ;
+        if ( noAggregators )
+        {
+            // No rows to group, no aggregators.
+            // ==> No result rows.
+            return new QueryIterNullIterator(execCxt) ;
+        }
+        
+        BindingMap binding = BindingFactory.create() ;
+
+        for ( Iterator<ExprAggregator> aggIter = aggregators.iterator() ; aggIter.hasNext() ; )
+        {
+            ExprAggregator agg = aggIter.next();
+            Var v = agg.getVar() ;
+            Node value = agg.getAggregator().getValueEmpty() ;
+            if ( value != null )
+                binding.add(v, value) ;
+        }
+            
+        if ( binding == null )
+            // This does not happen if there are any aggregators. 
+            return new QueryIterNullIterator(execCxt) ;
+        return QueryIterSingleton.create(binding, execCxt) ;
+    }
+
+    // Spilling versions.
+    // Partial aggregates, when every accumulator can be merged:
+    // Phase 1 : Aggregate in memory.  When there are too many groups, add the key and the
+    //           partial state of each group to a sorted data bag and start again.
+    // Phase 2 : Read back, merging the partial states of each group.
+    // Otherwise, raw rows:
+    // Phase 1 : Add each input row, with the group key variables also bound, to a sorted data bag.
+    //           The sort order is by group key so the rows of a group are adjacent when read back.
+    // Phase 2 : Read back, pushing the rows of each group through a fresh set of accumulators.
+    
+    private static Iterator<Binding> calcSpill(final QueryIterator iter, 
+                                               final VarExprList groupVarExpr, final List<ExprAggregator> aggregators,
+                                               final ThresholdPolicy<Binding> policy, 
+                                               final ExecutionContext execCxt)
+    {
+        if ( mergeable(aggregators) )
+        {
+            // A policy of its own to count the groups in memory.
+            ThresholdPolicy<Binding> groupPolicy = ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
+            return new SpillPartialIterator(iter, groupVarExpr, aggregators, groupPolicy, policy, execCxt) ;
+        }
+        return new SpillGroupIterator(iter, groupVarExpr, aggregators, policy, execCxt) ; 
+    }
+    
+    private static final AtomicLong partialSpills = new AtomicLong(0) ;
+    
+    /** Number of times partial aggregates have been written out (for testing). */
+    /*package*/ static long getPartialSpillCount() { return partialSpills.get() ; }
+    
+    /** Can the partial state of every aggregator be written out and merged? */
+    private static boolean mergeable(List<ExprAggregator> aggregators)
+    {
+        if ( aggregators == null )
+            return true ;
+        for ( ExprAggregator agg : aggregators )
+        {
+            if ( ! ( agg.getAggregator().createAccumulator() instanceof AccumulatorMergeable ) )
+                return false ;
+        }
+        return true ;
+    }
+    
+    private static AccumulatorMergeable[] createAccumulators(List<ExprAggregator> aggregators)
+    {
+        if ( aggregators == null )
+            return new AccumulatorMergeable[0] ;
+        AccumulatorMergeable[] accs = new AccumulatorMergeable[aggregators.size()] ;
+        for ( int i = 0 ; i < accs.length ; i++ )
+            accs[i] = (AccumulatorMergeable)aggregators.get(i).getAggregator().createAccumulator() ;
+        return accs ;
+    }
+    
+    /** The group key and the aggregator values of a group. */
+    private static Binding result(Binding key, List<ExprAggregator> aggregators, Accumulator[] accs)
+    {
+        if ( accs.length == 0 )
+            return key ;
+        BindingMap b = BindingFactory.create(key) ;
+        for ( int i = 0 ; i < accs.length ; i++ )
+        {
+            Var v = aggregators.get(i).getVar() ;
+            NodeValue value = accs[i].getValue() ;
+            Node n = (value==null) ? null : value.asNode() ;
+            if ( v != null && n != null )
+                b.add(v, n) ;
+        }
+        return b ;
+    }
+    
+    /** The variables for the state of each aggregator: entry j of aggregator i is <tt>?@ai.j</tt>. */
+    private static Var[][] stateVars(List<ExprAggregator> aggregators)
+    {
+        AccumulatorMergeable[] accs = createAccumulators(aggregators) ;
+        Var[][] vars = new Var[accs.length][] ;
+        for ( int i = 0 ; i < accs.length ; i++ )
+        {
+            vars[i] = new Var[accs[i].getState().length] ;
+            for ( int j = 0 ; j < vars[i].length ; j++ )
+                vars[i][j] = Var.alloc(ARQConstants.allocVarAggState+i+"."+j) ;
+        }
+        return vars ;
+    }
+    
+    private static class SpillPartialIterator extends IteratorDelayedInitialization<Binding> implements Closeable
+    {
+        private final QueryIterator iter ;
+        private final VarExprList groupVarExpr ;
+        private final List<ExprAggregator> aggregators ;
+        private final ThresholdPolicy<Binding> groupPolicy ;
+        private final ExecutionContext execCxt ;
+        private final SortedDataBag<Binding> db ;
+        private final Var[][] stateVars ;
+        private final Map<Binding, AccumulatorMergeable[]> groups = new HashMap<Binding, AccumulatorMergeable[]>() ;
+
+        SpillPartialIterator(QueryIterator iter, VarExprList groupVarExpr, List<ExprAggregator> aggregators,
+                             ThresholdPolicy<Binding> groupPolicy, ThresholdPolicy<Binding> policy, ExecutionContext execCxt)
+        {
+            this.iter = iter ;
+            this.groupVarExpr = groupVarExpr ;
+            this.aggregators = aggregators ;
+            this.groupPolicy = groupPolicy ;
+            this.execCxt = execCxt ;
+            this.db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(execCxt.getContext()),
+                                              new GroupKeyComparator(groupVarExpr.getVars())) ;
+            this.stateVars = stateVars(aggregators) ;
+        }
+        
+        @Override
+        protected Iterator<Binding> initializeIterator()
+        {
+            try {
+                for ( ; iter.hasNext() ; )
+                {
+                    Binding b = iter.nextBinding() ;
+                    Binding key = genKey(groupVarExpr, b, execCxt) ;
+                    AccumulatorMergeable[] accs = groups.get(key) ;
+                    if ( accs == null )
+                    {
+                        accs = createAccumulators(aggregators) ;
+                        groups.put(key, accs) ;
+                        groupPolicy.increment(key) ;
+                    }
+                    for ( AccumulatorMergeable acc : accs )
+                        acc.accumulate(b, execCxt) ;
+                    if ( groupPolicy.isThresholdExceeded() )
+                        spill() ;
+                }
+            } catch (QueryCancelledException e)
+            {
+                close() ;
+                throw e ;
+            }
+            
+            if ( db.isEmpty() )
+            {
+                // Every group fitted in memory.
+                if ( groups.isEmpty() )
+                    return calcEmpty(aggregators, execCxt) ;
+                List<Binding> results = new ArrayList<Binding>(groups.size()) ;
+                for ( Map.Entry<Binding, AccumulatorMergeable[]> e : groups.entrySet() )
+                    results.add(result(e.getKey(), aggregators, e.getValue())) ;
+                groups.clear() ;
+                return results.iterator() ;
+            }
+            spill() ;
+            return new MergingIterator(db.iterator(), groupVarExpr, aggregators, stateVars) ;
+        }
+        
+        /** Write out the key and partial state of each group in memory, then start again with no groups. */
+        private void spill()
+        {
+            for ( Map.Entry<Binding, AccumulatorMergeable[]> e : groups.entrySet() )
+            {
+                BindingMap b = BindingFactory.create(e.getKey()) ;
+                AccumulatorMergeable[] accs = e.getValue() ;
+                for ( int i = 0 ; i < accs.length ; i++ )
+                {
+                    Node[] state = accs[i].getState() ;
+                    for ( int j = 0 ; j < state.length ; j++ )
+                    {
+                        if ( state[j] != null )
+                            b.add(stateVars[i][j], state[j]) ;
+                    }
+                }
+                db.add(b) ;
+            }
+            groups.clear() ;
+            groupPolicy.reset() ;
+            partialSpills.incrementAndGet() ;
+        }
+
+        @Override
+        public void close()
+        {
+            groups.clear() ;
+            db.close() ;
+        }
+    }
+
+    /** Read partial states sorted by group key, and merge each run with the same key into one result. */
+    private static class MergingIterator implements Iterator<Binding>, Closeable
+    {
+        private final Iterator<Binding> sorted ;
+        private final PeekIterator<Binding> input ;
+        private final VarExprList groupVarExpr ;
+        private final List<ExprAggregator> aggregators ;
+        private final Var[][] stateVars ;
+        
+        MergingIterator(Iterator<Binding> sorted, VarExprList groupVarExpr, List<ExprAggregator> aggregators, Var[][] stateVars)
+        {
+            this.sorted = sorted ;
+            this.input = PeekIterator.create(sorted) ;
+            this.groupVarExpr = groupVarExpr ;
+            this.aggregators = aggregators ;
+            this.stateVars = stateVars ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return input.hasNext() ;
+        }
+
+        @Override
+        public Binding next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("QueryIterGroup") ;
+            
+            Binding key = projectKey(groupVarExpr, input.peek()) ;
+            AccumulatorMergeable[] accs = createAccumulators(aggregators) ;
+            
+            while ( input.hasNext() && key.equals(projectKey(groupVarExpr, input.peek())) )
+            {
+                Binding b = input.next() ;
+                AccumulatorMergeable[] partial = createAccumulators(aggregators) ;
+                for ( int i = 0 ; i < partial.length ; i++ )
+                {
+                    Node[] state = new Node[stateVars[i].length] ;
+                    for ( int j = 0 ; j < state.length ; j++ )
+                        state[j] = b.get(stateVars[i][j]) ;
+                    partial[i].setState(state) ;
+                    accs[i].merge(partial[i]) ;
+                }
+            }
+            return result(key, aggregators, accs) ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException("QueryIterGroup.remove") ; }
+
+        @Override
+        public void close()
+        {
+            Iter.close(sorted) ;
+        }
+    }
+    
+    private static class SpillGroupIterator extends IteratorDelayedInitialization<Binding> implements Closeable
+    {
+        private final QueryIterator iter ;
+        private final VarExprList groupVarExpr ;
+        private final List<ExprAggregator> aggregators ;
+        private final ExecutionContext execCxt ;
+        private final SortedDataBag<Binding> db ;
+
+        SpillGroupIterator(QueryIterator iter, VarExprList groupVarExpr, List<ExprAggregator> aggregators,
+                           ThresholdPolicy<Binding> policy, ExecutionContext execCxt)
+        {
+            this.iter = iter ;
+            this.groupVarExpr = groupVarExpr ;
+            this.aggregators = aggregators ;
+            this.execCxt = execCxt ;
+            this.db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(execCxt.getContext()),
+                                              new GroupKeyComparator(groupVarExpr.getVars())) ;
+        }
+        
+        @Override
+        protected Iterator<Binding> initializeIterator()
+        {
+            try {
+                for ( ; iter.hasNext() ; )
+                {
+                    Binding b = iter.nextBinding() ;
+                    db.add(addKey(groupVarExpr, b, execCxt)) ;
+                }
+            } catch (QueryCancelledException e)
+            {
+                close() ;
+                throw e ;
+            }
+            
+            if ( db.isEmpty() )
+                return calcEmpty(aggregators, execCxt) ;
+            return new GroupingIterator(db.iterator(), groupVarExpr, aggregators, execCxt) ;
+        }
+
+        @Override
+        public void close()
+        {
+            db.close() ;
+        }
+    }
+
+    /** Read rows sorted by group key, and turn each run of rows with the same key into one result. */
+    private static class GroupingIterator implements Iterator<Binding>, Closeable
+    {
+        private final Iterator<Binding> sorted ;
+        private final PeekIterator<Binding> input ;
+        private final VarExprList groupVarExpr ;
+        private final List<ExprAggregator> aggregators ;
+        private final ExecutionContext execCxt ;
+        
+        GroupingIterator(Iterator<Binding> sorted, VarExprList groupVarExpr, List<ExprAggregator> aggregators, ExecutionContext execCxt)
+        {
+            this.sorted = sorted ;
+            this.input = PeekIterator.create(sorted) ;
+            this.groupVarExpr = groupVarExpr ;
+            this.aggregators = aggregators ;
+            this.execCxt = execCxt ;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return input.hasNext() ;
+        }
+
+        @Override
+        public Binding next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException("QueryIterGroup") ;
+            
+            Binding key = projectKey(groupVarExpr, input.peek()) ;
+            boolean noAggregators =  ( aggregators == null || aggregators.size() == 0 ) ;
+            
+            List<Pair<Var, Accumulator>> accs = new ArrayList<Pair<Var, Accumulator>>() ;
+            if ( ! noAggregators )
+            {
+                for ( ExprAggregator agg : aggregators )
+                    accs.add(Pair.create(agg.getVar(), agg.getAggregator().createAccumulator())) ;
+            }
+            
+            while ( input.hasNext() && key.equals(projectKey(groupVarExpr, input.peek())) )
+            {
+                Binding b = removeKey(groupVarExpr, input.next()) ;
+                for ( Pair<Var, Accumulator> pair : accs )
+                    pair.getRight().accumulate(b, execCxt) ;
+            }
+            
+            if ( noAggregators )
+                return key ;
+            
+            BindingMap b = BindingFactory.create(key) ;
+            for ( Pair<Var, Accumulator> pair : accs )
+            {
+                Var v = pair.getLeft() ;
+                NodeValue value = pair.getRight().getValue() ;
+                Node n = (value==null) ? null : value.asNode() ;
+                if ( v != null && n != null )
+                    b.add(v, n) ;
+            }
+            return b ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException("QueryIterGroup.remove") ; }
+
+        @Override
+        public void close()
+        {
+            Iter.close(sorted) ;
+        }
+    }
+    
+    /** Compare rows on the group key by RDF term, so that different terms are different keys. */
+    private static class GroupKeyComparator implements Comparator<Binding>
+    {
+        private final List<Var> vars ;
+
+        GroupKeyComparator(List<Var> vars) { this.vars = vars ; }
+        
+        @Override
+        public int compare(Binding b1, Binding b2)
+        {
+            for ( Var v : vars )
+            {
+                int x = NodeUtils.compareRDFTerms(b1.get(v), b2.get(v)) ;
+                if ( x != 0 )
+                    return x ;
+            }
+            return 0 ;
+        }
+    }
+
+    /** The input row, with the values of any group key expressions added. */
+    static private Binding addKey(VarExprList vars, Binding binding, ExecutionContext execCxt)
+    {
+        if ( vars.getExprs().isEmpty() )
+            return binding ;
+        BindingMap x = BindingFactory.create(binding) ;
+        for ( Var var : vars.getVars() )
+        {
+            if ( ! vars.hasExpr(var) || binding.contains(var) )
+                continue ;
+            Node node = vars.get(var, binding, execCxt) ;
+            if ( node != null )
+                x.add(var, node) ;
+        }
+        return x ;
+    }
+    
+    /** Undo {@link #addKey} - the aggregators see the row as it was input. */
+    static private Binding removeKey(VarExprList vars, Binding binding)
+    {
+        if ( vars.getExprs().isEmpty() )
+            return binding ;
+        BindingMap x = BindingFactory.create() ;
+        for ( Iterator<Var> iter = binding.vars() ; iter.hasNext() ; )
+        {
+            Var var = iter.next() ;
+            if ( ! vars.hasExpr(var) )
+                x.add(var, binding.get(var)) ;
+        }
+        return x ;
+    }
+
+    /** The group key of a row that has been through {@link #addKey}. */
+    static private Binding projectKey(VarExprList vars, Binding binding)
+    {
+        BindingMap x = BindingFactory.create() ;
+        for ( Var var : vars.getVars() )
+        {
+            Node node = binding.get(var) ;
+            if ( node != null )
+                x.add(var, node) ;
+        }
+        return x ;
+    }
     
     static private Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) 
     {
@@ -18,29 +18,77 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator;
 
-import java.util.Map;
+import java.util.ArrayList ;
+import java.util.BitSet ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
 import java.util.Set ;
 
-import com.hp.hpl.jena.graph.Node;
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyCount ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Filter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorConcat ;
+import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.lib.Closeable ;
+import org.openjena.riot.SerializationFactoryFinder ;
+
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.index.IndexFactory ;
 import com.hp.hpl.jena.sparql.engine.index.IndexTable ;
 
-/** Minus by materializing the RHS - this is not streamed on the right */
+/** Minus by materializing the RHS - this is not streamed on the right.
+ * <p>
+ * The RHS is held in memory as a hash table on the common variables unless
+ * {@link com.hp.hpl.jena.query.ARQ#spillToDiskThreshold} is set and the RHS passes it.
+ * Then both sides are partitioned by a hash of the common variables into data bags that
+ * can spill to disk, and each partition is done in turn with an in-memory set of keys
+ * of bounded size.  Results are not in the order of the LHS in that case.
+ */
 public class QueryIterMinus extends QueryIter2
 {
-	private IndexTable tableRight;
-	private Map<Var, Integer> varColumns ;
-	private Set<Node[]> rightTable;
+	private IndexTable tableRight ;
+	private MinusSpill spill = null ;
+	private Iterator<Binding> spillResults = null ;
     Binding slot = null ;
 
 	public QueryIterMinus(QueryIterator left, QueryIterator right, Set<Var> commonVars, ExecutionContext qCxt)
     {
         super(left, right, qCxt) ;
-        tableRight = IndexFactory.createIndex(commonVars, right) ;
+        ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(qCxt.getContext()) ;
+        if ( commonVars.isEmpty() || policy == ThresholdPolicyFactory.<Binding>never() )
+        {
+            tableRight = IndexFactory.createIndex(commonVars, right) ;
+            return ;
+        }
+        
+        // Only the common variables of the RHS matter.
+        List<Binding> rows = new ArrayList<Binding>() ;
+        while ( right.hasNext() )
+        {
+            if ( policy.isThresholdExceeded() )
+            {
+                spill = new MinusSpill(commonVars, rows, right, qCxt) ;
+                return ;
+            }
+            Binding b = project(commonVars, right.nextBinding()) ;
+            rows.add(b) ;
+            policy.increment(b) ;
+        }
+        right.close() ;
+        tableRight = IndexFactory.createIndex(commonVars, new QueryIterPlainWrapper(rows.iterator(), qCxt)) ;
     }
 
     protected Binding getNextSlot(Binding bindingLeft)
@@ -52,10 +100,18 @@ public class QueryIterMinus extends QueryIter2
     }
 
     @Override
-    protected final void closeSubIterator() { }
+    protected final void closeSubIterator()
+    {
+        if ( spill != null )
+            spill.close() ;
+    }
     
     @Override
-    protected void requestSubCancel() { }
+    protected void requestSubCancel()
+    {
+        if ( spill != null )
+            spill.close() ;
+    }
    
     @Override
     protected final boolean hasNextBinding()
@@ -63,6 +119,16 @@ public class QueryIterMinus extends QueryIter2
         if ( slot != null )
             return true ;
         
+        if ( spill != null )
+        {
+            if ( spillResults == null )
+                spillResults = spill.results(getLeft()) ;
+            if ( ! spillResults.hasNext() )
+                return false ;
+            slot = spillResults.next() ;
+            return true ;
+        }
+        
         while ( getLeft().hasNext() )
         {
             Binding bindingLeft = getLeft().nextBinding() ;
@@ -86,4 +152,229 @@ public class QueryIterMinus extends QueryIter2
         slot = null ;
         return x ;
     }
+    
+    private static Binding project(Set<Var> vars, Binding binding)
+    {
+        BindingMap b = BindingFactory.create() ;
+        for ( Var v : vars )
+        {
+            Node n = binding.get(v) ;
+            if ( n != null )
+                b.add(v, n) ;
+        }
+        return b ;
+    }
+    
+    /** Hash partitioned ("grace hash") anti-join.
+     *  Rows are grouped by which of the common variables they bind.  For each group
+     *  of LHS rows, and each group of RHS rows that binds some of the same variables,
+     *  a LHS row is removed if it has the same values as an RHS row for those variables.
+     *  Both groups are partitioned by a hash of those values into bags that can spill
+     *  to disk, and each partition is done in turn with an in-memory set of at most
+     *  threshold/PARTITIONS RHS keys at a time.  The LHS rows that are left after one
+     *  RHS group go on to the next.
+     */
+    private static class MinusSpill implements Closeable
+    {
+        private static final int PARTITIONS = 32 ;
+        
+        private final Var[] vars ;
+        private final ExecutionContext execCxt ;
+        private final long partitionSize ;
+        // Rows by the common variables they bind.
+        private final Map<BitSet, DataBag<Binding>> rightGroups = new LinkedHashMap<BitSet, DataBag<Binding>>() ;
+        private final Map<BitSet, DataBag<Binding>> leftGroups = new LinkedHashMap<BitSet, DataBag<Binding>>() ;
+        private final List<DataBag<Binding>> bags = new ArrayList<DataBag<Binding>>() ;
+        
+        MinusSpill(Set<Var> commonVars, List<Binding> rowsSoFar, QueryIterator right, ExecutionContext execCxt)
+        {
+            this.vars = commonVars.toArray(new Var[commonVars.size()]) ;
+            this.execCxt = execCxt ;
+            ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(execCxt.getContext()) ;
+            long threshold = ( policy instanceof ThresholdPolicyCount<?> ) ? ((ThresholdPolicyCount<?>)policy).getThreshold() : 10000 ;
+            this.partitionSize = Math.max(1, threshold/PARTITIONS) ;
+            
+            for ( Binding b : rowsSoFar )
+                addRight(b) ;
+            while ( right.hasNext() )
+                addRight(project(commonVars, right.nextBinding())) ;
+            right.close() ;
+        }
+        
+        private void addRight(Binding binding)
+        {
+            BitSet mask = mask(binding) ;
+            // A row that binds none of the common variables removes nothing.
+            if ( ! mask.isEmpty() )
+                group(rightGroups, mask).add(binding) ;
+        }
+        
+        private BitSet mask(Binding binding)
+        {
+            BitSet mask = new BitSet(vars.length) ;
+            for ( int i = 0 ; i < vars.length ; i++ )
+            {
+                if ( binding.contains(vars[i]) )
+                    mask.set(i) ;
+            }
+            return mask ;
+        }
+        
+        private DataBag<Binding> group(Map<BitSet, DataBag<Binding>> groups, BitSet mask)
+        {
+            DataBag<Binding> bag = groups.get(mask) ;
+            if ( bag == null )
+            {
+                bag = newBag() ;
+                groups.put(mask, bag) ;
+            }
+            return bag ;
+        }
+        
+        private DataBag<Binding> newBag()
+        {
+            ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.count(partitionSize) ;
+            DataBag<Binding> bag = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory(execCxt.getContext())) ;
+            bags.add(bag) ;
+            return bag ;
+        }
+        
+        Iterator<Binding> results(QueryIterator left)
+        {
+            while ( left.hasNext() )
+            {
+                Binding b = left.nextBinding() ;
+                group(leftGroups, mask(b)).add(b) ;
+            }
+            left.close() ;
+            
+            IteratorConcat<Binding> iter = new IteratorConcat<Binding>() ;
+            for ( Map.Entry<BitSet, DataBag<Binding>> e : leftGroups.entrySet() )
+                iter.add(minusGroup(e.getKey(), e.getValue())) ;
+            return iter ;
+        }
+        
+        /** The LHS rows of one group that are not removed by any RHS group */ 
+        private Iterator<Binding> minusGroup(final BitSet leftMask, final DataBag<Binding> leftBag)
+        {
+            return new IteratorDelayedInitialization<Binding>() {
+                @Override
+                protected Iterator<Binding> initializeIterator()
+                {
+                    Iterator<Binding> rows = leftBag.iterator() ;
+                    for ( Map.Entry<BitSet, DataBag<Binding>> e : rightGroups.entrySet() )
+                    {
+                        BitSet shared = (BitSet)leftMask.clone() ;
+                        shared.and(e.getKey()) ;
+                        if ( ! shared.isEmpty() )
+                            rows = minus(rows, e.getValue(), keyVars(shared)) ;
+                    }
+                    return rows ;
+                }
+            } ;
+        }
+        
+        private Var[] keyVars(BitSet mask)
+        {
+            Var[] key = new Var[mask.cardinality()] ;
+            int j = 0 ;
+            for ( int i = mask.nextSetBit(0) ; i >= 0 ; i = mask.nextSetBit(i+1) )
+                key[j++] = vars[i] ;
+            return key ;
+        }
+        
+        /** LHS rows without an RHS row with the same values of the key variables,
+         *  all of which are bound on both sides. */
+        private Iterator<Binding> minus(final Iterator<Binding> leftRows, final DataBag<Binding> rightBag, final Var[] key)
+        {
+            return new IteratorDelayedInitialization<Binding>() {
+                @Override
+                protected Iterator<Binding> initializeIterator()
+                {
+                    List<DataBag<Binding>> leftParts = partition(leftRows, key) ;
+                    List<DataBag<Binding>> rightParts = partition(rightBag.iterator(), key) ;
+                    IteratorConcat<Binding> iter = new IteratorConcat<Binding>() ;
+                    for ( int i = 0 ; i < PARTITIONS ; i++ )
+                        iter.add(minusPartition(leftParts.get(i), rightParts.get(i), key)) ;
+                    return iter ;
+                }
+            } ;
+        }
+        
+        private List<DataBag<Binding>> partition(Iterator<Binding> rows, Var[] key)
+        {
+            List<DataBag<Binding>> parts = new ArrayList<DataBag<Binding>>(PARTITIONS) ;
+            for ( int i = 0 ; i < PARTITIONS ; i++ )
+                parts.add(newBag()) ;
+            try {
+                while ( rows.hasNext() )
+                {
+                    Binding b = rows.next() ;
+                    int hash = key(b, key).hashCode() ;
+                    parts.get((hash & 0x7FFFFFFF) % PARTITIONS).add(b) ;
+                }
+            } finally { Iter.close(rows) ; }
+            return parts ;
+        }
+        
+        private Iterator<Binding> minusPartition(final DataBag<Binding> leftBag, final DataBag<Binding> rightBag, final Var[] key)
+        {
+            return new IteratorDelayedInitialization<Binding>() {
+                @Override
+                protected Iterator<Binding> initializeIterator()
+                {
+                    if ( leftBag.size() == 0 )
+                        return Iter.nullIterator() ;
+                    DataBag<Binding> rows = leftBag ;
+                    Iterator<Binding> rightRows = rightBag.iterator() ;
+                    try {
+                        for ( ;; )
+                        {
+                            final Set<List<Node>> keys = new HashSet<List<Node>>() ;
+                            while ( rightRows.hasNext() && keys.size() < partitionSize )
+                                keys.add(key(rightRows.next(), key)) ;
+                            Filter<Binding> filter = new Filter<Binding>() {
+                                @Override
+                                public boolean accept(Binding b)
+                                {
+                                    return ! keys.contains(key(b, key)) ;
+                                }
+                            } ;
+                            if ( ! rightRows.hasNext() )
+                                return Iter.filter(rows.iterator(), filter) ;
+                            // More RHS keys than are held at once: remove what these
+                            // keys remove, and go round again with the rest of the RHS.
+                            DataBag<Binding> next = newBag() ;
+                            Iterator<Binding> iter = rows.iterator() ;
+                            try {
+                                while ( iter.hasNext() )
+                                {
+                                    Binding b = iter.next() ;
+                                    if ( filter.accept(b) )
+                                        next.add(b) ;
+                                }
+                            } finally { Iter.close(iter) ; }
+                            rows = next ;
+                        }
+                    } finally { Iter.close(rightRows) ; }
+                }
+            } ;
+        }
+        
+        private static List<Node> key(Binding binding, Var[] key)
+        {
+            List<Node> x = new ArrayList<Node>(key.length) ;
+            for ( Var v : key )
+                x.add(binding.get(v)) ;
+            return x ;
+        }
+        
+        @Override
+        public void close()
+        {
+            for ( DataBag<Binding> bag : bags )
+                bag.close() ;
+            bags.clear() ;
+        }
+    }
 }
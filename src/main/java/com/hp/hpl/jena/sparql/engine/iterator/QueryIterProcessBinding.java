@@ -33,11 +33,17 @@ public abstract class QueryIterProcessBinding extends QueryIter1
     abstract public Binding accept(Binding binding);
     
     Binding nextBinding;
+    // Block mode (else null).
+    private final QueryIterBlocks.Buffer buffer ;
+    private final Binding[] inputBlock ;
 
     public QueryIterProcessBinding(QueryIterator qIter, ExecutionContext context)
     {
         super(qIter, context) ;
         nextBinding = null;
+        int blockSize = QueryIterBlocks.blockSize(context) ;
+        this.buffer = ( blockSize > 0 ) ? new QueryIterBlocks.Buffer(blockSize) : null ;
+        this.inputBlock = ( blockSize > 0 ) ? new Binding[blockSize] : null ;
     }
 
     /** Are there any more acceptable objects.
@@ -53,6 +59,9 @@ public abstract class QueryIterProcessBinding extends QueryIter1
         if (nextBinding != null)
             return true;
 
+        if ( buffer != null )
+            return buffer.hasNext() || buffer.set(processBlock(buffer.array(), buffer.capacity())) ;
+
         // Null iterator.
         if ( getInput() == null )
             throw new ARQInternalErrorException(Utils.className(this)+": Null iterator") ;
@@ -77,6 +86,8 @@ public abstract class QueryIterProcessBinding extends QueryIter1
     */        
     @Override
     public Binding moveToNextBinding() {
+        if ( buffer != null && hasNextBinding() )
+            return buffer.next() ;
         if (hasNext()) {
             Binding r = nextBinding;
             nextBinding = null;
@@ -85,6 +96,39 @@ public abstract class QueryIterProcessBinding extends QueryIter1
         throw new NoSuchElementException();
     }
     
+    @Override
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        if ( buffer == null )
+            return super.moveToNextBlock(block, max) ;
+        int n = buffer.drain(block, max) ;
+        if ( n > 0 )
+            return n ;
+        return processBlock(block, max) ;
+    }
+
+    /** Apply {@link #accept} to input blocks until the output is full or the input ends */
+    private int processBlock(Binding[] output, int max)
+    {
+        if ( getInput() == null )
+            throw new ARQInternalErrorException(Utils.className(this)+": Null iterator") ;
+        int n = 0 ;
+        while ( n < max )
+        {
+            int k = QueryIterBlocks.nextBlock(getInput(), inputBlock, Math.min(max - n, inputBlock.length)) ;
+            if ( k == 0 )
+                break ;
+            for ( int i = 0 ; i < k ; i++ )
+            {
+                Binding b = accept(inputBlock[i]) ;
+                inputBlock[i] = null ;
+                if ( b != null )
+                    output[n++] = b ;
+            }
+        }
+        return n ;
+    }
+    
     @Override
     protected void closeSubIterator() {}
     
@@ -20,15 +20,25 @@ package com.hp.hpl.jena.sparql.engine.iterator;
 
 import org.apache.jena.atlas.io.IndentedWriter ;
 
+import com.hp.hpl.jena.sparql.ARQConstants ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingRoot ;
+import com.hp.hpl.jena.sparql.engine.binding.VarSlots ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 
 public class QueryIterRoot extends QueryIterSingleton
 {
     public static QueryIterRoot create(ExecutionContext execCxt)
-    { return new QueryIterRoot(BindingRoot.create(), execCxt) ; }
+    {
+        VarSlots slots = null ;
+        if ( execCxt != null && execCxt.getContext() != null )
+            slots = (VarSlots)execCxt.getContext().get(ARQConstants.sysVarSlots) ;
+        if ( slots != null )
+            return new QueryIterRoot(BindingFactory.create(slots), execCxt) ;
+        return new QueryIterRoot(BindingRoot.create(), execCxt) ;
+    }
     
     public static QueryIterRoot create(Binding binding, ExecutionContext execCxt)
     { return new QueryIterRoot(binding, execCxt) ; }
@@ -18,16 +18,21 @@
 
 package com.hp.hpl.jena.sparql.engine.iterator;
 
+import java.io.InputStream ;
+import java.io.OutputStream ;
 import java.util.Comparator ;
 import java.util.Iterator ;
 import java.util.List ;
 
 import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.SerializationFactory ;
 import org.apache.jena.atlas.data.SortedDataBag ;
 import org.apache.jena.atlas.data.ThresholdPolicy ;
 import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.iterator.IteratorWrapper ;
 import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.atlas.lib.Sink ;
 import org.openjena.riot.SerializationFactoryFinder ;
 
 import com.hp.hpl.jena.query.QueryCancelledException ;
@@ -48,6 +53,7 @@ public class QueryIterSort extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;      // Keep a record of the underlying source for .cancel.
 	final SortedDataBag<Binding> db;
+	private final BindingComparator keyComparator ;
 	
     public QueryIterSort(QueryIterator qIter, List<SortCondition> conditions, ExecutionContext context)
     {
@@ -60,11 +66,52 @@ public class QueryIterSort extends QueryIterPlainWrapper
         this.embeddedIterator = qIter ;
         
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(context.getContext());
-        this.db = BagFactory.newSortedBag(policy, SerializationFactoryFinder.bindingSerializationFactory(), comparator);
+        SerializationFactory<Binding> serializationFactory = SerializationFactoryFinder.bindingSerializationFactory(context.getContext()) ;
+        // Decorate-sort-undecorate: evaluate the sort keys once per binding.
+        this.keyComparator = ( comparator instanceof BindingComparator ) ? (BindingComparator)comparator : null ;
+        if ( keyComparator != null )
+            serializationFactory = new SortKeySerializationFactory(serializationFactory, keyComparator) ;
+        int threads = ThresholdPolicyFactory.sortThreadsFromContext(context.getContext()) ;
+        int fanIn = ThresholdPolicyFactory.mergeFanInFromContext(context.getContext()) ;
+        this.db = BagFactory.newSortedBag(policy, serializationFactory, comparator, threads, fanIn);
         
         this.setIterator(new SortedBindingIterator(qIter));
     }
 
+    /** Spill the sort keys with the binding and restore them on reading back */
+    static class SortKeySerializationFactory implements SerializationFactory<Binding>
+    {
+        private final SerializationFactory<Binding> other ;
+        private final BindingComparator comparator ;
+
+        SortKeySerializationFactory(SerializationFactory<Binding> other, BindingComparator comparator)
+        {
+            this.other = other ;
+            this.comparator = comparator ;
+        }
+
+        @Override
+        public Sink<Binding> createSerializer(OutputStream out)
+        {
+            return other.createSerializer(out) ;
+        }
+
+        @Override
+        public Iterator<Binding> createDeserializer(InputStream in)
+        {
+            return new IteratorWrapper<Binding>(other.createDeserializer(in)) {
+                @Override
+                public Binding next() { return comparator.restore(super.next()) ; }
+            } ;
+        }
+
+        @Override
+        public long getEstimatedMemorySize(Binding item)
+        {
+            return other.getEstimatedMemorySize(item) ;
+        }
+    }
+
     @Override
     public void requestCancel()
     {
@@ -86,7 +133,13 @@ public class QueryIterSort extends QueryIterPlainWrapper
         {
             try
             {
-                db.addAll(qIter);
+                if ( keyComparator == null )
+                    db.addAll(qIter);
+                else
+                {
+                    while ( qIter.hasNext() )
+                        db.add(keyComparator.decorate(qIter.next())) ;
+                }
             }
             // Should we catch other exceptions too?  Theoretically the user should be using this
             // iterator in a try/finally block, and thus will call close() themselves. 
@@ -96,7 +149,12 @@ public class QueryIterSort extends QueryIterPlainWrapper
                 throw e;
             }
             
-            return db.iterator();
+            if ( keyComparator == null )
+                return db.iterator();
+            return new IteratorWrapper<Binding>(db.iterator()) {
+                @Override
+                public Binding next() { return BindingComparator.undecorate(super.next()) ; }
+            } ;
         }
 
         @Override
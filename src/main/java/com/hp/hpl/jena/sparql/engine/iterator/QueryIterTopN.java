@@ -20,23 +20,44 @@ package com.hp.hpl.jena.sparql.engine.iterator;
 
 import java.util.Arrays ;
 import java.util.Comparator ;
+import java.util.HashSet ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.NoSuchElementException ;
 import java.util.PriorityQueue ;
+import java.util.Set ;
 
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.SerializationFactory ;
+import org.apache.jena.atlas.data.SortedDataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorArray ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.lib.Closeable ;
 import org.apache.jena.atlas.lib.ReverseComparator ;
+import org.openjena.riot.SerializationFactoryFinder ;
 
 import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
 import com.hp.hpl.jena.query.QueryExecException ;
 import com.hp.hpl.jena.query.SortCondition ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingComparator ;
+import com.hp.hpl.jena.sparql.util.Context ;
 
+/** The first N bindings of the sorted input.
+ * <p>
+ * N includes any OFFSET (it is OFFSET+LIMIT of the query; the slice above this
+ * iterator skips the offset).  While the heap of the least N bindings fits within
+ * the {@link ThresholdPolicy} from the context, the bindings are kept in memory.
+ * If N is larger (e.g. deep pagination), the heap is spilled to a
+ * {@link SortedDataBag} and the first N bindings are selected from the
+ * externally sorted output.
+ */
 public class QueryIterTopN extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;      // Keep a record of the underlying source for .cancel.
@@ -46,8 +67,16 @@ public class QueryIterTopN extends QueryIterPlainWrapper
 	 * This leaves the least N in the heap.    
 	 */
     private PriorityQueue<Binding> heap ;
+    // For DISTINCT: the bindings in the heap (without sort keys).
+    private Set<Binding> seen ;
     private long limit ;
     private final boolean distinct ;
+    private final ThresholdPolicy<Binding> policy ;
+    // Set if the heap is spilled.
+    SortedDataBag<Binding> db = null ;
+
+    // Don't preallocate huge heaps: PriorityQueue grows as needed.
+    private static final int maxInitialCapacity = 1000 ;
 	
     public QueryIterTopN(QueryIterator qIter, List<SortCondition> conditions, long numItems, boolean distinct, ExecutionContext context)
     {
@@ -67,6 +96,8 @@ public class QueryIterTopN extends QueryIterPlainWrapper
         if ( limit < 0 )
             throw new QueryExecException("Negative LIMIT: "+limit) ;
         
+        this.policy = ( context == null ) ? ThresholdPolicyFactory.<Binding>never() : ThresholdPolicyFactory.<Binding>policyFromContext(context.getContext()) ;
+        
         if ( limit == 0 )
         {
             // Keep Java happy. 
@@ -77,8 +108,10 @@ public class QueryIterTopN extends QueryIterPlainWrapper
         }
         
         // Keep heap with maximum accessible. 
-        this.heap = new PriorityQueue<Binding>((int)numItems, new ReverseComparator<Binding>(comparator)) ;
-        this.setIterator(sortTopN(qIter, comparator));
+        this.heap = new PriorityQueue<Binding>((int)Math.min(limit, maxInitialCapacity), new ReverseComparator<Binding>(comparator)) ;
+        if ( distinct )
+            this.seen = new HashSet<Binding>() ;
+        this.setIterator(new TopNIterator(qIter, comparator));
     }
 
     @Override
@@ -88,48 +121,185 @@ public class QueryIterTopN extends QueryIterPlainWrapper
         super.requestCancel() ;
     }
     
-    private Iterator<Binding> sortTopN(final QueryIterator qIter, final Comparator<Binding> comparator)
+    private class TopNIterator extends IteratorDelayedInitialization<Binding> implements Closeable
     {
-        return new IteratorDelayedInitialization<Binding>() {
-            @Override
-            protected Iterator<Binding> initializeIterator()
+        private final QueryIterator qIter ;
+        private final Comparator<Binding> comparator ;
+        
+        TopNIterator(QueryIterator qIter, Comparator<Binding> comparator)
+        {
+            this.qIter = qIter ;
+            this.comparator = comparator ;
+        }
+        
+        @Override
+        protected Iterator<Binding> initializeIterator()
+        {
+            // Decorate-sort-undecorate: evaluate the sort keys once per binding.
+            BindingComparator keyComparator = ( comparator instanceof BindingComparator ) ? (BindingComparator)comparator : null ;
+            try
             {
                 for ( ; qIter.hasNext() ; )
                 {
                     Binding binding = qIter.next() ;
-                    if ( heap.size() < limit )
-                    	add(binding) ;
+                    if ( keyComparator != null )
+                        binding = keyComparator.decorate(binding) ;
+                    if ( db != null )
+                        db.add(binding) ;
+                    else if ( heap.size() < limit )
+                    {
+                        if ( add(binding) )
+                        {
+                            policy.increment(binding) ;
+                            if ( policy.isThresholdExceeded() )
+                                spill(keyComparator) ;
+                        }
+                    }
                     else {
                         Binding currentMaxLeastN = heap.peek() ;
                         
-                    	if ( comparator.compare(binding, currentMaxLeastN) < 0 ) 
-                    	{
-                    	    // If binding is less than current Nth least ...
-                    		heap.poll() ;     // Drop Nth least.
-                        	add(binding) ;
-                    	}
+                        if ( comparator.compare(binding, currentMaxLeastN) < 0 && ! isSeen(binding) ) 
+                        {
+                            // If binding is less than current Nth least ...
+                            Binding b = heap.poll() ;     // Drop Nth least.
+                            if ( distinct )
+                                seen.remove(BindingComparator.undecorate(b)) ;
+                            add(binding) ;
+                        }
                     }
                 }
-                qIter.close() ;
-                Binding[] y = heap.toArray(new Binding[]{}) ;
-                heap = null ;
-                Arrays.sort(y, comparator) ;
-                IteratorArray<Binding> iter = IteratorArray.create(y) ;
-                return iter ;
-        	}
-		};
+            }
+            catch (QueryCancelledException e)
+            {
+                close() ;
+                throw e ;
+            }
+            qIter.close() ;
+            if ( db != null )
+                return new SelectIterator(db.iterator(), comparator, keyComparator != null) ;
+            
+            Binding[] y = heap.toArray(new Binding[]{}) ;
+            heap = null ;
+            seen = null ;
+            Arrays.sort(y, comparator) ;
+            if ( keyComparator != null )
+            {
+                for ( int i = 0 ; i < y.length ; i++ )
+                    y[i] = BindingComparator.undecorate(y[i]) ;
+            }
+            IteratorArray<Binding> iter = IteratorArray.create(y) ;
+            return iter ;
+        }
+
+        /** Move the heap to a sorted data bag; all further bindings go to the bag. */
+        private void spill(BindingComparator keyComparator)
+        {
+            Context cxt = getExecContext().getContext() ;
+            SerializationFactory<Binding> serializationFactory = SerializationFactoryFinder.bindingSerializationFactory(cxt) ;
+            if ( keyComparator != null )
+                serializationFactory = new QueryIterSort.SortKeySerializationFactory(serializationFactory, keyComparator) ;
+            db = BagFactory.newSortedBag(ThresholdPolicyFactory.<Binding>policyFromContext(cxt), serializationFactory, comparator,
+                                         ThresholdPolicyFactory.sortThreadsFromContext(cxt),
+                                         ThresholdPolicyFactory.mergeFanInFromContext(cxt)) ;
+            db.addAll(heap) ;
+            heap = null ;
+            seen = null ;
+        }
+
+        @Override
+        public void close()
+        {
+            if ( db != null )
+                db.close() ;
+        }
     }
 
-    private void add (Binding binding) 
+    /** Is the binding a duplicate of one in the heap (DISTINCT only)? */
+    private boolean isSeen(Binding binding)
+    {
+        return distinct && seen.contains(BindingComparator.undecorate(binding)) ;
+    }
+
+    /** Add to the heap, unless it is a duplicate. */
+    private boolean add(Binding binding) 
     {
         if ( distinct ) 
         {
-            if ( !heap.contains(binding) ) heap.add(binding) ;
+            if ( ! seen.add(BindingComparator.undecorate(binding)) )
+                return false ;
         } 
-        else 
+        heap.add(binding) ;
+        return true ;
+    }
+
+    /** The first N bindings of the sorted output of the spilled bag.  For DISTINCT,
+     *  duplicates are adjacent among the bindings that compare equal, so only a
+     *  run of equal bindings needs to be remembered.
+     */
+    private class SelectIterator implements Iterator<Binding>, Closeable
+    {
+        private final Iterator<Binding> iter ;
+        private final Comparator<Binding> comparator ;
+        private final boolean decorated ;
+        private long count = 0 ;
+        private Binding slot = null ;
+        private Binding runStart = null ;
+        private final Set<Binding> run = new HashSet<Binding>() ;
+
+        SelectIterator(Iterator<Binding> iter, Comparator<Binding> comparator, boolean decorated)
         {
-            heap.add(binding) ;
+            this.iter = iter ;
+            this.comparator = comparator ;
+            this.decorated = decorated ;
         }
-    }
 
+        @Override
+        public boolean hasNext()
+        {
+            if ( slot != null )
+                return true ;
+            if ( count >= limit )
+                return false ;
+            while ( iter.hasNext() )
+            {
+                Binding b = iter.next() ;
+                Binding x = decorated ? BindingComparator.undecorate(b) : b ;
+                if ( distinct )
+                {
+                    if ( runStart == null || comparator.compare(runStart, b) != 0 )
+                    {
+                        runStart = b ;
+                        run.clear() ;
+                    }
+                    if ( ! run.add(x) )
+                        continue ;
+                }
+                slot = x ;
+                count++ ;
+                return true ;
+            }
+            return false ;
+        }
+
+        @Override
+        public Binding next()
+        {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Binding b = slot ;
+            slot = null ;
+            return b ;
+        }
+
+        @Override
+        public void remove()
+        { throw new UnsupportedOperationException() ; }
+
+        @Override
+        public void close()
+        {
+            Iter.close(iter) ;
+            db.close() ;
+        }
+    }
 }
@@ -53,6 +53,53 @@ public class QueryIterTriplePattern extends QueryIterRepeatApply
         return new TripleMapper(binding, pattern, getExecContext()) ;
     }
     
+    /** Extend a binding with the variables of a pattern (already substituted by the binding)
+     *  matched by a triple; null if a variable occurring twice in the pattern does not match. */ 
+    static Binding map(Binding binding, Node s, Node p, Node o, Triple r)
+    {
+        BindingMap results = BindingFactory.create(binding) ;
+
+        if ( ! insert(s, r.getSubject(), results) )
+            return null ; 
+        if ( ! insert(p, r.getPredicate(), results) )
+            return null ;
+        if ( ! insert(o, r.getObject(), results) )
+            return null ;
+        return results ;
+    }
+
+    private static boolean insert(Node inputNode, Node outputNode, BindingMap results)
+    {
+        if ( ! Var.isVar(inputNode) )
+            return true ;
+        
+        Var v = Var.alloc(inputNode) ;
+        Node x = results.get(v) ;
+        if ( x != null )
+            return outputNode.equals(x) ;
+        
+        results.add(v, outputNode) ;
+        return true ;
+    }
+
+    static Node substitute(Node node, Binding binding)
+    {
+        if ( Var.isVar(node) )
+        {
+            Node x = binding.get(Var.alloc(node)) ;
+            if ( x != null )
+                return x ;
+        }
+        return node ;
+    }
+
+    static Node tripleNode(Node node)
+    {
+        if ( node.isVariable() )
+            return Node.ANY ;
+        return node ;
+    }
+
     static int countMapper = 0 ; 
     static class TripleMapper extends QueryIter
     {
@@ -91,49 +138,9 @@ public class QueryIterTriplePattern extends QueryIterRepeatApply
                 this.graphIter = iter ;
         }
 
-        private static Node tripleNode(Node node)
-        {
-            if ( node.isVariable() )
-                return Node.ANY ;
-            return node ;
-        }
-
-        private static Node substitute(Node node, Binding binding)
-        {
-            if ( Var.isVar(node) )
-            {
-                Node x = binding.get(Var.alloc(node)) ;
-                if ( x != null )
-                    return x ;
-            }
-            return node ;
-        }
-
         private Binding mapper(Triple r)
         {
-            BindingMap results = BindingFactory.create(binding) ;
-
-            if ( ! insert(s, r.getSubject(), results) )
-                return null ; 
-            if ( ! insert(p, r.getPredicate(), results) )
-                return null ;
-            if ( ! insert(o, r.getObject(), results) )
-                return null ;
-            return results ;
-        }
-
-        private static boolean insert(Node inputNode, Node outputNode, BindingMap results)
-        {
-            if ( ! Var.isVar(inputNode) )
-                return true ;
-            
-            Var v = Var.alloc(inputNode) ;
-            Node x = results.get(v) ;
-            if ( x != null )
-                return outputNode.equals(x) ;
-            
-            results.add(v, outputNode) ;
-            return true ;
+            return map(binding, s, p, o, r) ;
         }
         
         @Override
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.graph.GraphBatchFind ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Match a triple pattern against a graph that supports {@link GraphBatchFind}.
+ *  A block of input bindings is read, the distinct patterns after substitution
+ *  are looked up in one call and the results are joined back to the bindings,
+ *  in input order.  The results for the block are materialized.
+ *  @see QueryIterTriplePattern
+ */
+public class QueryIterTriplePatternBatch extends QueryIter1
+{
+    private final Triple pattern ;
+    private final GraphBatchFind graph ;
+    private final int batchSize ;
+    private Iterator<Binding> current = null ;
+    private final Binding[] inputBlock ;
+    private volatile boolean cancelled = false ;
+
+    public QueryIterTriplePatternBatch(QueryIterator input, Triple pattern, int batchSize, ExecutionContext cxt)
+    {
+        super(input, cxt) ;
+        if ( ! ( cxt.getActiveGraph() instanceof GraphBatchFind ) )
+            throw new ARQInternalErrorException("QueryIterTriplePatternBatch: graph does not support batch find") ;
+        this.pattern = pattern ;
+        this.graph = (GraphBatchFind)cxt.getActiveGraph() ;
+        this.batchSize = Math.max(1, batchSize) ;
+        this.inputBlock = new Binding[this.batchSize] ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        for ( ;; )
+        {
+            if ( current != null && current.hasNext() )
+                return true ;
+            if ( cancelled || ! getInput().hasNext() )
+                return false ;
+            current = nextBlock() ;
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( ! hasNextBinding() )
+            throw new ARQInternalErrorException() ;
+        return current.next() ;
+    }
+
+    private Iterator<Binding> nextBlock()
+    {
+        List<Binding> bindings = new ArrayList<Binding>(batchSize) ;
+        List<Triple> substituted = new ArrayList<Triple>(batchSize) ;
+        // Distinct find patterns (variables as Node.ANY) => position in the batch request.
+        Map<Triple, Integer> lookups = new LinkedHashMap<Triple, Integer>() ;
+        int[] index = new int[batchSize] ;
+
+        int k = QueryIterBlocks.nextBlock(getInput(), inputBlock, batchSize) ;
+        for ( int i = 0 ; i < k ; i++ )
+        {
+            Binding binding = inputBlock[i] ;
+            inputBlock[i] = null ;
+            Node s = QueryIterTriplePattern.substitute(pattern.getSubject(), binding) ;
+            Node p = QueryIterTriplePattern.substitute(pattern.getPredicate(), binding) ;
+            Node o = QueryIterTriplePattern.substitute(pattern.getObject(), binding) ;
+            Triple find = new Triple(QueryIterTriplePattern.tripleNode(s),
+                                     QueryIterTriplePattern.tripleNode(p),
+                                     QueryIterTriplePattern.tripleNode(o)) ;
+            Integer idx = lookups.get(find) ;
+            if ( idx == null )
+            {
+                idx = lookups.size() ;
+                lookups.put(find, idx) ;
+            }
+            bindings.add(binding) ;
+            substituted.add(new Triple(s, p, o)) ;
+            index[i] = idx ;
+        }
+
+        List<List<Triple>> results = graph.find(new ArrayList<Triple>(lookups.keySet())) ;
+
+        List<Binding> output = new ArrayList<Binding>() ;
+        for ( int i = 0 ; i < bindings.size() ; i++ )
+        {
+            Triple t = substituted.get(i) ;
+            for ( Triple r : results.get(index[i]) )
+            {
+                Binding b = QueryIterTriplePattern.map(bindings.get(i), t.getSubject(), t.getPredicate(), t.getObject(), r) ;
+                if ( b != null )
+                    output.add(b) ;
+            }
+        }
+        return output.iterator() ;
+    }
+
+    @Override
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        int n = 0 ;
+        while ( n < max && hasNextBinding() )
+            block[n++] = current.next() ;
+        return n ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    {
+        cancelled = true ;
+    }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        current = null ;
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext sCxt)
+    {
+        out.print(Utils.className(this)) ;
+        out.print(" ["+batchSize+"] ") ;
+        out.println(FmtUtils.stringForTriple(pattern, sCxt.getPrefixMapping())) ;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+import com.hp.hpl.jena.util.iterator.ClosableIterator ;
+import com.hp.hpl.jena.util.iterator.NiceIterator ;
+
+/** Match a triple pattern a block of bindings at a time (see {@link QueryIterBlocks}).
+ *  Input bindings are read in blocks and the matches of each are streamed from
+ *  {@code graph.find} into the output blocks, without the iterator per input binding
+ *  of {@link QueryIterTriplePattern}.
+ */
+public class QueryIterTriplePatternBlock extends QueryIter1
+{
+    private final Triple pattern ;
+    private final Graph graph ;
+    private final QueryIterBlocks.Buffer buffer ;
+    private final Binding[] inputBlock ;
+    private int inputPos = 0 ;
+    private int inputLen = 0 ;
+    private boolean inputFinished = false ;
+
+    // The input binding being matched.
+    private Binding binding = null ;
+    private Node s, p, o ;
+    private ClosableIterator<Triple> graphIter = null ;
+    private volatile boolean cancelled = false ;
+
+    public QueryIterTriplePatternBlock(QueryIterator input, Triple pattern, int blockSize, ExecutionContext cxt)
+    {
+        super(input, cxt) ;
+        this.pattern = pattern ;
+        this.graph = cxt.getActiveGraph() ;
+        this.buffer = new QueryIterBlocks.Buffer(Math.max(1, blockSize)) ;
+        this.inputBlock = new Binding[Math.max(1, blockSize)] ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( isFinished() )
+            return false ;
+        return buffer.hasNext() || buffer.set(matchBlock(buffer.array(), buffer.capacity())) ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( ! hasNextBinding() )
+            throw new ARQInternalErrorException() ;
+        return buffer.next() ;
+    }
+
+    @Override
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        int n = buffer.drain(block, max) ;
+        if ( n > 0 )
+            return n ;
+        return matchBlock(block, max) ;
+    }
+
+    private int matchBlock(Binding[] output, int max)
+    {
+        int n = 0 ;
+        while ( n < max && ! cancelled )
+        {
+            if ( graphIter != null )
+            {
+                if ( graphIter.hasNext() )
+                {
+                    Binding b = QueryIterTriplePattern.map(binding, s, p, o, graphIter.next()) ;
+                    if ( b != null )
+                        output[n++] = b ;
+                    continue ;
+                }
+                graphIter.close() ;
+                graphIter = null ;
+            }
+            if ( ! nextInput() )
+                break ;
+        }
+        return n ;
+    }
+
+    /** Move to the next input binding and start matching it */
+    private boolean nextInput()
+    {
+        if ( inputPos == inputLen )
+        {
+            if ( inputFinished )
+                return false ;
+            inputLen = QueryIterBlocks.nextBlock(getInput(), inputBlock, inputBlock.length) ;
+            inputPos = 0 ;
+            if ( inputLen == 0 )
+            {
+                inputFinished = true ;
+                return false ;
+            }
+        }
+        binding = inputBlock[inputPos] ;
+        inputBlock[inputPos++] = null ;
+        s = QueryIterTriplePattern.substitute(pattern.getSubject(), binding) ;
+        p = QueryIterTriplePattern.substitute(pattern.getPredicate(), binding) ;
+        o = QueryIterTriplePattern.substitute(pattern.getObject(), binding) ;
+        graphIter = graph.find(QueryIterTriplePattern.tripleNode(s),
+                               QueryIterTriplePattern.tripleNode(p),
+                               QueryIterTriplePattern.tripleNode(o)) ;
+        return true ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    {
+        cancelled = true ;
+    }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        if ( graphIter != null )
+            NiceIterator.close(graphIter) ;
+        graphIter = null ;
+        buffer.clear() ;
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext sCxt)
+    {
+        out.print(Utils.className(this)) ;
+        out.print(" ") ;
+        out.println(FmtUtils.stringForTriple(pattern, sCxt.getPrefixMapping())) ;
+    }
+}
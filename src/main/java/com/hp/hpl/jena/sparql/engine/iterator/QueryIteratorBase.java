@@ -170,6 +170,52 @@ public abstract class QueryIteratorBase
         }
     }
     
+    /** Fill the array, from the start, with up to {@code max} bindings and return
+     *  how many there are; 0 means there are no more.
+     *  The checks for cancellation are done once for the block, not once per binding.
+     *  Iterators that work a block at a time implement {@link #moveToNextBlock}.
+     *  @see QueryIterBlocks
+     */
+    public final int nextBlock(Binding[] block, int max)
+    {
+        if ( finished )
+            return 0 ;
+
+        if ( requestingCancel && abortIterator )
+        {
+            close() ;
+            throw new QueryCancelledException() ;
+        }
+
+        try {
+            int n = moveToNextBlock(block, max) ;
+            if ( n == 0 )
+                close() ;
+            return n ;
+        } catch (QueryFatalException ex)
+        { 
+            Log.fatal(this, "QueryFatalException", ex) ; 
+            throw ex ; 
+        }
+    }
+
+    /** Fill the array with up to {@code max} bindings, returning the number.
+     *  The default is to take one binding at a time from {@link #hasNextBinding()}
+     *  and {@link #moveToNextBinding()}.
+     */
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        int n = 0 ;
+        while ( n < max && hasNextBinding() )
+        {
+            Binding b = moveToNextBinding() ;
+            if ( b == null )
+                break ;
+            block[n++] = b ;
+        }
+        return n ;
+    }
+
     @Override
     public final void remove()
     {
@@ -84,7 +84,7 @@ public class QueryIteratorCheck extends QueryIteratorWrapper
         {
             QueryIterator qIterOpen = iterOpen.next() ;
             warn(qIterOpen, "Open iterator: ") ;
-            iterOpen.remove() ;
+            execContext.closedIterator(qIterOpen) ;
         }
      
     }
@@ -18,6 +18,8 @@
 
 package com.hp.hpl.jena.sparql.engine.main ;
 
+import java.util.ArrayList ;
+import java.util.List ;
 import java.util.Set ;
 
 import org.apache.jena.atlas.lib.SetUtils ;
@@ -134,6 +136,25 @@ public class JoinClassifier
         return !bad1 && !bad2 ;
     }
 
+    /** The variables that are always bound on both sides of a join.
+     *  These make a key for a hash join; the list is empty if there are none
+     *  (a cross product).
+     */
+    static public List<Var> joinKeys(Op left, Op right)
+    {
+        left = effectiveOp(left) ;
+        right = effectiveOp(right) ;
+        Set<Var> vLeftFixed = VarFinder.fixed(left) ;
+        Set<Var> vRightFixed = VarFinder.fixed(right) ;
+        List<Var> keys = new ArrayList<Var>() ;
+        for ( Var v : vLeftFixed )
+        {
+            if ( vRightFixed.contains(v) )
+                keys.add(v) ;
+        }
+        return keys ;
+    }
+
     static public Op effectiveOp(Op op)
     {
         if (op instanceof OpExt) op = ((OpExt) op).effectiveOp() ;
@@ -27,6 +27,7 @@ import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.logging.Log ;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.QueryExecException ;
 import com.hp.hpl.jena.sparql.ARQNotImplemented ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
@@ -40,10 +41,12 @@ import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.iterator.* ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterGraph ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterHashJoin ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterJoin ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterLeftJoin ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterOptionalIndex ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterService ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterServiceBatched ;
 import com.hp.hpl.jena.sparql.engine.main.iterator.QueryIterUnion ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprList ;
@@ -231,6 +234,16 @@ public class OpExecutor
         }
         QueryIterator left = executeOp(opJoin.getLeft(), input) ;
         QueryIterator right = executeOp(opJoin.getRight(), root()) ;
+        
+        // Not turned into a sequence by TransformJoinStrategy.
+        // Hash join on the variables always bound on both sides, if any.
+        if ( execCxt.getContext().isTrueOrUndef(ARQ.optHashJoin) )
+        {
+            List<Var> joinKeys = JoinClassifier.joinKeys(opJoin.getLeft(), opJoin.getRight()) ;
+            if ( ! joinKeys.isEmpty() )
+                return new QueryIterHashJoin(left, right, joinKeys, execCxt) ;
+        }
+        
         QueryIterator qIter = new QueryIterJoin(left, right, execCxt) ;
         return qIter ;
     }
@@ -333,6 +346,9 @@ public class OpExecutor
 
     protected QueryIterator execute(OpService opService, QueryIterator input)
     {
+        int batchSize = QueryIterServiceBatched.batchSize(execCxt.getContext()) ;
+        if ( batchSize > 1 && opService.getService().isURI() )
+            return new QueryIterServiceBatched(input, opService, batchSize, execCxt) ;
         return new QueryIterService(input, opService, execCxt) ;
     }
     
@@ -18,13 +18,26 @@
 
 package com.hp.hpl.jena.sparql.engine.main;
 
+import java.util.Iterator ;
+import java.util.LinkedHashSet ;
+import java.util.Set ;
+
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
 import com.hp.hpl.jena.sparql.algebra.Algebra ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpVars ;
+import com.hp.hpl.jena.sparql.algebra.OpVisitorBase ;
+import com.hp.hpl.jena.sparql.algebra.OpWalker ;
+import com.hp.hpl.jena.sparql.algebra.op.OpAssign ;
+import com.hp.hpl.jena.sparql.algebra.op.OpExtend ;
+import com.hp.hpl.jena.sparql.algebra.op.OpGroup ;
+import com.hp.hpl.jena.sparql.algebra.op.OpTable ;
 import com.hp.hpl.jena.sparql.algebra.optimize.TransformScopeRename ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.core.Substitute ;
+import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.Plan ;
 import com.hp.hpl.jena.sparql.engine.QueryEngineBase ;
@@ -32,9 +45,12 @@ import com.hp.hpl.jena.sparql.engine.QueryEngineFactory ;
 import com.hp.hpl.jena.sparql.engine.QueryEngineRegistry ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingArray ;
+import com.hp.hpl.jena.sparql.engine.binding.VarSlots ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRoot ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorCheck ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorTiming ;
+import com.hp.hpl.jena.sparql.expr.ExprAggregator ;
 import com.hp.hpl.jena.sparql.util.Context ;
 
 public class QueryEngineMain extends QueryEngineBase
@@ -60,6 +76,13 @@ public class QueryEngineMain extends QueryEngineBase
         if ( SUBSTITUE && ! input.isEmpty() )
             op = Substitute.substitute(op, input) ;
         
+        if ( context.isTrue(ARQ.compactBindings) )
+        {
+            VarSlots slots = varSlots(op, input) ;
+            context.set(ARQConstants.sysVarSlots, slots) ;
+            input = BindingArray.create(input, slots) ;
+        }
+        
         ExecutionContext execCxt = new ExecutionContext(context, dsg.getDefaultGraph(), dsg, QC.getFactory(context)) ;
         QueryIterator qIter1 = QueryIterRoot.create(input, execCxt) ;
         QueryIterator qIter = QC.execute(op, qIter1, execCxt) ;
@@ -71,6 +94,28 @@ public class QueryEngineMain extends QueryEngineBase
         return qIter ;
     }
     
+    /** The slot table for the variables of the algebra expression and the input binding */
+    private static VarSlots varSlots(Op op, Binding input)
+    {
+        final Set<Var> vars = new LinkedHashSet<Var>() ;
+        for ( Iterator<Var> iter = input.vars() ; iter.hasNext() ; )
+            vars.add(iter.next()) ;
+        OpVars.allVars(op, vars) ;
+        // Variables set by expressions and tables.
+        OpWalker.walk(op, new OpVisitorBase() {
+            @Override public void visit(OpExtend opExtend)  { vars.addAll(opExtend.getVarExprList().getVars()) ; }
+            @Override public void visit(OpAssign opAssign)  { vars.addAll(opAssign.getVarExprList().getVars()) ; }
+            @Override public void visit(OpTable opTable)    { vars.addAll(opTable.getTable().getVars()) ; }
+            @Override public void visit(OpGroup opGroup)
+            {
+                vars.addAll(opGroup.getGroupVars().getVars()) ;
+                for ( ExprAggregator agg : opGroup.getAggregators() )
+                    vars.add(agg.getVar()) ;
+            }
+        }) ;
+        return VarSlots.create(vars) ;
+    }
+    
 //    protected Op createOp(Query query, AlgebraGenerator gen)
 //    {
 //        Op op = super.createOp(query, gen) ;
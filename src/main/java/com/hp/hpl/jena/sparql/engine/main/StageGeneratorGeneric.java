@@ -25,6 +25,8 @@ import com.hp.hpl.jena.graph.Graph ;
 import com.hp.hpl.jena.graph.GraphStatisticsHandler ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.mem.GraphMem ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.reasoner.InfGraph ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
@@ -58,13 +60,21 @@ public class StageGeneratorGeneric implements StageGenerator
             reorder = reorderBasicStats(graph) ;
             executor = executeInline ; 
         }
-        else
+        else if ( graph instanceof InfGraph || ! execCxt.getContext().isTrue(ARQ.optReorderSampling) )
         {
             // When in doubt ... use the general pass-through to graph query handler matcher.
-            // Includes union graphs, InfGraphs and other composite or unusual kinds.
+            // Looking in an InfGraph can cause inference.
             reorder = null ;
             executor = executeInline ;
         }
+        else
+        {
+            // Union graphs, wrapped graphs and other composite or unusual kinds:
+            // no statistics so estimate by looking in the graph.
+            // Only when asked for: it costs extra finds, which may be remote.
+            reorder = ReorderLib.sampling(graph) ;
+            executor = executeInline ;
+        }
 
         return execute(pattern, reorder, executor, input, execCxt) ;
     }
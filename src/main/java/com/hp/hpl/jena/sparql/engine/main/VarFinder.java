@@ -36,6 +36,7 @@ import com.hp.hpl.jena.sparql.algebra.op.OpFilter ;
 import com.hp.hpl.jena.sparql.algebra.op.OpGraph ;
 import com.hp.hpl.jena.sparql.algebra.op.OpJoin ;
 import com.hp.hpl.jena.sparql.algebra.op.OpLeftJoin ;
+import com.hp.hpl.jena.sparql.algebra.op.OpMinus ;
 import com.hp.hpl.jena.sparql.algebra.op.OpNull ;
 import com.hp.hpl.jena.sparql.algebra.op.OpProject ;
 import com.hp.hpl.jena.sparql.algebra.op.OpQuadPattern ;
@@ -182,6 +183,13 @@ public class VarFinder
                 exprs.varsMentioned(filterMentions);
         }
         
+        @Override
+        public void visit(OpMinus opMinus)
+        {
+            // Only the left hand side contributes to the results.
+            joinAcc(opMinus.getLeft()) ;
+        }
+        
         @Override
         public void visit(OpUnion opUnion)
         {
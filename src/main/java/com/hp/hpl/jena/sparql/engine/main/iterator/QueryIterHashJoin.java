@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Collection ;
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.iterator.IteratorConcat ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.algebra.Algebra ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.Plan ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter2 ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterBlocks ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Join by building a hash table of the RHS, keyed on the join variables,
+ *  then streaming the LHS and probing the table.
+ *  <p>
+ *  The RHS is materialized (as with {@link QueryIterJoin}) but each left
+ *  binding only looks at the right bindings with the same key, not the whole
+ *  of the right hand side.  Right bindings that do not bind every key variable
+ *  can not be put in the table and are tried against every left binding; a
+ *  left binding that does not bind every key variable is tried against all of
+ *  the right hand side.  The final test is always the SPARQL compatibility
+ *  test so the key only has to be a good guess at the join variables.
+ *  <p>
+ *  In block mode ({@link QueryIterBlocks}) both sides are read a block at a time.
+ */
+public class QueryIterHashJoin extends QueryIter2
+{
+    private final Var[] joinKey ;
+    // Built on the first call of hasNextBinding.
+    private Map<Object, List<Binding>> hashTable = null ;
+    private List<Binding> rowsNoKey = null ;
+
+    private Binding currentLeft = null ;
+    private Iterator<Binding> currentRight = null ;
+    private Binding slot = null ;
+
+    // Block mode: left bindings read ahead, or null.
+    private final Binding[] leftBlock ;
+    private int leftPos = 0 ;
+    private int leftLen = 0 ;
+
+    public QueryIterHashJoin(QueryIterator left, QueryIterator right, List<Var> joinKey, ExecutionContext execCxt)
+    {
+        super(left, right, execCxt) ;
+        if ( joinKey == null || joinKey.size() == 0 )
+            throw new ARQInternalErrorException("QueryIterHashJoin: no join key") ;
+        this.joinKey = joinKey.toArray(new Var[joinKey.size()]) ;
+        int blockSize = QueryIterBlocks.blockSize(execCxt) ;
+        this.leftBlock = ( blockSize > 0 ) ? new Binding[blockSize] : null ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( isFinished() )
+            return false ;
+        if ( slot != null )
+            return true ;
+        if ( hashTable == null )
+            buildHashTable() ;
+        slot = moveToNext() ;
+        return slot != null ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( ! hasNextBinding() )
+            return null ;
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    @Override
+    protected int moveToNextBlock(Binding[] block, int max)
+    {
+        if ( hashTable == null )
+            buildHashTable() ;
+        int n = 0 ;
+        if ( slot != null )
+        {
+            block[n++] = slot ;
+            slot = null ;
+        }
+        while ( n < max )
+        {
+            Binding b = moveToNext() ;
+            if ( b == null )
+                break ;
+            block[n++] = b ;
+        }
+        return n ;
+    }
+
+    private void buildHashTable()
+    {
+        hashTable = new HashMap<Object, List<Binding>>() ;
+        rowsNoKey = new ArrayList<Binding>() ;
+        QueryIterator right = getRight() ;
+        if ( leftBlock == null )
+        {
+            while ( right.hasNext() )
+                add(right.nextBinding()) ;
+        }
+        else
+        {
+            Binding[] block = new Binding[leftBlock.length] ;
+            int k ;
+            while ( ( k = QueryIterBlocks.nextBlock(right, block, block.length) ) > 0 )
+            {
+                for ( int i = 0 ; i < k ; i++ )
+                    add(block[i]) ;
+            }
+        }
+        right.close() ;
+    }
+
+    private void add(Binding b)
+    {
+        Object key = key(b) ;
+        if ( key == null )
+        {
+            rowsNoKey.add(b) ;
+            return ;
+        }
+        List<Binding> bucket = hashTable.get(key) ;
+        if ( bucket == null )
+        {
+            bucket = new ArrayList<Binding>(2) ;
+            hashTable.put(key, bucket) ;
+        }
+        bucket.add(b) ;
+    }
+
+    private Binding moveToNext()
+    {
+        for ( ;; )
+        {
+            if ( currentRight != null )
+            {
+                while ( currentRight.hasNext() )
+                {
+                    Binding b = Algebra.merge(currentLeft, currentRight.next()) ;
+                    if ( b != null )
+                        return b ;
+                }
+                currentRight = null ;
+                currentLeft = null ;
+            }
+
+            currentLeft = nextLeft() ;
+            if ( currentLeft == null )
+                return null ;
+            currentRight = candidates(currentLeft) ;
+        }
+    }
+
+    private Binding nextLeft()
+    {
+        if ( leftBlock == null )
+            return getLeft().hasNext() ? getLeft().nextBinding() : null ;
+        if ( leftPos == leftLen )
+        {
+            leftLen = QueryIterBlocks.nextBlock(getLeft(), leftBlock, leftBlock.length) ;
+            leftPos = 0 ;
+            if ( leftLen == 0 )
+                return null ;
+        }
+        Binding b = leftBlock[leftPos] ;
+        leftBlock[leftPos++] = null ;
+        return b ;
+    }
+
+    /** The right hand side bindings that may join with the left binding */
+    private Iterator<Binding> candidates(Binding left)
+    {
+        Object key = key(left) ;
+        if ( key == null )
+        {
+            // Partial key - try everything.
+            IteratorConcat<Binding> iter = new IteratorConcat<Binding>() ;
+            for ( Collection<Binding> bucket : hashTable.values() )
+                iter.add(bucket.iterator()) ;
+            iter.add(rowsNoKey.iterator()) ;
+            return iter ;
+        }
+
+        List<Binding> bucket = hashTable.get(key) ;
+        if ( bucket == null )
+            return rowsNoKey.iterator() ;
+        if ( rowsNoKey.isEmpty() )
+            return bucket.iterator() ;
+        return IteratorConcat.concat(bucket.iterator(), rowsNoKey.iterator()) ;
+    }
+
+    /** The hash key for a binding or null if any of the join variables is unbound. */
+    private Object key(Binding binding)
+    {
+        if ( joinKey.length == 1 )
+            return binding.get(joinKey[0]) ;
+
+        Node[] nodes = new Node[joinKey.length] ;
+        for ( int i = 0 ; i < joinKey.length ; i++ )
+        {
+            Node n = binding.get(joinKey[i]) ;
+            if ( n == null )
+                return null ;
+            nodes[i] = n ;
+        }
+        return Arrays.asList(nodes) ;
+    }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        hashTable = null ;
+        rowsNoKey = null ;
+        currentLeft = null ;
+        currentRight = null ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    {
+        closeSubIterator() ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt)
+    {
+        out.println(Utils.className(this)+" "+Arrays.asList(joinKey)) ;
+        out.incIndent() ;
+        out.print(Plan.startMarker) ;
+        out.incIndent() ;
+        getLeft().output(out, sCxt) ;
+        out.decIndent() ;
+        out.println(Plan.finishMarker) ;
+        out.print(Plan.startMarker) ;
+        out.incIndent() ;
+        getRight().output(out, sCxt) ;
+        out.decIndent() ;
+        out.println(Plan.finishMarker) ;
+        out.decIndent() ;
+    }
+}
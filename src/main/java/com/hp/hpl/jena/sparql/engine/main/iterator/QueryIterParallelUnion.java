@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import java.util.ArrayList ;
+import java.util.LinkedList ;
+import java.util.List ;
+import java.util.concurrent.ArrayBlockingQueue ;
+import java.util.concurrent.BlockingQueue ;
+import java.util.concurrent.CancellationException ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.RejectedExecutionException ;
+import java.util.concurrent.SynchronousQueue ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.ThreadPoolExecutor ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicInteger ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.QueryCancelledException ;
+import com.hp.hpl.jena.query.QueryExecException ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Run the branches of a union at the same time and pass on the results
+ *  in the order they arrive.
+ *  <p>
+ *  Branches run as tasks on a shared, bounded thread pool (see
+ *  {@link #getExecutor()}), or on the executor in the context under
+ *  {@link ARQ#parallelUnionExecutor}.  At most {@code parallelism} branches
+ *  of one union run at once.  If the pool has no free thread, the branch
+ *  is run by the consuming thread instead, so nested unions cannot use up
+ *  the pool and wait for each other.
+ *  <p>
+ *  The branches write to a bounded queue so a branch that gets ahead of the
+ *  consumer waits.  Each branch task closes its own iterator when it ends;
+ *  closing this iterator stops the tasks and waits for them to finish.
+ *  An exception in a branch is rethrown to the consumer.
+ */
+
+public class QueryIterParallelUnion extends QueryIter
+{
+    private static final long POLL_TIMEOUT = 100 ;   // milliseconds 
+    private static final Object endMarker = new Object() ;
+    private static final AtomicInteger threadCounter = new AtomicInteger(0) ;
+    
+    /** Maximum number of threads in the shared pool */
+    public static final int MaxThreads = Math.max(4, 2*Runtime.getRuntime().availableProcessors()) ;
+    private static ExecutorService sharedExecutor = null ;
+    
+    /** The shared pool used by parallel unions unless the context provides one.
+     *  Threads are created as needed, up to {@link #MaxThreads}, and end when idle. */
+    public static synchronized ExecutorService getExecutor()
+    {
+        if ( sharedExecutor == null )
+        {
+            ThreadFactory factory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "ParallelUnion-"+threadCounter.incrementAndGet()) ;
+                    thread.setDaemon(true) ;
+                    return thread ;
+                }} ;
+            // No task queue: a task either gets a thread or is rejected.
+            sharedExecutor = new ThreadPoolExecutor(0, MaxThreads, 60, TimeUnit.SECONDS,
+                                                    new SynchronousQueue<Runnable>(), factory) ;
+        }
+        return sharedExecutor ;
+    }
+    
+    private final ExecutorService executor ;
+    private final List<QueryIterator> branches ;
+    private final int parallelism ;
+    // Not yet started.
+    private final LinkedList<QueryIterator> pending ;
+    // Running on pool threads.
+    private final List<Future<?>> tasks = new ArrayList<Future<?>>() ;
+    private final List<QueryIterator> running = new ArrayList<QueryIterator>() ;
+    // Holds bindings, endMarker or a Throwable. 
+    private final BlockingQueue<Object> queue ;
+    // Run by this thread because the pool was full. 
+    private QueryIterator local = null ;
+    private int branchesRunning = 0 ;
+    private volatile boolean stopping = false ;
+    private Binding slot = null ;
+    
+    public QueryIterParallelUnion(List<QueryIterator> branches, int parallelism, int bufferSize, ExecutionContext execCxt)
+    {
+        super(execCxt) ;
+        this.branches = branches ;
+        this.pending = new LinkedList<QueryIterator>(branches) ;
+        this.parallelism = Math.max(1, Math.min(parallelism, branches.size())) ;
+        this.queue = new ArrayBlockingQueue<Object>(Math.max(1, bufferSize)) ;
+        Object x = execCxt.getContext().get(ARQ.parallelUnionExecutor) ;
+        this.executor = ( x instanceof ExecutorService ) ? (ExecutorService)x : getExecutor() ;
+    }
+    
+    /** Start pending branches on the pool, up to the parallelism limit. */
+    private void startBranches()
+    {
+        while ( ! pending.isEmpty() && branchesRunning + (local == null ? 0 : 1) < parallelism )
+        {
+            QueryIterator qIter = pending.getFirst() ;
+            synchronized(running) { running.add(qIter) ; }
+            Future<?> task ;
+            try { task = executor.submit(new Branch(qIter)) ; }
+            catch (RejectedExecutionException ex)
+            {
+                // Pool full.
+                synchronized(running) { running.remove(qIter) ; }
+                return ;
+            }
+            pending.removeFirst() ;
+            tasks.add(task) ;
+            branchesRunning++ ;
+        }
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( isFinished() )
+            return false ;
+        if ( slot != null )
+            return true ;
+        
+        for(;;)
+        {
+            Object x = queue.poll() ;
+            if ( x == null )
+            {
+                if ( local == null && ! pending.isEmpty() )
+                {
+                    startBranches() ;
+                    // No pool thread free: run the next branch on this thread.
+                    if ( ! pending.isEmpty() && branchesRunning < parallelism )
+                        local = pending.removeFirst() ;
+                }
+                if ( local != null )
+                {
+                    if ( local.hasNext() )
+                    {
+                        slot = local.nextBinding() ;
+                        return true ;
+                    }
+                    performClose(local) ;
+                    local = null ;
+                    continue ;
+                }
+                if ( branchesRunning == 0 )
+                    return false ;
+                try { x = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS) ; }
+                catch (InterruptedException ex) { throw new QueryCancelledException() ; }
+                if ( x == null )
+                {
+                    if ( stopping )
+                        throw new QueryCancelledException() ;
+                    continue ;
+                }
+            }
+            if ( x == endMarker )
+            {
+                branchesRunning-- ;
+                continue ;
+            }
+            if ( x instanceof Throwable )
+            {
+                branchesRunning-- ;
+                stopping = true ;
+                if ( x instanceof RuntimeException )
+                    throw (RuntimeException)x ;
+                if ( x instanceof Error )
+                    throw (Error)x ;
+                throw new QueryExecException((Throwable)x) ;
+            }
+            slot = (Binding)x ;
+            return true ;
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( ! hasNextBinding() )
+            return null ;
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    @Override
+    protected void closeIterator()
+    {
+        stopping = true ;
+        synchronized(running)
+        {
+            for ( QueryIterator qIter : running )
+                performRequestCancel(qIter) ;
+        }
+        // Running branches close their own iterators; wait for them to do so.
+        for ( Future<?> task : tasks )
+        {
+            try { task.get() ; }
+            catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+            catch (ExecutionException ex) {}
+            catch (CancellationException ex) {}
+        }
+        tasks.clear() ;
+        queue.clear() ;
+        if ( local != null )
+            performClose(local) ;
+        local = null ;
+        for ( QueryIterator qIter : pending )
+            performClose(qIter) ;
+        pending.clear() ;
+    }
+
+    @Override
+    protected void requestCancel()
+    {
+        stopping = true ;
+        synchronized(running)
+        {
+            for ( QueryIterator qIter : running )
+                performRequestCancel(qIter) ;
+        }
+        if ( local != null )
+            performRequestCancel(local) ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt)
+    { 
+        out.println(Utils.className(this)+" "+parallelism) ;
+        out.incIndent() ;
+        for ( QueryIterator qIter : branches )
+            qIter.output(out, sCxt) ;
+        out.decIndent() ;
+        out.ensureStartOfLine() ;
+    }
+    
+    /** Drive one branch, passing its results to the queue, then close it. */
+    private class Branch implements Runnable
+    {
+        private final QueryIterator qIter ;
+        
+        Branch(QueryIterator qIter) { this.qIter = qIter ; }
+        
+        @Override
+        public void run()
+        {
+            Object result = endMarker ;
+            try {
+                while ( ! stopping && qIter.hasNext() )
+                {
+                    if ( ! put(qIter.nextBinding()) )
+                        return ;
+                }
+            } catch (Throwable th) { result = th ; }
+            finally
+            {
+                try { qIter.close() ; } catch (Throwable th) { if ( result == endMarker ) result = th ; }
+                synchronized(running) { running.remove(qIter) ; }
+            }
+            put(result) ;
+        }
+        
+        private boolean put(Object x)
+        {
+            try {
+                while ( ! queue.offer(x, POLL_TIMEOUT, TimeUnit.MILLISECONDS) )
+                {
+                    if ( stopping )
+                        return false ;
+                }
+                return true ;
+            } catch (InterruptedException ex) { return false ; }
+        }
+    }
+}
@@ -48,7 +48,7 @@ public class QueryIterService extends QueryIterRepeatApply
         boolean silent = opService.getSilent() ;
         QueryIterator qIter ;
         try {
-            qIter = Service.exec((OpService)op, getExecContext().getContext()) ;
+            qIter = exec((OpService)op) ;
             // This iterator is materialized already otherwise we may end up
             // not servicing the HTTP connection as needed.
             // In extremis, can cause a deadlock when SERVICE loops back to this server.
@@ -69,4 +69,10 @@ public class QueryIterService extends QueryIterRepeatApply
         QueryIterator qIter2 = new QueryIterCommonParent(qIter, outerBinding, getExecContext()) ;
         return qIter2 ;
     }
+    
+    /** Make one SERVICE call, by default a remote request using {@link Service#exec}. */
+    protected QueryIterator exec(OpService op)
+    {
+        return Service.exec(op, getExecContext().getContext()) ;
+    }
 }
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import java.util.ArrayList ;
+import java.util.Collection ;
+import java.util.Iterator ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.QueryExecException ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpVars ;
+import com.hp.hpl.jena.sparql.algebra.Table ;
+import com.hp.hpl.jena.sparql.algebra.TableFactory ;
+import com.hp.hpl.jena.sparql.algebra.op.OpJoin ;
+import com.hp.hpl.jena.sparql.algebra.op.OpService ;
+import com.hp.hpl.jena.sparql.algebra.op.OpTable ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.http.Service ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter1 ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.engine.main.JoinClassifier ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+
+/** Bind join for SERVICE: send several input bindings in one request.
+ *  <p>
+ *  Up to {@link Service#serviceBatchSize} input bindings are put in a VALUES
+ *  block joined with the SERVICE pattern, together with a row number variable.
+ *  The row number in each remote result gives the input binding it extends.
+ *  <p>
+ *  This is the same as substituting each input binding into the pattern
+ *  only when the join can be done by substitution (see {@link JoinClassifier}).
+ *  When it can not, or the batch has only one binding, the batch is executed
+ *  one binding at a time by {@link QueryIterService}.
+ */
+
+public class QueryIterServiceBatched extends QueryIter1
+{
+    private final OpService opService ;
+    private final int batchSize ;
+    private final Set<Var> patternVars ;
+    private final Var rowVar ;
+    private QueryIterator current = null ;
+    
+    public QueryIterServiceBatched(QueryIterator input, OpService opService, int batchSize, ExecutionContext context)
+    {
+        super(input, context) ;
+        this.opService = opService ;
+        this.batchSize = batchSize ;
+        this.patternVars = new LinkedHashSet<Var>(OpVars.allVars(opService.getSubOp())) ;
+        this.rowVar = rowVar(patternVars) ;
+    }
+    
+    /** The batch size set in the context, or 1 for no batching. */ 
+    public static int batchSize(Context context)
+    {
+        Object obj = context.get(Service.serviceBatchSize) ;
+        if ( obj == null )
+            return 1 ;
+        if ( obj instanceof Number )
+            return ((Number)obj).intValue() ;
+        try { return Integer.parseInt(obj.toString()) ; }
+        catch (NumberFormatException ex)
+        { throw new QueryExecException("Can't interpret SERVICE batch size: " + obj) ; }
+    }
+    
+    private static Var rowVar(Collection<Var> vars)
+    {
+        String name = "__row" ;
+        Var v = Var.alloc(name) ;
+        for ( int i = 1 ; vars.contains(v) ; i++ )
+            v = Var.alloc(name+i) ;
+        return v ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        for ( ;; )
+        {
+            if ( current != null )
+            {
+                if ( current.hasNext() )
+                    return true ;
+                current.close() ;
+                current = null ;
+            }
+            
+            List<Binding> batch = new ArrayList<Binding>(batchSize) ;
+            while ( batch.size() < batchSize && getInput().hasNext() )
+                batch.add(getInput().nextBinding()) ;
+            if ( batch.isEmpty() )
+                return false ;
+            current = execBatch(batch) ;
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        if ( ! hasNextBinding() )
+            throw new NoSuchElementException(Utils.className(this)+".next()/finished") ;
+        return current.nextBinding() ;
+    }
+
+    private QueryIterator execBatch(List<Binding> batch)
+    {
+        ExecutionContext execCxt = getExecContext() ;
+        Table table = table(batch) ;
+        if ( batch.size() == 1 || table == null )
+            return new QueryIterService(new QueryIterPlainWrapper(batch.iterator(), execCxt), opService, execCxt) {
+                @Override protected QueryIterator exec(OpService op) { return QueryIterServiceBatched.this.exec(op) ; }
+            } ;
+        
+        Op op = new OpService(opService.getService(), OpJoin.create(OpTable.create(table), opService.getSubOp()), opService.getSilent()) ;
+        QueryIterator qIter ;
+        try {
+            qIter = exec((OpService)op) ;
+        } catch (RuntimeException ex)
+        {
+            if ( opService.getSilent() )
+            {
+                Log.warn(this, "SERVICE <" + opService.getService().toString() + ">: " + ex.getMessage()) ;
+                return new QueryIterPlainWrapper(batch.iterator(), execCxt) ;
+            }
+            throw ex ;
+        }
+        
+        // Put the results with their input binding, in input order.
+        List<List<Binding>> results = new ArrayList<List<Binding>>(batch.size()) ;
+        for ( int i = 0 ; i < batch.size() ; i++ )
+            results.add(new ArrayList<Binding>()) ;
+        try {
+            while ( qIter.hasNext() )
+            {
+                Binding b = qIter.nextBinding() ;
+                Node n = b.get(rowVar) ;
+                int idx = ( n != null && n.isLiteral() ) ? NodeFactory.nodeToInt(n) : -1 ;
+                if ( idx < 0 || idx >= batch.size() )
+                    throw new QueryExecException("SERVICE <" + opService.getService().toString() + ">: bad row number in results: "+n) ;
+                Binding outer = batch.get(idx) ;
+                BindingMap b2 = BindingFactory.create(outer) ;
+                for ( Iterator<Var> iter = b.vars() ; iter.hasNext() ; )
+                {
+                    Var v = iter.next() ;
+                    if ( ! v.equals(rowVar) && ! outer.contains(v) )
+                        b2.add(v, b.get(v)) ;
+                }
+                results.get(idx).add(b2) ;
+            }
+        } finally { qIter.close() ; }
+        
+        List<Binding> all = new ArrayList<Binding>() ;
+        for ( List<Binding> x : results )
+            all.addAll(x) ;
+        return new QueryIterPlainWrapper(all.iterator(), execCxt) ;
+    }
+    
+    /** Execute one SERVICE request, for a batch or for a single binding.
+     *  The default sends it to the remote endpoint with {@link Service#exec}. */
+    protected QueryIterator exec(OpService op)
+    {
+        return Service.exec(op, getExecContext().getContext()) ;
+    }
+    
+    /** The VALUES table for a batch, or null if it can not be used */
+    private Table table(List<Binding> batch)
+    {
+        List<Var> vars = new ArrayList<Var>() ;
+        vars.add(rowVar) ;
+        for ( Var v : patternVars )
+        {
+            for ( Binding b : batch )
+            {
+                if ( b.contains(v) )
+                {
+                    // Renamed variables are put back to their original name in the remote query.
+                    if ( ! v.isNamedVar() )
+                        return null ;
+                    vars.add(v) ;
+                    break ;
+                }
+            }
+        }
+        
+        Table table = TableFactory.create(vars) ;
+        for ( int i = 0 ; i < batch.size() ; i++ )
+        {
+            Binding b = batch.get(i) ;
+            BindingMap row = BindingFactory.create() ;
+            row.add(rowVar, NodeFactory.intToNode(i)) ;
+            for ( Var v : vars )
+            {
+                Node n = b.get(v) ;
+                if ( n != null )
+                    row.add(v, n) ;
+            }
+            table.addBinding(row) ;
+        }
+        if ( ! JoinClassifier.isLinear(OpTable.create(table), opService.getSubOp()) )
+            return null ;
+        return table ;
+    }
+    
+    @Override
+    protected void requestSubCancel()
+    {
+        if ( current != null )
+            current.cancel() ;
+    }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        if ( current != null )
+        {
+            current.close() ;
+            current = null ;
+        }
+    }
+    
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt)
+    { 
+        out.println(Utils.className(this)+" "+batchSize) ;
+        out.incIndent() ;
+        opService.output(out, sCxt) ;
+        out.decIndent() ;
+        out.ensureStartOfLine() ;
+    }
+}
@@ -18,10 +18,12 @@
 
 package com.hp.hpl.jena.sparql.engine.main.iterator;
 
+import java.util.ArrayList ;
 import java.util.List ;
 
 import org.apache.jena.atlas.io.IndentedWriter ;
 
+import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
 import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
@@ -31,15 +33,24 @@ import com.hp.hpl.jena.sparql.engine.iterator.QueryIterRepeatApply ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterSingleton ;
 import com.hp.hpl.jena.sparql.engine.main.QC ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
 import com.hp.hpl.jena.sparql.util.Utils ;
 
 
 /** Execute each sub stage against the input.
- *  Streamed SPARQL Union. */
+ *  Streamed SPARQL Union.
+ *  If {@link ARQ#parallelUnion} is set, the sub stages are run at the same time.
+ *  @see QueryIterParallelUnion */
 
 public class QueryIterUnion extends QueryIterRepeatApply 
 {
+    /** Default number of results buffered by a parallel union */ 
+    public static final int DefaultParallelBufferSize = 1000 ;
+    
     protected List<Op> subOps  ;
+    private final int parallelism ;
+    private final int bufferSize ;
     
     public QueryIterUnion(QueryIterator input,
                           List<Op> subOps,
@@ -47,23 +58,52 @@ public class QueryIterUnion extends QueryIterRepeatApply
     {
         super(input, context) ;
         this.subOps = subOps ;
+        Context cxt = context.getContext() ;
+        this.parallelism = intValue(cxt, ARQ.parallelUnion, 1) ;
+        this.bufferSize = intValue(cxt, ARQ.parallelUnionBufferSize, DefaultParallelBufferSize) ;
     }
 
     @Override
     protected QueryIterator nextStage(Binding binding)
     {
-        QueryIterConcat unionQIter = new QueryIterConcat(getExecContext()) ;
-        for (Op subOp : subOps)
+        if ( parallelism > 1 && subOps.size() > 1 )
         {
-            subOp = QC.substitute(subOp, binding) ;
-            QueryIterator parent = QueryIterSingleton.create(binding, getExecContext()) ;
-            QueryIterator qIter = QC.execute(subOp, parent, getExecContext()) ;
-            unionQIter.add(qIter) ;
+            List<QueryIterator> branches = new ArrayList<QueryIterator>(subOps.size()) ;
+            for (Op subOp : subOps)
+                branches.add(execute(subOp, binding)) ;
+            return new QueryIterParallelUnion(branches, parallelism, bufferSize, getExecContext()) ;
         }
         
+        QueryIterConcat unionQIter = new QueryIterConcat(getExecContext()) ;
+        for (Op subOp : subOps)
+            unionQIter.add(execute(subOp, binding)) ;
+        
         return unionQIter ;
     }
     
+    private QueryIterator execute(Op subOp, Binding binding)
+    {
+        subOp = QC.substitute(subOp, binding) ;
+        QueryIterator parent = QueryIterSingleton.create(binding, getExecContext()) ;
+        return QC.execute(subOp, parent, getExecContext()) ;
+    }
+    
+    /** Number, string, or true for the number of processors. */ 
+    private static int intValue(Context cxt, Symbol symbol, int dftValue)
+    {
+        Object x = cxt.get(symbol) ;
+        if ( x == null )
+            return dftValue ;
+        if ( x instanceof Number )
+            return ((Number)x).intValue() ;
+        String str = x.toString() ;
+        if ( str.equalsIgnoreCase("true") )
+            return Runtime.getRuntime().availableProcessors() ;
+        if ( str.equalsIgnoreCase("false") )
+            return dftValue ;
+        return Integer.parseInt(str) ;
+    }
+    
     @Override
     public void output(IndentedWriter out, SerializationContext sCxt)
     { 
@@ -0,0 +1,511 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.optimizer;
+
+import static com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternElements.ANY ;
+import static com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternElements.TERM ;
+
+import java.io.ByteArrayOutputStream ;
+import java.io.OutputStream ;
+import java.util.Comparator ;
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.TreeMap ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.atlas.logging.Log ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.ARQException ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.graph.NodeConst ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.sparql.sse.ItemList ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.FmtUtils ;
+import com.hp.hpl.jena.sparql.util.NodeUtils ;
+import com.hp.hpl.jena.sparql.util.Utils ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+
+/** Gather statistics about a graph or dataset and write them in the
+ *  {@link StatsMatcher} format for use with
+ *  {@link com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderWeighted}.
+ *  <p>
+ *  For each predicate, the collector records the number of triples and the
+ *  number of distinct subjects and objects; for <tt>rdf:type</tt> it also
+ *  records the size of each class.  These become the rules:<pre>
+ *   ((TERM &lt;p&gt; TERM) 1)
+ *   ((TERM &lt;p&gt; ANY) count/distinctSubjects)
+ *   ((ANY &lt;p&gt; TERM) count/distinctObjects)
+ *   ((ANY &lt;p&gt; ANY) count)
+ *   ((ANY rdf:type &lt;class&gt;) instances)</pre>
+ *  <p>
+ *  Collection is in two passes: one to count triples for each predicate, then
+ *  one pattern scan per predicate to find the distinct subjects and objects.
+ *  The counting pass also computes, for each predicate, a checksum of its
+ *  triples that does not depend on their order.
+ *  {@link #refresh(Graph)} repeats the counting pass but only rescans the
+ *  predicates whose count or checksum has changed since the statistics were
+ *  gathered (or read with {@link #read(String)}), so replacing triples is
+ *  noticed even when the count stays the same.  The checksums are kept in the
+ *  <tt>meta</tt> section of the file.
+ */
+public class StatsCollector
+{
+    private static final String TIMESTAMP   = "timestamp" ;
+    private static final String CHECKSUM    = "checksum" ;
+
+    /** Per-predicate statistics */
+    public static final class PredicateStats
+    {
+        private final long count ;
+        private final long distinctSubjects ;
+        private final long distinctObjects ;
+
+        PredicateStats(long count, long distinctSubjects, long distinctObjects)
+        {
+            this.count = count ;
+            this.distinctSubjects = distinctSubjects ;
+            this.distinctObjects = distinctObjects ;
+        }
+
+        public long getCount()              { return count ; }
+        public long getDistinctSubjects()   { return distinctSubjects ; }
+        public long getDistinctObjects()    { return distinctObjects ; }
+
+        @Override
+        public String toString()
+        { return "count="+count+" subjects="+distinctSubjects+" objects="+distinctObjects ; }
+    }
+
+    // Sorted for stable output.
+    private static final Comparator<Node> nodeOrder = new Comparator<Node>() {
+        @Override
+        public int compare(Node n1, Node n2) { return NodeUtils.compareRDFTerms(n1, n2) ; }
+    } ;
+
+    private final Map<Node, PredicateStats> predicates = new TreeMap<Node, PredicateStats>(nodeOrder) ;
+    private final Map<Node, Long> types = new TreeMap<Node, Long>(nodeOrder) ;
+    // Checksum of the triples of each predicate; missing if not known (read from an old file).
+    private final Map<Node, Long> checksums = new HashMap<Node, Long>() ;
+    private long count = 0 ;
+    // Number of predicate pattern scans done by the last collect or refresh.
+    private int rescans = 0 ;
+
+    public StatsCollector() {}
+
+    /** Gather statistics for a graph */
+    public static StatsCollector gather(Graph graph)
+    {
+        StatsCollector stats = new StatsCollector() ;
+        stats.collect(graph) ;
+        return stats ;
+    }
+
+    /** Gather statistics for a dataset (all graphs, default and named, taken together) */
+    public static StatsCollector gather(DatasetGraph dsg)
+    {
+        StatsCollector stats = new StatsCollector() ;
+        stats.collect(dsg) ;
+        return stats ;
+    }
+
+    /** Discard any existing statistics and scan the graph */
+    public void collect(Graph graph)            { clear() ; update(new GraphSource(graph)) ; }
+
+    /** Discard any existing statistics and scan the dataset */
+    public void collect(DatasetGraph dsg)       { clear() ; update(new DatasetSource(dsg)) ; }
+
+    /** Bring the statistics up to date, only rescanning predicates with a changed count or checksum */
+    public void refresh(Graph graph)            { update(new GraphSource(graph)) ; }
+
+    /** Bring the statistics up to date, only rescanning predicates with a changed count or checksum */
+    public void refresh(DatasetGraph dsg)       { update(new DatasetSource(dsg)) ; }
+
+    public void clear()
+    {
+        predicates.clear() ;
+        types.clear() ;
+        checksums.clear() ;
+        count = 0 ;
+    }
+
+    private void update(Source source)
+    {
+        Map<Node, Long> pCounts = new HashMap<Node, Long>() ;
+        Map<Node, Long> tCounts = new HashMap<Node, Long>() ;
+        Map<Node, Long> pChecksums = new HashMap<Node, Long>() ;
+        long total = 0 ;
+
+        Iterator<Triple> iter = source.find(Node.ANY) ;
+        try {
+            while ( iter.hasNext() )
+            {
+                Triple t = iter.next() ;
+                total++ ;
+                inc(pCounts, t.getPredicate()) ;
+                add(pChecksums, t.getPredicate(), hash(t)) ;
+                if ( NodeConst.nodeRDFType.equals(t.getPredicate()) )
+                    inc(tCounts, t.getObject()) ;
+            }
+        } finally { source.close(iter) ; }
+
+        rescans = 0 ;
+        predicates.keySet().retainAll(pCounts.keySet()) ;
+        for ( Map.Entry<Node, Long> e : pCounts.entrySet() )
+        {
+            Node p = e.getKey() ;
+            long n = e.getValue() ;
+            Long checksum = pChecksums.get(p) ;
+            PredicateStats old = predicates.get(p) ;
+            if ( old != null && old.count == n && checksum.equals(checksums.get(p)) )
+                continue ;
+            predicates.put(p, scan(source, p, n)) ;
+            rescans++ ;
+        }
+
+        types.clear() ;
+        types.putAll(tCounts) ;
+        checksums.clear() ;
+        checksums.putAll(pChecksums) ;
+        count = total ;
+    }
+
+    private static PredicateStats scan(Source source, Node p, long n)
+    {
+        Set<Node> subjects = new HashSet<Node>() ;
+        Set<Node> objects = new HashSet<Node>() ;
+        Iterator<Triple> iter = source.find(p) ;
+        try {
+            while ( iter.hasNext() )
+            {
+                Triple t = iter.next() ;
+                subjects.add(t.getSubject()) ;
+                objects.add(t.getObject()) ;
+            }
+        } finally { source.close(iter) ; }
+        return new PredicateStats(n, subjects.size(), objects.size()) ;
+    }
+
+    private static void inc(Map<Node, Long> map, Node n)
+    {
+        add(map, n, 1) ;
+    }
+
+    private static void add(Map<Node, Long> map, Node n, long v)
+    {
+        Long x = map.get(n) ;
+        map.put(n, ( x == null ) ? v : x+v) ;
+    }
+
+    // Hash of the subject and object of a triple.  The checksum for a
+    // predicate is the sum of these, so the order of triples does not matter.
+    // Only uses hash codes of strings so it is the same from run to run.
+    private static long hash(Triple t)
+    {
+        long h = (((long)hash(t.getSubject())) << 32) ^ (hash(t.getObject()) & 0xFFFFFFFFL) ;
+        // Mix the bits (the finalizer from MurmurHash3).
+        h ^= h >>> 33 ;
+        h *= 0xff51afd7ed558ccdL ;
+        h ^= h >>> 33 ;
+        h *= 0xc4ceb9fe1a85ec53L ;
+        h ^= h >>> 33 ;
+        return h ;
+    }
+
+    private static int hash(Node n)
+    {
+        if ( n.isURI() )
+            return n.getURI().hashCode() ;
+        if ( n.isBlank() )
+            return 31*n.getBlankNodeLabel().hashCode()+1 ;
+        if ( n.isLiteral() )
+        {
+            int h = n.getLiteralLexicalForm().hashCode() ;
+            h = 31*h + n.getLiteralLanguage().hashCode() ;
+            String dt = n.getLiteralDatatypeURI() ;
+            if ( dt != null )
+                h = 31*h + dt.hashCode() ;
+            return h ;
+        }
+        return n.hashCode() ;
+    }
+
+    /** Total number of triples (or quads) seen */
+    public long getCount()                                  { return count ; }
+
+    /** Statistics for a predicate, or null if it was not seen */
+    public PredicateStats getPredicateStats(Node predicate) { return predicates.get(predicate) ; }
+
+    /** The predicates seen */
+    public Set<Node> getPredicates()                        { return predicates.keySet() ; }
+
+    /** Number of instances of a class (triples <tt>?x rdf:type class</tt>) */
+    public long getTypeCount(Node type)
+    {
+        Long x = types.get(type) ;
+        return ( x == null ) ? 0 : x ;
+    }
+
+    /** Checksum of the triples with a predicate, or null if not known */
+    public Long getChecksum(Node predicate)                 { return checksums.get(predicate) ; }
+
+    /** Number of predicates that had to be rescanned by the last collect or refresh */
+    public int getRescanCount()                             { return rescans ; }
+
+    /** The statistics as a {@link StatsMatcher} */
+    public StatsMatcher getMatcher()                        { return new StatsMatcher(asItem()) ; }
+
+    // ---- Output
+
+    public void write(OutputStream out)
+    {
+        IndentedWriter w = new IndentedWriter(out) ;
+        write(w) ;
+        w.flush() ;
+    }
+
+    public void write(IndentedWriter out)
+    {
+        out.println("(stats") ;
+        out.incIndent() ;
+        out.print("(meta (") ;
+        out.print(TIMESTAMP) ;
+        out.print(" ") ;
+        out.print(FmtUtils.stringForString(Utils.nowAsXSDDateTimeString())) ;
+        out.print(") (") ;
+        out.print(StatsMatcher.COUNT) ;
+        out.print(" ") ;
+        out.print(Long.toString(count)) ;
+        out.print(")") ;
+        out.incIndent() ;
+        for ( Node p : predicates.keySet() )
+        {
+            Long checksum = checksums.get(p) ;
+            if ( checksum == null )
+                continue ;
+            out.println() ;
+            out.print("(") ;
+            out.print(CHECKSUM) ;
+            out.print(" ") ;
+            out.print(FmtUtils.stringForNode(p)) ;
+            out.print(" ") ;
+            out.print(Long.toString(checksum)) ;
+            out.print(")") ;
+        }
+        out.decIndent() ;
+        out.println(")") ;
+
+        for ( Map.Entry<Node, PredicateStats> e : predicates.entrySet() )
+        {
+            Node p = e.getKey() ;
+            PredicateStats ps = e.getValue() ;
+            if ( NodeConst.nodeRDFType.equals(p) )
+            {
+                // Class partitions must come before the general rules for rdf:type.
+                for ( Map.Entry<Node, Long> t : types.entrySet() )
+                    rule(out, ANY, p, Item.createNode(t.getKey()), t.getValue()) ;
+            }
+            rule(out, TERM, p, TERM, 1) ;
+            rule(out, TERM, p, ANY, weight(ps.count, ps.distinctSubjects)) ;
+            rule(out, ANY, p, TERM, weight(ps.count, ps.distinctObjects)) ;
+            rule(out, ANY, p, ANY, ps.count) ;
+        }
+        out.decIndent() ;
+        out.println(")") ;
+    }
+
+    /** The statistics as an SSE item (the same as written by {@link #write}) */
+    public Item asItem()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+        write(bytes) ;
+        return SSE.parse(StrUtils.fromUTF8bytes(bytes.toByteArray())) ;
+    }
+
+    private static double weight(long n, long distinct)
+    {
+        if ( distinct == 0 )
+            return n ;
+        return ((double)n)/distinct ;
+    }
+
+    private static void rule(IndentedWriter out, Item s, Node p, Item o, double weight)
+    {
+        out.print("((") ;
+        out.print(s.toString()) ;
+        out.print(" ") ;
+        out.print(FmtUtils.stringForNode(p)) ;
+        out.print(" ") ;
+        out.print(o.toString()) ;
+        out.print(") ") ;
+        if ( weight == Math.rint(weight) )
+            out.print(Long.toString((long)weight)) ;
+        else
+            out.print(Double.toString(weight)) ;
+        out.println(")") ;
+    }
+
+    // ---- Input
+
+    /** Read a statistics file previously written by a {@link StatsCollector}.
+     * Rules not in the form written by the collector are skipped.
+     */
+    public static StatsCollector read(String filename)
+    {
+        Item item = SSE.readFile(filename) ;
+        if ( item.isNil() )
+        {
+            Log.warn(StatsCollector.class, "Empty stats file: "+filename) ;
+            return new StatsCollector() ;
+        }
+        return read(item) ;
+    }
+
+    public static StatsCollector read(Item stats)
+    {
+        if ( !stats.isTagged(StatsMatcher.STATS) )
+            throw new ARQException("Not a tagged '"+StatsMatcher.STATS+"'") ;
+
+        StatsCollector collector = new StatsCollector() ;
+        Map<Node, double[]> rules = new HashMap<Node, double[]>() ;
+        Map<Node, Long> checksums = new HashMap<Node, Long>() ;
+
+        for ( ItemList list = stats.getList().cdr() ; ! list.isEmpty() ; list = list.cdr() )
+        {
+            Item elt = list.car() ;
+            if ( elt.isTagged(StatsMatcher.META) )
+            {
+                Item x = Item.find(elt.getList(), StatsMatcher.COUNT) ;
+                if ( x != null )
+                    collector.count = x.getList().get(1).asInteger() ;
+                for ( Item m : elt.getList() )
+                {
+                    if ( m.isTagged(CHECKSUM) && m.getList().size() == 3 &&
+                         m.getList().get(1).isNode() && m.getList().get(2).isNodeLiteral() )
+                        checksums.put(m.getList().get(1).getNode(),
+                                      Long.parseLong(m.getList().get(2).getNode().getLiteralLexicalForm())) ;
+                }
+                continue ;
+            }
+            if ( ! elt.isList() || elt.getList().size() != 2 )
+                continue ;
+            Item pat = elt.getList().get(0) ;
+            if ( ! pat.isList() || pat.getList().size() != 3 )
+                continue ;
+            Item s = pat.getList().get(0) ;
+            Item p = pat.getList().get(1) ;
+            Item o = pat.getList().get(2) ;
+            if ( ! p.isNodeURI() )
+                continue ;
+            double w = elt.getList().get(1).getDouble() ;
+
+            if ( s.sameSymbol(ANY.getSymbol()) && o.isNode() )
+            {
+                if ( NodeConst.nodeRDFType.equals(p.getNode()) )
+                    collector.types.put(o.getNode(), Math.round(w)) ;
+                continue ;
+            }
+
+            double[] slots = rules.get(p.getNode()) ;
+            if ( slots == null )
+            {
+                // count, weight S, weight O
+                slots = new double[]{-1, -1, -1} ;
+                rules.put(p.getNode(), slots) ;
+            }
+            if ( s.sameSymbol(ANY.getSymbol()) && o.sameSymbol(ANY.getSymbol()) )
+                slots[0] = w ;
+            else if ( s.sameSymbol(TERM.getSymbol()) && o.sameSymbol(ANY.getSymbol()) )
+                slots[1] = w ;
+            else if ( s.sameSymbol(ANY.getSymbol()) && o.sameSymbol(TERM.getSymbol()) )
+                slots[2] = w ;
+        }
+
+        for ( Map.Entry<Node, double[]> e : rules.entrySet() )
+        {
+            double[] slots = e.getValue() ;
+            if ( slots[0] < 0 || slots[1] <= 0 || slots[2] <= 0 )
+                continue ;
+            long n = Math.round(slots[0]) ;
+            collector.predicates.put(e.getKey(),
+                                     new PredicateStats(n, Math.round(n/slots[1]), Math.round(n/slots[2]))) ;
+            if ( checksums.containsKey(e.getKey()) )
+                collector.checksums.put(e.getKey(), checksums.get(e.getKey())) ;
+        }
+        return collector ;
+    }
+
+    // ---- Access to the data
+
+    private interface Source
+    {
+        /** Triples with this predicate (or Node.ANY) */
+        Iterator<Triple> find(Node p) ;
+        void close(Iterator<Triple> iter) ;
+    }
+
+    private static class GraphSource implements Source
+    {
+        private final Graph graph ;
+        GraphSource(Graph graph) { this.graph = graph ; }
+
+        @Override
+        public Iterator<Triple> find(Node p)
+        { return graph.find(Node.ANY, p, Node.ANY) ; }
+
+        @Override
+        public void close(Iterator<Triple> iter)
+        { ((ExtendedIterator<Triple>)iter).close() ; }
+    }
+
+    private static class DatasetSource implements Source
+    {
+        private final DatasetGraph dsg ;
+        DatasetSource(DatasetGraph dsg) { this.dsg = dsg ; }
+
+        @Override
+        public Iterator<Triple> find(Node p)
+        {
+            return new QuadToTriple(dsg.find(Node.ANY, Node.ANY, p, Node.ANY)) ;
+        }
+
+        @Override
+        public void close(Iterator<Triple> iter)
+        { Iter.close(((QuadToTriple)iter).quads) ; }
+    }
+
+    private static class QuadToTriple implements Iterator<Triple>
+    {
+        private final Iterator<Quad> quads ;
+        QuadToTriple(Iterator<Quad> quads) { this.quads = quads ; }
+
+        @Override public boolean hasNext()  { return quads.hasNext() ; }
+        @Override public Triple next()      { return quads.next().asTriple() ; }
+        @Override public void remove()      { throw new UnsupportedOperationException() ; }
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.sparql.engine.optimizer.reorder;
 
+import com.hp.hpl.jena.graph.Graph ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.engine.optimizer.StatsMatcher ;
 
@@ -68,6 +69,12 @@ public class ReorderLib
     }
     
     
+    /** Return a ReorderTransformation that estimates cardinalities by looking in the graph */
+    public static ReorderTransformation sampling(Graph graph)
+    {
+        return new ReorderSampling(graph) ;
+    }
+    
     public static ReorderTransformation weighted(String filename)
     {
         StatsMatcher stats = new StatsMatcher(filename) ;
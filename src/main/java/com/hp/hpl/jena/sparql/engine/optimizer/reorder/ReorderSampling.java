@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.optimizer.reorder;
+
+import static com.hp.hpl.jena.sparql.engine.optimizer.reorder.PatternElements.TERM ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.HashSet ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.WeakHashMap ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.GraphStatisticsHandler ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.graph.GraphUnionRead ;
+import com.hp.hpl.jena.sparql.graph.GraphWrapper ;
+import com.hp.hpl.jena.sparql.sse.Item ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+
+/** Reorder a basic graph pattern using cardinalities found by looking in the graph.
+ *  <p>
+ *  This works for any graph, not just those with statistics.  The weight of a
+ *  triple pattern is found from the triples with its predicate from
+ *  <tt>graph.find</tt>.  The number of such triples comes from the graph's
+ *  statistics handler if it has one; otherwise they are counted, up to
+ *  {@link #CountLimit}.  A subject or object that is a constant, or a
+ *  variable bound by an earlier triple pattern, divides the count by the
+ *  number of different values seen for it in the first {@link #ProbeLimit}
+ *  triples.
+ *  <p>
+ *  Looking in the graph is not free, so this is only used by the general
+ *  query engine when {@link com.hp.hpl.jena.query.ARQ#optReorderSampling} is
+ *  set to true.
+ *  <p>
+ *  Estimates are cached, for each graph, by predicate and the shape of the pattern
+ *  (which positions are fixed), for {@link #CacheTime} milliseconds, so the
+ *  graph is probed at most once per predicate and shape in that time,
+ *  whatever the values in the pattern.
+ *  <p>
+ *  The cache is for the underlying graph, not the graph object given, so
+ *  that it is shared by the per-query graphs that stand for the same data:
+ *  a {@link GraphWrapper} uses the cache of the graph it wraps, and a
+ *  {@link GraphUnionRead} uses the cache of its dataset, for its set of graph
+ *  names.  Any other graph has a cache of its own, which is only used again
+ *  when the same graph object is queried again.
+ */
+public class ReorderSampling extends ReorderTransformationBase
+{
+    /** Number of triples looked at to find the different values of fixed terms */ 
+    public static final int ProbeLimit = 100 ;
+    
+    /** Maximum number of triples counted to estimate one triple pattern */ 
+    public static final int CountLimit = 100*1000 ;
+    
+    /** How long, in milliseconds, an estimate is used before looking again */ 
+    public static final long CacheTime = 10*1000 ;
+    
+    private static final int CacheSize = 10000 ;
+    
+    // Underlying graph or dataset -> estimates.  The estimates do not refer to it.
+    private static final Map<Object, Map<List<Object>, Estimate>> caches = new WeakHashMap<Object, Map<List<Object>, Estimate>>() ;
+    private static final AtomicLong cacheHits = new AtomicLong(0) ;
+    private static final AtomicLong cacheMisses = new AtomicLong(0) ;
+
+    private final Graph graph ;
+    private final Map<List<Object>, Estimate> cache ;
+    // Which part of the underlying dataset, or null.
+    private final List<Node> scope ;
+    
+    public ReorderSampling(Graph graph)
+    {
+        this.graph = graph ;
+        this.cache = cache(base(graph)) ;
+        this.scope = ( graph instanceof GraphUnionRead )
+            ? new ArrayList<Node>(((GraphUnionRead)graph).getGraphNames()) : null ;
+    }
+    
+    /** Forget the estimates for a graph (and for all graphs that share its cache) */ 
+    public static void reset(Graph graph)
+    {
+        synchronized(caches) { caches.remove(base(graph)) ; }
+    }
+    
+    /** Number of estimates found in the cache, for all graphs */
+    public static long getCacheHits()       { return cacheHits.get() ; }
+    
+    /** Number of estimates found by looking in a graph */
+    public static long getCacheMisses()     { return cacheMisses.get() ; }
+    
+    /** The object the cache for the graph belongs to */
+    private static Object base(Graph graph)
+    {
+        while ( graph instanceof GraphWrapper )
+            graph = ((GraphWrapper)graph).get() ;
+        if ( graph instanceof GraphUnionRead )
+            return ((GraphUnionRead)graph).getDataset() ;
+        return graph ;
+    }
+    
+    private static Map<List<Object>, Estimate> cache(Object base)
+    {
+        synchronized(caches)
+        {
+            Map<List<Object>, Estimate> cache = caches.get(base) ;
+            if ( cache == null )
+            {
+                cache = new LinkedHashMap<List<Object>, Estimate>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<List<Object>, Estimate> eldest)
+                    { return size() > CacheSize ; }
+                } ;
+                caches.put(base, cache) ;
+            }
+            return cache ;
+        }
+    }
+    
+    @Override
+    protected double weight(PatternTriple pt)
+    {
+        // Only the predicate is used in the probe.  A subject or object that is
+        // a constant, or bound by an earlier pattern, is treated the same way:
+        // the estimate is the average number of matches for one value.
+        // So the estimate depends only on the predicate and the shape of the
+        // pattern, and does not need a probe for each value. 
+        Node p = probeNode(pt.predicate) ;
+        boolean fixedS = isFixed(pt.subject) ;
+        boolean fixedP = p == Node.ANY && TERM.equals(pt.predicate) ;
+        boolean fixedO = isFixed(pt.object) ;
+        int mask = (fixedS ? 1 : 0) | (fixedP ? 2 : 0) | (fixedO ? 4 : 0) ;
+        
+        List<Object> key = Arrays.<Object>asList(scope, p, mask) ;
+        long now = System.currentTimeMillis() ;
+        synchronized(cache)
+        {
+            Estimate e = cache.get(key) ;
+            if ( e != null && now - e.time < CacheTime )
+            {
+                cacheHits.incrementAndGet() ;
+                return e.weight ;
+            }
+        }
+        cacheMisses.incrementAndGet() ;
+        
+        double w = sample(p, fixedS, fixedP, fixedO) ;
+        synchronized(cache)
+        {
+            cache.put(key, new Estimate(w, now)) ;
+        }
+        return w ;
+    }
+    
+    private double sample(Node p, boolean fixedS, boolean fixedP, boolean fixedO)
+    {
+        boolean anyFixed = fixedS || fixedP || fixedO ;
+        Set<List<Node>> distinct = anyFixed ? new HashSet<List<Node>>() : null ;
+        long total = statistic(p) ;
+        long n = 0 ;
+        // Sample the first ProbeLimit triples; count the rest if the graph
+        // can not say how many there are.
+        long limit = ( total >= 0 ) ? ProbeLimit : CountLimit ;
+        ExtendedIterator<Triple> iter = graph.find(Node.ANY, p, Node.ANY) ;
+        try {
+            while ( n < limit && iter.hasNext() )
+            {
+                Triple t = iter.next() ;
+                n++ ;
+                if ( anyFixed && n <= ProbeLimit )
+                    distinct.add(Arrays.asList(fixedS ? t.getSubject() : null,
+                                               fixedP ? t.getPredicate() : null,
+                                               fixedO ? t.getObject() : null)) ;
+            }
+        } finally { iter.close() ; }
+        
+        if ( n == 0 )
+            return 0 ;
+        if ( total < 0 )
+            total = n ;
+        if ( ! anyFixed )
+            return total ;
+        // Number of matches for one value of the fixed terms,
+        // assuming the sample is typical.
+        long sampled = Math.min(n, ProbeLimit) ;
+        return ((double)sampled / distinct.size()) ;
+    }
+    
+    /** Number of triples with the predicate (or any), or -1 if the graph does not know. */ 
+    private long statistic(Node p)
+    {
+        GraphStatisticsHandler stats = graph.getStatisticsHandler() ;
+        if ( stats == null )
+            return -1 ;
+        return stats.getStatistic(Node.ANY, p, Node.ANY) ;
+    }
+    
+    /** A constant, or a variable bound by an earlier pattern */ 
+    private static boolean isFixed(Item item)
+    {
+        return TERM.equals(item) || ( item.isNode() && item.getNode().isConcrete() ) ;
+    }
+    
+    /** Concrete node or Node.ANY */
+    private static Node probeNode(Item item)
+    {
+        if ( item.isNode() && item.getNode().isConcrete() )
+            return item.getNode() ;
+        return Node.ANY ;
+    }
+    
+    private static class Estimate
+    {
+        final double weight ;
+        final long time ;
+        Estimate(double weight, long time) { this.weight = weight ; this.time = time ; }
+    }
+}
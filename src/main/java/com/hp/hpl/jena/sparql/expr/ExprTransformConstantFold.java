@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr;
+
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.function.FunctionEnvBase ;
+
+/** An expression transform that evaluates function calls whose arguments are
+ *  all constants, replacing them with the value, so they are worked out once
+ *  and not for every solution.
+ *  <p>
+ *  Functions that are not the same on every call (RAND, NOW, BNODE and the
+ *  other functions of no arguments), functions that use the execution
+ *  environment (IRI, extension functions) and EXISTS are left alone, as are
+ *  calls that raise an evaluation error, which then happens at execution time
+ *  as before.
+ */
+public class ExprTransformConstantFold extends ExprTransformCopy
+{
+    public ExprTransformConstantFold() { super(COPY_ONLY_ON_CHANGE) ; }
+
+    @Override
+    public Expr transform(ExprFunction1 func, Expr expr1)
+    { return fold(super.transform(func, expr1)) ; }
+
+    @Override
+    public Expr transform(ExprFunction2 func, Expr expr1, Expr expr2)
+    { return fold(super.transform(func, expr1, expr2)) ; }
+
+    @Override
+    public Expr transform(ExprFunction3 func, Expr expr1, Expr expr2, Expr expr3)
+    { return fold(super.transform(func, expr1, expr2, expr3)) ; }
+
+    @Override
+    public Expr transform(ExprFunctionN func, ExprList args)
+    { return fold(super.transform(func, args)) ; }
+
+    private static Expr fold(Expr expr)
+    {
+        if ( ! ( expr instanceof ExprFunction ) || ! foldable((ExprFunction)expr) )
+            return expr ;
+        ExprFunction func = (ExprFunction)expr ;
+        for ( int i = 1 ; i <= func.numArgs() ; i++ )
+        {
+            Expr arg = func.getArg(i) ;
+            if ( arg == null || ! arg.isConstant() )
+                return expr ;
+        }
+        try {
+            return func.eval(BindingFactory.binding(), new FunctionEnvBase()) ;
+        } catch (ExprEvalException ex) { return expr ; }
+    }
+
+    private static boolean foldable(ExprFunction func)
+    {
+        if ( func instanceof ExprFunction0 || func instanceof ExprFunctionOp )
+            return false ;
+        if ( func instanceof E_BNode || func instanceof E_Function || func instanceof E_Call )
+            return false ;
+        // Relative IRIs are resolved against the query base.
+        if ( func instanceof E_IRI )
+            return false ;
+        return true ;
+    }
+}
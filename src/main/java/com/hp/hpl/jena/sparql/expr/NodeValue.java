@@ -347,7 +347,15 @@ public abstract class NodeValue extends ExprNode
 
     public static NodeValue makeNode(Node n)
     {
-        NodeValue nv = nodeToNodeValue(n) ;
+        NodeValueCache cache = NodeValueCache.get() ;
+        if ( cache == null || ! NodeValueCache.cacheable(n) )
+            return nodeToNodeValue(n) ;
+        NodeValue nv = cache.get(n) ;
+        if ( nv == null )
+        {
+            nv = nodeToNodeValue(n) ;
+            cache.put(nv) ;
+        }
         return nv ;
     }
                                
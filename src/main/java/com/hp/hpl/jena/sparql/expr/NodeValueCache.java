@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr;
+
+import java.util.concurrent.atomic.AtomicReferenceArray ;
+
+import com.hp.hpl.jena.graph.Node ;
+
+/** A bounded cache of the NodeValues made from literal nodes by
+ *  {@link NodeValue#makeNode(Node)}, so that literals met again and again
+ *  (in the data or in expressions) are parsed into a value once.
+ *  <p>
+ *  The cache is a fixed size table addressed by the hash code of the node;
+ *  a clash replaces the entry.  There is no locking: slots are read and
+ *  written atomically, and a lost update only costs a cache miss.
+ *  Long lexical forms are not cached.
+ */
+public final class NodeValueCache
+{
+    public static final int DefaultCacheSize = 10000 ;
+    /** Literals with longer lexical forms are not cached */
+    public static final int MaxLexicalLength = 100 ;
+
+    private static volatile NodeValueCache singleton = new NodeValueCache(DefaultCacheSize) ;
+
+    /** The cache used by NodeValue.makeNode, or null if there isn't one */
+    public static NodeValueCache get()      { return singleton ; }
+
+    /** Replace the global cache with an empty one of the given size; 0 turns caching off */
+    public static void setCacheSize(int size)
+    {
+        singleton = ( size > 0 ) ? new NodeValueCache(size) : null ;
+    }
+
+    private final AtomicReferenceArray<NodeValue> slots ;
+
+    private NodeValueCache(int size)
+    {
+        slots = new AtomicReferenceArray<NodeValue>(size) ;
+    }
+
+    /** Is the node one that this cache keeps? */
+    public static boolean cacheable(Node node)
+    {
+        return node.isLiteral() && node.getLiteralLexicalForm().length() <= MaxLexicalLength ;
+    }
+
+    /** The cached NodeValue for a node, or null */
+    public NodeValue get(Node node)
+    {
+        NodeValue nv = slots.get(index(node)) ;
+        if ( nv != null && node.equals(nv.getNode()) )
+            return nv ;
+        return null ;
+    }
+
+    /** Cache a NodeValue, keyed by its node */
+    public void put(NodeValue nv)
+    {
+        Node node = nv.getNode() ;
+        if ( node != null )
+            slots.set(index(node), nv) ;
+    }
+
+    public void clear()
+    {
+        for ( int i = 0 ; i < slots.length() ; i++ )
+            slots.set(i, null) ;
+    }
+
+    public int getMaxSize()         { return slots.length() ; }
+
+    private int index(Node node)
+    {
+        return ( node.hashCode() & 0x7fffffff ) % slots.length() ;
+    }
+}
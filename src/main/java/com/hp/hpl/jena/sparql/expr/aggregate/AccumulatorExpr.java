@@ -18,6 +18,7 @@
 
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
@@ -62,6 +63,43 @@ abstract class AccumulatorExpr implements Accumulator
 
     protected long getErrorCount() { return errorCount ; }
     
+    /** Add in the counts of another accumulator - for {@link AccumulatorMergeable#merge} */
+    protected final void mergeCounts(AccumulatorExpr other)
+    {
+        count += other.count ;
+        errorCount += other.errorCount ;
+    }
+    
+    /** The counts followed by the given values - for {@link AccumulatorMergeable#getState} */
+    protected final Node[] stateWith(NodeValue... values)
+    {
+        Node[] state = new Node[values.length+2] ;
+        state[0] = NodeValue.makeInteger(count).asNode() ;
+        state[1] = NodeValue.makeInteger(errorCount).asNode() ;
+        for ( int i = 0 ; i < values.length ; i++ )
+            state[i+2] = ( values[i] == null ) ? null : values[i].asNode() ;
+        return state ;
+    }
+    
+    /** Set the counts from a state made by {@link #stateWith} - for {@link AccumulatorMergeable#setState} */
+    protected final void setCounts(Node[] state)
+    {
+        count = stateLong(state[0]) ;
+        errorCount = stateLong(state[1]) ;
+    }
+    
+    /** Value i (from 0) given to {@link #stateWith}, or null */
+    protected static NodeValue stateValue(Node[] state, int i)
+    {
+        Node n = state[i+2] ;
+        return ( n == null ) ? null : NodeValue.makeNode(n) ;
+    }
+    
+    /*package*/ static long stateLong(Node n)
+    {
+        return NodeValue.makeNode(n).getInteger().longValue() ;
+    }
+    
     /** Called if no errors to get the accumulated result */
     protected abstract NodeValue getAccValue() ; 
 
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr.aggregate;
+
+import com.hp.hpl.jena.graph.Node ;
+
+/** An Accumulator whose partial state can be combined with the state of
+ *  another accumulator, created by the same aggregator, that has been fed
+ *  a different part of the same group.
+ *  The result is as if all the bindings had been accumulated by this one.
+ */
+
+public interface AccumulatorMergeable extends Accumulator
+{
+    /** Add the state of another accumulator for the same aggregator into this one.
+     *  The other accumulator should not be used afterwards. */ 
+    public void merge(Accumulator other) ;
+
+    /** The partial state of this accumulator as RDF terms, so that it can be
+     *  written out, for example when grouping spills to disk.
+     *  A null entry means no value. */
+    public Node[] getState() ;
+
+    /** Set the state of a newly created accumulator from the {@link #getState}
+     *  of an accumulator created by the same aggregator. */
+    public void setState(Node[] state) ;
+}
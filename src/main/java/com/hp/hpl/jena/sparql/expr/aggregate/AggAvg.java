@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
@@ -72,7 +73,7 @@ public class AggAvg extends AggregatorBase
 
     
     // ---- Accumulator
-    private static class AccAvg extends AccumulatorExpr
+    private static class AccAvg extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = noValuesToAvg ;
@@ -118,5 +119,33 @@ public class AggAvg extends AggregatorBase
             NodeValue nvCount = NodeValue.makeInteger(count) ;
             return XSDFuncOp.numDivide(total, nvCount) ;
         }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccAvg ) )
+                throw new ARQInternalErrorException("AccAvg.merge: "+other) ;
+            AccAvg acc = (AccAvg)other ;
+            mergeCounts(acc) ;
+            if ( acc.count == 0 )
+                return ;
+            if ( count == 0 )
+                total = acc.total ;
+            else
+                total = XSDFuncOp.numAdd(total, acc.total) ;
+            count += acc.count ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return stateWith(total, NodeValue.makeInteger(count)) ; }
+        
+        @Override
+        public void setState(Node[] state)
+        {
+            setCounts(state) ;
+            count = stateValue(state, 1).getInteger().intValue() ;
+            total = ( count == 0 ) ? noValuesToAvg : stateValue(state, 0) ;
+        }
     }
 }
@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
@@ -67,7 +68,7 @@ public class AggCount extends AggregatorBase
         return true ;
     }
 
-    static class AccCount implements Accumulator
+    static class AccCount implements AccumulatorMergeable
     {
         private long count = 0 ;
         public AccCount()   { }
@@ -77,5 +78,21 @@ public class AggCount extends AggregatorBase
         // Errors can't occur.
         @Override
         public NodeValue getValue()             { return NodeValue.makeInteger(count) ; }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccCount ) )
+                throw new ARQInternalErrorException("AccCount.merge: "+other) ;
+            count += ((AccCount)other).count ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return new Node[]{ NodeValue.makeInteger(count).asNode() } ; }
+        
+        @Override
+        public void setState(Node[] state)
+        { count = AccumulatorExpr.stateLong(state[0]) ; }
     }
 }
@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
@@ -65,7 +66,7 @@ public class AggCountVar extends AggregatorBase
     public Node getValueEmpty()     { return NodeConst.nodeZero ; } 
 
     // ---- Accumulator
-    private static class AccCountVar extends AccumulatorExpr
+    private static class AccCountVar extends AccumulatorExpr implements AccumulatorMergeable
     {
         private long count = 0 ;
         public AccCountVar(Expr expr)   { super(expr) ; }
@@ -85,5 +86,26 @@ public class AggCountVar extends AggregatorBase
 
         @Override
         public NodeValue getAccValue()             { return NodeValue.makeInteger(count) ; }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccCountVar ) )
+                throw new ARQInternalErrorException("AccCountVar.merge: "+other) ;
+            AccCountVar acc = (AccCountVar)other ;
+            mergeCounts(acc) ;
+            count += acc.count ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return stateWith(NodeValue.makeInteger(count)) ; }
+        
+        @Override
+        public void setState(Node[] state)
+        {
+            setCounts(state) ;
+            count = stateValue(state, 0).getInteger().longValue() ;
+        }
     }
 }
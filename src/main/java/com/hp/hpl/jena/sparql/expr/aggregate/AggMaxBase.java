@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
@@ -45,7 +46,7 @@ abstract class AggMaxBase extends AggregatorBase
     public final Node getValueEmpty()     { return null ; } 
 
     // ---- Accumulator
-    private static class AccMax extends AccumulatorExpr
+    private static class AccMax extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue maxSoFar = null ;
@@ -78,5 +79,35 @@ abstract class AggMaxBase extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return maxSoFar ; }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccMax ) )
+                throw new ARQInternalErrorException("AccMax.merge: "+other) ;
+            AccMax acc = (AccMax)other ;
+            mergeCounts(acc) ;
+            if ( acc.maxSoFar == null )
+                return ;
+            if ( maxSoFar == null )
+            {
+                maxSoFar = acc.maxSoFar ;
+                return ;
+            }
+            int x = NodeValue.compareAlways(maxSoFar, acc.maxSoFar) ;
+            if ( x < 0 )
+                maxSoFar = acc.maxSoFar ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return stateWith(maxSoFar) ; }
+        
+        @Override
+        public void setState(Node[] state)
+        {
+            setCounts(state) ;
+            maxSoFar = stateValue(state, 0) ;
+        }
     }
 }
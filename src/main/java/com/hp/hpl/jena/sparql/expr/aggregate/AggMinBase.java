@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
@@ -45,7 +46,7 @@ abstract class AggMinBase extends AggregatorBase
     public final Node getValueEmpty()     { return null ; } 
 
     // ---- Accumulator
-    private static class AccMin extends AccumulatorExpr
+    private static class AccMin extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue minSoFar = null ;
@@ -78,5 +79,35 @@ abstract class AggMinBase extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return minSoFar ; }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccMin ) )
+                throw new ARQInternalErrorException("AccMin.merge: "+other) ;
+            AccMin acc = (AccMin)other ;
+            mergeCounts(acc) ;
+            if ( acc.minSoFar == null )
+                return ;
+            if ( minSoFar == null )
+            {
+                minSoFar = acc.minSoFar ;
+                return ;
+            }
+            int x = NodeValue.compareAlways(minSoFar, acc.minSoFar) ;
+            if ( x > 0 )
+                minSoFar = acc.minSoFar ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return stateWith(minSoFar) ; }
+        
+        @Override
+        public void setState(Node[] state)
+        {
+            setCounts(state) ;
+            minSoFar = stateValue(state, 0) ;
+        }
     }
 }
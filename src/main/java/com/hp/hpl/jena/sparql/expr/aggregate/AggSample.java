@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.NodeValue ;
@@ -65,7 +66,7 @@ public class AggSample extends AggregatorBase
     } 
 
     // ---- Accumulator
-    private static class AccSample extends AccumulatorExpr
+    private static class AccSample extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Sample: first evaluation of the expression that is not an error.
         private NodeValue sampleSoFar = null ;
@@ -89,5 +90,27 @@ public class AggSample extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return sampleSoFar ; }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccSample ) )
+                throw new ARQInternalErrorException("AccSample.merge: "+other) ;
+            AccSample acc = (AccSample)other ;
+            mergeCounts(acc) ;
+            if ( sampleSoFar == null )
+                sampleSoFar = acc.sampleSoFar ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return stateWith(sampleSoFar) ; }
+        
+        @Override
+        public void setState(Node[] state)
+        {
+            setCounts(state) ;
+            sampleSoFar = stateValue(state, 0) ;
+        }
     }
 }
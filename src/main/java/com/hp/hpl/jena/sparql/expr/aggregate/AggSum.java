@@ -19,6 +19,7 @@
 package com.hp.hpl.jena.sparql.expr.aggregate;
 
 import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.expr.Expr ;
 import com.hp.hpl.jena.sparql.expr.ExprEvalException ;
@@ -68,7 +69,7 @@ public class AggSum  extends AggregatorBase
     } 
 
     // ---- Accumulator
-    private static class AccSum extends AccumulatorExpr
+    private static class AccSum extends AccumulatorExpr implements AccumulatorMergeable
     {
         // Non-empty case but still can be nothing because the expression may be undefined.
         private NodeValue total = null ;
@@ -96,5 +97,31 @@ public class AggSum  extends AggregatorBase
         @Override
         public NodeValue getAccValue()
         { return total ; }
+        
+        @Override
+        public void merge(Accumulator other)
+        {
+            if ( ! ( other instanceof AccSum ) )
+                throw new ARQInternalErrorException("AccSum.merge: "+other) ;
+            AccSum acc = (AccSum)other ;
+            mergeCounts(acc) ;
+            if ( acc.total == null )
+                return ;
+            if ( total == null )
+                total = acc.total ;
+            else
+                total = XSDFuncOp.numAdd(total, acc.total) ;
+        }
+        
+        @Override
+        public Node[] getState()
+        { return stateWith(total) ; }
+        
+        @Override
+        public void setState(Node[] state)
+        {
+            setCounts(state) ;
+            total = stateValue(state, 0) ;
+        }
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.graph;
+
+import java.util.List ;
+
+import com.hp.hpl.jena.graph.Triple ;
+
+/** Optional capability of a {@link com.hp.hpl.jena.graph.Graph}: look up
+ *  several triple patterns in one call.  This is for graphs where each
+ *  {@code find} is expensive (a network round trip or an index seek), such as
+ *  {@link GraphSPARQL}.  Query execution uses it, in blocks of input rows, for
+ *  graphs that implement this interface.
+ */
+public interface GraphBatchFind
+{
+    /** Find the triples matching each of the patterns ({@code Node.ANY} for "any").
+     *  The result has one list per pattern, in the same order.  Matching is by
+     *  term equality (as {@code find} would with no value-based matching). 
+     */
+    public List<List<Triple>> find(List<Triple> patterns) ;
+}
@@ -19,7 +19,10 @@
 package com.hp.hpl.jena.sparql.graph;
 
 import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.LinkedHashMap ;
 import java.util.List ;
+import java.util.Map ;
 
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -28,15 +31,22 @@ import com.hp.hpl.jena.graph.* ;
 import com.hp.hpl.jena.graph.impl.AllCapabilities ;
 import com.hp.hpl.jena.graph.impl.GraphBase ;
 import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.Table ;
+import com.hp.hpl.jena.sparql.algebra.TableFactory ;
 import com.hp.hpl.jena.sparql.algebra.op.OpBGP ;
+import com.hp.hpl.jena.sparql.algebra.op.OpJoin ;
+import com.hp.hpl.jena.sparql.algebra.op.OpTable ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
 import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
 import com.hp.hpl.jena.sparql.core.Var ;
 import com.hp.hpl.jena.sparql.engine.Plan ;
 import com.hp.hpl.jena.sparql.engine.QueryEngineFactory ;
+import com.hp.hpl.jena.sparql.engine.QueryEngineRegistry ;
 import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingRoot ;
 import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
 import com.hp.hpl.jena.util.iterator.WrappedIterator ;
@@ -45,7 +55,7 @@ import com.hp.hpl.jena.util.iterator.WrappedIterator ;
  *  It enables the full Jena API to be used with data only accessible
  *  via a Dataset. */
 
-public class GraphSPARQL extends GraphBase implements Graph
+public class GraphSPARQL extends GraphBase implements Graph, GraphBatchFind
 {
     private static Logger log = LoggerFactory.getLogger(GraphSPARQL.class) ;
 
@@ -136,7 +146,7 @@ public class GraphSPARQL extends GraphBase implements Graph
         BasicPattern pattern = new BasicPattern() ;
         pattern.add(triple) ;
         Op op = new OpBGP(pattern) ;
-        Plan plan = factory.create(op, getDataset(), BindingRoot.create(), null) ;
+        Plan plan = engineFactory(op).create(op, getDataset(), BindingRoot.create(), null) ;
         
         QueryIterator qIter = plan.iterator() ;
         //List<Triple> triples = new ArrayList<Triple>() ;
@@ -163,6 +173,92 @@ public class GraphSPARQL extends GraphBase implements Graph
         return WrappedIterator.createNoRemove(triples.iterator()) ;
     }
 
+    private QueryEngineFactory engineFactory(Op op)
+    {
+        if ( factory != null )
+            return factory ;
+        return QueryEngineRegistry.findFactory(op, getDataset(), null) ;
+    }
+
+    /** Evaluate the patterns with one query for each combination of bound positions */
+    @Override
+    public List<List<Triple>> find(List<Triple> patterns)
+    {
+        List<List<Triple>> results = new ArrayList<List<Triple>>(patterns.size()) ;
+        // Group by shape: which of S, P and O are bound.
+        Map<Integer, List<Integer>> shapes = new LinkedHashMap<Integer, List<Integer>>() ;
+        for ( int i = 0 ; i < patterns.size() ; i++ )
+        {
+            results.add(new ArrayList<Triple>()) ;
+            Integer shape = shape(patterns.get(i)) ;
+            List<Integer> x = shapes.get(shape) ;
+            if ( x == null )
+            {
+                x = new ArrayList<Integer>() ;
+                shapes.put(shape, x) ;
+            }
+            x.add(i) ;
+        }
+        for ( Map.Entry<Integer, List<Integer>> e : shapes.entrySet() )
+            findShape(e.getKey(), e.getValue(), patterns, results) ;
+        return results ;
+    }
+
+    private static final Var sVar = Var.alloc("s") ;
+    private static final Var pVar = Var.alloc("p") ;
+    private static final Var oVar = Var.alloc("o") ;
+
+    private static int shape(Triple t)
+    {
+        return (t.getSubject().isConcrete() ? 4 : 0) | (t.getPredicate().isConcrete() ? 2 : 0) | (t.getObject().isConcrete() ? 1 : 0) ;
+    }
+
+    private void findShape(int shape, List<Integer> indexes, List<Triple> patterns, List<List<Triple>> results)
+    {
+        // The bound positions as a table of values, joined with a pattern of variables.
+        Table table = TableFactory.create() ;
+        Map<Triple, List<Integer>> lookup = new HashMap<Triple, List<Integer>>() ;
+        for ( Integer i : indexes )
+        {
+            Triple t = patterns.get(i) ;
+            BindingMap b = BindingFactory.create() ;
+            if ( (shape & 4) != 0 ) b.add(sVar, t.getSubject()) ;
+            if ( (shape & 2) != 0 ) b.add(pVar, t.getPredicate()) ;
+            if ( (shape & 1) != 0 ) b.add(oVar, t.getObject()) ;
+            List<Integer> x = lookup.get(t) ;
+            if ( x == null )
+            {
+                x = new ArrayList<Integer>(1) ;
+                lookup.put(t, x) ;
+                table.addBinding(b) ;
+            }
+            x.add(i) ;
+        }
+
+        BasicPattern pattern = new BasicPattern() ;
+        pattern.add(new Triple(sVar, pVar, oVar)) ;
+        Op op = new OpBGP(pattern) ;
+        if ( shape != 0 )
+            op = OpJoin.create(OpTable.create(table), op) ;
+        Plan plan = engineFactory(op).create(op, getDataset(), BindingRoot.create(), null) ;
+
+        QueryIterator qIter = plan.iterator() ;
+        try {
+            for (; qIter.hasNext() ; )
+            {
+                Binding b = qIter.nextBinding() ;
+                Triple resultTriple = new Triple(b.get(sVar), b.get(pVar), b.get(oVar)) ;
+                Triple key = new Triple((shape & 4) != 0 ? resultTriple.getSubject() : Node.ANY,
+                                        (shape & 2) != 0 ? resultTriple.getPredicate() : Node.ANY,
+                                        (shape & 1) != 0 ? resultTriple.getObject() : Node.ANY) ;
+                List<Integer> x = lookup.get(key) ;
+                if ( x == null )
+                    continue ;
+                for ( Integer i : x )
+                    results.get(i).add(resultTriple) ;
+            }
+        } finally { qIter.close() ; }
+    }
     
 //    class GraphIterator extends TrackingTripleIterator
 //    {
@@ -46,6 +46,10 @@ public class GraphUnionRead extends GraphBase
         this.dataset = dsg ;
         this.graphs = graphs ; 
     }
+
+    public DatasetGraph getDataset()            { return dataset ; }
+
+    public Collection<Node> getGraphNames()     { return graphs ; }
     
     @Override
     protected PrefixMapping createPrefixMapping()
@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.mgt;
+
+import com.hp.hpl.jena.sparql.engine.QueryPlanCache ;
+
+public class QueryPlanCacheInfo implements QueryPlanCacheInfoMBean
+{
+    // Always the current global cache - it may be replaced by QueryPlanCache.setCacheSize.
+    @Override
+    public int getMaxSize()             { return QueryPlanCache.get().getMaxSize() ; }
+    @Override
+    public long getCacheSize()          { return QueryPlanCache.get().getCacheSize() ; }
+    @Override
+    public long getCacheHits()          { return QueryPlanCache.get().getCacheHits() ; }
+    @Override
+    public long getCacheMisses()        { return QueryPlanCache.get().getCacheMisses() ; }
+    @Override
+    public long getCacheEjects()        { return QueryPlanCache.get().getCacheEjects() ; }
+}
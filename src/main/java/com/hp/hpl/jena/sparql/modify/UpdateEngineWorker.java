@@ -361,7 +361,7 @@ public class UpdateEngineWorker implements UpdateVisitor
         // serialize the quads after applying the template instead.
         
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(graphStore.getContext());
-        DataBag<Binding> db = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory()) ;
+        DataBag<Binding> db = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory(graphStore.getContext())) ;
         try
         {
             Iterator<Binding> bindings = evalBindings(el, null) ;
@@ -395,7 +395,7 @@ public class UpdateEngineWorker implements UpdateVisitor
             dsg = graphStore ;
         
         ThresholdPolicy<Binding> policy = ThresholdPolicyFactory.policyFromContext(graphStore.getContext());
-        DataBag<Binding> db = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory()) ;
+        DataBag<Binding> db = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory(graphStore.getContext())) ;
         try
         {
             Iterator<Binding> bindings = evalBindings(query, dsg, context) ;
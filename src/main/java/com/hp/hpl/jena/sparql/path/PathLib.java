@@ -45,7 +45,9 @@ import com.hp.hpl.jena.sparql.engine.iterator.QueryIterConcat ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
 import com.hp.hpl.jena.sparql.engine.iterator.QueryIterYieldN ;
 import com.hp.hpl.jena.sparql.mgt.Explain ;
+import com.hp.hpl.jena.sparql.path.eval.PathClosureCache ;
 import com.hp.hpl.jena.sparql.path.eval.PathEval ;
+import com.hp.hpl.jena.sparql.path.eval.PathFrontier ;
 import com.hp.hpl.jena.sparql.pfunction.PropertyFunction ;
 import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionFactory ;
 import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionRegistry ;
@@ -152,15 +154,16 @@ public class PathLib
         if ( ! Var.isVar(s) && ! Var.isVar(o) )
             return groundedPath(binding, graph, s, path, o, execCxt) ;
         
+        boolean useCache = PathFrontier.isClosurePath(path) && PathClosureCache.isEnabled(execCxt.getContext()) ;
         if ( Var.isVar(s) )
         {
             // Var subject, concrete object - do backwards.
-            iter = PathEval.evalReverse(graph, o, path) ;
+            iter = useCache ? PathClosureCache.get().eval(graph, o, path, false).iterator() : PathEval.evalReverse(graph, o, path) ;
             endNode = s ;
         } 
         else
         {
-            iter = PathEval.eval(graph, s, path) ;
+            iter = useCache ? PathClosureCache.get().eval(graph, s, path, true).iterator() : PathEval.eval(graph, s, path) ;
             endNode = o ;
         }
         return _execTriplePath(binding, iter, endNode, execCxt) ;
@@ -190,6 +193,14 @@ public class PathLib
     private static QueryIterator groundedPath(Binding binding, Graph graph, Node subject, Path path, Node object,
                                               ExecutionContext execCxt)
     {
+        if ( PathFrontier.isClosurePath(path) && ! object.isLiteral() )
+        {
+            // Each node is reached at most once: search from both ends (or use the cached closure). 
+            boolean b = PathClosureCache.isEnabled(execCxt.getContext())
+                ? PathClosureCache.get().reachable(graph, subject, path, object)
+                : PathFrontier.reachable(graph, subject, path, object) ;
+            return new QueryIterYieldN(b ? 1 : 0, binding) ;
+        }
         Iterator<Node> iter = PathEval.eval(graph, subject, path) ;
         // Now count the number of matches.
         
@@ -210,12 +221,14 @@ public class PathLib
     {
         Iterator<Node> iter = GraphUtils.allNodes(graph) ;
         QueryIterConcat qIterCat = new QueryIterConcat(execCxt) ;
+        // For path* and path+, reuse the nodes reachable from nodes already done. 
+        PathFrontier.Closure closure = PathFrontier.isClosurePath(path) ? new PathFrontier.Closure(graph, path, true) : null ;
         
         for ( ; iter.hasNext() ; )
         {
             Node n = iter.next() ;
             Binding b2 = BindingFactory.binding(binding, sVar, n) ;
-            Iterator<Node> pathIter = PathEval.eval(graph, n, path) ;
+            Iterator<Node> pathIter = ( closure != null ) ? closure.eval(n).iterator() : PathEval.eval(graph, n, path) ;
             QueryIterator qIter = _execTriplePath(b2, pathIter, oVar, execCxt) ;
             qIterCat.add(qIter) ;
         }
@@ -247,6 +260,8 @@ public class PathLib
     {
         if ( ! subject.isConcrete() || !object.isConcrete() )
             throw new ARQInternalErrorException("Non concrete node for existsPath evaluation") ;
+        if ( PathFrontier.isClosurePath(path) && ! object.isLiteral() )
+            return PathFrontier.reachable(graph, subject, path, object) ? 1 : 0 ;
         Iterator<Node> iter = PathEval.eval(graph, subject, path) ;
         Filter<Node> filter = new Filter<Node>() { @Override public boolean accept(Node node) { return Lib.equal(node,  object) ; } } ; 
         // See if we got to the node we're interested in finishing at.
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.path.eval;
+
+import java.util.Collection ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.LinkedHashSet ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.WeakHashMap ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.atlas.lib.CacheStats ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.GraphEvents ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.path.Path ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.graph.GraphListenerBase ;
+
+/** Cache of the nodes reachable from a start node along a closure path
+ *  ({@code path*} or {@code path+}, see {@link PathFrontier#isClosurePath}),
+ *  keyed by graph generation, path, start node and direction.
+ *  <p>
+ *  A listener is registered with each graph that is used; any change to the
+ *  graph moves it to a new generation, which is part of the key, so entries for
+ *  earlier generations are never used again and age out of the LRU cache.
+ *  Changes made without graph events (e.g. directly to the storage under the
+ *  graph) are not seen.
+ *  <p>
+ *  Used by {@link com.hp.hpl.jena.sparql.path.PathLib} when {@link ARQ#pathClosureCache} is true.
+ */
+public class PathClosureCache
+{
+    public static final int DefaultCacheSize = 10000 ;
+    /** Results with more nodes than this are not cached */
+    public static final int DefaultMaxEntrySize = 10000 ;
+
+    private static volatile PathClosureCache singleton = new PathClosureCache(DefaultCacheSize, DefaultMaxEntrySize) ;
+
+    // One listener per graph, whichever cache is in use, so replacing the
+    // cache does not register the graph again.
+    private static final Map<Graph, Generation> generations = new WeakHashMap<Graph, Generation>() ;
+
+    /** The cache used by query execution */
+    public static PathClosureCache get()    { return singleton ; }
+
+    /** Replace the global cache with an empty one of the given size */
+    public static void setCacheSize(int size)
+    {
+        singleton = new PathClosureCache(size, DefaultMaxEntrySize) ;
+    }
+
+    /** Is closure caching enabled for this context? */
+    public static boolean isEnabled(Context context)
+    {
+        return context != null && context.isTrue(ARQ.pathClosureCache) ;
+    }
+
+    private final int size ;
+    private final int maxEntrySize ;
+    private final CacheStats<Key, Set<Node>> cache ;
+
+    private PathClosureCache(int size, int maxEntrySize)
+    {
+        this.size = size ;
+        this.maxEntrySize = maxEntrySize ;
+        this.cache = CacheFactory.createStats(CacheFactory.createSync(CacheFactory.<Key, Set<Node>>createCache(size))) ;
+    }
+
+    /** Evaluate a closure path from a node, forwards or backwards, using the cache. */
+    public Collection<Node> eval(Graph graph, Node node, Path path, boolean forward)
+    {
+        Key key = key(graph, node, path, forward) ;
+        Set<Node> nodes = cache.get(key) ;
+        if ( nodes != null )
+            return nodes ;
+
+        Iterator<Node> iter = forward ? PathEval.eval(graph, node, path) : PathEval.evalReverse(graph, node, path) ;
+        nodes = new LinkedHashSet<Node>() ;
+        for ( ; iter.hasNext() ; )
+            nodes.add(iter.next()) ;
+        nodes = Collections.unmodifiableSet(nodes) ;
+        if ( nodes.size() <= maxEntrySize )
+            cache.put(key, nodes) ;
+        return nodes ;
+    }
+
+    /** Is there a path from subject to object?  Uses the closure from the subject
+     *  if it is cached, or small enough to cache, otherwise searches from both ends
+     *  ({@link PathFrontier#reachable}). */
+    public boolean reachable(Graph graph, Node subject, Path path, Node object)
+    {
+        Key key = key(graph, subject, path, true) ;
+        Set<Node> nodes = cache.get(key) ;
+        if ( nodes != null )
+            return nodes.contains(object) ;
+
+        nodes = new LinkedHashSet<Node>() ;
+        Iterator<Node> iter = PathEval.eval(graph, subject, path) ;
+        for ( ; iter.hasNext() ; )
+        {
+            nodes.add(iter.next()) ;
+            if ( nodes.size() > maxEntrySize )
+                // Will not be cached.
+                return PathFrontier.reachable(graph, subject, path, object) ;
+        }
+        cache.put(key, Collections.unmodifiableSet(nodes)) ;
+        return nodes.contains(object) ;
+    }
+
+    private Key key(Graph graph, Node node, Path path, boolean forward)
+    {
+        Generation gen = generation(graph) ;
+        return new Key(gen, gen.get(), path, node, forward) ;
+    }
+
+    private static Generation generation(Graph graph)
+    {
+        synchronized (generations)
+        {
+            Generation gen = generations.get(graph) ;
+            if ( gen == null )
+            {
+                gen = new Generation() ;
+                graph.getEventManager().register(gen) ;
+                generations.put(graph, gen) ;
+            }
+            return gen ;
+        }
+    }
+
+    public void clear()                 { cache.clear() ; }
+
+    public int getMaxSize()             { return size ; }
+    public long getCacheSize()          { return cache.size() ; }
+    public long getCacheHits()          { return cache.getCacheHits() ; }
+    public long getCacheMisses()        { return cache.getCacheMisses() ; }
+    public long getCacheEjects()        { return cache.getCacheEjects() ; }
+
+    /** Counts the changes to a graph */
+    private static final class Generation extends GraphListenerBase
+    {
+        private final AtomicLong generation = new AtomicLong(0) ;
+
+        long get()                          { return generation.get() ; }
+
+        private void change()               { generation.incrementAndGet() ; }
+
+        @Override
+        protected void addEvent(Triple t)       { change() ; }
+
+        @Override
+        protected void deleteEvent(Triple t)    { change() ; }
+
+        @Override
+        public void notifyAddGraph(Graph g, Graph added)        { change() ; }
+
+        @Override
+        public void notifyDeleteGraph(Graph g, Graph removed)   { change() ; }
+
+        @Override
+        public void notifyEvent(Graph source, Object value)
+        {
+            // removeAll, remove(s,p,o) and anything else except the start/finish of a read.
+            if ( ! value.equals(GraphEvents.startRead) && ! value.equals(GraphEvents.finishRead) )
+                change() ;
+        }
+    }
+
+    // Keyed by the graph's Generation object, not the graph, so the cache
+    // does not keep graphs alive.
+    private static final class Key
+    {
+        private final Generation graphGen ;
+        private final long generation ;
+        private final Path path ;
+        private final Node node ;
+        private final boolean forward ;
+        private final int hash ;
+
+        Key(Generation graphGen, long generation, Path path, Node node, boolean forward)
+        {
+            this.graphGen = graphGen ;
+            this.generation = generation ;
+            this.path = path ;
+            this.node = node ;
+            this.forward = forward ;
+            this.hash = System.identityHashCode(graphGen) ^ (int)generation ^ path.hashCode() ^ node.hashCode() ^ (forward ? 1 : 0) ;
+        }
+
+        @Override
+        public int hashCode()   { return hash ; }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if ( this == other ) return true ;
+            if ( ! ( other instanceof Key ) ) return false ;
+            Key k = (Key)other ;
+            return hash == k.hash &&
+                   graphGen == k.graphGen &&
+                   generation == k.generation &&
+                   forward == k.forward &&
+                   node.equals(k.node) &&
+                   path.equals(k.path) ;
+        }
+    }
+}
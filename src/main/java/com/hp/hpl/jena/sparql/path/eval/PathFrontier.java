@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.path.eval;
+
+import java.util.ArrayList ;
+import java.util.Collection ;
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.path.P_OneOrMore1 ;
+import com.hp.hpl.jena.sparql.path.P_ZeroOrMore1 ;
+import com.hp.hpl.jena.sparql.path.Path ;
+
+/** Breadth-first, frontier-based evaluation of the SPARQL closure paths
+ *  {@code path*} ({@link P_ZeroOrMore1}) and {@code path+} ({@link P_OneOrMore1}).
+ *  <p>
+ *  With both ends bound, {@link #reachable} searches forwards from the subject
+ *  and backwards from the object, always expanding the smaller frontier, and
+ *  stops as soon as the two meet.  With neither end bound, a {@link Closure}
+ *  remembers the nodes reachable from each start node, so later start nodes
+ *  reuse the work done for the nodes they reach.
+ *  <p>
+ *  The results are the same as {@link PathEngineSPARQL}: each node is reached
+ *  at most once.
+ */
+public class PathFrontier
+{
+    /** Can this path be evaluated by this class? */
+    public static boolean isClosurePath(Path path)
+    {
+        return path instanceof P_ZeroOrMore1 || path instanceof P_OneOrMore1 ;
+    }
+
+    /** Is there a route from start to end along a {@code path*} or {@code path+}? */
+    public static boolean reachable(Graph graph, Node start, Path path, Node end)
+    {
+        Path step = subPath(path) ;
+        boolean zeroLength = ( path instanceof P_ZeroOrMore1 ) ;
+
+        // Forward: everything reachable from start (in zero or more steps, or one or more).
+        Set<Node> visitedFwd = new HashSet<Node>() ;
+        List<Node> frontierFwd = new ArrayList<Node>() ;
+        if ( zeroLength )
+        {
+            visitedFwd.add(start) ;
+            frontierFwd.add(start) ;
+        }
+        else
+        {
+            for ( Iterator<Node> iter = PathEval.eval(graph, start, step) ; iter.hasNext() ; )
+            {
+                Node n = iter.next() ;
+                if ( visitedFwd.add(n) )
+                    frontierFwd.add(n) ;
+            }
+        }
+        // Backward: everything that reaches end in zero or more steps.
+        Set<Node> visitedBwd = new HashSet<Node>() ;
+        List<Node> frontierBwd = new ArrayList<Node>() ;
+        visitedBwd.add(end) ;
+        frontierBwd.add(end) ;
+
+        if ( visitedFwd.contains(end) )
+            return true ;
+
+        while ( ! frontierFwd.isEmpty() && ! frontierBwd.isEmpty() )
+        {
+            if ( frontierFwd.size() <= frontierBwd.size() )
+            {
+                frontierFwd = expand(graph, step, true, frontierFwd, visitedFwd, visitedBwd) ;
+                if ( frontierFwd == null )
+                    return true ;
+            }
+            else
+            {
+                frontierBwd = expand(graph, step, false, frontierBwd, visitedBwd, visitedFwd) ;
+                if ( frontierBwd == null )
+                    return true ;
+            }
+        }
+        return false ;
+    }
+
+    /** One level of breadth-first search.  Returns the next frontier, or null if a node visited from the other end is reached. */
+    private static List<Node> expand(Graph graph, Path step, boolean forward, List<Node> frontier, Set<Node> visited, Set<Node> other)
+    {
+        List<Node> next = new ArrayList<Node>() ;
+        for ( Node node : frontier )
+        {
+            Iterator<Node> iter = forward ? PathEval.eval(graph, node, step) : PathEval.evalReverse(graph, node, step) ;
+            for ( ; iter.hasNext() ; )
+            {
+                Node n = iter.next() ;
+                if ( other.contains(n) )
+                    return null ;
+                if ( visited.add(n) )
+                    next.add(n) ;
+            }
+        }
+        return next ;
+    }
+
+    /** Evaluate a {@code path*} or {@code path+} from many start nodes, in the given
+     *  direction, sharing the reachable sets already found.
+     *  Use one object for one evaluation; the memory used is of the order of the results.
+     */
+    public static class Closure
+    {
+        private final Graph graph ;
+        private final Path step ;
+        private final boolean zeroLength ;
+        private final boolean forward ;
+        // Node => all nodes reachable from it in zero or more steps.
+        private final Map<Node, Set<Node>> cache = new HashMap<Node, Set<Node>>() ;
+
+        public Closure(Graph graph, Path path, boolean forward)
+        {
+            this.graph = graph ;
+            this.step = subPath(path) ;
+            this.zeroLength = ( path instanceof P_ZeroOrMore1 ) ;
+            this.forward = forward ;
+        }
+
+        /** The nodes reachable from start */
+        public Collection<Node> eval(Node start)
+        {
+            if ( zeroLength )
+                return closure(start) ;
+            Set<Node> results = new LinkedHashSet<Node>() ;
+            for ( Iterator<Node> iter = step(start) ; iter.hasNext() ; )
+            {
+                Node n = iter.next() ;
+                if ( ! results.contains(n) )
+                    results.addAll(closure(n)) ;
+            }
+            return results ;
+        }
+
+        /** All nodes reachable from start in zero or more steps. */
+        private Set<Node> closure(Node start)
+        {
+            Set<Node> results = cache.get(start) ;
+            if ( results != null )
+                return results ;
+
+            results = new LinkedHashSet<Node>() ;
+            results.add(start) ;
+            List<Node> frontier = new ArrayList<Node>() ;
+            frontier.add(start) ;
+            while ( ! frontier.isEmpty() )
+            {
+                List<Node> next = new ArrayList<Node>() ;
+                for ( Node node : frontier )
+                {
+                    for ( Iterator<Node> iter = step(node) ; iter.hasNext() ; )
+                    {
+                        Node n = iter.next() ;
+                        if ( results.contains(n) )
+                            continue ;
+                        Set<Node> known = cache.get(n) ;
+                        if ( known != null )
+                            // Everything from n has been found already - don't search it again.
+                            results.addAll(known) ;
+                        else
+                        {
+                            results.add(n) ;
+                            next.add(n) ;
+                        }
+                    }
+                }
+                frontier = next ;
+            }
+            cache.put(start, results) ;
+            return results ;
+        }
+
+        private Iterator<Node> step(Node node)
+        {
+            return forward ? PathEval.eval(graph, node, step) : PathEval.evalReverse(graph, node, step) ;
+        }
+    }
+
+    private static Path subPath(Path path)
+    {
+        if ( path instanceof P_ZeroOrMore1 )
+            return ((P_ZeroOrMore1)path).getSubPath() ;
+        if ( path instanceof P_OneOrMore1 )
+            return ((P_OneOrMore1)path).getSubPath() ;
+        throw new ARQInternalErrorException("Not a closure path: "+path) ;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.resultset;
+
+import static org.apache.jena.riot.binary.BinaryRDF.* ;
+
+import java.io.InputStream ;
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.binary.BinaryDecoder ;
+import org.apache.jena.riot.lang.LabelToNode ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ResultSet ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ResultSetStream ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorBase ;
+import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
+
+/**
+ * Input reader associated to {@link BinaryOutput}.
+ */
+public class BinaryInput
+{
+    /**
+     * Reads SPARQL Results from the binary format into a {@link ResultSet} instance.
+     * Rows are decoded as the result set is used.
+     * @param in Input Stream
+     */
+    public static ResultSet fromBinary(InputStream in)
+    {
+        SPARQLResult r = make(in) ;
+        if ( ! r.isResultSet() )
+            throw new ResultSetException("Binary results are a boolean result, not a result set") ;
+        return r.getResultSet() ;
+    }
+
+    /**
+     * Reads a SPARQL boolean result from the binary format.
+     * @param in Input Stream
+     * @return boolean
+     */
+    public static boolean booleanFromBinary(InputStream in)
+    {
+        SPARQLResult r = make(in) ;
+        if ( ! r.isBoolean() )
+            throw new ResultSetException("Binary results are a result set, not a boolean result") ;
+        return r.getBooleanResult() ;
+    }
+
+    /** Reads a result set or a boolean result from the binary format. */
+    public static SPARQLResult make(InputStream in)
+    {
+        BinaryDecoder decoder = new BinaryDecoder(in, LabelToNode.createScopeByDocument()) ;
+        try {
+            decoder.readHeaderResults() ;
+            int rec = decoder.readByte() ;
+            if ( rec == RecAsk )
+            {
+                int b = decoder.readByte() ;
+                if ( b != 0 && b != 1 )
+                    throw new ResultSetException("Binary boolean result malformed: "+b) ;
+                return new SPARQLResult(b == 1) ;
+            }
+            if ( rec != RecVars )
+                throw new ResultSetException("Binary results malformed, no variables") ;
+            int n = decoder.readInt() ;
+            List<Var> vars = new ArrayList<Var>(n) ;
+            List<String> varNames = new ArrayList<String>(n) ;
+            for ( int i = 0 ; i < n ; i++ )
+            {
+                Var var = Var.alloc(decoder.readString()) ;
+                vars.add(var) ;
+                varNames.add(var.getName()) ;
+            }
+            return new SPARQLResult(new ResultSetStream(varNames, null, new BinaryInputIterator(in, decoder, vars))) ;
+        } catch (RiotException ex)
+        {
+            throw new ResultSetException("Binary results malformed: "+ex.getMessage()) ;
+        }
+    }
+
+    /** Streaming decode of the rows */
+    private static class BinaryInputIterator extends QueryIteratorBase
+    {
+        private InputStream in ;
+        private final BinaryDecoder decoder ;
+        private final List<Var> vars ;
+        private Binding binding = null ;
+
+        BinaryInputIterator(InputStream in, BinaryDecoder decoder, List<Var> vars)
+        {
+            this.in = in ;
+            this.decoder = decoder ;
+            this.vars = vars ;
+        }
+
+        @Override
+        public void output(IndentedWriter out, SerializationContext sCxt)
+        {
+            out.println("BinaryInputIterator") ;
+        }
+
+        @Override
+        protected boolean hasNextBinding()
+        {
+            if ( in == null )
+                return false ;
+            if ( binding != null )
+                return true ;
+            try {
+                int rec = decoder.readByte() ;
+                if ( rec < 0 )
+                    return false ;
+                if ( rec != RecRow )
+                    throw new ResultSetException("Binary results malformed: bad row tag: 0x"+Integer.toHexString(rec)) ;
+                BindingMap b = BindingFactory.create() ;
+                for ( Var v : vars )
+                {
+                    Node n = decoder.readNode() ;
+                    if ( n != null )
+                        b.add(v, n) ;
+                }
+                binding = b ;
+                return true ;
+            } catch (RiotException ex)
+            {
+                throw new ResultSetException("Binary results malformed: "+ex.getMessage()) ;
+            }
+        }
+
+        @Override
+        protected Binding moveToNextBinding()
+        {
+            if ( ! hasNext() ) throw new NoSuchElementException() ;
+            Binding b = binding ;
+            binding = null ;
+            return b ;
+        }
+
+        @Override
+        protected void closeIterator()
+        {
+            IO.close(in) ;
+            in = null ;
+        }
+
+        @Override
+        protected void requestCancel()
+        {}
+    }
+}
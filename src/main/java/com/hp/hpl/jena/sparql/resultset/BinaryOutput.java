@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.resultset;
+
+import static org.apache.jena.riot.binary.BinaryRDF.* ;
+
+import java.io.OutputStream ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.riot.binary.BinaryEncoder ;
+
+import com.hp.hpl.jena.query.ResultSet ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+
+/**
+ * Binary result sets, using the term encoding of {@link org.apache.jena.riot.binary.BinaryRDF}.
+ * 
+ * The variable names are written once, then one row record per binding
+ * with a term, or "undefined", for each variable in order.
+ * Rows are written as they are read from the result set.
+ */
+public class BinaryOutput extends OutputBase
+{
+    @Override
+    public void format(OutputStream out, ResultSet resultSet)
+    {
+        BinaryEncoder encoder = new BinaryEncoder(out) ;
+        encoder.writeHeaderResults() ;
+
+        List<String> varNames = resultSet.getResultVars() ;
+        List<Var> vars = new ArrayList<Var>(varNames.size()) ;
+        encoder.writeByte(RecVars) ;
+        encoder.writeNumber(varNames.size()) ;
+        for ( String v : varNames )
+        {
+            encoder.writeString(v) ;
+            vars.add(Var.alloc(v)) ;
+        }
+
+        for ( ; resultSet.hasNext() ; )
+        {
+            Binding b = resultSet.nextBinding() ;
+            encoder.writeByte(RecRow) ;
+            for ( Var v : vars )
+                encoder.writeNode(b.get(v)) ;
+        }
+        encoder.flush() ;
+    }
+
+    @Override
+    public void format(OutputStream out, boolean booleanResult)
+    {
+        BinaryEncoder encoder = new BinaryEncoder(out) ;
+        encoder.writeHeaderResults() ;
+        encoder.writeByte(RecAsk) ;
+        encoder.writeByte(booleanResult ? 1 : 0) ;
+        encoder.flush() ;
+    }
+}
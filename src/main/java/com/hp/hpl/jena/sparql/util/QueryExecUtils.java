@@ -184,6 +184,12 @@ public class QueryExecUtils
             done = true ;
         }
         
+        if ( outputFormat.equals(ResultsFormat.FMT_RS_BINARY ) )
+        {
+            ResultSetFormatter.outputAsBinary(System.out, results) ;
+            done = true ;
+        }
+        
         if ( ! done )
             System.err.println("Unknown format request: "+outputFormat) ;
         results = null ;
@@ -309,6 +315,12 @@ public class QueryExecUtils
             return ;
         }
         
+        if ( outputFormat.equals(ResultsFormat.FMT_RS_BINARY) )
+        {
+            ResultSetFormatter.outputAsBinary(System.out, b) ;
+            return ;
+        }
+        
         System.err.println("Unknown format: "+outputFormat) ;
     }
     
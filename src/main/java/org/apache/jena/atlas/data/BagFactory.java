@@ -50,6 +50,16 @@ public class BagFactory
         return new SortedDataBag<T>(policy, serializerFactory, comparator);
     }
     
+    /**
+     * Get a sorted data bag that sorts and merges spill files on the given number of threads,
+     * merging at most mergeFanIn files at once (-1 for the default).
+     */
+    public static <T> SortedDataBag<T> newSortedBag(ThresholdPolicy<T> policy, SerializationFactory<T> serializerFactory, Comparator<T> comparator,
+                                                    int parallelism, int mergeFanIn)
+    {
+        return new SortedDataBag<T>(policy, serializerFactory, comparator, parallelism, mergeFanIn);
+    }
+    
     /**
      * Get a distinct data bag.
      */
@@ -30,6 +30,14 @@ import java.util.Iterator ;
 import java.util.List ;
 import java.util.NoSuchElementException ;
 import java.util.PriorityQueue ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.LinkedBlockingQueue ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.ThreadPoolExecutor ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicInteger ;
 
 import org.apache.jena.atlas.AtlasException ;
 import org.apache.jena.atlas.iterator.Iter ;
@@ -57,7 +65,15 @@ import org.apache.jena.atlas.lib.Sink ;
  * <p>
  * Implementation Notes: Data is stored in an ArrayList as it comes in.  When it is time to spill, that
  * data is sorted and written to disk.  An iterator will read in each file and perform a merge-sort as
- * the results are returned.
+ * the results are returned.  If there are more spill files than the merge fan-in, groups of files are
+ * first merged into larger files until there are few enough.
+ * </p>
+ * <p>
+ * With a parallelism greater than one, each spill is sorted and written by a pool of threads while
+ * items are still being added (at most that many spills are outstanding at once), and the groups of
+ * files in each level of pre-merging are merged in parallel.  All bags share one pool of at most
+ * {@link #MaxSpillThreads} threads.  Closing the bag waits for its outstanding spills before the
+ * spill files are deleted.
  * </p>
  */
 public class SortedDataBag<E> extends AbstractDataBag<E>
@@ -70,16 +86,37 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
     protected final ThresholdPolicy<E> policy;
     protected final SerializationFactory<E> serializationFactory;
     protected final Comparator<? super E> comparator;
+    protected final int parallelism;
+    protected final int mergeFanIn;
     
     protected boolean finishedAdding = false;
     protected boolean spilled = false;
     protected boolean closed = false;
     
+    /** Maximum number of threads in the pool shared by all bags for spilling and merging. */
+    public static final int MaxSpillThreads = Runtime.getRuntime().availableProcessors();
+    private static ExecutorService spillExecutor = null;
+    
+    // Parallel mode: the outstanding spills of this bag.
+    private final List<Future<?>> pending = new ArrayList<Future<?>>();
+    
     public SortedDataBag(ThresholdPolicy<E> policy, SerializationFactory<E> serializerFactory, Comparator<? super E> comparator)
+    {
+        this(policy, serializerFactory, comparator, 1, -1);
+    }
+    
+    /**
+     * @param parallelism  Number of threads used to sort and write spills and to merge spill files; 1 for no threads.
+     * @param mergeFanIn   Maximum number of spill files merged at once; -1 for the default ({@link #MAX_SPILL_FILES}).
+     */
+    public SortedDataBag(ThresholdPolicy<E> policy, SerializationFactory<E> serializerFactory, Comparator<? super E> comparator,
+                         int parallelism, int mergeFanIn)
     {
         this.policy = policy;
         this.serializationFactory = serializerFactory;
         this.comparator = comparator;
+        this.parallelism = Math.max(1, parallelism);
+        this.mergeFanIn = mergeFanIn;
     }
     
     protected void checkClosed()
@@ -118,13 +155,12 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
         }
     }
     
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     protected void spill()
     {
         // Make sure we have something to spill.
         if (memory.size() > 0)
         {
-            OutputStream out;
+            final OutputStream out;
             try
             {
                 out = getSpillStream();
@@ -134,25 +170,21 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
                 throw new AtlasException(e);
             }
             
-            // Sort the tuples
             // Collections.sort() will copy to an array, sort, and then copy back.  Avoid that
             // extra copy by copying to an array and using Arrays.sort().  Also it lets us use
             // Collection<E> instead of List<E> as the type for the memory object.  Unfortunately
             // because of Java's crazy generics we have to do it as an Object array.
-            Object[] array = memory.toArray();
-            Arrays.sort(array, (Comparator)comparator);
-            
-            Sink<E> serializer = serializationFactory.createSerializer(out);
-            try
+            final Object[] array = memory.toArray();
+            if (parallelism > 1)
             {
-                for (Object tuple : array)
-                {
-                    serializer.send((E)tuple);
-                }
+                submit(new Runnable() {
+                    @Override
+                    public void run() { writeRun(array, out); }
+                });
             }
-            finally
+            else
             {
-                serializer.close();
+                writeRun(array, out);
             }
             
             spilled = true;
@@ -160,6 +192,115 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
             memory.clear();
         }
     }
+    
+    /** Sort the tuples and write them out as a run. */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private void writeRun(Object[] array, OutputStream out)
+    {
+        Arrays.sort(array, (Comparator)comparator);
+        
+        Sink<E> serializer = serializationFactory.createSerializer(out);
+        try
+        {
+            for (Object tuple : array)
+            {
+                serializer.send((E)tuple);
+            }
+        }
+        finally
+        {
+            serializer.close();
+        }
+    }
+    
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+    
+    /** The pool shared by all bags.  Its threads end when idle. */
+    private static synchronized ExecutorService getSpillExecutor()
+    {
+        if (spillExecutor == null)
+        {
+            ThreadFactory factory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread t = new Thread(r, "SortedDataBag-"+threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            };
+            // Each bag has at most its parallelism of tasks outstanding, so the queue stays small.
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MaxSpillThreads, MaxSpillThreads, 60, TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<Runnable>(), factory);
+            executor.allowCoreThreadTimeOut(true);
+            spillExecutor = executor;
+        }
+        return spillExecutor;
+    }
+    
+    /** Run a task on the pool, waiting first if this bag already has as many tasks outstanding as its parallelism. */
+    private void submit(Runnable task)
+    {
+        if (pending.size() >= parallelism)
+        {
+            waitFor(pending.remove(0));
+        }
+        pending.add(getSpillExecutor().submit(task));
+    }
+    
+    /** Wait for all outstanding tasks. */
+    private void waitForPending()
+    {
+        while (!pending.isEmpty())
+        {
+            waitFor(pending.remove(0));
+        }
+    }
+    
+    private void waitFor(Future<?> future)
+    {
+        try
+        {
+            future.get();
+        }
+        catch (InterruptedException e)
+        {
+            throw new AtlasException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            throw new AtlasException(cause);
+        }
+    }
+    
+    /** Wait for all outstanding tasks, ignoring their failures: used when closing. */
+    private void waitForPendingQuietly()
+    {
+        boolean interrupted = false;
+        while (!pending.isEmpty())
+        {
+            Future<?> future = pending.get(0);
+            try
+            {
+                future.get();
+            }
+            catch (InterruptedException e)
+            {
+                // The task still has the spill file open; keep waiting.
+                interrupted = true;
+                continue;
+            }
+            catch (ExecutionException e) {}
+            pending.remove(0);
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
 
     @Override
     public void flush()
@@ -184,6 +325,8 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
     @Override
 	public Iterator<E> iterator()
     {
+        checkClosed();
+        waitForPending();
         preMerge();
 
         return iterator(getSpillFiles().size());
@@ -256,46 +399,83 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
 
     private void preMerge()
     {
-        if (getSpillFiles() == null || getSpillFiles().size() <= MAX_SPILL_FILES)
+        int fanIn = Math.max(2, (mergeFanIn > 0) ? mergeFanIn : MAX_SPILL_FILES) ;
+        if (getSpillFiles() == null || getSpillFiles().size() <= fanIn)
         {
             return ;
         }
 
-        try
+        while (getSpillFiles().size() > fanIn)
         {
-            while (getSpillFiles().size() > MAX_SPILL_FILES)
+            // One level: merge as many whole groups as needed (all of them at most) to get down to fanIn files.
+            List<File> files = new ArrayList<File>(getSpillFiles()) ;
+            int excess = files.size() - fanIn ;
+            int groups = Math.min(files.size() / fanIn, (excess + fanIn - 2) / (fanIn - 1)) ;
+            groups = Math.max(1, groups) ;
+            List<File> toRemove = new ArrayList<File>(groups * fanIn) ;
+            for (int g = 0; g < groups; g++)
             {
-                Sink<E> sink = serializationFactory.createSerializer(getSpillStream()) ;
-                Iterator<E> ssi = iterator(MAX_SPILL_FILES) ;
+                final List<File> group = files.subList(g * fanIn, (g + 1) * fanIn) ;
+                toRemove.addAll(group) ;
+                final OutputStream out ;
                 try
                 {
-                    while (ssi.hasNext())
-                    {
-                        sink.send(ssi.next()) ;
-                    }
+                    out = getSpillStream() ;
                 }
-                finally
+                catch (IOException e)
                 {
-                    Iter.close(ssi) ;
-                    sink.close() ;
+                    throw new AtlasException(e) ;
                 }
-
-                List<File> toRemove = new ArrayList<File>(MAX_SPILL_FILES) ;
-                for (int i = 0; i < MAX_SPILL_FILES; i++)
+                if (parallelism > 1)
                 {
-                    File file = getSpillFiles().get(i) ;
-                    file.delete() ;
-                    toRemove.add(file) ;
+                    submit(new Runnable() {
+                        @Override
+                        public void run() { mergeRuns(group, out) ; }
+                    }) ;
                 }
+                else
+                {
+                    mergeRuns(group, out) ;
+                }
+            }
+            waitForPending() ;
 
-                getSpillFiles().removeAll(toRemove) ;
+            for (File file : toRemove)
+            {
+                file.delete() ;
+            }
+            getSpillFiles().removeAll(toRemove) ;
+        }
+    }
 
-                memory = new ArrayList<E>() ;
+    /** Merge some spill files into a new run. */
+    private void mergeRuns(List<File> files, OutputStream out)
+    {
+        List<Iterator<E>> inputs = new ArrayList<Iterator<E>>(files.size()) ;
+        Sink<E> sink = serializationFactory.createSerializer(out) ;
+        try
+        {
+            for (File file : files)
+            {
+                inputs.add(getInputIterator(file)) ;
             }
+            Iterator<E> ssi = new SpillSortIterator<E>(inputs, comparator) ;
+            while (ssi.hasNext())
+            {
+                sink.send(ssi.next()) ;
+            }
+        }
+        catch (FileNotFoundException e)
+        {
+            throw new AtlasException("Cannot find one of the spill files", e) ;
         }
-        catch (IOException e)
+        finally
         {
-            throw new AtlasException(e) ;
+            for (Iterator<E> it : inputs)
+            {
+                Iter.close(it) ;
+            }
+            sink.close() ;
         }
     }
 
@@ -304,6 +484,8 @@ public class SortedDataBag<E> extends AbstractDataBag<E>
     {
         if (!closed)
         {
+            // Spill tasks may still be writing to the files.
+            waitForPendingQuietly();
             closeIterators();
             deleteSpillFiles();
             
@@ -18,8 +18,11 @@
 
 package org.apache.jena.atlas.data ;
 
+import org.apache.jena.atlas.AtlasException ;
+
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
 
 public class ThresholdPolicyFactory
 {
@@ -80,4 +83,38 @@ public class ThresholdPolicyFactory
             return never() ;
         }
     }
+    
+    /**
+     * The number of threads a sorted data bag uses to sort and merge spill files, from the
+     * {@link com.hp.hpl.jena.query.ARQ#spillSortThreads} symbol in the given Context.
+     * The default is 1, which sorts in the calling thread.
+     */
+    public static int sortThreadsFromContext(Context context)
+    {
+        return intFromContext(context, ARQ.spillSortThreads, 1) ;
+    }
+
+    /**
+     * The maximum number of spill files a sorted data bag merges at once, from the
+     * {@link com.hp.hpl.jena.query.ARQ#spillMergeFanIn} symbol in the given Context.
+     * Returns -1 if not set, meaning the bag's default.
+     */
+    public static int mergeFanInFromContext(Context context)
+    {
+        return intFromContext(context, ARQ.spillMergeFanIn, -1) ;
+    }
+
+    private static int intFromContext(Context context, Symbol symbol, int dftValue)
+    {
+        Object x = context.get(symbol) ;
+        if ( x == null )
+            return dftValue ;
+        if ( x instanceof Number )
+            return ((Number)x).intValue() ;
+        try {
+            return Integer.parseInt(x.toString().trim()) ;
+        } catch (NumberFormatException ex) {
+            throw new AtlasException("Not an integer: "+symbol+" = "+x) ;
+        }
+    }
 }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.io;
+
+import static org.apache.jena.atlas.io.IO.EOF ;
+
+import java.io.IOException ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+
+import org.apache.jena.atlas.AtlasException ;
+
+/** UTF-8 decoding from a memory mapped file.
+ *  <p>
+ *  The file is mapped, from the current position of the channel, in
+ *  windows of up to 256M and decoded directly from the mapped bytes into a
+ *  character buffer. Runs of ASCII are copied in a tight loop.
+ *  Closing the stream closes the channel.
+ * 
+ * @see CharStreamBuffered
+ */
+public final class CharStreamMapped extends CharStreamReader
+{
+    /*package*/ static final int CB_SIZE        = 128 * 1024 ;
+    /*package*/ static final long WINDOW_SIZE   = 256L * 1024 * 1024 ;
+    
+    private final FileChannel channel ;
+    private final long windowSize ;
+    private final long end ;
+    private long windowStart ;              // File offset of the start of the buffer.
+    private MappedByteBuffer bytes ;
+    
+    private final char[] chars ;
+    private int buffLen = 0 ;
+    private int idx = 0 ;
+
+    public CharStreamMapped(FileChannel channel)
+    { this(channel, CB_SIZE, WINDOW_SIZE) ; }
+
+    /*package*/ CharStreamMapped(FileChannel channel, int buffSize, long windowSize)
+    {
+        super() ;
+        if ( buffSize < 2 )
+            // Room for a surrogate pair.
+            throw new IllegalArgumentException("Buffer size must be at least 2") ;
+        this.channel = channel ;
+        this.windowSize = windowSize ;
+        this.chars = new char[buffSize] ;
+        try {
+            this.end = channel.size() ;
+            map(channel.position()) ;
+        } catch (IOException ex) { throw new AtlasException(ex) ; }
+    }
+
+    private void map(long start)
+    {
+        try {
+            long len = Math.min(windowSize, end-start) ;
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, len) ;
+            windowStart = start ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    @Override
+    public final int advance()
+    {
+        if ( idx >= buffLen )
+            // Points outside the array.  Refill it 
+            fillArray() ;
+        
+        // Advance one character.
+        if ( buffLen >= 0 )
+        {
+            char ch = chars[idx] ;
+            idx++ ;
+            return ch ;
+        }  
+        else
+            // Buffer empty, end of stream.
+            return EOF ;
+    }
+
+    private int fillArray()
+    {
+        int x = fill() ;
+        idx = 0 ;
+        buffLen = x ;   // Maybe -1
+        return x ;
+    }
+
+    private int fill()
+    {
+        if ( bytes == null )
+            return -1 ;
+        int len = chars.length ;
+        int i = 0 ;
+        while ( i < len )
+        {
+            int p = bytes.position() ;
+            int limit = bytes.limit() ;
+            if ( p >= limit )
+            {
+                if ( windowStart+limit >= end )
+                    break ;
+                map(windowStart+limit) ;
+                continue ;
+            }
+            // ASCII
+            while ( i < len && p < limit )
+            {
+                byte b = bytes.get(p) ;
+                if ( b < 0 )
+                    break ;
+                chars[i++] = (char)b ;
+                p++ ;
+            }
+            bytes.position(p) ;
+            if ( i >= len || p >= limit )
+                continue ;
+
+            // Multibyte sequence.
+            if ( i > len-2 )
+                // Maybe no room for a surrogate pair.
+                break ;
+            int ch = decode() ;
+            i += Character.toChars(ch, chars, i) ;
+        }
+        return ( i == 0 ) ? -1 : i ;
+    }
+
+    // Decode one multibyte UTF-8 sequence.
+    private int decode()
+    {
+        int x = nextByte() ;
+        // 110..... => 2 bytes
+        if ( (x & 0xE0) == 0xC0 )
+            return readMultiBytes(x & 0x1F, 2) ;
+        // 1110.... => 3 bytes
+        if ( (x & 0xF0) == 0xE0 )
+            return readMultiBytes(x & 0x0F, 3) ;
+        // 11110zzz => 4 bytes.
+        if ( (x & 0xF8) == 0xF0 )
+        {
+            int ch = readMultiBytes(x & 0x07, 4) ;
+            if ( ch > Character.MAX_CODE_POINT )
+                IO.exception(new IOException("Illegal UTF-8: "+x)) ;
+            return ch ;
+        }
+        IO.exception(new IOException("Illegal UTF-8: "+x)) ;
+        return -1 ;
+    }
+
+    private int readMultiBytes(int start, int len)
+    {
+        int x = start ;
+        for ( int i = 0 ; i < len-1 ; i++ )
+        {
+            int x2 = nextByte() ;
+            if ( x2 == -1 )
+                throw new AtlasException("Premature end to UTF-8 sequence at end of input") ;
+            if ( (x2 & 0xC0) != 0x80 )
+                throw new AtlasException(String.format("Illegal UTF-8 processing character: 0x%04X",x2)) ;
+            x = (x << 6) | (x2 & 0x3F) ;
+        }
+        return x ;
+    }
+
+    // Next byte, moving the window if necessary; -1 at end of file.
+    // A multibyte sequence may cross the end of the window.
+    private int nextByte()
+    {
+        if ( ! bytes.hasRemaining() )
+        {
+            long x = windowStart+bytes.limit() ;
+            if ( x >= end )
+                return -1 ;
+            map(x) ;
+        }
+        return bytes.get() & 0xFF ;
+    }
+
+    @Override
+    public void closeStream()
+    {
+        bytes = null ;
+        try { channel.close() ; } catch (IOException ex) { IO.exception(ex) ; }
+    }
+}
@@ -26,6 +26,7 @@ import java.io.FileNotFoundException ;
 import java.io.IOException ;
 import java.io.InputStream ;
 import java.io.Reader ;
+import java.nio.channels.FileChannel ;
 
 import org.apache.jena.atlas.AtlasException ;
 import org.apache.jena.atlas.lib.Chars ;
@@ -112,6 +113,20 @@ public final class PeekReader extends Reader
         return pr ;
     }
     
+    /** Make PeekReader where the input is a UTF8 file, read by memory mapping
+     *  the file from the current position of the channel.  Closing the
+     *  PeekReader closes the channel.
+     */ 
+    public static PeekReader makeUTF8(FileChannel channel) 
+    {
+        PeekReader pr = new PeekReader(new CharStreamMapped(channel)) ;
+        // Skip BOM.
+        int ch = pr.peekChar() ;
+        if ( ch == Chars.BOM )
+            pr.readChar() ;
+        return pr ;
+    }
+    
     /** Make PeekReader where the input is ASCII */ 
     public static PeekReader makeASCII(InputStream in) 
     {
@@ -154,6 +169,9 @@ public final class PeekReader extends Reader
     
     public long getLineNum()            { return lineNum; }
 
+    /** Set the line number, for reading part of a larger input */
+    public void setLineNum(long lineNum) { this.lineNum = lineNum; }
+
     public long getColNum()             { return colNum; }
 
     public long getPosition()           { return posn; }
@@ -48,6 +48,9 @@ public class TypedInputStream extends FilterInputStream
         this.baseURI = baseURI ;
     }
     
+    /** The stream this one reads from */
+    public InputStream getInputStream()         { return in ; }
+    
     /** @deprecated Use {@link #getContentType} */
     @Deprecated 
     public String getMimeType()                 { return getContentType()  ; }
@@ -66,6 +66,8 @@ public class Lang
     public static Lang NQ ;
     /** TriG */
     public static Lang TRIG ;
+    /** Binary RDF (not a standard) */
+    public static Lang RDFBINARY ;
     public static Lang RDFNULL ;
 
     private final String label ;                    // Primary name
@@ -20,14 +20,21 @@ package org.apache.jena.riot;
 
 import java.io.* ;
 import java.util.Iterator ;
+import java.util.concurrent.Callable ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.FutureTask ;
 
 import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.io.PeekReader ;
+import org.apache.jena.atlas.lib.Tuple ;
 import org.apache.jena.atlas.json.io.parser.TokenizerJSON ;
 import org.apache.jena.atlas.web.ContentType ;
 import org.apache.jena.atlas.web.TypedInputStream ;
+import org.apache.jena.riot.lang.LangNTupleParallel ;
 import org.apache.jena.riot.lang.LangRDFXML ;
 import org.apache.jena.riot.lang.LangRIOT ;
+import org.apache.jena.riot.lang.PipedRDFIterator ;
+import org.apache.jena.riot.lang.PipedRDFStream ;
 import org.apache.jena.riot.stream.StreamManager ;
 import org.apache.jena.riot.system.* ;
 import org.apache.jena.riot.tokens.Tokenizer ;
@@ -38,6 +45,7 @@ import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
 import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.Triple ;
 import com.hp.hpl.jena.query.Dataset ;
 import com.hp.hpl.jena.query.DatasetFactory ;
@@ -84,6 +92,18 @@ public class RDFDataMgr
     private static String riotBase = "http://jena.apache.org/riot/" ; 
     private static String streamManagerSymbolStr = riotBase+"streamManager" ; 
     public static Symbol streamManagerSymbol = Symbol.create(streamManagerSymbolStr) ; 
+    /** Context symbol for the number of threads used to parse N-Triples and N-Quads;
+     *  more than one parses chunks of the input in parallel.
+     *  @see LangNTupleParallel */
+    public static Symbol parseThreadsSymbol = Symbol.create(riotBase+"parseThreads") ; 
+    /** Context symbol: when parsing in parallel, deliver triples and quads in the
+     *  order of the input (default true) or as chunks finish ("false"). */
+    public static Symbol parseOrderedSymbol = Symbol.create(riotBase+"parseOrdered") ; 
+    /** Context symbol: if true, parse on a separate thread while the calling thread
+     *  sends the triples and quads, handed over in batches, to the destination
+     *  (e.g. inserts them into the graph or dataset being read into).
+     *  @see PipedRDFIterator */
+    public static Symbol parseAsyncSymbol = Symbol.create(riotBase+"parseAsync") ; 
     
     /** Read triples into a Model from the given location. 
      *  The syntax is detemined from input source URI (content negotiation or extension). 
@@ -706,7 +726,7 @@ public class RDFDataMgr
         StreamManager sMgr = StreamManager.get() ;
         if ( context != null )
         {
-            try { sMgr = (StreamManager)context.get(streamManagerSymbol, context) ; }
+            try { sMgr = (StreamManager)context.get(streamManagerSymbol, sMgr) ; }
             catch (ClassCastException ex) 
             { log.warn("Context symbol '"+streamManagerSymbol+"' is not a "+Utils.classShortName(StreamManager.class)) ; }
         }
@@ -757,7 +777,119 @@ public class RDFDataMgr
         ReaderRIOT reader = getReader(ct) ;
         if ( reader == null )
             throw new RiotException("No triples reader for content type: "+ct.getContentType()) ;
-        reader.read(in, baseUri, ct, destination, context) ;
+        if ( context != null && context.isTrue(parseAsyncSymbol) )
+            processAsync(reader, destination, in, baseUri, ct, context) ;
+        else
+            reader.read(in, baseUri, ct, destination, context) ;
+    }
+
+    /** Parse on another thread; send the output to the destination on this thread.
+     *  The destination may not be thread safe (or may be transactional) so it is
+     *  only used from the calling thread. 
+     */
+    private static void processAsync(final ReaderRIOT reader, StreamRDF destination, final TypedInputStream in,
+                                     final String baseUri, final ContentType ct, final Context context)
+    {
+        PipedRDFIterator<Object> pipe = new PipedRDFIterator<Object>(PipedRDFIterator.DEFAULT_BUFFER_SIZE, false,
+                                                                     PipedRDFIterator.DEFAULT_BATCH_SIZE) ;
+        final PipedEventStream out = new PipedEventStream(pipe) ;
+        FutureTask<Object> parse = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call()
+            {
+                try { reader.read(in, baseUri, ct, out, context) ; }
+                finally { out.finish() ; }
+                return null ;
+            }
+        }) ;
+        Thread thread = new Thread(parse, "RIOT async parser") ;
+        thread.setDaemon(true) ;
+        thread.start() ;
+
+        destination.start() ;
+        try {
+            while ( pipe.hasNext() )
+            {
+                Object x = pipe.next() ;
+                if ( x instanceof Triple )
+                    destination.triple((Triple)x) ;
+                else if ( x instanceof Quad )
+                    destination.quad((Quad)x) ;
+                else if ( x instanceof Tuple<?> )
+                {
+                    @SuppressWarnings("unchecked")
+                    Tuple<Node> tuple = (Tuple<Node>)x ;
+                    destination.tuple(tuple) ;
+                }
+                else
+                {
+                    Directive d = (Directive)x ;
+                    if ( d.prefix == null )
+                        destination.base(d.iri) ;
+                    else
+                        destination.prefix(d.prefix, d.iri) ;
+                }
+            }
+            // Any parse error.
+            parse.get() ;
+        }
+        catch (InterruptedException ex) { throw new RiotException(ex) ; }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            if ( cause instanceof Error )
+                throw (Error)cause ;
+            throw new RiotException(cause) ;
+        }
+        finally {
+            // Release the parser if this side failed.
+            pipe.close() ;
+            parse.cancel(true) ;
+            destination.finish() ;
+        }
+    }
+
+    /** Base and prefix settings, in order with the triples and quads. */
+    private static final class Directive
+    {
+        final String prefix ;       // null for base.
+        final String iri ;
+        Directive(String prefix, String iri) { this.prefix = prefix ; this.iri = iri ; }
+    }
+
+    /** Everything the parser outputs, down one pipe. */
+    private static final class PipedEventStream extends PipedRDFStream<Object>
+    {
+        private boolean finished = false ;
+
+        PipedEventStream(PipedRDFIterator<Object> sink)     { super(sink) ; }
+
+        @Override
+        public void triple(Triple triple)                   { receive(triple) ; }
+
+        @Override
+        public void quad(Quad quad)                         { receive(quad) ; }
+
+        @Override
+        public void tuple(Tuple<Node> tuple)                { receive(tuple) ; }
+
+        @Override
+        public void base(String base)                       { receive(new Directive(null, base)) ; }
+
+        @Override
+        public void prefix(String prefix, String iri)       { receive(new Directive(prefix, iri)) ; }
+
+        @Override
+        public void finish()
+        {
+            // Called by the parser, and again in case the parser did not. 
+            if ( finished )
+                return ;
+            finished = true ;
+            super.finish() ;
+        }
     }
 
     private static ReaderRIOT getReader(ContentType ct)
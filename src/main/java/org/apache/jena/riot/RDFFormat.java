@@ -59,6 +59,9 @@ public class RDFFormat
     
     public static RDFFormat RDFJSON             = new RDFFormat(Lang.RDFJSON) ;
     
+    /** Binary RDF (triples, quads and prefixes; not a standard) */
+    public static RDFFormat RDFBINARY           = new RDFFormat(Lang.RDFBINARY) ;
+    
     /** The "null" output format (a sink that prints nothing, usually quite efficiently) */
     public static RDFFormat RDFNULL             = new RDFFormat(Lang.RDFNULL) ;
 
@@ -26,6 +26,7 @@ import static org.apache.jena.riot.WebContent.contentTypeNQuadsAlt1 ;
 import static org.apache.jena.riot.WebContent.contentTypeNQuadsAlt2 ;
 import static org.apache.jena.riot.WebContent.contentTypeNTriples ;
 import static org.apache.jena.riot.WebContent.contentTypeNTriplesAlt ;
+import static org.apache.jena.riot.WebContent.contentTypeRDFBinary ;
 import static org.apache.jena.riot.WebContent.contentTypeRDFJSON ;
 import static org.apache.jena.riot.WebContent.contentTypeRDFXML ;
 import static org.apache.jena.riot.WebContent.contentTypeTriG ;
@@ -58,6 +59,7 @@ public class RDFLanguages
     public static final String strLangRDFJSON    = "RDF/JSON" ;
     public static final String strLangNQuads     = "N-Quads" ;
     public static final String strLangTriG       = "TriG" ;
+    public static final String strLangRDFBinary  = "RDF/Binary" ;
     
     /** RDF/XML */
     public static final Lang RDFXML   = LangBuilder.create(strLangRDFXML, contentTypeRDFXML)
@@ -111,6 +113,12 @@ public class RDFLanguages
     /** Abbreviation for NQUADS */
     public static final Lang NQ     = NQUADS ;
 
+    /** Binary RDF - a compact encoding for triples and quads (not a standard) */
+    public static final Lang RDFBINARY  = LangBuilder.create(strLangRDFBinary, contentTypeRDFBinary)
+                                                .addAltNames("RDFBINARY", "RDFB")
+                                                .addFileExtensions("rdfb")
+                                                .build() ;
+
     /** The "null" language */
     public static final Lang RDFNULL  = LangBuilder.create("rdf/null", "null/rdf")
                                                 .addAltNames("NULL", "null")  
@@ -147,6 +155,7 @@ public class RDFLanguages
         Lang.NQUADS     = RDFLanguages.NQUADS ;
         Lang.NQ         = RDFLanguages.NQ ;
         Lang.TRIG       = RDFLanguages.TRIG ; 
+        Lang.RDFBINARY  = RDFLanguages.RDFBINARY ;
         Lang.RDFNULL    = RDFLanguages.RDFNULL ;
     }
     // ----------------------
@@ -161,6 +170,7 @@ public class RDFLanguages
         register(RDFJSON) ;
         register(TRIG) ;
         register(NQUADS) ;
+        register(RDFBINARY) ;
         register(RDFNULL) ;
     }
 
@@ -26,6 +26,7 @@ import java.util.Set ;
 
 import org.apache.jena.atlas.lib.DS ;
 import org.apache.jena.atlas.web.ContentType ;
+import org.apache.jena.riot.lang.LangNTupleParallel ;
 import org.apache.jena.riot.lang.LangRIOT ;
 import org.apache.jena.riot.system.StreamRDF ;
 
@@ -79,6 +80,7 @@ public class RDFParserRegistry
         
         registerLangQuads(NQUADS,       parserFactory) ;
         registerLangQuads(TRIG,         parserFactory) ;
+        registerLangQuads(RDFBINARY,    parserFactory) ;
     }
 
     /** Register a language and it's parser factory.
@@ -138,7 +140,15 @@ public class RDFParserRegistry
                 @Override
                 public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context)
                 {
-                    LangRIOT parser = RiotReader.createParser(in, lang, baseURI, output) ;
+                    int threads = LangNTupleParallel.threads(context, RDFDataMgr.parseThreadsSymbol) ;
+                    LangRIOT parser ;
+                    if ( threads > 1 && LangNTupleParallel.isParallelLang(lang) )
+                    {
+                        boolean ordered = ( context == null ) || ! context.isFalse(RDFDataMgr.parseOrderedSymbol) ;
+                        parser = RiotReader.createParserParallel(in, lang, baseURI, output, threads, ordered) ;
+                    }
+                    else
+                        parser = RiotReader.createParser(in, lang, baseURI, output) ;
                     parser.parse() ;
                 }
             } ;
@@ -83,6 +83,8 @@ public class RDFWriterRegistry
                 return RiotWriter.createTrigFlat() ;
             if ( Lib.equal(RDFFormat.NQUADS, serialization) )
                 return RiotWriter.createNQuads() ;
+            if ( Lib.equal(RDFFormat.RDFBINARY, serialization) )
+                return RiotWriter.createRDFBinary() ;
             if ( Lib.equal(RDFFormat.RDFNULL, serialization) )
                 return RiotWriter.createRDFNULL() ;
             return null ;
@@ -101,6 +103,7 @@ public class RDFWriterRegistry
 
          register(Lang.TRIG,        RDFFormat.TRIG) ;
          register(Lang.NQUADS,      RDFFormat.NQUADS) ;
+         register(Lang.RDFBINARY,   RDFFormat.RDFBINARY) ;
          register(Lang.RDFNULL,     RDFFormat.RDFNULL) ;
 
          // Writer factories.
@@ -120,6 +123,7 @@ public class RDFWriterRegistry
          register(RDFFormat.TRIG_FLAT,      wgfactory) ;
 
          register(RDFFormat.NQUADS,         wgfactory) ;
+         register(RDFFormat.RDFBINARY,      wgfactory) ;
          register(RDFFormat.RDFNULL,        wgfactory) ;
          
          // Datasets
@@ -128,6 +132,7 @@ public class RDFWriterRegistry
          register(RDFFormat.TRIG_FLAT,      wdsfactory) ;
 
          register(RDFFormat.NQUADS,         wdsfactory) ;
+         register(RDFFormat.RDFBINARY,      wdsfactory) ;
          register(RDFFormat.RDFNULL,        wdsfactory) ;
      }
     
@@ -21,6 +21,7 @@ package org.apache.jena.riot;
 import static org.apache.jena.riot.RDFLanguages.N3 ;
 import static org.apache.jena.riot.RDFLanguages.NQUADS ;
 import static org.apache.jena.riot.RDFLanguages.NTRIPLES ;
+import static org.apache.jena.riot.RDFLanguages.RDFBINARY ;
 import static org.apache.jena.riot.RDFLanguages.RDFJSON ;
 import static org.apache.jena.riot.RDFLanguages.RDFXML ;
 import static org.apache.jena.riot.RDFLanguages.TRIG ;
@@ -36,6 +37,7 @@ import org.apache.jena.atlas.io.PeekReader ;
 import org.apache.jena.atlas.iterator.IteratorResourceClosing ;
 import org.apache.jena.atlas.json.io.parser.TokenizerJSON ;
 import org.apache.jena.atlas.lib.Sink ;
+import org.apache.jena.riot.binary.LangRDFBinary ;
 import org.apache.jena.riot.lang.* ;
 import org.apache.jena.riot.system.ErrorHandlerFactory ;
 import org.apache.jena.riot.system.IRIResolver ;
@@ -127,17 +129,34 @@ public class RiotReader
                 baseIRI = IRIResolver.resolveString(baseIRI) ;
             return LangRDFXML.create(input, baseIRI, baseIRI, ErrorHandlerFactory.getDefaultErrorHandler(), dest) ;
         }
+        if ( RDFLanguages.sameLang(RDFBINARY, lang) )
+            return createParserRDFBinary(input, dest) ;
         Tokenizer tokenizer = ( lang == RDFJSON ) ?
             new TokenizerJSON(PeekReader.makeUTF8(input)) :
                 TokenizerFactory.makeTokenizerUTF8(input) ;
         return createParser(tokenizer, lang, baseIRI, dest) ;
     }
 
+    /** Create a parser for N-Triples or N-Quads that parses chunks of the input on several threads.
+     * @param input     Source for bytes to parse.
+     * @param lang      N-Triples or N-Quads.
+     * @param baseIRI   Base IRI.
+     * @param dest      Where to send the triples or quads from the parser.
+     * @param threads   Number of parser threads.
+     * @param ordered   Whether to send the output in the order of the input.
+     */  
+    public static LangNTupleParallel createParserParallel(InputStream input, Lang lang, String baseIRI, StreamRDF dest, int threads, boolean ordered)
+    {
+        return new LangNTupleParallel(input, lang, baseIRI, dest, threads, ordered) ;
+    }
+
     /** Create a parser */  
     public static LangRIOT createParser(Tokenizer tokenizer, Lang lang, String baseIRI, StreamRDF dest)
     {
         if ( RDFLanguages.sameLang(RDFXML, lang) )
             throw new RiotException("Not possible - can't parse RDF/XML from a RIOT token stream") ;
+        if ( RDFLanguages.sameLang(RDFBINARY, lang) )
+            throw new RiotException("Not possible - can't parse binary RDF from a RIOT token stream") ;
         if ( RDFLanguages.sameLang(TURTLE, lang) || RDFLanguages.sameLang(N3,  lang) ) 
                 return createParserTurtle(tokenizer, baseIRI, dest) ;
         if ( RDFLanguages.sameLang(NTRIPLES, lang) )
@@ -320,6 +339,12 @@ public class RiotReader
         return parser ;
     }
 
+    /** Create a parser for binary RDF */
+    public static LangRDFBinary createParserRDFBinary(InputStream input, StreamRDF dest)
+    {
+        return new LangRDFBinary(input, RiotLib.profile(RDFLanguages.RDFBINARY, null), dest) ;
+    }
+
     /** Create parsers for RDF/JSON */
     public static LangRDFJSON createParserRdfJson(Tokenizer tokenizer, StreamRDF dest)
     {
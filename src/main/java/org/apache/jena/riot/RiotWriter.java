@@ -230,6 +230,9 @@ public class RiotWriter
     /** Create an NQuads writer */
     public static WriterDatasetRIOT createNQuads()          { return new NQuadsWriter() ; }
 
+    /** Create a binary RDF writer */
+    public static WriterDatasetRIOT createRDFBinary()       { return new RDFBinaryWriter() ; }
+
     public static WriterDatasetRIOT createRDFNULL()         { return NullWriter.factory.create(RDFFormat.RDFNULL) ; }           
 }
 
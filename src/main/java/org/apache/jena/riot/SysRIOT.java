@@ -31,6 +31,11 @@ public class SysRIOT
     public static boolean StrictXSDLexicialForms = false ;
     public static boolean strictMode             = false ;
     
+    /** Local files of at least this many bytes are read by memory mapping them.
+     *  Set to -1 to always read through an input stream.
+     */
+    public static long mappedInputThreshold     = 1024*1024 ;
+    
     public static final String BNodeGenIdPrefix = "genid" ;
     
     static public String fmtMessage(String message, long line, long col)
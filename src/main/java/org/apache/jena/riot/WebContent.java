@@ -66,12 +66,15 @@ public class WebContent
     public static final String contentTypeMultiAlt          = "multipart/alternative" ;
 
     public static final String contentTypeRdfJson			= "application/rdf+json" ;
+    // Unofficial
+    public static final String contentTypeRDFBinary         = "application/x-rdf-binary" ;
     
     public static final String contentTypeResultsXML        = "application/sparql-results+xml" ;
     public static final String contentTypeResultsJSON       = "application/sparql-results+json" ;
     public static final String contentTypeJSON              = "application/json" ;
     // Unofficial
     public static final String contentTypeResultsBIO        = "application/sparql-results+bio" ;
+    public static final String contentTypeResultsBinary     = "application/x-sparql-results-binary" ;
     
     public static final String contentTypeSPARQLQuery       = "application/sparql-query" ;
     public static final String contentTypeSPARQLUpdate      = "application/sparql-update" ;
@@ -114,6 +117,7 @@ public class WebContent
         mapContentTypeToLang.put(contentTypeNTriples,       RDFLanguages.NTRIPLES) ;   // text/plain
         mapContentTypeToLang.put(contentTypeNTriplesAlt,    RDFLanguages.NTRIPLES) ;
         mapContentTypeToLang.put(contentTypeRdfJson,        RDFLanguages.RDFJSON) ;
+        mapContentTypeToLang.put(contentTypeRDFBinary,      RDFLanguages.RDFBINARY) ;
 
         mapContentTypeToLang.put(contentTypeNQuads,         RDFLanguages.NQUADS) ;
         mapContentTypeToLang.put(contentTypeNQuadsAlt1,     RDFLanguages.NQUADS) ;
@@ -150,6 +154,7 @@ public class WebContent
         mapLangToContentType.put(RDFLanguages.NTRIPLES,     contentTypeNTriples) ;
         mapLangToContentType.put(RDFLanguages.RDFXML,       contentTypeRDFXML) ;
         mapLangToContentType.put(RDFLanguages.RDFJSON,		contentTypeRdfJson) ;
+        mapLangToContentType.put(RDFLanguages.RDFBINARY,    contentTypeRDFBinary) ;
         
         mapLangToContentType.put(RDFLanguages.NQUADS,       contentTypeNQuads) ;
         mapLangToContentType.put(RDFLanguages.TRIG,         contentTypeTriG) ;
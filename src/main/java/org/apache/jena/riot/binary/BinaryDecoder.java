@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.binary;
+
+import static org.apache.jena.riot.binary.BinaryRDF.* ;
+
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.util.Arrays ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.lang.LabelToNode ;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype ;
+import com.hp.hpl.jena.datatypes.TypeMapper ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.sparql.core.Var ;
+
+/** Reading the binary encoding: bytes, numbers, strings and RDF terms.
+ *  Input is buffered; the decoder may read ahead of the last item returned.
+ *  Not thread safe.
+ *  @see BinaryRDF
+ */
+public class BinaryDecoder
+{
+    private static final int BufferSize = 64*1024 ;
+
+    private final InputStream in ;
+    private final LabelToNode labels ;
+    private final byte[] buffer = new byte[BufferSize] ;
+    private int idx = 0 ;
+    private int len = 0 ;
+    private long position = 0 ;
+
+    private final Node[] termSlots = new Node[TermDictionarySize] ;
+    private int nextTerm = 0 ;
+    private final String[] nsSlots = new String[NamespaceDictionarySize] ;
+    private int nextNs = 0 ;
+
+    private char[] chars = new char[128] ;
+
+    public BinaryDecoder(InputStream in, LabelToNode labels)
+    {
+        this.in = in ;
+        this.labels = labels ;
+    }
+
+    /** Read and check the start of an RDF stream */
+    public void readHeaderRDF()         { readHeader(MagicRDF, "RDF") ; }
+
+    /** Read and check the start of a result set */
+    public void readHeaderResults()     { readHeader(MagicResults, "result set") ; }
+
+    private void readHeader(byte[] magic, String what)
+    {
+        for ( byte b : magic )
+        {
+            if ( readByte() != b )
+                throw new RiotException("Not binary "+what) ;
+        }
+        int v = readByte() ;
+        if ( v != Version )
+            throw new RiotException("Unsupported binary "+what+" version: "+v) ;
+    }
+
+    /** Bytes read so far */
+    public long getPosition()   { return position ; }
+
+    /** Next byte, or -1 at the end of the input */
+    public int readByte()
+    {
+        if ( idx == len && ! fill() )
+            return -1 ;
+        position++ ;
+        return buffer[idx++] & 0xFF ;
+    }
+
+    private int readByteNotEOF()
+    {
+        int b = readByte() ;
+        if ( b < 0 )
+            throw exception("Unexpected end of input") ;
+        return b ;
+    }
+
+    private boolean fill()
+    {
+        try {
+            int x = in.read(buffer) ;
+            if ( x <= 0 )
+                return false ;
+            idx = 0 ;
+            len = x ;
+            return true ;
+        } catch (IOException ex) { IO.exception(ex) ; return false ; }
+    }
+
+    /** Read an unsigned number */
+    public long readNumber()
+    {
+        long x = 0 ;
+        for ( int shift = 0 ; shift < 64 ; shift += 7 )
+        {
+            int b = readByteNotEOF() ;
+            x |= (long)(b & 0x7F) << shift ;
+            if ( (b & 0x80) == 0 )
+                return x ;
+        }
+        throw exception("Bad number") ;
+    }
+
+    /** Read an unsigned number that must fit in an int */
+    public int readInt()
+    {
+        long x = readNumber() ;
+        if ( x > Integer.MAX_VALUE )
+            throw exception("Number too large: "+x) ;
+        return (int)x ;
+    }
+
+    /** Read a length-prefixed UTF-8 string */
+    public String readString()
+    {
+        int n = readInt() ;
+        int c = 0 ;
+        int i = 0 ;
+        while ( i < n )
+        {
+            // Grow as bytes are read, not by the length given in the input.
+            if ( c+2 > chars.length )
+                chars = Arrays.copyOf(chars, 2*chars.length) ;
+            int b = readByteNotEOF() ;
+            i++ ;
+            if ( b < 0x80 )
+            {
+                chars[c++] = (char)b ;
+                continue ;
+            }
+            int extra ;
+            int cp ;
+            if ( (b & 0xE0) == 0xC0 )       { extra = 1 ; cp = b & 0x1F ; }
+            else if ( (b & 0xF0) == 0xE0 )  { extra = 2 ; cp = b & 0x0F ; }
+            else if ( (b & 0xF8) == 0xF0 )  { extra = 3 ; cp = b & 0x07 ; }
+            else
+                throw exception("Bad UTF-8 start byte: 0x"+Integer.toHexString(b)) ;
+            if ( i+extra > n )
+                throw exception("Truncated UTF-8 sequence") ;
+            for ( int j = 0 ; j < extra ; j++ )
+            {
+                int b2 = readByteNotEOF() ;
+                if ( (b2 & 0xC0) != 0x80 )
+                    throw exception("Bad UTF-8 continuation byte: 0x"+Integer.toHexString(b2)) ;
+                cp = (cp << 6) | (b2 & 0x3F) ;
+            }
+            i += extra ;
+            if ( ! Character.isValidCodePoint(cp) )
+                throw exception("Bad code point: 0x"+Integer.toHexString(cp)) ;
+            c += Character.toChars(cp, chars, c) ;
+        }
+        return new String(chars, 0, c) ;
+    }
+
+    /** Read an RDF term; "undefined" is returned as null. */
+    public Node readNode()
+    {
+        int tag = readByteNotEOF() ;
+        boolean store = ( (tag & TermNoStore) == 0 ) ;
+        Node node ;
+        switch (tag & ~TermNoStore)
+        {
+            case TermRef:
+            {
+                int slot = readInt() ;
+                if ( slot >= termSlots.length || termSlots[slot] == null )
+                    throw exception("Bad term reference: "+slot) ;
+                return termSlots[slot] ;
+            }
+            case TermUndef:     return null ;
+            case TermAny:       return Node.ANY ;
+            case TermVar:       return Var.alloc(readString()) ;
+            case TermIRI:
+                node = Node.createURI(readIRI()) ;
+                break ;
+            case TermBNode:
+                node = labels.get(null, readString()) ;
+                break ;
+            case TermString:
+                node = Node.createLiteral(readString()) ;
+                break ;
+            case TermLang:
+            {
+                String lex = readString() ;
+                String lang = readString() ;
+                node = Node.createLiteral(lex, lang, null) ;
+                break ;
+            }
+            case TermTyped:
+            {
+                String lex = readString() ;
+                Node dt = readNode() ;
+                if ( dt == null || ! dt.isURI() )
+                    throw exception("Bad datatype: "+dt) ;
+                RDFDatatype datatype = TypeMapper.getInstance().getSafeTypeByName(dt.getURI()) ;
+                node = Node.createLiteral(lex, null, datatype) ;
+                break ;
+            }
+            default:
+                throw exception("Bad term tag: 0x"+Integer.toHexString(tag)) ;
+        }
+        if ( store )
+        {
+            termSlots[nextTerm] = node ;
+            nextTerm = (nextTerm+1) % termSlots.length ;
+        }
+        return node ;
+    }
+
+    private String readIRI()
+    {
+        int n = readInt() ;
+        String ns ;
+        if ( n == 0 )
+        {
+            ns = readString() ;
+            nsSlots[nextNs] = ns ;
+            nextNs = (nextNs+1) % nsSlots.length ;
+        }
+        else
+        {
+            if ( n > nsSlots.length || nsSlots[n-1] == null )
+                throw exception("Bad namespace reference: "+(n-1)) ;
+            ns = nsSlots[n-1] ;
+        }
+        return ns.concat(readString()) ;
+    }
+
+    /** An exception reporting the position in the input */
+    public RiotException exception(String msg)
+    {
+        return new RiotException(msg+" [byte "+position+"]") ;
+    }
+}
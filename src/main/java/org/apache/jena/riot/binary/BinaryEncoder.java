@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.binary;
+
+import static org.apache.jena.riot.binary.BinaryRDF.* ;
+
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.riot.RiotException ;
+
+import com.hp.hpl.jena.graph.Node ;
+
+/** Writing the binary encoding: bytes, numbers, strings and RDF terms.
+ *  Output is buffered; call {@link #flush()} when done.
+ *  Not thread safe.
+ *  @see BinaryRDF
+ */
+public class BinaryEncoder
+{
+    private static final int BufferSize = 64*1024 ;
+
+    private final OutputStream out ;
+    private final byte[] buffer = new byte[BufferSize] ;
+    private int len = 0 ;
+
+    private final Map<Node, Integer> terms = new HashMap<Node, Integer>() ;
+    private final Node[] termSlots = new Node[TermDictionarySize] ;
+    private int nextTerm = 0 ;
+
+    private final Map<String, Integer> namespaces = new HashMap<String, Integer>() ;
+    private final String[] nsSlots = new String[NamespaceDictionarySize] ;
+    private int nextNs = 0 ;
+
+    public BinaryEncoder(OutputStream out)
+    {
+        this.out = out ;
+    }
+
+    /** Start of an RDF stream */
+    public void writeHeaderRDF()        { writeHeader(MagicRDF) ; }
+
+    /** Start of a result set */
+    public void writeHeaderResults()    { writeHeader(MagicResults) ; }
+
+    private void writeHeader(byte[] magic)
+    {
+        for ( byte b : magic )
+            writeByte(b) ;
+        writeByte(Version) ;
+    }
+
+    public void writeByte(int b)
+    {
+        if ( len == buffer.length )
+            flushBuffer() ;
+        buffer[len++] = (byte)b ;
+    }
+
+    /** Write an unsigned number (7 bits a byte, low bits first) */
+    public void writeNumber(long x)
+    {
+        if ( x < 0 )
+            throw new IllegalArgumentException("Negative: "+x) ;
+        while ( x >= 0x80 )
+        {
+            writeByte((int)(x & 0x7F) | 0x80) ;
+            x >>>= 7 ;
+        }
+        writeByte((int)x) ;
+    }
+
+    /** Write a string as its length in bytes then the UTF-8 bytes */
+    public void writeString(String s)
+    {
+        int n = s.length() ;
+        long bytes = 0 ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            char ch = s.charAt(i) ;
+            if ( ch < 0x80 )
+                bytes++ ;
+            else if ( ch < 0x800 )
+                bytes += 2 ;
+            else if ( Character.isHighSurrogate(ch) && i+1 < n && Character.isLowSurrogate(s.charAt(i+1)) )
+            {
+                bytes += 4 ;
+                i++ ;
+            }
+            else
+                bytes += 3 ;
+        }
+        writeNumber(bytes) ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            char ch = s.charAt(i) ;
+            if ( ch < 0x80 )
+            {
+                if ( len == buffer.length )
+                    flushBuffer() ;
+                buffer[len++] = (byte)ch ;
+            }
+            else if ( ch < 0x800 )
+            {
+                writeByte(0xC0 | (ch >> 6)) ;
+                writeByte(0x80 | (ch & 0x3F)) ;
+            }
+            else if ( Character.isHighSurrogate(ch) && i+1 < n && Character.isLowSurrogate(s.charAt(i+1)) )
+            {
+                int cp = Character.toCodePoint(ch, s.charAt(++i)) ;
+                writeByte(0xF0 | (cp >> 18)) ;
+                writeByte(0x80 | ((cp >> 12) & 0x3F)) ;
+                writeByte(0x80 | ((cp >> 6) & 0x3F)) ;
+                writeByte(0x80 | (cp & 0x3F)) ;
+            }
+            else
+            {
+                writeByte(0xE0 | (ch >> 12)) ;
+                writeByte(0x80 | ((ch >> 6) & 0x3F)) ;
+                writeByte(0x80 | (ch & 0x3F)) ;
+            }
+        }
+    }
+
+    /** Write an RDF term; null is written as "undefined". */
+    public void writeNode(Node node)
+    {
+        if ( node == null )
+        {
+            writeByte(TermUndef) ;
+            return ;
+        }
+        if ( node == Node.ANY )
+        {
+            writeByte(TermAny) ;
+            return ;
+        }
+        if ( node.isVariable() )
+        {
+            writeByte(TermVar) ;
+            writeString(node.getName()) ;
+            return ;
+        }
+
+        Integer slot = terms.get(node) ;
+        if ( slot != null )
+        {
+            writeByte(TermRef) ;
+            writeNumber(slot) ;
+            return ;
+        }
+
+        boolean store = true ;
+        if ( node.isURI() )
+        {
+            writeByte(TermIRI) ;
+            writeIRI(node.getURI()) ;
+        }
+        else if ( node.isBlank() )
+        {
+            writeByte(TermBNode) ;
+            writeString(node.getBlankNodeLabel()) ;
+        }
+        else if ( node.isLiteral() )
+        {
+            String lex = node.getLiteralLexicalForm() ;
+            String lang = node.getLiteralLanguage() ;
+            String dt = node.getLiteralDatatypeURI() ;
+            store = ( lex.length() <= MaxStoredLexicalLength ) ;
+            int flag = store ? 0 : TermNoStore ;
+            if ( lang != null && ! lang.equals("") )
+            {
+                writeByte(TermLang | flag) ;
+                writeString(lex) ;
+                writeString(lang) ;
+            }
+            else if ( dt != null )
+            {
+                writeByte(TermTyped | flag) ;
+                writeString(lex) ;
+                writeNode(Node.createURI(dt)) ;
+            }
+            else
+            {
+                writeByte(TermString | flag) ;
+                writeString(lex) ;
+            }
+        }
+        else
+            throw new RiotException("Can't encode node: "+node) ;
+
+        if ( store )
+            define(node) ;
+    }
+
+    // Same order as the reader: after any datatype.
+    private void define(Node node)
+    {
+        Node old = termSlots[nextTerm] ;
+        if ( old != null )
+            terms.remove(old) ;
+        termSlots[nextTerm] = node ;
+        terms.put(node, nextTerm) ;
+        nextTerm = (nextTerm+1) % termSlots.length ;
+    }
+
+    private void writeIRI(String iri)
+    {
+        int idx = Math.max(iri.lastIndexOf('#'), iri.lastIndexOf('/')) ;
+        if ( idx < 0 )
+            idx = iri.lastIndexOf(':') ;
+        String ns = iri.substring(0, idx+1) ;
+        String local = iri.substring(idx+1) ;
+        Integer slot = namespaces.get(ns) ;
+        if ( slot != null )
+            writeNumber(slot+1) ;
+        else
+        {
+            writeNumber(0) ;
+            writeString(ns) ;
+            String old = nsSlots[nextNs] ;
+            if ( old != null )
+                namespaces.remove(old) ;
+            nsSlots[nextNs] = ns ;
+            namespaces.put(ns, nextNs) ;
+            nextNs = (nextNs+1) % nsSlots.length ;
+        }
+        writeString(local) ;
+    }
+
+    /** Write out any buffered bytes and flush the output stream */
+    public void flush()
+    {
+        flushBuffer() ;
+        IO.flush(out) ;
+    }
+
+    private void flushBuffer()
+    {
+        if ( len == 0 )
+            return ;
+        try { out.write(buffer, 0, len) ; }
+        catch (IOException ex) { IO.exception(ex) ; }
+        len = 0 ;
+    }
+}
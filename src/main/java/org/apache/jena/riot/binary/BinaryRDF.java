@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.binary;
+
+import java.io.InputStream ;
+import java.io.OutputStream ;
+
+import org.apache.jena.riot.system.StreamRDF ;
+
+/** A compact binary encoding of RDF and of SPARQL result sets, for use
+ *  between systems that both understand it.  Nothing is escaped or
+ *  tokenized: terms are written as tagged, length-prefixed UTF-8 strings, and
+ *  terms and IRI namespaces that have been seen recently are written as
+ *  references into a dictionary that the reader rebuilds as it goes.
+ * <pre>
+ *  rdf     ::= "RDFB" version record*
+ *  results ::= "SRSB" version ( ASK byte | VARS n string* ( ROW term* )* )
+ *  record  ::= TRIPLE term term term
+ *            | QUAD term term term term        # graph, subject, predicate, object
+ *            | PREFIX string string
+ *            | BASE string
+ *            | TUPLE n term*
+ *  term    ::= REF n                           # dictionary slot
+ *            | IRI namespace string            # local part
+ *            | BNODE string
+ *            | STRING string
+ *            | LANG string string
+ *            | TYPED string term               # datatype IRI
+ *            | VAR string | ANY | UNDEF
+ *  namespace ::= 0 string                      # new namespace
+ *              | n                             # namespace slot n-1
+ *  string  ::= n byte*                         # length, UTF-8
+ * </pre>
+ *  Numbers (n) are unsigned variable length integers, 7 bits a byte, low
+ *  bits first.  IRIs, blank nodes and literals are added to the term
+ *  dictionary ({@link #TermDictionarySize} slots, reused round-robin) when they
+ *  are first written unless the tag has the {@link #TermNoStore} bit set.
+ *  Namespaces have their own dictionary of {@link #NamespaceDictionarySize}
+ *  slots.  The stream ends at the end of the input.
+ */
+public class BinaryRDF
+{
+    public static final int Version                 = 1 ;
+    static final byte[] MagicRDF                    = { 'R', 'D', 'F', 'B' } ;
+    static final byte[] MagicResults                = { 'S', 'R', 'S', 'B' } ;
+
+    public static final int TermDictionarySize      = 16*1024 ;
+    public static final int NamespaceDictionarySize = 1024 ;
+    /** Literals with lexical forms longer than this are not put in the dictionary */
+    public static final int MaxStoredLexicalLength  = 1000 ;
+
+    // Records
+    public static final int RecTriple               = 'T' ;
+    public static final int RecQuad                 = 'Q' ;
+    public static final int RecPrefix               = 'P' ;
+    public static final int RecBase                 = 'B' ;
+    public static final int RecTuple                = 'U' ;
+    public static final int RecAsk                  = 'A' ;
+    public static final int RecVars                 = 'V' ;
+    public static final int RecRow                  = 'R' ;
+
+    // Terms
+    static final int TermRef                        = 1 ;
+    static final int TermIRI                        = 2 ;
+    static final int TermBNode                      = 3 ;
+    static final int TermString                     = 4 ;
+    static final int TermLang                       = 5 ;
+    static final int TermTyped                      = 6 ;
+    static final int TermVar                        = 7 ;
+    static final int TermAny                        = 8 ;
+    static final int TermUndef                      = 9 ;
+    /** Flag on a term tag: do not add the term to the dictionary */
+    static final int TermNoStore                    = 0x80 ;
+
+    /** A StreamRDF that writes the binary encoding to the output stream.
+     *  {@code finish()} flushes but does not close the output stream.
+     */
+    public static StreamRDF writer(OutputStream out)
+    {
+        return new StreamRDFBinaryWriter(out) ;
+    }
+
+    /** Read the binary encoding and send the triples, quads and prefixes to the StreamRDF */
+    public static void parse(InputStream in, StreamRDF dest)
+    {
+        new LangRDFBinary(in, dest).parse() ;
+    }
+}
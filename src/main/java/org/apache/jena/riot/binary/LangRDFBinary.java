@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.binary;
+
+import static org.apache.jena.riot.binary.BinaryRDF.* ;
+
+import java.io.InputStream ;
+
+import org.apache.jena.atlas.lib.Tuple ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.lang.LangRIOT ;
+import org.apache.jena.riot.system.ParserProfile ;
+import org.apache.jena.riot.system.RiotLib ;
+import org.apache.jena.riot.system.StreamRDF ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+
+/** Parser for the binary RDF encoding.
+ *  Terms are decoded directly; only the blank node label policy
+ *  of the parser profile is used.
+ *  @see BinaryRDF
+ */
+public class LangRDFBinary implements LangRIOT
+{
+    private final InputStream input ;
+    private final StreamRDF dest ;
+    private ParserProfile profile ;
+
+    public LangRDFBinary(InputStream input, StreamRDF dest)
+    {
+        this(input, RiotLib.profile(RDFLanguages.RDFBINARY, null), dest) ;
+    }
+
+    public LangRDFBinary(InputStream input, ParserProfile profile, StreamRDF dest)
+    {
+        this.input = input ;
+        this.profile = profile ;
+        this.dest = dest ;
+    }
+
+    @Override
+    public ParserProfile getProfile()                   { return profile ; }
+
+    @Override
+    public void setProfile(ParserProfile profile)       { this.profile = profile ; }
+
+    @Override
+    public Lang getLang()                               { return RDFLanguages.RDFBINARY ; }
+
+    @Override
+    public void parse()
+    {
+        BinaryDecoder decoder = new BinaryDecoder(input, profile.getLabelToNode()) ;
+        dest.start() ;
+        try {
+            decoder.readHeaderRDF() ;
+            for(;;)
+            {
+                int rec = decoder.readByte() ;
+                if ( rec < 0 )
+                    break ;
+                switch (rec)
+                {
+                    case RecTriple:
+                    {
+                        Node s = readTerm(decoder) ;
+                        Node p = readTerm(decoder) ;
+                        Node o = readTerm(decoder) ;
+                        dest.triple(new Triple(s, p, o)) ;
+                        break ;
+                    }
+                    case RecQuad:
+                    {
+                        Node g = readTerm(decoder) ;
+                        Node s = readTerm(decoder) ;
+                        Node p = readTerm(decoder) ;
+                        Node o = readTerm(decoder) ;
+                        dest.quad(new Quad(g, s, p, o)) ;
+                        break ;
+                    }
+                    case RecTuple:
+                    {
+                        int n = decoder.readInt() ;
+                        Node[] nodes = new Node[n] ;
+                        for ( int i = 0 ; i < n ; i++ )
+                            nodes[i] = decoder.readNode() ;
+                        dest.tuple(Tuple.create(nodes)) ;
+                        break ;
+                    }
+                    case RecPrefix:
+                    {
+                        String prefix = decoder.readString() ;
+                        String iri = decoder.readString() ;
+                        dest.prefix(prefix, iri) ;
+                        break ;
+                    }
+                    case RecBase:
+                        dest.base(decoder.readString()) ;
+                        break ;
+                    default:
+                        throw decoder.exception("Bad record tag: 0x"+Integer.toHexString(rec)) ;
+                }
+            }
+        } finally { dest.finish() ; }
+    }
+    
+    /** Read a node of a triple or quad: must be defined (tuples may have undefined slots) */
+    private static Node readTerm(BinaryDecoder decoder)
+    {
+        Node n = decoder.readNode() ;
+        if ( n == null )
+            throw decoder.exception("Undefined term in a triple or quad") ;
+        return n ;
+    }
+}
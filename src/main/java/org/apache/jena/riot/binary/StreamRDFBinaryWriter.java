@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.binary;
+
+import static org.apache.jena.riot.binary.BinaryRDF.* ;
+
+import java.io.OutputStream ;
+
+import org.apache.jena.atlas.lib.Tuple ;
+import org.apache.jena.riot.system.StreamRDF ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+
+/** Write the binary RDF encoding as the stream is received.
+ *  Quads in the default graph are written as triples.
+ *  {@code finish()} flushes the output stream but does not close it.
+ *  @see BinaryRDF
+ */
+public class StreamRDFBinaryWriter implements StreamRDF
+{
+    private final BinaryEncoder encoder ;
+
+    public StreamRDFBinaryWriter(OutputStream out)
+    {
+        encoder = new BinaryEncoder(out) ;
+        encoder.writeHeaderRDF() ;
+    }
+
+    @Override
+    public void start()
+    {}
+
+    @Override
+    public void triple(Triple triple)
+    {
+        encoder.writeByte(RecTriple) ;
+        encoder.writeNode(triple.getSubject()) ;
+        encoder.writeNode(triple.getPredicate()) ;
+        encoder.writeNode(triple.getObject()) ;
+    }
+
+    @Override
+    public void quad(Quad quad)
+    {
+        if ( quad.isTriple() || quad.isDefaultGraph() )
+        {
+            triple(quad.asTriple()) ;
+            return ;
+        }
+        encoder.writeByte(RecQuad) ;
+        encoder.writeNode(quad.getGraph()) ;
+        encoder.writeNode(quad.getSubject()) ;
+        encoder.writeNode(quad.getPredicate()) ;
+        encoder.writeNode(quad.getObject()) ;
+    }
+
+    @Override
+    public void tuple(Tuple<Node> tuple)
+    {
+        encoder.writeByte(RecTuple) ;
+        encoder.writeNumber(tuple.size()) ;
+        for ( Node n : tuple )
+            encoder.writeNode(n) ;
+    }
+
+    @Override
+    public void base(String base)
+    {
+        encoder.writeByte(RecBase) ;
+        encoder.writeString(base) ;
+    }
+
+    @Override
+    public void prefix(String prefix, String iri)
+    {
+        encoder.writeByte(RecPrefix) ;
+        encoder.writeString(prefix) ;
+        encoder.writeString(iri) ;
+    }
+
+    @Override
+    public void finish()
+    {
+        encoder.flush() ;
+    }
+}
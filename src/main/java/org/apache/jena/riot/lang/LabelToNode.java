@@ -68,6 +68,35 @@ public class LabelToNode extends MapWithScope<String, Node, Node>
         super(scopePolicy, allocator) ;
     }
 
+    /** A LabelToNode that passes calls to another one, one thread at a time,
+     *  so that it can be shared by parsers running in parallel. */
+    public static LabelToNode createSynchronized(LabelToNode other)
+    {
+        if ( other instanceof SyncLabelToNode )
+            return other ;
+        return new SyncLabelToNode(other) ;
+    }
+
+    private static class SyncLabelToNode extends LabelToNode
+    {
+        private final LabelToNode other ;
+
+        SyncLabelToNode(LabelToNode other)
+        {
+            super(null, null) ;
+            this.other = other ;
+        }
+
+        @Override
+        public synchronized Node get(Node scope, String label) { return other.get(scope, label) ; }
+
+        @Override
+        public synchronized Node create()   { return other.create() ; }
+
+        @Override
+        public synchronized void clear()    { other.clear() ; }
+    }
+
     // ======== Scope Policies
     
     /** Single scope */
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.ByteArrayInputStream ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.LinkedList ;
+import java.util.List ;
+import java.util.concurrent.BlockingQueue ;
+import java.util.concurrent.Callable ;
+import java.util.concurrent.CompletionService ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ExecutorCompletionService ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.LinkedBlockingQueue ;
+import java.util.concurrent.ThreadFactory ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.system.ParserProfile ;
+import org.apache.jena.riot.system.RiotLib ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.apache.jena.riot.tokens.Tokenizer ;
+import org.apache.jena.riot.tokens.TokenizerFactory ;
+
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
+
+/** Parse N-Triples or N-Quads on several threads.
+ *  <p>
+ *  The input is split into chunks at newlines; each chunk is tokenized and
+ *  parsed by a worker thread and the triples or quads of the chunks are sent
+ *  to the StreamRDF from the calling thread, either in the order of the input
+ *  or in the order the chunks finish.  The workers share the blank node label
+ *  mapping of the parser profile, so a label means the same blank node
+ *  throughout the input.  Line numbers in error messages are for the whole
+ *  input.
+ *  <p>
+ *  This relies on each tuple being on one line, as in the N-Triples and
+ *  N-Quads specifications.
+ */
+public class LangNTupleParallel implements LangRIOT
+{
+    public static final int DefaultChunkSize = 1024*1024 ;
+
+    private final InputStream input ;
+    private final Lang lang ;
+    private final StreamRDF dest ;
+    private final int threads ;
+    private final boolean ordered ;
+    private ParserProfile profile ;
+    private int chunkSize = DefaultChunkSize ;
+    // Finished chunks, in the order they finish (unordered mode only).
+    private final BlockingQueue<Future<Chunk>> completed = new LinkedBlockingQueue<Future<Chunk>>() ;
+
+    // Reading state.
+    private byte[] leftover = new byte[0] ;
+    private boolean eof = false ;
+
+    /** Can this language be parsed in parallel? */
+    public static boolean isParallelLang(Lang lang)
+    {
+        return RDFLanguages.sameLang(RDFLanguages.NTRIPLES, lang) || RDFLanguages.sameLang(RDFLanguages.NQUADS, lang) ;
+    }
+
+    /** The number of parser threads set in a context (0 if not set) */
+    public static int threads(Context context, Symbol symbol)
+    {
+        if ( context == null )
+            return 0 ;
+        Object x = context.get(symbol) ;
+        if ( x == null )
+            return 0 ;
+        if ( x instanceof Number )
+            return ((Number)x).intValue() ;
+        try { return Integer.parseInt(x.toString().trim()) ; }
+        catch (NumberFormatException ex) { throw new RiotException("Bad value for "+symbol+": "+x) ; }
+    }
+
+    public LangNTupleParallel(InputStream input, Lang lang, String baseIRI, StreamRDF dest, int threads, boolean ordered)
+    {
+        if ( ! isParallelLang(lang) )
+            throw new RiotException("Not a line-based language: "+lang) ;
+        this.input = input ;
+        this.lang = lang ;
+        this.dest = dest ;
+        this.threads = Math.max(1, threads) ;
+        this.ordered = ordered ;
+        setProfile(RiotLib.profile(lang, baseIRI)) ;
+    }
+
+    @Override
+    public ParserProfile getProfile()           { return profile ; }
+
+    @Override
+    public void setProfile(ParserProfile profile)
+    {
+        profile.setLabelToNode(LabelToNode.createSynchronized(profile.getLabelToNode())) ;
+        this.profile = profile ;
+    }
+
+    @Override
+    public Lang getLang()                       { return lang ; }
+
+    /** Set the size, in bytes, of the chunks given to the worker threads (a chunk
+     *  is always at least one line). */
+    public void setChunkSize(int chunkSize)     { this.chunkSize = Math.max(1, chunkSize) ; }
+
+    @Override
+    public void parse()
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, threadFactory) ;
+        // In order: a FIFO of the futures.  Any order: take chunks as they
+        // finish.  Only use the completion service when it is read from,
+        // otherwise its queue keeps every parsed chunk until the end.
+        CompletionService<Chunk> completion = ordered ? null : new ExecutorCompletionService<Chunk>(pool, completed) ;
+        LinkedList<Future<Chunk>> pending = new LinkedList<Future<Chunk>>() ;
+        dest.base(profile.getPrologue().getBaseURI()) ;
+        dest.start() ;
+        try {
+            long line = 1 ;
+            int inFlight = 0 ;
+            byte[] bytes ;
+            while ( ( bytes = nextChunk() ) != null )
+            {
+                ParseTask task = new ParseTask(bytes, line) ;
+                line += countNewlines(bytes) ;
+                if ( ordered )
+                    pending.add(pool.submit(task)) ;
+                else
+                    completion.submit(task) ;
+                inFlight++ ;
+                // Bound the amount of parsed but undelivered data.
+                if ( inFlight >= 2*threads )
+                {
+                    deliver(ordered ? pending.removeFirst() : take(completion)) ;
+                    inFlight-- ;
+                }
+            }
+            for ( ; inFlight > 0 ; inFlight-- )
+                deliver(ordered ? pending.removeFirst() : take(completion)) ;
+        } finally {
+            pool.shutdownNow() ;
+            dest.finish() ;
+            IO.close(input) ;
+        }
+    }
+
+    /** The number of finished chunks held for delivery by the completion service */
+    int completedQueueSize()                    { return completed.size() ; }
+
+    private void deliver(Future<Chunk> future)
+    {
+        Chunk chunk ;
+        try { chunk = future.get() ; }
+        catch (InterruptedException ex) { throw new RiotException(ex) ; }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            if ( cause instanceof Error )
+                throw (Error)cause ;
+            throw new RiotException(cause) ;
+        }
+        for ( Triple t : chunk.triples )
+            dest.triple(t) ;
+        for ( Quad q : chunk.quads )
+            dest.quad(q) ;
+    }
+
+    private static Future<Chunk> take(CompletionService<Chunk> completion)
+    {
+        try { return completion.take() ; }
+        catch (InterruptedException ex) { throw new RiotException(ex) ; }
+    }
+
+    /** The next chunk of whole lines, or null at the end of the input */
+    private byte[] nextChunk()
+    {
+        if ( eof )
+            return null ;
+        byte[] buffer = Arrays.copyOf(leftover, Math.max(chunkSize, 2*leftover.length)) ;
+        int len = leftover.length ;
+        try {
+            for ( ;; )
+            {
+                int n = ( len < buffer.length ) ? input.read(buffer, len, buffer.length-len) : 0 ;
+                if ( n < 0 )
+                {
+                    eof = true ;
+                    leftover = null ;
+                    return ( len == 0 ) ? null : Arrays.copyOf(buffer, len) ;
+                }
+                len += n ;
+                if ( len < buffer.length )
+                    continue ;
+                int idx = lastNewline(buffer, len) ;
+                if ( idx < 0 )
+                {
+                    // A line longer than the buffer.
+                    buffer = Arrays.copyOf(buffer, 2*buffer.length) ;
+                    continue ;
+                }
+                leftover = Arrays.copyOfRange(buffer, idx+1, len) ;
+                return Arrays.copyOf(buffer, idx+1) ;
+            }
+        } catch (IOException ex) { IO.exception(ex) ; return null ; }
+    }
+
+    // In UTF-8, the byte for '\n' only occurs as a newline.
+    private static int lastNewline(byte[] bytes, int len)
+    {
+        for ( int i = len-1 ; i >= 0 ; i-- )
+            if ( bytes[i] == '\n' )
+                return i ;
+        return -1 ;
+    }
+
+    private static long countNewlines(byte[] bytes)
+    {
+        long n = 0 ;
+        for ( byte b : bytes )
+            if ( b == '\n' )
+                n++ ;
+        return n ;
+    }
+
+    private class ParseTask implements Callable<Chunk>
+    {
+        private final byte[] bytes ;
+        private final long line ;
+
+        ParseTask(byte[] bytes, long line)
+        {
+            this.bytes = bytes ;
+            this.line = line ;
+        }
+
+        @Override
+        public Chunk call()
+        {
+            Tokenizer tokenizer = TokenizerFactory.makeTokenizerUTF8(new ByteArrayInputStream(bytes), line) ;
+            ParserProfile chunkProfile = RiotLib.profile(lang, profile.getPrologue().getBaseURI(), profile.getHandler()) ;
+            chunkProfile.setLabelToNode(profile.getLabelToNode()) ;
+            chunkProfile.setStrictMode(profile.isStrictMode()) ;
+            Chunk chunk = new Chunk() ;
+            LangNTuple<?> parser = RDFLanguages.sameLang(RDFLanguages.NQUADS, lang)
+                ? new LangNQuads(tokenizer, chunkProfile, chunk)
+                : new LangNTriples(tokenizer, chunkProfile, chunk) ;
+            parser.parse() ;
+            return chunk ;
+        }
+    }
+
+    /** The output of parsing one chunk */
+    private static class Chunk extends StreamRDFBase
+    {
+        final List<Triple> triples = new ArrayList<Triple>() ;
+        final List<Quad> quads = new ArrayList<Quad>() ;
+
+        @Override
+        public void triple(Triple triple)   { triples.add(triple) ; }
+
+        @Override
+        public void quad(Quad quad)         { quads.add(quad) ; }
+    }
+
+    private static ThreadFactory threadFactory = new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread t = new Thread(r, "RIOT parser") ;
+            t.setDaemon(true) ;
+            return t ;
+        }
+    } ;
+}
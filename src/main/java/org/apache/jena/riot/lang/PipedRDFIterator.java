@@ -18,6 +18,7 @@
 
 package org.apache.jena.riot.lang ;
 
+import java.util.Arrays ;
 import java.util.Iterator ;
 import java.util.NoSuchElementException ;
 import java.util.concurrent.ArrayBlockingQueue ;
@@ -39,6 +40,11 @@ import org.apache.jena.riot.system.PrefixMapFactory;
  * The {@code PipedRDFIterator} contains a buffer, decoupling read operations from write operations,
  * within limits.
  * <p/>
+ * A piped iterator created with a batch size greater than one hands items over in arrays
+ * of that many items, so the cost of the hand-over between threads is paid once per batch,
+ * not once per item.  Items become visible to the reader when a batch is full or when the
+ * writer finishes.
+ * <p/>
  * Inspired by Java's {@link java.io.PipedInputStream} and {@link java.io.PipedOutputStream}
  * 
  * @param <T> The type of the RDF primitive, should be one of {@code Triple}, {@code Quad}, or {@code Tuple<Node>}
@@ -53,14 +59,20 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
      * Constant for default buffer size
      */
     public static final int DEFAULT_BUFFER_SIZE = 10000 ;
+
+    /**
+     * Constant for default batch size for a batching iterator
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1000 ;
     
     private static final int ITERATOR_POLL_TIMEOUT = 1000 ; // one second
     private static final TimeUnit ITERATOR_POLL_TIMEUNIT = TimeUnit.MILLISECONDS ;
 
-    private final BlockingQueue<T> queue ;
+    // Items of type T, or if batching, arrays of items.
+    private final BlockingQueue<Object> queue ;
+    private final int batchSize ;
 
-    @SuppressWarnings("unchecked")
-    private final T endMarker = (T) new Object() ;
+    private final Object endMarker = new Object() ;
 
     private volatile boolean closedByReader = false ;
     private volatile boolean closedByWriter = false ;
@@ -71,6 +83,12 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
     private boolean connected = false ;
 
     private T slot ;
+    // Reader side batch.
+    private Object[] readBatch = null ;
+    private int readIdx = 0 ;
+    // Writer side batch.
+    private Object[] writeBatch = null ;
+    private int writeIdx = 0 ;
 
     private final Object lock = new Object() ; // protects baseIri and prefixes
     private String baseIri ;
@@ -109,7 +127,7 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
      */
     public PipedRDFIterator(int bufferSize)
     {
-        this.queue = new ArrayBlockingQueue<T>(bufferSize) ;
+        this(bufferSize, false) ;
     }
 
     /**
@@ -135,7 +153,39 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
      */
     public PipedRDFIterator(int bufferSize, boolean fair)
     {
-        this.queue = new ArrayBlockingQueue<T>(bufferSize, fair) ;
+        this(bufferSize, fair, 1) ;
+    }
+
+    /**
+     * Creates a new piped RDF iterator that hands over items in batches.
+     * <p>
+     * The buffer holds {@code bufferSize/batchSize} batches (at least one), so
+     * the number of items buffered is roughly the same as for a non-batching
+     * iterator with the same buffer size.
+     * </p>
+     * 
+     * @param bufferSize
+     *            Buffer size, in items
+     * @param fair
+     *            Whether the buffer should use a fair locking policy
+     * @param batchSize
+     *            Number of items handed over at a time; 1 for no batching
+     */
+    public PipedRDFIterator(int bufferSize, boolean fair, int batchSize)
+    {
+        if ( bufferSize < 1 )
+            throw new IllegalArgumentException("Buffer size must be at least 1: "+bufferSize) ;
+        if ( batchSize < 1 )
+            throw new IllegalArgumentException("Batch size must be at least 1: "+batchSize) ;
+        this.batchSize = batchSize ;
+        int capacity = ( batchSize == 1 ) ? bufferSize : Math.max(1, bufferSize/batchSize) ;
+        this.queue = new ArrayBlockingQueue<Object>(capacity, fair) ;
+    }
+
+    /** Number of items handed over at a time */
+    public int getBatchSize()
+    {
+        return batchSize ;
     }
 
     @Override
@@ -154,18 +204,24 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
         
         if (slot != null)
             return true ;
+        if (readBatch != null)
+        {
+            slot = nextFromBatch() ;
+            return true ;
+        }
+        Object item ;
         while (true)
         {
             try
             {
-                slot = queue.poll(ITERATOR_POLL_TIMEOUT, ITERATOR_POLL_TIMEUNIT) ;
+                item = queue.poll(ITERATOR_POLL_TIMEOUT, ITERATOR_POLL_TIMEUNIT) ;
             }
             catch (InterruptedException e)
             {
                 throw new CancellationException() ;
             }
 
-            if (null != slot)
+            if (null != item)
                 break ;
             
             // If the producer thread died and did not call finish() then declare this pipe to be "broken"
@@ -178,15 +234,39 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
         }
 
         // When the end marker is seen set slot to null
-        if (slot == endMarker)
+        if (item == endMarker)
         {
             finished = true;
             slot = null ;
             return false ;
         }
+        if (batchSize == 1)
+        {
+            @SuppressWarnings("unchecked")
+            T t = (T)item ;
+            slot = t ;
+        }
+        else
+        {
+            // Batches are never empty.
+            readBatch = (Object[])item ;
+            readIdx = 0 ;
+            slot = nextFromBatch() ;
+        }
         return true ;
     }
 
+    private T nextFromBatch()
+    {
+        @SuppressWarnings("unchecked")
+        T t = (T)readBatch[readIdx] ;
+        readBatch[readIdx] = null ;
+        readIdx++ ;
+        if (readIdx >= readBatch.length)
+            readBatch = null ;
+        return t ;
+    }
+
     @Override
     public T next()
     {
@@ -221,13 +301,40 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
     }
 
     protected void receive(T t)
+    {
+        if (batchSize == 1)
+        {
+            put(t) ;
+            return ;
+        }
+        if (writeBatch == null)
+        {
+            writeBatch = new Object[batchSize] ;
+            writeIdx = 0 ;
+        }
+        writeBatch[writeIdx++] = t ;
+        if (writeIdx == batchSize)
+            flushBatch() ;
+    }
+
+    private void flushBatch()
+    {
+        if (writeBatch == null)
+            return ;
+        Object[] batch = ( writeIdx == writeBatch.length ) ? writeBatch : Arrays.copyOf(writeBatch, writeIdx) ;
+        writeBatch = null ;
+        writeIdx = 0 ;
+        put(batch) ;
+    }
+
+    private void put(Object item)
     {
         checkStateForReceive();
         writeSide = Thread.currentThread() ;
 
         try
         {
-            queue.put(t) ;
+            queue.put(item) ;
         }
         catch (InterruptedException e)
         {
@@ -286,7 +393,8 @@ public class PipedRDFIterator<T> implements Iterator<T>, Closeable
     // Called by the producer
     protected void finish()
     {
-        receive(endMarker);
+        flushBatch() ;
+        put(endMarker);
         closedByWriter = true;
     }
 
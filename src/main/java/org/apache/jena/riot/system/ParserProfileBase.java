@@ -18,6 +18,8 @@
 
 package org.apache.jena.riot.system;
 
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
 import org.apache.jena.iri.IRI ;
 import org.apache.jena.riot.RiotException ;
 import org.apache.jena.riot.SysRIOT ;
@@ -33,13 +35,26 @@ import com.hp.hpl.jena.sparql.core.Quad ;
 
 /** Basic profile of things, with key operations based on a simple
  *  use of the parse elements into Nodes 
+ *  <p>
+ *  IRIs and typed literals are passed through a small, bounded node cache
+ *  so that repeated terms (predicates, classes, datatypes, common values)
+ *  share one {@link Node} object. 
  */
 public class ParserProfileBase implements ParserProfile
 {
+    /** Default number of slots in the node cache */
+    public static final int DefaultNodeCacheSize = 5000 ;
+    // Longer lexical forms are rarely repeated.
+    private static final int MaxCacheLexicalLength = 100 ;
+
     protected ErrorHandler errorHandler ;
     protected Prologue prologue ;
     protected LabelToNode labelMapping ;
     protected boolean strictMode = SysRIOT.strictMode ;
+    // Parsers are single threaded - no synchronization.
+    private Cache<Object, Node> nodeCache = CacheFactory.createSimpleCache(DefaultNodeCacheSize) ;
+    private long cacheHits = 0 ;
+    private long cacheMisses = 0 ;
 
     public ParserProfileBase(Prologue prologue, ErrorHandler errorHandler)
     { 
@@ -72,6 +87,86 @@ public class ParserProfileBase implements ParserProfile
     @Override
     public void setLabelToNode(LabelToNode mapper) { labelMapping = mapper ; }
 
+    /** Set the size of the node cache. 0 means no caching. */
+    public void setNodeCacheSize(int size)
+    {
+        nodeCache = ( size <= 0 ) ? null : CacheFactory.<Object, Node>createSimpleCache(size) ;
+    }
+
+    /** Number of terms found in the node cache */
+    public long nodeCacheHits()         { return cacheHits ; }
+
+    /** Number of terms looked up but not found in the node cache */
+    public long nodeCacheMisses()       { return cacheMisses ; }
+
+    /** Fraction of cache lookups that found a node (0 if there have been no lookups) */
+    public double nodeCacheHitRate()
+    {
+        long n = cacheHits + cacheMisses ;
+        return n == 0 ? 0.0 : ((double)cacheHits)/n ;
+    }
+
+    /** Node for an IRI, from the node cache if possible. The IRI string is not resolved. */
+    protected final Node cachedURI(String uriStr)
+    {
+        if ( nodeCache == null || RiotLib.isBNodeIRI(uriStr) )
+            return RiotLib.createIRIorBNode(uriStr) ;
+        Node n = nodeCache.get(uriStr) ;
+        if ( n != null )
+        {
+            cacheHits++ ;
+            return n ;
+        }
+        cacheMisses++ ;
+        n = Node.createURI(uriStr) ;
+        nodeCache.put(uriStr, n) ;
+        return n ;
+    }
+
+    /** Node for a typed literal, from the node cache if possible */
+    protected final Node cachedTypedLiteral(String lexical, RDFDatatype dt)
+    {
+        if ( nodeCache == null || lexical.length() > MaxCacheLexicalLength )
+            return Node.createLiteral(lexical, null, dt) ;
+        Object key = new LiteralKey(lexical, dt) ;
+        Node n = nodeCache.get(key) ;
+        if ( n != null )
+        {
+            cacheHits++ ;
+            return n ;
+        }
+        cacheMisses++ ;
+        n = Node.createLiteral(lexical, null, dt) ;
+        nodeCache.put(key, n) ;
+        return n ;
+    }
+
+    private static final class LiteralKey
+    {
+        private final String lexical ;
+        private final RDFDatatype datatype ;
+
+        LiteralKey(String lexical, RDFDatatype datatype)
+        {
+            this.lexical = lexical ;
+            this.datatype = datatype ;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return lexical.hashCode() ^ ( datatype == null ? 0 : datatype.hashCode() ) ;
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if ( ! ( other instanceof LiteralKey ) ) return false ;
+            LiteralKey k = (LiteralKey)other ;
+            return datatype == k.datatype && lexical.equals(k.lexical) ;
+        }
+    }
+
     @Override
     public String resolveIRI(String uriStr, long line, long col)
     {
@@ -99,7 +194,7 @@ public class ParserProfileBase implements ParserProfile
     @Override
     public Node createURI(String uriStr, long line, long col)
     {
-        return RiotLib.createIRIorBNode(uriStr) ;
+        return cachedURI(uriStr) ;
     }
 
     @Override
@@ -118,7 +213,7 @@ public class ParserProfileBase implements ParserProfile
     @Override
     public Node createTypedLiteral(String lexical, RDFDatatype dt, long line, long col)
     {
-        return Node.createLiteral(lexical, null, dt)  ;
+        return cachedTypedLiteral(lexical, dt) ;
     }
 
     @Override
@@ -107,7 +107,7 @@ public class ParserProfileChecker extends ParserProfileBase //implements ParserP
             else
             {
                 String resolvedIRI = resolveIRI(x, line, col) ;
-                return Node.createURI(resolvedIRI) ;
+                return cachedURI(resolvedIRI) ;
             }
         } catch (RiotException ex)
         {
@@ -129,7 +129,8 @@ public class ParserProfileChecker extends ParserProfileBase //implements ParserP
     @Override
     public Node createTypedLiteral(String lexical, RDFDatatype datatype, long line, long col)
     {
-        Node n = Node.createLiteral(lexical, null, datatype)  ;
+        // Checked every time so warnings are reported for each occurrence.
+        Node n = cachedTypedLiteral(lexical, datatype) ;
         CheckerLiterals.checkLiteral(lexical, datatype, errorHandler, line, col) ;
         return n ;
     }
@@ -19,14 +19,25 @@
 package org.apache.jena.riot.tokens;
 
 import java.io.ByteArrayInputStream ;
+import java.io.FileInputStream ;
+import java.io.IOException ;
 import java.io.InputStream ;
 import java.io.Reader ;
+import java.nio.channels.FileChannel ;
+import java.util.concurrent.atomic.AtomicLong ;
 
 import org.apache.jena.atlas.io.PeekReader ;
 import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.atlas.web.TypedInputStream ;
+import org.apache.jena.riot.SysRIOT ;
 
 public class TokenizerFactory
 {
+    private static final AtomicLong mappedInputs = new AtomicLong(0) ;
+
+    /** Number of input streams that have been read by memory mapping the file */
+    public static long getMappedInputCount()    { return mappedInputs.get() ; }
+
     /** Discouraged - be careful about character sets */ 
     public static Tokenizer makeTokenizer(Reader reader)
     {
@@ -35,14 +46,63 @@ public class TokenizerFactory
         return tokenizer ;
     }
     
+    /** Make a tokenizer for UTF-8 input. If the input stream is a large local
+     *  file (see {@link SysRIOT#mappedInputThreshold}), the file is read by
+     *  memory mapping it.
+     */
     public static Tokenizer makeTokenizerUTF8(InputStream in)
     {
+        FileChannel channel = mappableChannel(in) ;
+        if ( channel != null )
+        {
+            mappedInputs.incrementAndGet() ;
+            return makeTokenizerUTF8(channel) ;
+        }
         // BOM will have been removed
         PeekReader peekReader = PeekReader.makeUTF8(in) ;
         Tokenizer tokenizer = new TokenizerText(peekReader) ;
         return tokenizer ;
     }
 
+    /** Make a tokenizer that reads a file by memory mapping it, from the
+     *  current position of the channel.
+     */
+    public static Tokenizer makeTokenizerUTF8(FileChannel channel)
+    {
+        PeekReader peekReader = PeekReader.makeUTF8(channel) ;
+        Tokenizer tokenizer = new TokenizerText(peekReader) ;
+        return tokenizer ;
+    }
+
+    /** The channel for an input stream that reads directly from a file, and
+     *  has enough left to read that memory mapping it is worthwhile, else null.
+     */
+    private static FileChannel mappableChannel(InputStream in)
+    {
+        if ( SysRIOT.mappedInputThreshold < 0 )
+            return null ;
+        while ( in instanceof TypedInputStream )
+            in = ((TypedInputStream)in).getInputStream() ;
+        // Exactly a FileInputStream (no subclasses that may transform the bytes).
+        if ( in == null || in.getClass() != FileInputStream.class )
+            return null ;
+        try {
+            FileChannel channel = ((FileInputStream)in).getChannel() ;
+            if ( channel.size()-channel.position() < SysRIOT.mappedInputThreshold )
+                return null ;
+            return channel ;
+        } catch (IOException ex) { return null ; }
+    }
+
+    /** A tokenizer for part of a larger input, starting at the given line */
+    public static Tokenizer makeTokenizerUTF8(InputStream in, long startLine)
+    {
+        PeekReader peekReader = PeekReader.makeUTF8(in) ;
+        peekReader.setLineNum(startLine) ;
+        Tokenizer tokenizer = new TokenizerText(peekReader) ;
+        return tokenizer ;
+    }
+
     public static Tokenizer makeTokenizerASCII(InputStream in)
     {
         PeekReader peekReader = PeekReader.makeASCII(in) ;
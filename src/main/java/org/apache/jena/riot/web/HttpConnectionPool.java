@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.web;
+
+import java.net.URI ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicLong ;
+
+import org.apache.http.HttpHost ;
+import org.apache.http.client.HttpClient ;
+import org.apache.http.client.params.HttpClientParams ;
+import org.apache.http.conn.ClientConnectionManager ;
+import org.apache.http.conn.ClientConnectionOperator ;
+import org.apache.http.conn.ClientConnectionRequest ;
+import org.apache.http.conn.ConnectionPoolTimeoutException ;
+import org.apache.http.conn.ManagedClientConnection ;
+import org.apache.http.conn.routing.HttpRoute ;
+import org.apache.http.conn.scheme.SchemeRegistry ;
+import org.apache.http.impl.client.SystemDefaultHttpClient ;
+import org.apache.http.impl.conn.PoolingClientConnectionManager ;
+import org.apache.http.impl.conn.SchemeRegistryFactory ;
+import org.apache.http.pool.ConnPoolControl ;
+import org.apache.http.pool.PoolStats ;
+
+/** The pool of keep-alive HTTP connections shared by the HTTP operations of
+ *  {@link HttpOp}, and so by SPARQL Update, and by remote query execution
+ *  ({@link com.hp.hpl.jena.sparql.engine.http.HttpQuery}).
+ *  <p>
+ *  A connection is returned to the pool when the response content has been
+ *  read to the end or closed.  The pool is there to reuse connections, not
+ *  to limit them: by default the number of connections to one host
+ *  ({@value #DefaultMaxPerHost}, or the system property
+ *  {@value #PropMaxPerHost}) and in total ({@value #DefaultMaxTotal}, or
+ *  {@value #PropMaxTotal}) are high enough that concurrent requests do not
+ *  wait.  If a lower limit is set, a request waits when its host is at the
+ *  limit, for at most the lease timeout (default 60 seconds), and then fails
+ *  with a {@link ConnectionPoolTimeoutException}.
+ *  <p>
+ *  The pool counts requests for a connection, how many were given a
+ *  connection that was already open (hits) and how many found the host
+ *  at its limit (waits).
+ */
+public class HttpConnectionPool
+{
+    public static final int DefaultMaxPerHost = 200 ;
+    public static final int DefaultMaxTotal = 2000 ;
+    /** System property for the limit on connections to one host */
+    public static final String PropMaxPerHost = "jena.http.maxConnections" ;
+    /** System property for the limit on connections to all hosts */
+    public static final String PropMaxTotal = "jena.http.maxTotalConnections" ;
+    /** Default time, in milliseconds, to wait for a connection from the pool */
+    public static final long DefaultLeaseTimeout = 60*1000 ;
+    
+    private static volatile HttpConnectionPool pool = new HttpConnectionPool() ;
+    
+    /** The shared pool */ 
+    public static HttpConnectionPool get() { return pool ; }
+    
+    /** Replace the shared pool, and return the pool it replaced; for testing. */ 
+    static HttpConnectionPool set(HttpConnectionPool newPool)
+    {
+        HttpConnectionPool oldPool = pool ;
+        pool = newPool ;
+        return oldPool ;
+    }
+    
+    private final PoolingClientConnectionManager connectionManager ;
+    private final CountingConnectionManager countingManager ;
+    private final HttpClient httpClient ;
+    
+    /** A pool of its own, not the shared pool; for testing. */ 
+    HttpConnectionPool()
+    {
+        this(null) ;
+    }
+    
+    /** A pool of its own whose connections are opened by the operator
+     *  (if null, the usual socket connections); for testing. */ 
+    HttpConnectionPool(final ClientConnectionOperator operator)
+    {
+        if ( operator == null )
+            connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createSystemDefault()) ;
+        else
+            connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createSystemDefault()) {
+                @Override
+                protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schreg)
+                { return operator ; }
+            } ;
+        int maxPerHost = intProperty(PropMaxPerHost, DefaultMaxPerHost) ;
+        int maxTotal = intProperty(PropMaxTotal, Math.max(DefaultMaxTotal, maxPerHost)) ;
+        connectionManager.setDefaultMaxPerRoute(maxPerHost) ;
+        connectionManager.setMaxTotal(maxTotal) ;
+        countingManager = new CountingConnectionManager(connectionManager, connectionManager) ;
+        // SystemDefaultHttpClient for the proxy and other system property settings.
+        httpClient = new SystemDefaultHttpClient() {
+            @Override
+            protected ClientConnectionManager createClientConnectionManager()
+            { return countingManager ; }
+        } ;
+        setLeaseTimeout(DefaultLeaseTimeout) ;
+    }
+    
+    private static int intProperty(String name, int dft)
+    {
+        String s = System.getProperty(name) ;
+        if ( s == null )
+            return dft ;
+        try {
+            int x = Integer.parseInt(s.trim()) ;
+            return ( x > 0 ) ? x : dft ;
+        } catch (NumberFormatException ex) { return dft ; }
+    }
+    
+    /** The HttpClient that uses the pool.  Do not shut down its connection manager. */
+    public HttpClient getHttpClient() { return httpClient ; }
+
+    /** The connection manager of the HttpClient, which counts the requests */
+    ClientConnectionManager getConnectionManager() { return countingManager ; }
+
+    /** Set the limit on connections to any one host */ 
+    public void setMaxPerHost(int max)              { connectionManager.setDefaultMaxPerRoute(max) ; }
+    
+    /** Set the limit on connections to the host of the URL (scheme, host and port) */ 
+    public void setMaxPerHost(String url, int max)  { connectionManager.setMaxPerRoute(route(url), max) ; }
+    
+    /** Get the limit on connections to the host of the URL (scheme, host and port) */ 
+    public int getMaxPerHost(String url)            { return connectionManager.getMaxPerRoute(route(url)) ; }
+    
+    /** Set the limit on connections to all hosts */ 
+    public void setMaxTotal(int max)                { connectionManager.setMaxTotal(max) ; }
+    
+    public int getMaxTotal()                        { return connectionManager.getMaxTotal() ; }
+    
+    /** Set the time, in milliseconds, a request waits for a connection when its host
+     *  is at the limit; 0 means wait for ever.  */ 
+    public void setLeaseTimeout(long timeout)
+    { HttpClientParams.setConnectionManagerTimeout(httpClient.getParams(), timeout) ; }
+    
+    /** The time, in milliseconds, a request waits for a connection */ 
+    public long getLeaseTimeout()
+    { return HttpClientParams.getConnectionManagerTimeout(httpClient.getParams()) ; }
+    
+    /** Close connections that have not been used for the given time */ 
+    public void closeIdleConnections(long idleTime, TimeUnit unit)
+    { connectionManager.closeIdleConnections(idleTime, unit) ; }
+    
+    /** Number of times a connection was asked for */ 
+    public long getRequests()   { return countingManager.requests.get() ; }
+    
+    /** Number of times an already open connection was used */ 
+    public long getHits()       { return countingManager.hits.get() ; }
+    
+    /** Number of times a request found its host at the connection limit */ 
+    public long getWaits()      { return countingManager.waits.get() ; }
+    
+    /** Connections leased, available and pending for all hosts */ 
+    public PoolStats getStats() { return connectionManager.getTotalStats() ; }
+    
+    public void resetCounters()
+    {
+        countingManager.requests.set(0) ;
+        countingManager.hits.set(0) ;
+        countingManager.waits.set(0) ;
+    }
+    
+    @Override
+    public String toString()
+    {
+        return "HttpConnectionPool[requests="+getRequests()+", hits="+getHits()+", waits="+getWaits()+", "+getStats()+"]" ;
+    }
+    
+    static HttpRoute route(String url)
+    {
+        URI uri = URI.create(url) ;
+        String scheme = uri.getScheme() == null ? "http" : uri.getScheme() ;
+        int port = uri.getPort() ;
+        if ( port < 0 )
+            port = "https".equalsIgnoreCase(scheme) ? 443 : 80 ;
+        HttpHost host = new HttpHost(uri.getHost(), port, scheme) ;
+        return new HttpRoute(host, null, "https".equalsIgnoreCase(scheme)) ;
+    }
+    
+    /** Pass everything to a connection manager, counting requests.
+     *  The limits and the connections in use come from the pool control. */ 
+    static class CountingConnectionManager implements ClientConnectionManager
+    {
+        private final ClientConnectionManager connectionManager ;
+        private final ConnPoolControl<HttpRoute> poolControl ;
+        final AtomicLong requests = new AtomicLong(0) ;
+        final AtomicLong hits = new AtomicLong(0) ;
+        final AtomicLong waits = new AtomicLong(0) ;
+        
+        CountingConnectionManager(ClientConnectionManager connectionManager, ConnPoolControl<HttpRoute> poolControl)
+        {
+            this.connectionManager = connectionManager ;
+            this.poolControl = poolControl ;
+        }
+        
+        @Override
+        public SchemeRegistry getSchemeRegistry()
+        { return connectionManager.getSchemeRegistry() ; }
+
+        @Override
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state)
+        {
+            requests.incrementAndGet() ;
+            PoolStats stats = poolControl.getStats(route) ;
+            if ( stats.getAvailable() == 0 && stats.getLeased() >= stats.getMax() )
+                waits.incrementAndGet() ;
+            final ClientConnectionRequest request = connectionManager.requestConnection(route, state) ;
+            return new ClientConnectionRequest() {
+                @Override
+                public ManagedClientConnection getConnection(long timeout, TimeUnit tunit) throws InterruptedException, ConnectionPoolTimeoutException
+                {
+                    ManagedClientConnection conn = request.getConnection(timeout, tunit) ;
+                    if ( conn.isOpen() )
+                        hits.incrementAndGet() ;
+                    return conn ;
+                }
+
+                @Override
+                public void abortRequest()
+                { request.abortRequest() ; }
+            } ;
+        }
+
+        @Override
+        public void releaseConnection(ManagedClientConnection conn, long validDuration, TimeUnit timeUnit)
+        { connectionManager.releaseConnection(conn, validDuration, timeUnit) ; }
+
+        @Override
+        public void closeExpiredConnections()
+        { connectionManager.closeExpiredConnections() ; }
+
+        @Override
+        public void closeIdleConnections(long idletime, TimeUnit tunit)
+        { connectionManager.closeIdleConnections(idletime, tunit) ; }
+
+        @Override
+        public void shutdown()
+        { connectionManager.shutdown() ; }
+    }
+}
@@ -42,7 +42,6 @@ import org.apache.http.client.methods.HttpUriRequest ;
 import org.apache.http.entity.EntityTemplate ;
 import org.apache.http.entity.InputStreamEntity ;
 import org.apache.http.entity.StringEntity ;
-import org.apache.http.impl.client.SystemDefaultHttpClient ;
 import org.apache.http.message.BasicNameValuePair ;
 import org.apache.http.protocol.HttpContext ;
 import org.apache.jena.atlas.io.IO ;
@@ -110,11 +109,10 @@ public class HttpOp
                 httpget.addHeader(HttpNames.hAccept, acceptHeader) ;
             
             // Execute
-            HttpClient httpclient = new SystemDefaultHttpClient();
+            HttpClient httpclient = HttpConnectionPool.get().getHttpClient() ;
             HttpResponse response = httpclient.execute(httpget) ;
             // Handle response
             httpResponse(id, response, baseIRI, handlers) ;
-            httpclient.getConnectionManager().shutdown(); 
         } catch (IOException ex) { IO.exception(ex) ; }
     }
     
@@ -136,7 +134,7 @@ public class HttpOp
                 httpget.addHeader(HttpNames.hAccept, acceptHeader) ;
             
             // Execute
-            HttpClient httpclient = new SystemDefaultHttpClient();        // Pool?
+            HttpClient httpclient = HttpConnectionPool.get().getHttpClient() ;
             HttpResponse response = httpclient.execute(httpget) ;
             
             // Response
@@ -144,11 +142,13 @@ public class HttpOp
             if ( statusLine.getStatusCode() == 404 )
             {
                 log.debug(format("[%d] %s %s",id, statusLine.getStatusCode(), statusLine.getReasonPhrase())) ;
+                closeEntity(response.getEntity()) ;
                 return null ;
             }
             if ( statusLine.getStatusCode() >= 400 )
             {
                 log.debug(format("[%d] %s %s",id, statusLine.getStatusCode(), statusLine.getReasonPhrase())) ;
+                closeEntity(response.getEntity()) ;
                 throw new HttpException(statusLine.getStatusCode()+" "+statusLine.getReasonPhrase()) ;
             }
     
@@ -165,8 +165,8 @@ public class HttpOp
             if ( log.isDebugEnabled() )
                 log.debug(format("[%d] %d %s :: %s",id, statusLine.getStatusCode(), statusLine.getReasonPhrase() , mt)) ;
                 
-            return new TypedInputStreamHttp(entity.getContent(), mt,
-                                       httpclient.getConnectionManager()) ;
+            // Closing the stream returns the connection to the pool.
+            return new TypedInputStreamHttp(entity.getContent(), mt, null) ;
         }
         catch (IOException ex) { IO.exception(ex) ; return null ; }
     }
@@ -175,13 +175,16 @@ public class HttpOp
     public static String execHttpGet(String url)
     {
         HttpUriRequest httpGet = new HttpGet(url) ;
-        HttpClient httpclient = new SystemDefaultHttpClient() ;
+        HttpClient httpclient = HttpConnectionPool.get().getHttpClient() ;
         try {
             HttpResponse response = httpclient.execute(httpGet) ;
             int responseCode = response.getStatusLine().getStatusCode() ;
             String responseMessage = response.getStatusLine().getReasonPhrase() ;
             if ( 200 != responseCode )
+            {
+                closeEntity(response.getEntity()) ;
                 throw JenaHttpException.create(responseCode, responseMessage) ;    
+            }
             HttpEntity entity = response.getEntity() ;
             InputStream instream = entity.getContent() ;
             String string = IO.readWholeFileAsUTF8(instream) ;
@@ -280,12 +283,11 @@ public class HttpOp
                 log.debug(format("[%d] No content type")) ;
 
             // Execute
-            HttpClient httpclient = new SystemDefaultHttpClient();
+            HttpClient httpclient = HttpConnectionPool.get().getHttpClient() ;
             httppost.setEntity(provider) ;
             HttpResponse response = httpclient.execute(httppost, context) ;
             httpResponse(id, response, baseIRI, handlers) ;
             
-            httpclient.getConnectionManager().shutdown(); 
         } catch (IOException ex) { IO.exception(ex) ; }
         finally { closeEntity(provider) ; }
     }
@@ -311,10 +313,9 @@ public class HttpOp
             if ( log.isDebugEnabled() )
                 log.debug(format("[%d] %s %s",id ,httppost.getMethod(),httppost.getURI().toString())) ;
 
-            HttpClient httpclient = new SystemDefaultHttpClient();
+            HttpClient httpclient = HttpConnectionPool.get().getHttpClient() ;
             HttpResponse response = httpclient.execute(httppost, httpContext) ;
             httpResponse(id, response, baseIRI, handlers) ;
-            httpclient.getConnectionManager().shutdown(); 
         } catch (IOException ex) { IO.exception(ex) ; }
     }
     
@@ -354,10 +355,9 @@ public class HttpOp
                 log.debug(format("[%d] %s %s",id , httpput.getMethod(), httpput.getURI().toString())) ;
             
             httpput.setEntity(entity) ;
-            HttpClient httpclient = new SystemDefaultHttpClient();
+            HttpClient httpclient = HttpConnectionPool.get().getHttpClient() ;
             HttpResponse response = httpclient.execute(httpput) ;
             httpResponse(id, response, baseIRI, null) ;
-            httpclient.getConnectionManager().shutdown(); 
         } catch (IOException ex) { IO.exception(ex) ; }
     }
     
@@ -134,6 +134,7 @@ public class HttpResponseLib
         mapContentTypeToResultSet.put(WebContent.contentTypeResultsXML, ResultsFormat.FMT_RS_XML) ;
         mapContentTypeToResultSet.put(WebContent.contentTypeResultsJSON, ResultsFormat.FMT_RS_JSON) ;
         mapContentTypeToResultSet.put(WebContent.contentTypeTextTSV, ResultsFormat.FMT_RS_TSV) ;
+        mapContentTypeToResultSet.put(WebContent.contentTypeResultsBinary, ResultsFormat.FMT_RS_BINARY) ;
     }
 
     /** Response handling for SPARQL result sets. */
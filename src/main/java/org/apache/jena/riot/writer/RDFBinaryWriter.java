@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer;
+
+import java.io.OutputStream ;
+import java.io.Writer ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.binary.BinaryRDF ;
+import org.apache.jena.riot.system.PrefixMap ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+/** Writer for the binary RDF encoding - graphs via the adapter in RiotLib.
+ *  The encoding is bytes, not characters, so only output streams are supported.
+ */
+public class RDFBinaryWriter extends WriterDatasetRIOTBase
+{
+    @Override
+    public Lang getLang()
+    {
+        return Lang.RDFBINARY ;
+    }
+
+    @Override
+    public void write(Writer out, DatasetGraph dataset, PrefixMap prefixMap, String baseURI, Context context)
+    {
+        throw new RiotException("Binary RDF can't be written to a java.io.Writer - use an OutputStream") ;
+    }
+
+    @Override
+    public void write(OutputStream out, DatasetGraph dataset, PrefixMap prefixMap, String baseURI, Context context)
+    {
+        StreamRDF s = BinaryRDF.writer(out) ;
+        s.start() ;
+        if ( prefixMap != null )
+        {
+            for ( Map.Entry<String, String> e : prefixMap.getMappingCopyStr().entrySet() )
+                s.prefix(e.getKey(), e.getValue()) ;
+        }
+        Iterator<Quad> iter = dataset.find(null, null, null, null) ;
+        StreamRDFLib.quadsToStream(s, iter) ;
+        s.finish() ;
+    }
+}
@@ -37,13 +37,63 @@ import org.apache.jena.riot.tokens.Tokenizer ;
 import org.apache.jena.riot.tokens.TokenizerFactory ;
 
 import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.sparql.ARQException ;
 import com.hp.hpl.jena.sparql.core.Quad ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBinaryInputStream ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingBinaryOutputStream ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingInputStream ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingOutputStream ;
+import com.hp.hpl.jena.sparql.util.Context ;
 
 public class SerializationFactoryFinder
 {
+    public static final String spillFormatText      = "text" ;
+    public static final String spillFormatBinary    = "binary" ;
+
+    /** The binding serializer selected by the settings in the context:
+     * {@link ARQ#spillBindingFormat}, {@link ARQ#spillNodeDictionary} and {@link ARQ#spillCompression}.
+     */
+    public static SerializationFactory<Binding> bindingSerializationFactory(Context context)
+    {
+        if ( context == null )
+            context = ARQ.getContext() ;
+        String format = context.getAsString(ARQ.spillBindingFormat, spillFormatText) ;
+        if ( format.equalsIgnoreCase(spillFormatBinary) )
+            return bindingSerializationFactoryBinary(context.isTrueOrUndef(ARQ.spillNodeDictionary),
+                                                     context.isTrue(ARQ.spillCompression)) ;
+        if ( ! format.equalsIgnoreCase(spillFormatText) )
+            throw new ARQException("Unknown binding spill format: "+format) ;
+        return bindingSerializationFactory() ;
+    }
+
+    /** Bindings as binary records, with an optional node dictionary and optional compression. */
+    public static SerializationFactory<Binding> bindingSerializationFactoryBinary(final boolean nodeDictionary, final boolean compress)
+    {
+        return new SerializationFactory<Binding>()
+        {
+            @Override
+            public Sink<Binding> createSerializer(OutputStream out)
+            {
+                return new BindingBinaryOutputStream(out, nodeDictionary, compress) ;
+            }
+
+            @Override
+            public Iterator<Binding> createDeserializer(InputStream in)
+            {
+                return new BindingBinaryInputStream(in) ;
+            }
+
+            @Override
+            public long getEstimatedMemorySize(Binding item)
+            {
+                return 0 ;
+            }
+        };
+    }
+
+    /** Bindings as text (RDF Tuples) */
     public static SerializationFactory<Binding> bindingSerializationFactory()
     {
         return new SerializationFactory<Binding>()
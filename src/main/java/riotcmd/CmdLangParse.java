@@ -313,7 +313,16 @@ public abstract class CmdLangParse extends CmdGeneral
         long n = sink.countTriples()+sink.countQuads() ;
 
         if ( modTime.timingEnabled() )
+        {
             output(filename, n, x, handler) ;
+            if ( isVerbose() && parser.getProfile() instanceof ParserProfileBase )
+            {
+                ParserProfileBase profile = (ParserProfileBase)parser.getProfile() ;
+                System.err.printf("%s : node cache %,d hits  %,d misses  (%.1f%%)\n",
+                                  filename, profile.nodeCacheHits(), profile.nodeCacheMisses(),
+                                  100*profile.nodeCacheHitRate()) ;
+            }
+        }
         
         totalMillis += x ;
         totalTuples += n ;
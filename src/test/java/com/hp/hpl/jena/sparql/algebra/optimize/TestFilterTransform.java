@@ -45,6 +45,7 @@ public class TestFilterTransform
     private Transform t_disjunction = new TransformFilterDisjunction() ;
     private Transform t_placement   = new TransformFilterPlacement() ;
     private Transform t_expandOneOf = new TransformExpandOneOf() ;
+    private Transform t_notExists   = new TransformFilterNotExists() ;
     
     @Test public void equality01()
     {
@@ -337,6 +338,49 @@ public class TestFilterTransform
              "(filter (exprlist (!= ?x <x>) (!= ?x 2) (!= ?x 3)) (bgp (?s ?p ?x)))") ;
     }
 
+    @Test public void notExists1()
+    {
+        test(
+             "(filter (notexists (bgp (?s <q> ?z))) (bgp (?s <p> ?o)))",
+             t_notExists,
+             "(minus (bgp (?s <p> ?o)) (bgp (?s <q> ?z)))") ;
+    }
+
+    @Test public void notExists2()
+    {
+        test(
+             "(filter (exprlist (= ?o 1) (notexists (bgp (?s <q> ?z)))) (bgp (?s <p> ?o)))",
+             t_notExists,
+             "(minus (filter (= ?o 1) (bgp (?s <p> ?o))) (bgp (?s <q> ?z)))") ;
+    }
+
+    @Test public void notExists3()
+    {
+        // No shared variables.
+        test(
+             "(filter (notexists (bgp (?a <q> ?b))) (bgp (?s <p> ?o)))",
+             t_notExists,
+             (String[])null) ;
+    }
+
+    @Test public void notExists4()
+    {
+        // Shared variable may be unbound.
+        test(
+             "(filter (notexists (bgp (?z <q> ?v))) (leftjoin (bgp (?s <p> ?o)) (bgp (?s <r> ?v))))",
+             t_notExists,
+             (String[])null) ;
+    }
+
+    @Test public void notExists5()
+    {
+        // Not a basic graph pattern.
+        test(
+             "(filter (notexists (filter (= ?z 1) (bgp (?s <q> ?z)))) (bgp (?s <p> ?o)))",
+             t_notExists,
+             (String[])null) ;
+    }
+
     static void test(String input, Transform transform, String... output)
     {
         Op op1 = SSE.parseOp(input) ;
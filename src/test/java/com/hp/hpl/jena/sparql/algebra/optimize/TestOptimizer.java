@@ -306,6 +306,31 @@ public class TestOptimizer extends BaseTest
         }
     }
     
+    @Test public void constant_folding_01()
+    {
+        assertTrue(ARQ.isTrueOrUndef(ARQ.optConstantFolding)) ;
+        String queryString = "SELECT * { ?s ?p ?o FILTER(?o < 2*3) BIND(concat('a', 'b') AS ?z) }"  ;  
+        String opExpectedString = 
+            "(filter (< ?o 6)\n" + 
+            "  (extend ((?z 'ab'))\n" +
+            "    (bgp (triple ?s ?p ?o))))" ; 
+        check(queryString, opExpectedString) ;
+    }
+
+    @Test public void constant_folding_02()
+    {
+        try {
+            ARQ.setFalse(ARQ.optConstantFolding) ;
+            String queryString = "SELECT * { ?s ?p ?o FILTER(?o < 2*3) }"  ;  
+            String opExpectedString = 
+                "(filter (< ?o (* 2 3))\n" +
+                "  (bgp (triple ?s ?p ?o)))" ; 
+            check(queryString, opExpectedString) ;
+        } finally {
+            ARQ.unset(ARQ.optConstantFolding) ;
+        }
+    }
+    
     @Test public void optimize_01()
     { 
         String queryString = "SELECT * { { ?s ?p ?x } UNION { ?s1 ?p1 ?x } FILTER(?x = <urn:x1> || ?x = <urn:x2>) }" ;
@@ -23,14 +23,27 @@ import org.junit.runners.Suite ;
 
 import com.hp.hpl.jena.sparql.engine.binding.TestBindingStreams ;
 import com.hp.hpl.jena.sparql.engine.http.TestService;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterBlocks ;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterGroup ;
+import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterMinus ;
 import com.hp.hpl.jena.sparql.engine.iterator.TestQueryIterSort ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.TestQueryIterHashJoin ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.TestQueryIterParallelUnion ;
+import com.hp.hpl.jena.sparql.engine.main.iterator.TestQueryIterServiceBatched ;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
         TestBindingStreams.class
       , TestQueryIterSort.class
+      , TestQueryIterGroup.class
+      , TestQueryIterMinus.class
+      , TestQueryIterBlocks.class
+      , TestQueryIterHashJoin.class
+      , TestQueryIterParallelUnion.class
+      , TestQueryIterServiceBatched.class
       , TestService.class
       , TestQueryEngineMultiThreaded.class
+      , TestQueryPlanCache.class
 })
 
 public class TS_Engine {}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import static org.junit.Assert.assertTrue ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetCompare ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+import com.hp.hpl.jena.sparql.util.Symbol ;
+
+/** Data and execution for tests that run the same query with different settings. */
+public class TestEngineLib
+{
+    /** <code>:s<i>i</i> :p <i>i</i>%7</code> for each subject, 
+     *  and <code>:s<i>i</i> :q <i>i</i></code> when <i>i</i> is not a multiple of 3. */
+    public static Model model(int size)
+    {
+        Model model = ModelFactory.createDefaultModel() ;
+        Graph graph = model.getGraph() ;
+        Node p = Node.createURI("http://example/p") ;
+        Node q = Node.createURI("http://example/q") ;
+        for ( int i = 0 ; i < size ; i++ )
+        {
+            Node s = Node.createURI("http://example/s"+i) ;
+            graph.add(new Triple(s, p, NodeFactory.intToNode(i%7))) ;
+            if ( i%3 != 0 )
+                graph.add(new Triple(s, q, NodeFactory.intToNode(i))) ;
+        }
+        return model ;
+    }
+    
+    /** Execute a SELECT query with the default settings. */ 
+    public static ResultSetRewindable exec(Query query, Model model)
+    {
+        return exec(query, model, new Context()) ;
+    }
+
+    /** Execute a SELECT query with one setting in the execution context. */ 
+    public static ResultSetRewindable exec(Query query, Model model, Symbol symbol, Object value)
+    {
+        Context settings = new Context() ;
+        if ( symbol != null )
+            settings.set(symbol, value) ;
+        return exec(query, model, settings) ;
+    }
+    
+    /** Execute a SELECT query with the settings added to the execution context. */ 
+    public static ResultSetRewindable exec(Query query, Model model, Context settings)
+    {
+        QueryExecution qExec = QueryExecutionFactory.create(query, model) ;
+        try {
+            qExec.getContext().putAll(settings) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        } finally { qExec.close() ; }
+    }
+    
+    /** Assert two results have the same rows, in any order. */
+    public static void assertSameResults(ResultSetRewindable rs1, ResultSetRewindable rs2)
+    {
+        rs1.reset() ;
+        rs2.reset() ;
+        assertTrue(ResultSetCompare.equalsByTerm(rs1, rs2)) ;
+    }
+}
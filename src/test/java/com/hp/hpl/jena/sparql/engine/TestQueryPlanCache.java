@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.AfterClass ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.ARQConstants ;
+import com.hp.hpl.jena.sparql.pfunction.PropertyFunctionRegistry ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+
+public class TestQueryPlanCache extends BaseTest
+{
+    private static Model model = ModelFactory.createModelForGraph(SSE.parseGraph("(graph (<http://example/s> <http://example/p> 1) (<http://example/s> <http://example/p> 2) (<http://example/s> <http://example/q> 3))")) ;
+    private static String queryString1 = "SELECT * { ?s <http://example/p> ?o FILTER(?o > 1) }" ;
+    private static String queryString2 = "SELECT *\n{\n  ?s   <http://example/p> ?o .\n  FILTER ( ?o > 1 )\n}" ;
+
+    @Before public void before()            { QueryPlanCache.setCacheSize(10) ; }
+    @AfterClass public static void after()  { QueryPlanCache.setCacheSize(QueryPlanCache.DefaultCacheSize) ; }
+
+    @Test public void planCache_01()
+    {
+        // Not enabled.
+        assertEquals(1, count(queryString1, false)) ;
+        assertEquals(0, QueryPlanCache.get().getCacheSize()) ;
+        assertEquals(0, QueryPlanCache.get().getCacheMisses()) ;
+    }
+
+    @Test public void planCache_02()
+    {
+        assertEquals(1, count(queryString1, true)) ;
+        assertEquals(1, QueryPlanCache.get().getCacheMisses()) ;
+        assertEquals(0, QueryPlanCache.get().getCacheHits()) ;
+        assertEquals(1, count(queryString1, true)) ;
+        // Same query, written differently.
+        assertEquals(1, count(queryString2, true)) ;
+        assertEquals(1, QueryPlanCache.get().getCacheMisses()) ;
+        assertEquals(2, QueryPlanCache.get().getCacheHits()) ;
+        assertEquals(1, QueryPlanCache.get().getCacheSize()) ;
+    }
+
+    @Test public void planCache_03()
+    {
+        // Different optimizer settings are different plans.
+        Query query = QueryFactory.create("SELECT * { ?s <http://example/p> ?o . ?s <http://example/q> ?z FILTER(?o > 1) }") ;
+        String plan1 = plan(exec(query, true)) ;
+        QueryExecution qExec2 = exec(query, true) ;
+        qExec2.getContext().set(ARQ.optFilterPlacement, false) ;
+        String plan2 = plan(qExec2) ;
+        assertEquals(2, QueryPlanCache.get().getCacheMisses()) ;
+        assertEquals(2, QueryPlanCache.get().getCacheSize()) ;
+        assertFalse(plan1.equals(plan2)) ;
+        // And the cached plan is the one that is executed.
+        assertEquals(plan1, plan(exec(query, true))) ;
+        assertEquals(1, QueryPlanCache.get().getCacheHits()) ;
+    }
+
+    @Test public void planCache_04()
+    {
+        // Bounded.
+        for ( int i = 0 ; i < 20 ; i++ )
+            count("SELECT * { ?s <http://example/p> "+i+" }", true) ;
+        assertEquals(10, QueryPlanCache.get().getCacheSize()) ;
+        assertEquals(20, QueryPlanCache.get().getCacheMisses()) ;
+    }
+
+    @Test public void planCache_05()
+    {
+        // Any other context setting is also part of the key.
+        Query query = QueryFactory.create(queryString1) ;
+        plan(exec(query, true)) ;
+        QueryExecution qExec2 = exec(query, true) ;
+        qExec2.getContext().set(ARQ.strictSPARQL, true) ;
+        plan(qExec2) ;
+        QueryExecution qExec3 = exec(query, true) ;
+        qExec3.getContext().set(ARQConstants.registryPropertyFunctions,
+                                new PropertyFunctionRegistry()) ;
+        plan(qExec3) ;
+        assertEquals(3, QueryPlanCache.get().getCacheMisses()) ;
+        assertEquals(0, QueryPlanCache.get().getCacheHits()) ;
+        // Same settings again.
+        QueryExecution qExec4 = exec(query, true) ;
+        qExec4.getContext().set(ARQ.strictSPARQL, "true") ;
+        plan(qExec4) ;
+        QueryExecution qExec5 = exec(query, true) ;
+        qExec5.getContext().set(ARQ.strictSPARQL, true) ;
+        plan(qExec5) ;
+        assertEquals(4, QueryPlanCache.get().getCacheMisses()) ;
+        assertEquals(1, QueryPlanCache.get().getCacheHits()) ;
+    }
+
+    private static long count(String queryString, boolean cache)
+    {
+        QueryExecution qExec = exec(QueryFactory.create(queryString), cache) ;
+        try {
+            return ResultSetFormatter.consume(qExec.execSelect()) ;
+        } finally { qExec.close() ; }
+    }
+
+    private static QueryExecution exec(Query query, boolean cache)
+    {
+        QueryExecution qExec = QueryExecutionFactory.create(query, model) ;
+        qExec.getContext().set(ARQ.queryPlanCache, cache) ;
+        return qExec ;
+    }
+
+    // The algebra executed.
+    private static String plan(QueryExecution qExec)
+    {
+        try {
+            ResultSetFormatter.consume(qExec.execSelect()) ;
+            return QueryEngineBase.queryEngineInfo.getLastAlgebra() ;
+        } finally { qExec.close() ; }
+    }
+}
@@ -24,6 +24,7 @@ import org.junit.runners.Suite ;
 @RunWith(Suite.class)
 @Suite.SuiteClasses( {
    TestBindingStreams.class
+   , TestBindingArray.class
 })
 public class TS_Binding
 {
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.binding;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.ARQInternalErrorException ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+public class TestBindingArray extends BaseTest
+{
+    private static Var x = Var.alloc("x") ;
+    private static Var y = Var.alloc("y") ;
+    private static Var z = Var.alloc("z") ;
+    private static Var other = Var.alloc("other") ;
+    private static Node n1 = NodeFactory.intToNode(1) ;
+    private static Node n2 = NodeFactory.intToNode(2) ;
+    private static Node n3 = NodeFactory.intToNode(3) ;
+    private static VarSlots slots = VarSlots.create(Arrays.asList(x, y, z)) ;
+
+    @Test public void bindingArray_01()
+    {
+        BindingMap b = BindingFactory.create(slots) ;
+        assertTrue(b.isEmpty()) ;
+        b.add(x, n1) ;
+        b.add(z, n3) ;
+        assertEquals(2, b.size()) ;
+        assertEquals(n1, b.get(x)) ;
+        assertNull(b.get(y)) ;
+        assertTrue(b.contains(z)) ;
+        assertFalse(b.contains(y)) ;
+        assertEquals(new HashSet<Var>(Arrays.asList(x, z)), vars(b)) ;
+
+        BindingMap b2 = BindingFactory.create() ;
+        b2.add(z, n3) ;
+        b2.add(x, n1) ;
+        assertEquals(b2, b) ;
+        assertEquals(b2.hashCode(), b.hashCode()) ;
+    }
+
+    @Test public void bindingArray_02()
+    {
+        // Extending copies the values - no chain of parents.
+        BindingMap b = BindingFactory.create(slots) ;
+        b.add(x, n1) ;
+        Binding b1 = BindingFactory.binding(b, y, n2) ;
+        assertTrue(b1 instanceof BindingArray) ;
+        assertNull(((BindingArray)b1).getParent()) ;
+        BindingMap b2 = BindingFactory.create(b1) ;
+        assertTrue(b2 instanceof BindingArray) ;
+        b2.add(z, n3) ;
+        assertNull(((BindingArray)b2).getParent()) ;
+        assertEquals(3, b2.size()) ;
+        assertEquals(n1, b2.get(x)) ;
+        assertEquals(n2, b2.get(y)) ;
+        // Unchanged
+        assertEquals(1, b.size()) ;
+        assertEquals(2, b1.size()) ;
+    }
+
+    @Test public void bindingArray_03()
+    {
+        // A variable without a slot.
+        BindingMap b = BindingFactory.create(slots) ;
+        b.add(x, n1) ;
+        b.add(other, n2) ;
+        assertEquals(2, b.size()) ;
+        assertEquals(n2, b.get(other)) ;
+        BindingMap b2 = BindingFactory.create(b) ;
+        b2.add(y, n3) ;
+        assertEquals(3, b2.size()) ;
+        assertEquals(n2, b2.get(other)) ;
+        assertEquals(new HashSet<Var>(Arrays.asList(x, y, other)), vars(b2)) ;
+    }
+
+    @Test(expected=ARQInternalErrorException.class)
+    public void bindingArray_04()
+    {
+        BindingMap b = BindingFactory.create(slots) ;
+        b.add(x, n1) ;
+        BindingFactory.create(b).add(x, n2) ;
+    }
+
+    private static Graph data = SSE.parseGraph(StrUtils.strjoinNL(
+        "(graph",
+        "  (<http://example/a> <http://example/p> <http://example/b>)",
+        "  (<http://example/a> <http://example/p> <http://example/c>)",
+        "  (<http://example/b> <http://example/p> <http://example/c>)",
+        "  (<http://example/b> <http://example/q> 1)",
+        "  (<http://example/c> <http://example/q> 2)",
+        "  (<http://example/c> <http://example/q> 3)",
+        ")")) ;
+
+    @Test public void bindingArray_query_01()
+    {
+        test("SELECT * { ?x :p ?y . ?y :p ?z }") ;
+    }
+
+    @Test public void bindingArray_query_02()
+    {
+        test("SELECT * { ?x :p ?y OPTIONAL { ?y :q ?v FILTER(?v > 1) } BIND(str(?y) AS ?s) }") ;
+    }
+
+    @Test public void bindingArray_query_03()
+    {
+        test("SELECT ?x (count(*) AS ?c) (sum(?v) AS ?t) { ?x :p ?y . ?y :q ?v } GROUP BY ?x") ;
+    }
+
+    @Test public void bindingArray_query_04()
+    {
+        test("SELECT * { ?x :p ?y { SELECT ?y (max(?v) AS ?m) { ?y :q ?v } GROUP BY ?y } }") ;
+    }
+
+    @Test public void bindingArray_query_05()
+    {
+        test("SELECT * { VALUES ?x { :a :b } ?x :p ?y MINUS { ?y :p ?z } }") ;
+    }
+
+    @Test public void bindingArray_query_06()
+    {
+        test("SELECT DISTINCT ?y { { ?x :p ?y } UNION { ?y :q ?v } } ORDER BY ?y") ;
+    }
+
+    private static void test(String queryString)
+    {
+        Query query = QueryFactory.create("PREFIX : <http://example/> "+queryString) ;
+        Model model = ModelFactory.createModelForGraph(data) ;
+        ResultSetRewindable expected = exec(query, model, ARQ.compactBindings, false) ;
+        assertTrue(expected.size() > 0) ;
+        assertSameResults(expected, exec(query, model, ARQ.compactBindings, true)) ;
+    }
+
+    private static HashSet<Var> vars(Binding b)
+    {
+        List<Var> acc = new ArrayList<Var>() ;
+        for ( Iterator<Var> iter = b.vars() ; iter.hasNext() ; )
+            acc.add(iter.next()) ;
+        assertEquals(b.size(), acc.size()) ;
+        return new HashSet<Var>(acc) ;
+    }
+}
@@ -96,6 +96,8 @@ public class TestBindingStreams extends BaseTest
     @Test public void bindingStream_50()        { testWriteRead(b12) ; }
     @Test public void bindingStream_51()        { testWriteRead(b0) ; }
     @Test public void bindingStream_52()        { testWriteRead(pmap, b12,x10,b19) ; }
+    // Later binding has more variables than the first. 
+    @Test public void bindingStream_53()        { testWriteRead(b10, b12, b02) ; }
     
     @Test public void bindingStream_60()              { testWriteRead(bb1) ; }
     
@@ -112,6 +114,41 @@ public class TestBindingStreams extends BaseTest
 
     @Test public void bindingStream_63()              { testWriteRead(bb3) ; }
 
+    static Binding bb4 = build("(?a 'abc'@en) (?b '2013-01-01'^^<http://www.w3.org/2001/XMLSchema#date>) (?c <http://example/abc>)") ;
+
+    @Test public void bindingBinary_01()        { testWriteReadBinary(b12) ; }
+    @Test public void bindingBinary_02()        { testWriteReadBinary(b0) ; }
+    @Test public void bindingBinary_03()        { testWriteReadBinary() ; }
+    @Test public void bindingBinary_04()        { testWriteReadBinary(b10, b12, b02, b0, b19) ; }
+    @Test public void bindingBinary_05()        { testWriteReadBinary(bb1, bb2, bb3, bb4, x10) ; }
+    // Repeated nodes use the dictionary.
+    @Test public void bindingBinary_06()        { testWriteReadBinary(bb4, b12, bb4, b12, x10, bb1, bb1) ; }
+
+    @Test public void bindingBinary_07()
+    {
+        BindingMap b = BindingFactory.create() ;
+        b.add(Var.alloc("v"), Node.createAnon(new AnonId("unusual"))) ;
+        b.add(Var.alloc("w"), Var.alloc("x")) ;
+        testWriteReadBinary(b, b) ;
+    }
+
+    @Test public void bindingBinary_08()
+    {
+        // Larger than the compression buffer and the dictionary.
+        List<Binding> x = new ArrayList<Binding>() ;
+        for ( int i = 0 ; i < 2*BindingBinaryOutputStream.MaxDictionarySize ; i += 1000 )
+            x.add(build("(?a "+i+") (?b <http://example/"+(i%7)+">)")) ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            x.add(build("(?a "+i+") (?b <http://example/"+i+">) (?c _:b"+i+")")) ;
+        testWriteReadBinary(x.toArray(new Binding[0])) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void bindingBinary_09()
+    {
+        new BindingBinaryInputStream(new ByteArrayInputStream("VARS ?a .".getBytes())) ;
+    }
+
     
     static void testRead(String x, Binding ... bindings)
     {
@@ -167,6 +204,36 @@ public class TestBindingStreams extends BaseTest
     }
     
 
+    static void testWriteReadBinary(Binding ... bindings)
+    {
+        testWriteReadBinary(false, false, bindings) ;
+        testWriteReadBinary(true, false, bindings) ;
+        testWriteReadBinary(false, true, bindings) ;
+        testWriteReadBinary(true, true, bindings) ;
+    }
+
+    static void testWriteReadBinary(boolean dictionary, boolean compress, Binding ... bindings)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        BindingBinaryOutputStream output = new BindingBinaryOutputStream(out, dictionary, compress) ;
+        for ( Binding b : bindings )
+            output.write(b) ;
+        output.close() ;
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray()) ;
+        BindingBinaryInputStream input = new BindingBinaryInputStream(in) ;
+        List<Binding> results = new ArrayList<Binding>() ;
+        for ( ; input.hasNext() ; )
+            results.add(input.next()) ;
+        assertEquals(bindings.length, results.size()) ;
+        for ( int i = 0 ; i < bindings.length ; i++ )
+        {
+            Binding b1 = bindings[i] ;
+            Binding b2 = results.get(i) ;
+            assertTrue("Bindings do not match: expected="+b1+" got="+b2, equalBindings(b1, b2)) ;
+        }
+    }
+
     private static boolean equalBindings(Binding binding1, Binding binding2)
     {
         // Need to have the exact same terms coming back (therefore we can't use BNodeIso to compare values)
@@ -179,6 +179,8 @@ public class TestIndexTable {
 		assertFalse(index.containsCompatibleWithSharedDomain(binding("d", 10))) ;
 		assertFalse(index.containsCompatibleWithSharedDomain(binding("abc", 10, 21, 32))) ;
 		assertFalse(index.containsCompatibleWithSharedDomain(binding("xyz", 10, 11, 12))) ;
+		assertFalse(index.containsCompatibleWithSharedDomain(binding("ab", 10, 21))) ;
+		assertFalse(index.containsCompatibleWithSharedDomain(binding("ac", 20, 12))) ;
 	}
 
 	private QueryIterator fullData() { return new QueryIterPlainWrapper(fData.iterator()) ; }
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+public class TestQueryIterBlocks extends BaseTest
+{
+    private static final String PRE = "PREFIX : <http://example/> " ;
+    private static Graph data = GraphFactory.createDefaultGraph() ;
+    static {
+        Node p = Node.createURI("http://example/p") ;
+        Node q = Node.createURI("http://example/q") ;
+        for ( int i = 0 ; i < 50 ; i++ )
+        {
+            Node s = Node.createURI("http://example/s"+i) ;
+            data.add(new Triple(s, p, Node.createURI("http://example/s"+((i*7)%50)))) ;
+            data.add(new Triple(s, p, Node.createURI("http://example/s"+((i*3)%50)))) ;
+            if ( i % 4 != 0 )
+                data.add(new Triple(s, q, NodeFactory.intToNode(i))) ;
+        }
+    }
+
+    private static Model model = ModelFactory.createModelForGraph(data) ;
+
+    @Test public void blockSize_01()
+    {
+        assertEquals(0, QueryIterBlocks.blockSize(execCxt(null))) ;
+        assertEquals(0, QueryIterBlocks.blockSize(execCxt(1))) ;
+        assertEquals(0, QueryIterBlocks.blockSize(execCxt("false"))) ;
+        assertEquals(10, QueryIterBlocks.blockSize(execCxt(10))) ;
+        assertEquals(10, QueryIterBlocks.blockSize(execCxt("10"))) ;
+        assertEquals(QueryIterBlocks.DefaultBlockSize, QueryIterBlocks.blockSize(execCxt("true"))) ;
+    }
+
+    @Test public void nextBlock_01()
+    {
+        List<Binding> rows = new ArrayList<Binding>() ;
+        Var x = Var.alloc("x") ;
+        for ( int i = 0 ; i < 7 ; i++ )
+            rows.add(BindingFactory.binding(x, NodeFactory.intToNode(i))) ;
+        QueryIterator iter = new QueryIterPlainWrapper(rows.iterator(), execCxt(null)) ;
+        Binding[] block = new Binding[5] ;
+        assertEquals(3, QueryIterBlocks.nextBlock(iter, block, 3)) ;
+        assertEquals(rows.get(0), block[0]) ;
+        assertEquals(rows.get(3), iter.nextBinding()) ;
+        assertEquals(3, QueryIterBlocks.nextBlock(iter, block, 5)) ;
+        assertEquals(rows.get(6), block[2]) ;
+        assertEquals(0, QueryIterBlocks.nextBlock(iter, block, 5)) ;
+        assertFalse(iter.hasNext()) ;
+    }
+
+    @Test public void blocks_bgp()
+    {
+        test("SELECT * { ?x :p ?y . ?y :p ?z . ?z :q ?v }") ;
+    }
+
+    @Test public void blocks_filter()
+    {
+        test("SELECT * { ?x :p ?y . ?y :q ?v FILTER(?v > 20) }") ;
+    }
+
+    @Test public void blocks_bind()
+    {
+        test("SELECT * { ?x :p ?y . ?y :q ?v BIND(?v * 2 AS ?w) FILTER(?w < 60) }") ;
+    }
+
+    @Test public void blocks_project()
+    {
+        test("SELECT ?x ?v { ?x :p ?y . ?y :q ?v }") ;
+    }
+
+    @Test public void blocks_join()
+    {
+        // Hash join of the BGP and the sub-select.
+        test("SELECT * { ?x :p ?y { SELECT ?y ?v { ?y :q ?v } } }") ;
+    }
+
+    @Test public void blocks_optional()
+    {
+        test("SELECT * { ?x :p ?y OPTIONAL { ?y :q ?v } }") ;
+    }
+
+    @Test public void blocks_limit()
+    {
+        ResultSetRewindable rs = exec(query("SELECT * { ?x :p ?y . ?y :p ?z } LIMIT 10"), model, ARQ.executionBlockSize, 4) ;
+        assertEquals(10, rs.size()) ;
+    }
+
+    private static void test(String queryString)
+    {
+        Query query = query(queryString) ;
+        ResultSetRewindable expected = exec(query, model) ;
+        assertTrue(expected.size() > 0) ;
+        for ( Object blockSize : new Object[]{ 2, 3, "true" } )
+            assertSameResults(expected, exec(query, model, ARQ.executionBlockSize, blockSize)) ;
+    }
+
+    private static Query query(String queryString)
+    {
+        return QueryFactory.create(PRE+queryString) ;
+    }
+
+    private static ExecutionContext execCxt(Object blockSize)
+    {
+        Context cxt = new Context() ;
+        if ( blockSize != null )
+            cxt.set(ARQ.executionBlockSize, blockSize) ;
+        return new ExecutionContext(cxt, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.sparql.engine.TestEngineLib ;
+
+/** Grouping in memory and grouping with spill to disk give the same answers. */
+public class TestQueryIterGroup
+{
+    private static Model model ;
+    
+    @BeforeClass public static void setup()
+    {
+        model = TestEngineLib.model(100) ;
+    }
+    
+    @Test public void group_spill_01()  { test("SELECT ?o (count(*) AS ?c) { ?s ?p ?o } GROUP BY ?o") ; }
+    @Test public void group_spill_02()  { test("SELECT ?o (sum(?v) AS ?sum) (max(?v) AS ?max) { ?s <http://example/p> ?o OPTIONAL { ?s <http://example/q> ?v } } GROUP BY ?o") ; }
+    @Test public void group_spill_03()  { test("SELECT ?k (count(distinct ?s) AS ?c) { ?s <http://example/p> ?o } GROUP BY (?o + 1 AS ?k)") ; }
+    @Test public void group_spill_04()  { test("SELECT ?o { ?s <http://example/p> ?o } GROUP BY ?o") ; }
+    @Test public void group_spill_05()  { test("SELECT (count(*) AS ?c) { ?s <http://example/none> ?o }") ; }
+    @Test public void group_spill_06()  { test("SELECT ?v (count(*) AS ?c) { ?s <http://example/p> ?o OPTIONAL { ?s <http://example/q> ?v } } GROUP BY ?v") ; }
+    
+    // Partial aggregates are spilled when all the accumulators can be merged.
+    @Test public void group_spill_07()
+    {
+        long before = QueryIterGroup.getPartialSpillCount() ;
+        test("SELECT ?s (count(*) AS ?c) (count(?v) AS ?cv) (sum(?v) AS ?sum) (avg(?v) AS ?avg) (min(?v) AS ?min) (max(?v) AS ?max)"+
+             " { ?s <http://example/p> ?o OPTIONAL { ?s <http://example/q> ?v } } GROUP BY ?s") ;
+        assertTrue(QueryIterGroup.getPartialSpillCount() > before) ;
+    }
+
+    // Errors in a group are kept across the spill.
+    @Test public void group_spill_08()
+    {
+        long before = QueryIterGroup.getPartialSpillCount() ;
+        test("SELECT ?o (sum(?x) AS ?sum) (avg(?x) AS ?avg) (min(?x) AS ?min) { ?s ?p ?o BIND(IF(?p = <http://example/q>, ?s, ?o) AS ?x) } GROUP BY ?o") ;
+        assertTrue(QueryIterGroup.getPartialSpillCount() > before) ;
+    }
+
+    @Test public void group_spill_09()
+    {
+        long before = QueryIterGroup.getPartialSpillCount() ;
+        test("SELECT ?s { ?s ?p ?o } GROUP BY ?s") ;
+        assertTrue(QueryIterGroup.getPartialSpillCount() > before) ;
+    }
+    
+    // An aggregate that can not be merged uses the raw row spill.
+    @Test public void group_spill_10()
+    {
+        long before = QueryIterGroup.getPartialSpillCount() ;
+        test("SELECT ?o (count(*) AS ?c) (count(distinct ?s) AS ?cd) { ?s ?p ?o } GROUP BY ?o") ;
+        assertEquals(before, QueryIterGroup.getPartialSpillCount()) ;
+    }
+    
+    private static void test(String queryString)
+    {
+        Query query = QueryFactory.create(queryString) ;
+        assertSameResults(exec(query, model), exec(query, model, ARQ.spillToDiskThreshold, 10L)) ;
+    }
+}
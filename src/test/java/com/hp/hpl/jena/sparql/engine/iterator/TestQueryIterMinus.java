@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.iterator;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.sparql.engine.TestEngineLib ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+
+/** MINUS in memory and MINUS with spill to disk give the same answers,
+ *  as does FILTER NOT EXISTS whether or not it is rewritten to MINUS. */
+public class TestQueryIterMinus
+{
+    private static Model model ;
+    
+    @BeforeClass public static void setup()
+    {
+        model = TestEngineLib.model(100) ;
+    }
+    
+    @Test public void minus_spill_01()  { test("SELECT * { ?s <http://example/p> ?o MINUS { ?s <http://example/q> ?v } }") ; }
+    @Test public void minus_spill_02()  { test("SELECT * { ?s <http://example/p> ?o MINUS { ?x <http://example/q> ?o } }") ; }
+    @Test public void minus_spill_03()  { test("SELECT * { ?s <http://example/p> ?o OPTIONAL { ?s <http://example/q> ?v } MINUS { ?s2 <http://example/q> ?v } }") ; }
+    @Test public void minus_spill_04()  { test("SELECT * { ?s <http://example/p> ?o MINUS { ?s <http://example/q> ?v OPTIONAL { ?s <http://example/p> ?o } } }") ; }
+    @Test public void minus_spill_05()  { test("SELECT * { ?s <http://example/p> ?o MINUS { ?a <http://example/q> ?b } }") ; }
+    // Rows that bind different sets of the common variables, on both sides.
+    @Test public void minus_spill_06()  { test("SELECT * { ?s <http://example/p> ?o OPTIONAL { ?s <http://example/q> ?v FILTER(?v < 40) } MINUS { { ?s <http://example/q> ?v } UNION { ?x <http://example/p> ?o FILTER(?o < 2) } } }") ; }
+    
+    @Test public void notExists_01()    { test("SELECT * { ?s <http://example/p> ?o FILTER NOT EXISTS { ?s <http://example/q> ?v } }") ; }
+    @Test public void notExists_02()    { test("SELECT * { ?s <http://example/p> ?o FILTER(?o != 3) FILTER NOT EXISTS { ?s <http://example/q> ?v } }") ; }
+    @Test public void notExists_03()    { test("SELECT * { ?s <http://example/p> ?o FILTER NOT EXISTS { ?a <http://example/q> ?b } }") ; }
+    
+    private static void test(String queryString)
+    {
+        Query query = QueryFactory.create(queryString) ;
+        ResultSetRewindable rs = exec(query, model) ;
+        assertSameResults(rs, exec(query, model, ARQ.spillToDiskThreshold, 10L)) ;
+        assertSameResults(rs, exec(query, model, ARQ.optFilterNotExists, false)) ;
+    }
+}
@@ -23,7 +23,10 @@ import static org.junit.Assert.assertNotNull ;
 import static org.junit.Assert.assertTrue ;
 
 import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.HashSet ;
 import java.util.Iterator ;
+import java.util.LinkedHashSet ;
 import java.util.List ;
 import java.util.Random ;
 
@@ -51,6 +54,8 @@ import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
 import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
 import com.hp.hpl.jena.sparql.expr.ExprVar ;
+import com.hp.hpl.jena.sparql.expr.NodeValue ;
+import com.hp.hpl.jena.sparql.function.FunctionEnv ;
 import com.hp.hpl.jena.sparql.serializer.SerializationContext ;
 import com.hp.hpl.jena.sparql.util.Context ;
 
@@ -161,6 +166,202 @@ public class TestQueryIterSort {
         assertEquals(0, DataBagExaminer.countTemporaryFiles(qIter.db)) ;
     }
     
+    @Test
+    public void testSpillBinary()
+    {
+        testSpill(false) ;
+        setup() ;
+        testSpill(true) ;
+    }
+
+    private void testSpill(boolean compress)
+    {
+        iterator.setCallback(new Callback() { @Override
+        public void call() { /* do nothing */ } });
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, 10L) ;
+        context.set(ARQ.spillBindingFormat, "binary") ;
+        context.set(ARQ.spillCompression, compress) ;
+        ExecutionContext executionContext = new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+        QueryIterSort qIter = new QueryIterSort(iterator, comparator, executionContext) ;
+        List<Binding> results = new ArrayList<Binding>() ;
+        try
+        {
+            qIter.hasNext() ;
+            assertEquals(49, DataBagExaminer.countTemporaryFiles(qIter.db)) ;
+            while ( qIter.hasNext() )
+                results.add(qIter.next()) ;
+        }
+        finally
+        {
+            qIter.close() ;
+        }
+        List<Binding> expected = new ArrayList<Binding>(unsorted) ;
+        Collections.sort(expected, comparator) ;
+        assertEquals(500, results.size()) ;
+        for ( int i = 0 ; i < results.size() ; i++ )
+            assertEquals(0, comparator.compare(expected.get(i), results.get(i))) ;
+        assertTrue(unsorted.containsAll(results)) ;
+    }
+
+    @Test
+    public void testSpillParallel()
+    {
+        iterator.setCallback(new Callback() { @Override
+        public void call() { /* do nothing */ } });
+        Context context = new Context() ;
+        context.set(ARQ.spillToDiskThreshold, 10L) ;
+        context.set(ARQ.spillSortThreads, 4) ;
+        context.set(ARQ.spillMergeFanIn, "8") ;
+        ExecutionContext executionContext = new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+        QueryIterSort qIter = new QueryIterSort(iterator, comparator, executionContext) ;
+        List<Binding> results = new ArrayList<Binding>() ;
+        try
+        {
+            while ( qIter.hasNext() )
+                results.add(qIter.next()) ;
+            // 49 spill files merged down to no more than the fan-in.
+            assertTrue(DataBagExaminer.countTemporaryFiles(qIter.db) <= 8) ;
+        }
+        finally
+        {
+            qIter.close() ;
+        }
+        assertEquals(0, DataBagExaminer.countTemporaryFiles(qIter.db)) ;
+        List<Binding> expected = new ArrayList<Binding>(unsorted) ;
+        Collections.sort(expected, comparator) ;
+        assertEquals(500, results.size()) ;
+        for ( int i = 0 ; i < results.size() ; i++ )
+            assertEquals(0, comparator.compare(expected.get(i), results.get(i))) ;
+    }
+
+    @Test
+    public void testSortKeysEvaluatedOnce()
+    {
+        testSortKeys(-1) ;
+        setup() ;
+        testSortKeys(10) ;
+    }
+
+    private void testSortKeys(long threshold)
+    {
+        iterator.setCallback(new Callback() { @Override
+        public void call() { /* do nothing */ } });
+        final int[] evalCount = { 0 } ;
+        ExprVar expr = new ExprVar("8") {
+            @Override
+            public NodeValue eval(Binding binding, FunctionEnv env)
+            {
+                evalCount[0]++ ;
+                return super.eval(binding, env) ;
+            }
+        } ;
+        List<SortCondition> conditions = new ArrayList<SortCondition>() ;
+        conditions.add(new SortCondition(expr, Query.ORDER_DESCENDING)) ;
+        Context context = new Context() ;
+        if ( threshold > 0 )
+            context.set(ARQ.spillToDiskThreshold, threshold) ;
+        ExecutionContext executionContext = new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+        QueryIterSort qIter = new QueryIterSort(iterator, conditions, executionContext) ;
+        List<Binding> results = new ArrayList<Binding>() ;
+        try
+        {
+            while ( qIter.hasNext() )
+                results.add(qIter.next()) ;
+        }
+        finally
+        {
+            qIter.close() ;
+        }
+        assertEquals(500, evalCount[0]) ;
+        assertEquals(500, results.size()) ;
+        // Same bindings back (no sort key variables) and in order.
+        assertTrue(unsorted.containsAll(results)) ;
+        for ( int i = 1 ; i < results.size() ; i++ )
+            assertTrue(comparator.compare(results.get(i-1), results.get(i)) >= 0) ;
+    }
+
+    @Test
+    public void testTopNSortKeys()
+    {
+        final int[] evalCount = { 0 } ;
+        ExprVar expr = new ExprVar("8") {
+            @Override
+            public NodeValue eval(Binding binding, FunctionEnv env)
+            {
+                evalCount[0]++ ;
+                return super.eval(binding, env) ;
+            }
+        } ;
+        List<SortCondition> conditions = new ArrayList<SortCondition>() ;
+        conditions.add(new SortCondition(expr, Query.ORDER_ASCENDING)) ;
+        ExecutionContext executionContext = new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+        QueryIterator input = new QueryIterPlainWrapper(unsorted.iterator(), executionContext) ;
+        QueryIterTopN qIter = new QueryIterTopN(input, conditions, 10, false, executionContext) ;
+        List<Binding> results = new ArrayList<Binding>() ;
+        while ( qIter.hasNext() )
+            results.add(qIter.next()) ;
+        qIter.close() ;
+        assertEquals(500, evalCount[0]) ;
+        List<Binding> expected = new ArrayList<Binding>(unsorted) ;
+        Collections.sort(expected, comparator) ;
+        assertEquals(expected.subList(0, 10), results) ;
+    }
+
+    @Test
+    public void testTopN()
+    {
+        testTopN(100, false, -1) ;
+        testTopN(100, true, -1) ;
+    }
+
+    @Test
+    public void testTopNSpill()
+    {
+        // Heap larger than the threshold: spill and select.
+        testTopN(100, false, 10) ;
+        testTopN(100, true, 10) ;
+        testTopN(5000, false, 10) ;
+        testTopN(5000, true, 10) ;
+    }
+
+    private void testTopN(int numItems, boolean distinct, long threshold)
+    {
+        // Each binding twice.
+        List<Binding> input = new ArrayList<Binding>(unsorted) ;
+        input.addAll(unsorted) ;
+        Collections.shuffle(input, random) ;
+
+        Context context = new Context() ;
+        if ( threshold > 0 )
+            context.set(ARQ.spillToDiskThreshold, threshold) ;
+        ExecutionContext executionContext = new ExecutionContext(context, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+        QueryIterTopN qIter = new QueryIterTopN(new QueryIterPlainWrapper(input.iterator(), executionContext), comparator, numItems, distinct, executionContext) ;
+        List<Binding> results = new ArrayList<Binding>() ;
+        try
+        {
+            while ( qIter.hasNext() )
+                results.add(qIter.next()) ;
+            assertEquals(threshold > 0, qIter.db != null) ;
+        }
+        finally
+        {
+            qIter.close() ;
+        }
+        if ( qIter.db != null )
+            assertEquals(0, DataBagExaminer.countTemporaryFiles(qIter.db)) ;
+
+        List<Binding> expected = distinct ? new ArrayList<Binding>(new LinkedHashSet<Binding>(input)) : input ;
+        Collections.sort(expected, comparator) ;
+        if ( expected.size() > numItems )
+            expected = expected.subList(0, numItems) ;
+        assertEquals(expected.size(), results.size()) ;
+        for ( int i = 0 ; i < results.size() ; i++ )
+            assertEquals(0, comparator.compare(expected.get(i), results.get(i))) ;
+        if ( distinct )
+            assertEquals(results.size(), new HashSet<Binding>(results).size()) ;
+    }
+
     @Test(expected=QueryCancelledException.class)
     public void testCancelInterruptsInitialisation() 
     {
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import static org.junit.Assert.assertEquals ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.MultiSet ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingMap ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+public class TestQueryIterHashJoin
+{
+    private static Var va = Var.alloc("a") ;
+    private static Var vb = Var.alloc("b") ;
+    private static Var vc = Var.alloc("c") ;
+    private static ExecutionContext execCxt = new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+
+    @Test public void hashJoin_01()
+    {
+        List<Binding> left = new ArrayList<Binding>() ;
+        List<Binding> right = new ArrayList<Binding>() ;
+        left.add(row(va, 1, vb, 2)) ;
+        left.add(row(va, 2, vb, 3)) ;
+        right.add(row(va, 1, vc, 5)) ;
+        right.add(row(va, 1, vc, 6)) ;
+        right.add(row(va, 3, vc, 7)) ;
+        test(left, right, Arrays.asList(va), 2) ;
+    }
+
+    @Test public void hashJoin_02()
+    {
+        // No matches.
+        List<Binding> left = new ArrayList<Binding>() ;
+        List<Binding> right = new ArrayList<Binding>() ;
+        left.add(row(va, 1, vb, 2)) ;
+        right.add(row(va, 2, vc, 5)) ;
+        test(left, right, Arrays.asList(va), 0) ;
+    }
+
+    @Test public void hashJoin_03()
+    {
+        // Key variable unbound on the right
+        List<Binding> left = new ArrayList<Binding>() ;
+        List<Binding> right = new ArrayList<Binding>() ;
+        left.add(row(va, 1, vb, 2)) ;
+        left.add(row(va, 2, vb, 3)) ;
+        right.add(row(vc, 5)) ;
+        right.add(row(va, 2, vc, 6)) ;
+        test(left, right, Arrays.asList(va), 3) ;
+    }
+
+    @Test public void hashJoin_04()
+    {
+        // Key variable unbound on the left
+        List<Binding> left = new ArrayList<Binding>() ;
+        List<Binding> right = new ArrayList<Binding>() ;
+        left.add(row(vb, 2)) ;
+        left.add(row(va, 2, vb, 3)) ;
+        right.add(row(va, 1, vc, 5)) ;
+        right.add(row(va, 2, vc, 6)) ;
+        test(left, right, Arrays.asList(va), 3) ;
+    }
+
+    @Test public void hashJoin_05()
+    {
+        // Two key variables, and a non-key variable in common.
+        List<Binding> left = new ArrayList<Binding>() ;
+        List<Binding> right = new ArrayList<Binding>() ;
+        for ( int i = 0 ; i < 20 ; i++ )
+        {
+            left.add(row(va, i%5, vb, i%3, vc, i%2)) ;
+            right.add(row(va, i%4, vb, i%3, vc, i%7)) ;
+        }
+        test(left, right, Arrays.asList(va, vb), -1) ;
+    }
+
+    private static void test(List<Binding> left, List<Binding> right, List<Var> joinKey, int expectedSize)
+    {
+        QueryIterator qIter1 = new QueryIterHashJoin(iter(left), iter(right), joinKey, execCxt) ;
+        QueryIterator qIter2 = new QueryIterJoin(iter(left), iter(right), execCxt) ;
+        MultiSet<Binding> results1 = toMultiSet(qIter1) ;
+        MultiSet<Binding> results2 = toMultiSet(qIter2) ;
+        if ( expectedSize >= 0 )
+            assertEquals(expectedSize, results1.size()) ;
+        assertEquals(results2.size(), results1.size()) ;
+        for ( Iterator<Binding> iter = results2.elements() ; iter.hasNext() ; )
+        {
+            Binding b = iter.next() ;
+            assertEquals(results2.count(b), results1.count(b)) ;
+        }
+    }
+
+    private static MultiSet<Binding> toMultiSet(QueryIterator qIter)
+    {
+        MultiSet<Binding> x = new MultiSet<Binding>() ;
+        while ( qIter.hasNext() )
+            x.add(qIter.nextBinding()) ;
+        qIter.close() ;
+        return x ;
+    }
+
+    private static QueryIterator iter(List<Binding> rows)
+    {
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    private static Binding row(Object... varsAndValues)
+    {
+        BindingMap b = BindingFactory.create() ;
+        for ( int i = 0 ; i < varsAndValues.length ; i += 2 )
+            b.add((Var)varsAndValues[i], NodeFactory.intToNode((Integer)varsAndValues[i+1])) ;
+        return b ;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+import static org.junit.Assert.fail ;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.SynchronousQueue ;
+import java.util.concurrent.ThreadPoolExecutor ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.atlas.lib.MultiSet ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.TestEngineLib ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+public class TestQueryIterParallelUnion
+{
+    private static Var va = Var.alloc("a") ;
+    private static ExecutionContext execCxt = new ExecutionContext(new Context(), (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+
+    @Test public void parallelUnion_01()
+    {
+        List<QueryIterator> branches = new ArrayList<QueryIterator>() ;
+        branches.add(branch(0, 100)) ;
+        branches.add(branch(100, 200)) ;
+        branches.add(branch(200, 300)) ;
+        // Small buffer so the branches have to wait for the consumer.
+        QueryIterator qIter = new QueryIterParallelUnion(branches, 2, 5, execCxt) ;
+        MultiSet<Binding> results = new MultiSet<Binding>() ;
+        while ( qIter.hasNext() )
+            results.add(qIter.nextBinding()) ;
+        qIter.close() ;
+        assertEquals(300, results.size()) ;
+        for ( int i = 0 ; i < 300 ; i++ )
+            assertTrue(results.contains(row(i))) ;
+    }
+
+    @Test public void parallelUnion_02()
+    {
+        // Close before the end.
+        List<QueryIterator> branches = new ArrayList<QueryIterator>() ;
+        branches.add(branch(0, 1000)) ;
+        branches.add(branch(1000, 2000)) ;
+        QueryIterator qIter = new QueryIterParallelUnion(branches, 2, 5, execCxt) ;
+        assertTrue(qIter.hasNext()) ;
+        qIter.nextBinding() ;
+        qIter.close() ;
+        for ( QueryIterator branch : branches )
+            assertFalse(branch.hasNext()) ;
+    }
+
+    @Test public void parallelUnion_03()
+    {
+        // An exception in one branch reaches the consumer.
+        Iterator<Binding> bad = new Iterator<Binding>() {
+            @Override public boolean hasNext()  { return true ; }
+            @Override public Binding next()     { throw new QueryExecException("Branch failed") ; }
+            @Override public void remove()      {}
+        } ;
+        List<QueryIterator> branches = new ArrayList<QueryIterator>() ;
+        branches.add(branch(0, 10)) ;
+        branches.add(new QueryIterPlainWrapper(bad, execCxt)) ;
+        QueryIterator qIter = new QueryIterParallelUnion(branches, 2, 5, execCxt) ;
+        try {
+            while ( qIter.hasNext() )
+                qIter.nextBinding() ;
+            fail("No exception") ;
+        } catch (QueryExecException ex) {}
+        finally { qIter.close() ; }
+    }
+
+    @Test public void parallelUnion_04()
+    {
+        testQuery("SELECT * { { ?s <http://example/p> ?o } UNION { ?s <http://example/q> ?o } UNION { ?s <http://example/r> ?o } }") ;
+    }
+
+    @Test public void parallelUnion_05()
+    {
+        testQuery("SELECT * { ?s <http://example/p> ?o { ?s <http://example/q> ?v } UNION { BIND(?o AS ?v) } }") ;
+    }
+
+    @Test public void parallelUnion_06()
+    {
+        testQuery("SELECT * { { ?s <http://example/p> ?o } UNION { ?s <http://example/q> ?o } } LIMIT 7") ;
+    }
+
+    @Test public void parallelUnion_07()
+    {
+        // A pool of one thread: the other branches run on the consumer thread.
+        ExecutorService executor = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<Runnable>()) ;
+        try {
+            Context cxt = new Context() ;
+            cxt.set(ARQ.parallelUnionExecutor, executor) ;
+            ExecutionContext execCxt1 = new ExecutionContext(cxt, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+            List<QueryIterator> branches = new ArrayList<QueryIterator>() ;
+            for ( int i = 0 ; i < 4 ; i++ )
+                branches.add(branch(100*i, 100*(i+1))) ;
+            QueryIterator qIter = new QueryIterParallelUnion(branches, 4, 5, execCxt1) ;
+            MultiSet<Binding> results = new MultiSet<Binding>() ;
+            while ( qIter.hasNext() )
+                results.add(qIter.nextBinding()) ;
+            qIter.close() ;
+            assertEquals(400, results.size()) ;
+            for ( int i = 0 ; i < 400 ; i++ )
+                assertTrue(results.contains(row(i))) ;
+        } finally { executor.shutdown() ; }
+    }
+
+    @Test public void parallelUnion_08()
+    {
+        // Branches on the pool are closed on their own thread, before close() returns.
+        // A pool of its own, with a thread for each branch, so no branch runs on this thread.
+        ExecutorService executor = Executors.newFixedThreadPool(2) ;
+        try {
+            Context cxt = new Context() ;
+            cxt.set(ARQ.parallelUnionExecutor, executor) ;
+            ExecutionContext execCxt1 = new ExecutionContext(cxt, (Graph)null, (DatasetGraph)null, (OpExecutorFactory)null) ;
+            final List<Thread> closers = Collections.synchronizedList(new ArrayList<Thread>()) ;
+            List<QueryIterator> branches = new ArrayList<QueryIterator>() ;
+            for ( int i = 0 ; i < 2 ; i++ )
+            {
+                List<Binding> rows = new ArrayList<Binding>() ;
+                for ( int j = 0 ; j < 1000 ; j++ )
+                    rows.add(row(j)) ;
+                branches.add(new QueryIterPlainWrapper(rows.iterator(), execCxt1) {
+                    @Override protected void closeIterator()
+                    {
+                        closers.add(Thread.currentThread()) ;
+                        super.closeIterator() ;
+                    }
+                }) ;
+            }
+            QueryIterator qIter = new QueryIterParallelUnion(branches, 2, 5, execCxt1) ;
+            assertTrue(qIter.hasNext()) ;
+            qIter.nextBinding() ;
+            qIter.close() ;
+            assertEquals(2, closers.size()) ;
+            for ( Thread t : closers )
+                assertFalse(t == Thread.currentThread()) ;
+        } finally { executor.shutdown() ; }
+    }
+
+    private static void testQuery(String queryString)
+    {
+        Model model = TestEngineLib.model(50) ;
+        Query query = QueryFactory.create(queryString) ;
+        ResultSetRewindable rs1 = exec(query, model) ;
+        ResultSetRewindable rs2 = exec(query, model, ARQ.parallelUnion, 3) ;
+        assertEquals(rs1.size(), rs2.size()) ;
+        if ( ! query.hasLimit() )
+            assertSameResults(rs1, rs2) ;
+    }
+
+    private static QueryIterator branch(int start, int finish)
+    {
+        List<Binding> rows = new ArrayList<Binding>() ;
+        for ( int i = start ; i < finish ; i++ )
+            rows.add(row(i)) ;
+        return new QueryIterPlainWrapper(rows.iterator(), execCxt) ;
+    }
+
+    private static Binding row(int value)
+    {
+        return BindingFactory.binding(va, NodeFactory.intToNode(value)) ;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.engine.main.iterator;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+import static org.junit.Assert.assertEquals ;
+
+import java.util.concurrent.atomic.AtomicInteger ;
+
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.* ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.sparql.algebra.Op ;
+import com.hp.hpl.jena.sparql.algebra.OpAsQuery ;
+import com.hp.hpl.jena.sparql.algebra.op.OpService ;
+import com.hp.hpl.jena.sparql.engine.ExecutionContext ;
+import com.hp.hpl.jena.sparql.engine.QueryIterator ;
+import com.hp.hpl.jena.sparql.engine.Rename ;
+import com.hp.hpl.jena.sparql.engine.TestEngineLib ;
+import com.hp.hpl.jena.sparql.engine.http.Service ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIter ;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIteratorResultSet ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutor ;
+import com.hp.hpl.jena.sparql.engine.main.OpExecutorFactory ;
+import com.hp.hpl.jena.sparql.engine.main.QC ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+/** SERVICE with and without batching, with the requests executed locally. */
+public class TestQueryIterServiceBatched
+{
+    private static final String endpoint = "http://example/sparql" ;
+    private static Model local ;
+    private static Model remote ;
+    private static AtomicInteger requests = new AtomicInteger(0) ;
+    
+    @BeforeClass public static void setup()
+    {
+        local = TestEngineLib.model(25) ;
+        remote = TestEngineLib.model(25) ;
+        // Some subjects have more than one remote match.
+        Graph graph = remote.getGraph() ;
+        Node q = Node.createURI("http://example/q") ;
+        for ( int i = 0 ; i < 25 ; i += 5 )
+            graph.add(new Triple(Node.createURI("http://example/s"+i), q, NodeFactory.intToNode(100+i))) ;
+    }
+    
+    /** SERVICE requests are sent as query strings and run against the remote model. */
+    private static class OpExecutorStub extends OpExecutor
+    {
+        OpExecutorStub(ExecutionContext execCxt) { super(execCxt) ; }
+        
+        @Override
+        protected QueryIterator execute(OpService opService, QueryIterator input)
+        {
+            int batchSize = QueryIterServiceBatched.batchSize(execCxt.getContext()) ;
+            return new QueryIterServiceBatched(input, opService, batchSize, execCxt) {
+                @Override protected QueryIterator exec(OpService op)
+                {
+                    requests.incrementAndGet() ;
+                    Op opRemote = Rename.reverseVarRename(op.getSubOp(), true) ;
+                    String queryString = OpAsQuery.asQuery(opRemote).toString() ;
+                    QueryExecution qExec = QueryExecutionFactory.create(queryString, remote) ;
+                    try {
+                        return QueryIter.materialize(new QueryIteratorResultSet(qExec.execSelect())) ;
+                    } finally { qExec.close() ; }
+                }
+            } ;
+        }
+    }
+    
+    private static OpExecutorFactory stubFactory = new OpExecutorFactory() {
+        @Override public OpExecutor create(ExecutionContext execCxt) { return new OpExecutorStub(execCxt) ; }
+    } ;
+    
+    @Test public void service_batch_01()
+    {
+        String qs = "SELECT * { ?s <http://example/p> ?o SERVICE <"+endpoint+"> { ?s <http://example/q> ?v } }" ; 
+        test(qs, 10, 3) ;
+    }
+
+    @Test public void service_batch_02()
+    {
+        String qs = "SELECT * { ?s <http://example/p> ?o SERVICE <"+endpoint+"> { ?s <http://example/q> ?v FILTER(?v > 5) } }" ; 
+        test(qs, 7, 4) ;
+    }
+
+    @Test public void service_batch_03()
+    {
+        // Not linear: filter in the SERVICE pattern uses ?o. One request per binding.
+        String qs = "SELECT * { ?s <http://example/p> ?o SERVICE <"+endpoint+"> { ?s <http://example/q> ?v FILTER(?o = 1) } }" ; 
+        test(qs, 10, 25) ;
+    }
+
+    private static void test(String queryString, int batchSize, int expectedRequests)
+    {
+        Query query = QueryFactory.create(queryString) ;
+        requests.set(0) ;
+        ResultSetRewindable rs1 = exec(query, local, settings(1)) ;
+        assertEquals(25, requests.get()) ;
+        requests.set(0) ;
+        ResultSetRewindable rs2 = exec(query, local, settings(batchSize)) ;
+        assertEquals(expectedRequests, requests.get()) ;
+        assertSameResults(rs1, rs2) ;
+    }
+    
+    private static Context settings(int batchSize)
+    {
+        Context settings = new Context() ;
+        settings.set(Service.serviceBatchSize, batchSize) ;
+        QC.setFactory(settings, stubFactory) ;
+        return settings ;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.expr;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.junit.Test ;
+
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.engine.binding.Binding ;
+import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
+import com.hp.hpl.jena.sparql.expr.aggregate.* ;
+import com.hp.hpl.jena.sparql.function.FunctionEnvBase ;
+import com.hp.hpl.jena.sparql.util.NodeFactory ;
+
+/** Merging accumulators gives the same answer as accumulating everything in one. */
+public class TestAccumulatorMerge
+{
+    private static Var vx = Var.alloc("x") ;
+    private static Expr ex = new ExprVar(vx) ;
+
+    @Test public void merge_count()         { test(new AggCount(), 10, 4) ; }
+    @Test public void merge_count_var()     { test(new AggCountVar(ex), 10, 4) ; }
+    @Test public void merge_sum()           { test(new AggSum(ex), 10, 4) ; }
+    @Test public void merge_avg()           { test(new AggAvg(ex), 10, 4) ; }
+    @Test public void merge_min()           { test(new AggMin(ex), 10, 4) ; }
+    @Test public void merge_max()           { test(new AggMax(ex), 10, 4) ; }
+    @Test public void merge_sample()        { test(new AggSample(ex), 10, 4) ; }
+
+    // One side empty.
+    @Test public void merge_empty_1()       { test(new AggSum(ex), 10, 0) ; }
+    @Test public void merge_empty_2()       { test(new AggAvg(ex), 10, 10) ; }
+    @Test public void merge_empty_3()       { test(new AggMin(ex), 10, 0) ; }
+    @Test public void merge_empty_4()       { test(new AggMax(ex), 10, 10) ; }
+    
+    // Merge from the written out state of the other accumulator.
+    @Test public void merge_state_count()       { test(new AggCount(), 10, 4, true) ; }
+    @Test public void merge_state_count_var()   { test(new AggCountVar(ex), 10, 4, true) ; }
+    @Test public void merge_state_sum()         { test(new AggSum(ex), 10, 4, true) ; }
+    @Test public void merge_state_avg()         { test(new AggAvg(ex), 10, 4, true) ; }
+    @Test public void merge_state_min()         { test(new AggMin(ex), 10, 4, true) ; }
+    @Test public void merge_state_max()         { test(new AggMax(ex), 10, 4, true) ; }
+    @Test public void merge_state_sample()      { test(new AggSample(ex), 10, 4, true) ; }
+    @Test public void merge_state_empty_1()     { test(new AggAvg(ex), 10, 10, true) ; }
+    @Test public void merge_state_empty_2()     { test(new AggMin(ex), 10, 10, true) ; }
+    
+    @Test public void merge_state_error()
+    {
+        Aggregator agg = new AggSum(ex) ;
+        AccumulatorMergeable acc1 = (AccumulatorMergeable)agg.createAccumulator() ;
+        AccumulatorMergeable acc2 = (AccumulatorMergeable)agg.createAccumulator() ;
+        acc1.accumulate(row(1), new FunctionEnvBase()) ;
+        acc2.accumulate(BindingFactory.binding(vx, NodeFactory.parseNode("'a'")), new FunctionEnvBase()) ;
+        AccumulatorMergeable acc3 = (AccumulatorMergeable)agg.createAccumulator() ;
+        acc3.setState(acc2.getState()) ;
+        acc1.merge(acc3) ;
+        assertNull(acc1.getValue()) ;
+    }
+    
+    @Test public void merge_error()
+    {
+        Aggregator agg = new AggSum(ex) ;
+        AccumulatorMergeable acc1 = (AccumulatorMergeable)agg.createAccumulator() ;
+        Accumulator acc2 = agg.createAccumulator() ;
+        acc1.accumulate(row(1), new FunctionEnvBase()) ;
+        // Not a number.
+        acc2.accumulate(BindingFactory.binding(vx, NodeFactory.parseNode("'a'")), new FunctionEnvBase()) ;
+        acc1.merge(acc2) ;
+        assertNull(acc1.getValue()) ;
+    }
+    
+    private static void test(Aggregator agg, int N, int split)
+    {
+        test(agg, N, split, false) ;
+    }
+    
+    private static void test(Aggregator agg, int N, int split, boolean viaState)
+    {
+        List<Binding> rows = new ArrayList<Binding>() ;
+        for ( int i = 0 ; i < N ; i++ )
+            rows.add(row((i*7)%N)) ;
+        
+        Accumulator accAll = agg.createAccumulator() ;
+        for ( Binding b : rows )
+            accAll.accumulate(b, new FunctionEnvBase()) ;
+
+        Accumulator acc1 = agg.createAccumulator() ;
+        Accumulator acc2 = agg.createAccumulator() ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Accumulator acc = ( i < split ) ? acc1 : acc2 ;
+            acc.accumulate(rows.get(i), new FunctionEnvBase()) ;
+        }
+        
+        assertTrue(acc1 instanceof AccumulatorMergeable) ;
+        if ( viaState )
+        {
+            AccumulatorMergeable acc3 = (AccumulatorMergeable)agg.createAccumulator() ;
+            acc3.setState(((AccumulatorMergeable)acc2).getState()) ;
+            acc2 = acc3 ;
+        }
+        ((AccumulatorMergeable)acc1).merge(acc2) ;
+        NodeValue nv = accAll.getValue() ;
+        NodeValue nvMerged = acc1.getValue() ;
+        if ( agg instanceof AggSample )
+        {
+            assertTrue(nvMerged != null) ;
+            return ;
+        }
+        assertEquals(nv, nvMerged) ;
+    }
+    
+    private static Binding row(int i)
+    {
+        return BindingFactory.binding(vx, NodeFactory.intToNode(i)) ;
+    }
+}
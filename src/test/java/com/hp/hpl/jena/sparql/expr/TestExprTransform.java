@@ -41,6 +41,19 @@ public class TestExprTransform extends BaseTest
     @Test public void exprTransform_06()    { test("(regex ?a ?b)", "(regex ?A ?B)", et1) ; }
 
     
+    ExprTransform et2 = new ExprTransformConstantFold() ;
+
+    @Test public void exprTransform_fold_01()    { test("(+ 1 2)", "3", et2) ; }
+    @Test public void exprTransform_fold_02()    { test("(= ?v (+ 1 2))", "(= ?v 3)", et2) ; }
+    @Test public void exprTransform_fold_03()    { test("(strlen (concat 'ab' 'c'))", "3", et2) ; }
+    @Test public void exprTransform_fold_04()    { test("(+ ?v 2)", "(+ ?v 2)", et2) ; }
+    // Not the same every time.
+    @Test public void exprTransform_fold_05()    { test("(+ (rand) 1)", "(+ (rand) 1)", et2) ; }
+    @Test public void exprTransform_fold_06()    { test("(bnode 'a')", "(bnode 'a')", et2) ; }
+    // Evaluation error: left for execution time.
+    @Test public void exprTransform_fold_07()    { test("(+ 'a' 1)", "(+ 'a' 1)", et2) ; }
+    @Test public void exprTransform_fold_08()    { test("(if (> 2 1) ?a ?b)", "(if true ?a ?b)", et2) ; }
+
     private void test(String string, String string2, ExprTransform et)
     {
         Expr e1 = SSE.parseExpr(string) ;
@@ -809,4 +809,27 @@ public class TestNodeValue extends TestCase
         assertFalse("NodeValue.equals()", nv1.equals(nv2)) ;
     } 
 
+    @Test public void testNodeValueCache1()
+    {
+        // Same literal node - same NodeValue.
+        Node n1 = NodeFactory.parseNode("'123'^^<http://www.w3.org/2001/XMLSchema#integer>") ;
+        Node n2 = NodeFactory.parseNode("'123'^^<http://www.w3.org/2001/XMLSchema#integer>") ;
+        NodeValue nv1 = NodeValue.makeNode(n1) ;
+        assertSame(nv1, NodeValue.makeNode(n2)) ;
+        // Same value, different term.
+        Node n3 = NodeFactory.parseNode("'0123'^^<http://www.w3.org/2001/XMLSchema#integer>") ;
+        NodeValue nv3 = NodeValue.makeNode(n3) ;
+        assertEquals(n3, nv3.asNode()) ;
+        assertTrue(NodeValue.sameAs(nv1, nv3)) ;
+    }
+
+    @Test public void testNodeValueCache2()
+    {
+        try {
+            NodeValueCache.setCacheSize(0) ;
+            Node n = NodeFactory.parseNode("'abc'") ;
+            assertNotSame(NodeValue.makeNode(n), NodeValue.makeNode(n)) ;
+        } finally { NodeValueCache.setCacheSize(NodeValueCache.DefaultCacheSize) ; }
+    }
+
 }
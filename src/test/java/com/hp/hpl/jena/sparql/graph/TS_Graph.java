@@ -28,6 +28,7 @@ import org.junit.runners.Suite ;
     , TestDatasetGraphMem.class
     , TestGraphsDataBag.class
     , TestGraphUnionRead.class
+    , TestGraphBatchFind.class
 })
 public class TS_Graph
 {
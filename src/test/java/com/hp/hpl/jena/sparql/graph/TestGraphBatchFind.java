@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hp.hpl.jena.sparql.graph;
+
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
+
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.graph.TripleMatch ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
+
+public class TestGraphBatchFind extends BaseTest
+{
+    private static Graph data = SSE.parseGraph(StrUtils.strjoinNL(
+        "(graph",
+        "  (<http://example/a> <http://example/p> <http://example/b>)",
+        "  (<http://example/a> <http://example/p> <http://example/c>)",
+        "  (<http://example/b> <http://example/q> 'b')",
+        "  (<http://example/c> <http://example/q> 'c')",
+        "  (<http://example/c> <http://example/q> <http://example/c>)",
+        "  (<http://example/d> <http://example/p> <http://example/d>)",
+        ")")) ;
+
+    private static Node a = Node.createURI("http://example/a") ;
+    private static Node c = Node.createURI("http://example/c") ;
+    private static Node p = Node.createURI("http://example/p") ;
+    private static Node q = Node.createURI("http://example/q") ;
+
+    /** Counts the calls of each kind of lookup */
+    static class GraphSPARQLCounting extends GraphSPARQL
+    {
+        int finds = 0 ;
+        int batchFinds = 0 ;
+        GraphSPARQLCounting(Graph graph) { super(graph) ; }
+
+        @Override
+        public List<List<Triple>> find(List<Triple> patterns)
+        {
+            batchFinds++ ;
+            return super.find(patterns) ;
+        }
+
+        @Override
+        protected ExtendedIterator<Triple> graphBaseFind(TripleMatch m)
+        {
+            finds++ ;
+            return super.graphBaseFind(m) ;
+        }
+    }
+
+    @Test public void batchFind_01()
+    {
+        List<Triple> patterns = new ArrayList<Triple>() ;
+        patterns.add(new Triple(a, p, Node.ANY)) ;
+        patterns.add(new Triple(c, q, Node.ANY)) ;
+        patterns.add(new Triple(Node.ANY, q, c)) ;
+        patterns.add(new Triple(Node.ANY, Node.ANY, Node.ANY)) ;
+        patterns.add(new Triple(a, q, Node.ANY)) ;
+        patterns.add(new Triple(a, p, Node.ANY)) ;
+        patterns.add(new Triple(c, q, c)) ;
+
+        List<List<Triple>> results = new GraphSPARQL(data).find(patterns) ;
+        assertEquals(patterns.size(), results.size()) ;
+        for ( int i = 0 ; i < patterns.size() ; i++ )
+        {
+            Triple t = patterns.get(i) ;
+            Set<Triple> expected = data.find(t.getSubject(), t.getPredicate(), t.getObject()).toSet() ;
+            assertEquals(expected, new HashSet<Triple>(results.get(i))) ;
+            assertEquals(expected.size(), results.get(i).size()) ;
+        }
+    }
+
+    @Test public void batchFind_query_01()
+    {
+        testQuery("SELECT * { ?x <http://example/p> ?y . ?y <http://example/q> ?z }", 3) ;
+    }
+
+    @Test public void batchFind_query_02()
+    {
+        // Repeated variable.
+        testQuery("SELECT * { ?x <http://example/p> ?y . ?y ?p ?y }", 2) ;
+    }
+
+    @Test public void batchFind_query_03()
+    {
+        testQuery("SELECT * { ?x ?p ?y OPTIONAL { ?y <http://example/q> ?z } }", 8) ;
+    }
+
+    private static void testQuery(String queryString, int expectedRows)
+    {
+        Query query = QueryFactory.create(queryString) ;
+        ResultSetRewindable expected = exec(query, model(data)) ;
+        assertEquals(expectedRows, expected.size()) ;
+
+        GraphSPARQLCounting graph = new GraphSPARQLCounting(data) ;
+        ResultSetRewindable rs = exec(query, model(graph), ARQ.findBatchSize, 2) ;
+        assertTrue(graph.batchFinds > 0) ;
+        assertSameResults(expected, rs) ;
+
+        // Batch size 1 turns off batching.
+        graph = new GraphSPARQLCounting(data) ;
+        rs = exec(query, model(graph), ARQ.findBatchSize, 1) ;
+        assertEquals(0, graph.batchFinds) ;
+        assertSameResults(expected, rs) ;
+    }
+
+    private static Model model(Graph graph)
+    {
+        return ModelFactory.createModelForGraph(graph) ;
+    }
+}
@@ -29,8 +29,12 @@ import org.junit.Assert ;
 import org.junit.Test ;
 
 import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.GraphEventManager ;
+import com.hp.hpl.jena.graph.GraphListener ;
 import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.graph.impl.SimpleEventManager ;
+import com.hp.hpl.jena.mem.GraphMem ;
 import com.hp.hpl.jena.query.ARQ ;
 import com.hp.hpl.jena.query.QueryParseException ;
 import com.hp.hpl.jena.shared.PrefixMapping ;
@@ -42,11 +46,14 @@ import com.hp.hpl.jena.sparql.engine.QueryIterator ;
 import com.hp.hpl.jena.sparql.engine.binding.Binding ;
 import com.hp.hpl.jena.sparql.engine.binding.BindingFactory ;
 import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.path.eval.PathClosureCache ;
 import com.hp.hpl.jena.sparql.path.eval.PathEval ;
 import com.hp.hpl.jena.sparql.sse.Item ;
 import com.hp.hpl.jena.sparql.sse.SSE ;
 import com.hp.hpl.jena.sparql.sse.builders.BuilderPath ;
 import com.hp.hpl.jena.sparql.sse.writers.WriterPath ;
+import com.hp.hpl.jena.sparql.util.Context ;
+import com.hp.hpl.jena.sparql.util.graph.GraphUtils ;
 
 public class TestPath extends BaseTest
 {
@@ -306,6 +313,152 @@ public class TestPath extends BaseTest
         assertEquals(2, x.size()) ;
     }
 
+    // Both ends bound: search from both ends.
+    @Test public void path_50()   { testGrounded(graph1, n1, "(path+ :p)", n4, 1) ; }
+    @Test public void path_51()   { testGrounded(graph1, n4, "(path+ :p)", n1, 0) ; }
+    @Test public void path_52()   { testGrounded(graph1, n1, "(path+ :p)", n1, 0) ; }
+    @Test public void path_53()   { testGrounded(graph1, n1, "(path* :p)", n1, 1) ; }
+    @Test public void path_54()   { testGrounded(graph6, n1, "(path+ :p)", n1, 1) ; }
+    @Test public void path_55()   { testGrounded(graph7, n3, "(path* :p)", n1, 0) ; }
+    @Test public void path_56()   { testGrounded(graph7, n1, "(path* :p)", n3, 1) ; }
+    @Test public void path_57()   { testGrounded(graph2, n1, "(path+ (seq :p :q))", n4, 1) ; }
+    @Test public void path_58()   { testGrounded(graph4, n1, "(path* (alt :p :q))", n6, 1) ; }
+    @Test public void path_59()   { testGrounded(graph4, n5, "(path* (alt :p :q))", n6, 0) ; }
+
+    // Neither end bound: same as evaluating from each node.
+    @Test public void path_60()
+    {
+        Graph[] graphs = { graph1, graph2, graph3, graph4, graph5, graph6, graph7 } ;
+        String[] paths = { "(path* :p)", "(path+ :p)", "(path+ (alt :p :q))", "(path* (reverse :p))" } ;
+        for ( Graph g : graphs )
+            for ( String pathStr : paths )
+            {
+                Path path = SSE.parsePath(pathStr, pmap) ;
+                int expected = 0 ;
+                for ( Iterator<Node> iter = GraphUtils.allNodes(g) ; iter.hasNext() ; )
+                    expected += Iter.count(PathEval.eval(g, iter.next(), path)) ;
+                List<Binding> x = eval(g, "?x", pathStr, "?y") ;
+                assertEquals(pathStr, expected, x.size()) ;
+            }
+    }
+
+    // Closure cache: results are reused until the graph changes.
+    @Test public void path_61()
+    {
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        graph.add(new Triple(n1, p, n2)) ;
+        graph.add(new Triple(n2, p, n3)) ;
+        Context cxt = new Context() ;
+        cxt.set(ARQ.pathClosureCache, true) ;
+        Path path = SSE.parsePath("(path+ :p)", pmap) ;
+        Var y = Var.alloc("y") ;
+
+        PathClosureCache.get().clear() ;
+        long hits = PathClosureCache.get().getCacheHits() ;
+        assertEquals(2, evalCxt(graph, n1, path, y, cxt).size()) ;
+        assertEquals(2, evalCxt(graph, n1, path, y, cxt).size()) ;
+        assertEquals(hits+1, PathClosureCache.get().getCacheHits()) ;
+        assertEquals(1, evalCxt(graph, n1, path, n3, cxt).size()) ;
+
+        graph.add(new Triple(n3, p, n4)) ;
+        assertEquals(3, evalCxt(graph, n1, path, y, cxt).size()) ;
+        assertEquals(1, evalCxt(graph, n1, path, n4, cxt).size()) ;
+
+        graph.delete(new Triple(n1, p, n2)) ;
+        assertEquals(0, evalCxt(graph, n1, path, y, cxt).size()) ;
+        assertEquals(2, evalCxt(graph, y, path, n4, cxt).size()) ;
+        graph.clear() ;
+        assertEquals(0, evalCxt(graph, y, path, n4, cxt).size()) ;
+    }
+
+    // Closure cache: grounded paths.
+    @Test public void path_62()
+    {
+        Context cxt = new Context() ;
+        cxt.set(ARQ.pathClosureCache, true) ;
+        Path path = SSE.parsePath("(path+ :p)", pmap) ;
+        
+        // Small closure: cached.
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        graph.add(new Triple(n1, p, n2)) ;
+        graph.add(new Triple(n2, p, n3)) ;
+        PathClosureCache.get().clear() ;
+        long hits = PathClosureCache.get().getCacheHits() ;
+        assertEquals(1, evalCxt(graph, n1, path, n3, cxt).size()) ;
+        assertEquals(0, evalCxt(graph, n1, path, n4, cxt).size()) ;
+        assertEquals(hits+1, PathClosureCache.get().getCacheHits()) ;
+        assertEquals(1, PathClosureCache.get().getCacheSize()) ;
+        
+        // Too large to cache: searched instead.
+        int len = PathClosureCache.DefaultMaxEntrySize+10 ;
+        Graph graph2 = GraphFactory.createDefaultGraph() ;
+        for ( int i = 0 ; i < len ; i++ )
+            graph2.add(new Triple(n1, p, leaf(i))) ;
+        graph2.add(new Triple(leaf(len-1), p, n2)) ;
+        PathClosureCache.get().clear() ;
+        assertEquals(1, evalCxt(graph2, n1, path, n2, cxt).size()) ;
+        assertEquals(0, evalCxt(graph2, n1, path, n3, cxt).size()) ;
+        assertEquals(0, PathClosureCache.get().getCacheSize()) ;
+    }
+    
+    // Closure cache: replacing the cache does not register graph listeners again.
+    @Test public void path_63()
+    {
+        final int[] registered = { 0 } ;
+        Graph graph = new GraphMem() {
+            private GraphEventManager manager = null ;
+            @Override
+            public GraphEventManager getEventManager()
+            {
+                if ( manager == null )
+                    manager = new SimpleEventManager(this) {
+                        @Override
+                        public GraphEventManager register(GraphListener listener)
+                        {
+                            registered[0]++ ;
+                            return super.register(listener) ;
+                        }
+                    } ;
+                return manager ;
+            }
+        } ;
+        graph.add(new Triple(n1, p, n2)) ;
+        Context cxt = new Context() ;
+        cxt.set(ARQ.pathClosureCache, true) ;
+        Path path = SSE.parsePath("(path+ :p)", pmap) ;
+        Var y = Var.alloc("y") ;
+        try {
+            assertEquals(1, evalCxt(graph, n1, path, y, cxt).size()) ;
+            PathClosureCache.setCacheSize(100) ;
+            assertEquals(100, PathClosureCache.get().getMaxSize()) ;
+            assertEquals(1, evalCxt(graph, n1, path, y, cxt).size()) ;
+            graph.add(new Triple(n2, p, n3)) ;
+            assertEquals(2, evalCxt(graph, n1, path, y, cxt).size()) ;
+            assertEquals(1, registered[0]) ;
+        } finally { PathClosureCache.setCacheSize(PathClosureCache.DefaultCacheSize) ; }
+    }
+
+    private static Node leaf(int i) { return Node.createURI("http://example/leaf/"+i) ; }
+
+    private static List<Binding> evalCxt(Graph graph, Node start, Path path, Node finish, Context cxt)
+    {
+        QueryIterator qIter = PathLib.execTriplePath(BindingFactory.root(), start, path, finish, new ExecutionContext(cxt, graph, null, null)) ;
+        return Iter.toList(qIter) ;
+    }
+
+    private static void testGrounded(Graph graph, Node start, String pathStr, Node finish, int expected)
+    {
+        List<Binding> x = eval(graph, start, pathStr, finish) ;
+        assertEquals(expected, x.size()) ;
+        // Same as a search from the start.
+        Path path = SSE.parsePath(pathStr, pmap) ;
+        int count = 0 ;
+        for ( Iterator<Node> iter = PathEval.eval(graph, start, path) ; iter.hasNext() ; )
+            if ( iter.next().equals(finish) )
+                count++ ;
+        assertEquals(count, x.size()) ;
+    }
+
     // TODO Shortest path is not implemented yet.  These also need to be verified that they are correct.
 //    @Ignore @Test public void path_40()   { test(graph1, n1,   "shortest(:p*)",       n1) ; }
 //    @Ignore @Test public void path_41()   { test(graph1, n1,   "shortest(:p+)",       n2) ; }
@@ -172,6 +172,16 @@ public class TestResultSetFormat1
         ByteArrayOutputStream out = new ByteArrayOutputStream() ;
         ResultSetFormatter.outputAsCSV(out, rs) ;
     }
+
+    @Test public void resultset_06()           
+    {
+        ResultSet rs = make($rs) ; 
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetFormatter.outputAsBinary(out, rs) ;
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray()) ;
+        ResultSet rs2 = ResultSetFactory.fromBinary(in) ;
+        areIsomorphic(rs, rs2);
+    }
     
     private static void areIsomorphic(ResultSet x, ResultSet y)
     {
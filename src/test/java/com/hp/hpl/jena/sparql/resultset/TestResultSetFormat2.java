@@ -19,6 +19,8 @@
 package com.hp.hpl.jena.sparql.resultset;
 
 import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.util.Arrays ;
 
 import org.junit.Assert;
 
@@ -27,6 +29,7 @@ import org.junit.Test ;
 
 import com.hp.hpl.jena.query.ResultSet ;
 import com.hp.hpl.jena.query.ResultSetFactory ;
+import com.hp.hpl.jena.query.ResultSetFormatter ;
 import com.hp.hpl.jena.sparql.ARQException;
 
 public class TestResultSetFormat2
@@ -338,6 +341,76 @@ public class TestResultSetFormat2
     	parseTSVAsBoolean(x, false);
     }
 
+    @Test
+    public void resultset_binary_boolean_01()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetFormatter.outputAsBinary(out, true) ;
+        Assert.assertTrue(BinaryInput.booleanFromBinary(new ByteArrayInputStream(out.toByteArray()))) ;
+    }
+
+    @Test
+    public void resultset_binary_boolean_02()
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetFormatter.outputAsBinary(out, false) ;
+        Assert.assertFalse(BinaryInput.booleanFromBinary(new ByteArrayInputStream(out.toByteArray()))) ;
+    }
+
+    @Test
+    public void resultset_binary_01()
+    {
+        // Read back through the general entry point.
+        byte[] b = binary("?x\t?y\n<http://example/>\t\n\t'abc'@en\n") ;
+        ResultSet rs = ResultSetFactory.load(new ByteArrayInputStream(b), ResultsFormat.FMT_RS_BINARY) ;
+        Assert.assertEquals(2, rs.getResultVars().size()) ;
+        int count = 0 ;
+        for ( ; rs.hasNext() ; rs.next() )
+            count++ ;
+        Assert.assertEquals(2, count) ;
+    }
+
+    @Test
+    public void resultset_binary_02()
+    {
+        Assert.assertEquals(ResultsFormat.FMT_RS_BINARY, ResultsFormat.lookup("binary")) ;
+        Assert.assertEquals(ResultsFormat.FMT_RS_BINARY, ResultsFormat.guessSyntax("results.srbin")) ;
+    }
+
+    @Test (expected=ResultSetException.class)
+    public void resultset_bad_binary_01()
+    {
+        // Not binary.
+        ResultSetFactory.fromBinary(new ByteArrayInputStream(StrUtils.asUTF8bytes("?x\n'a'\n"))) ;
+    }
+
+    @Test (expected=ResultSetException.class)
+    public void resultset_bad_binary_02()
+    {
+        // Truncated row.
+        byte[] b = binary("?x\n'abcdef'\n") ;
+        b = Arrays.copyOf(b, b.length-2) ;
+        ResultSet rs = ResultSetFactory.fromBinary(new ByteArrayInputStream(b)) ;
+        while (rs.hasNext())
+            rs.nextBinding();
+    }
+
+    @Test (expected=ResultSetException.class)
+    public void resultset_bad_binary_03()
+    {
+        // A result set, not a boolean.
+        byte[] b = binary("?x\n") ;
+        BinaryInput.booleanFromBinary(new ByteArrayInputStream(b)) ;
+    }
+
+    private static byte[] binary(String tsv)
+    {
+        ResultSet rs = ResultSetFactory.fromTSV(new ByteArrayInputStream(StrUtils.asUTF8bytes(tsv))) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetFormatter.outputAsBinary(out, rs) ;
+        return out.toByteArray() ;
+    }
+
     private void parseTSV(String x)
     {
         byte[] b = StrUtils.asUTF8bytes(x) ;
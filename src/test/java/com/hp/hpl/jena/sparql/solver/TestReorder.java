@@ -18,20 +18,41 @@
 
 package com.hp.hpl.jena.sparql.solver;
 
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.assertSameResults ;
+import static com.hp.hpl.jena.sparql.engine.TestEngineLib.exec ;
 import static com.hp.hpl.jena.sparql.solver.TestSolverLib.bgp ;
 import static com.hp.hpl.jena.sparql.solver.TestSolverLib.matcher ;
 import static com.hp.hpl.jena.sparql.solver.TestSolverLib.triple ;
+
+import java.util.Arrays ;
+import java.util.List ;
+
 import org.apache.jena.atlas.junit.BaseTest ;
 import org.junit.Test ;
 
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
 import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.ARQ ;
+import com.hp.hpl.jena.query.Query ;
+import com.hp.hpl.jena.query.QueryFactory ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
 import com.hp.hpl.jena.sparql.core.BasicPattern ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
+import com.hp.hpl.jena.sparql.engine.optimizer.StatsCollector ;
 import com.hp.hpl.jena.sparql.engine.optimizer.StatsMatcher ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderLib ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProc ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderProcIndexes ;
+import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderSampling ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
 import com.hp.hpl.jena.sparql.engine.optimizer.reorder.ReorderWeighted ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.graph.GraphUnionRead ;
+import com.hp.hpl.jena.sparql.graph.GraphWrapper ;
+import com.hp.hpl.jena.sparql.resultset.ResultSetRewindable ;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator ;
 
 public class TestReorder extends BaseTest
 {
@@ -229,5 +250,194 @@ public class TestReorder extends BaseTest
         BasicPattern bgp2 = transform.reorder(bgp) ;
         assertEquals(bgp2, bgp) ;
     }
+    
+    @Test public void sampling_01()
+    {
+        Graph graph = graph() ;
+        ReorderTransformation transform = ReorderLib.sampling(graph) ;
+        BasicPattern bgp1 = bgp("(bgp (?x :p ?v) (?x :q ?w))") ;
+        BasicPattern bgp2 = bgp("(bgp (?x :q ?w) (?x :p ?v))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+    }
+    
+    @Test public void sampling_02()
+    {
+        // ?v from :p is bound when ?v :r ?z is matched.
+        Graph graph = graph() ;
+        ReorderTransformation transform = ReorderLib.sampling(graph) ;
+        BasicPattern bgp1 = bgp("(bgp (?x :p ?v) (?v :r ?z) (?a :p ?b))") ;
+        BasicPattern bgp2 = bgp("(bgp (?v :r ?z) (?x :p ?v) (?a :p ?b))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+    }
+    
+    @Test public void sampling_03()
+    {
+        // No matches for :none.
+        Graph graph = graph() ;
+        ReorderTransformation transform = ReorderLib.sampling(graph) ;
+        BasicPattern bgp1 = bgp("(bgp (?x :q ?w) (?x :none ?v))") ;
+        BasicPattern bgp2 = bgp("(bgp (?x :none ?v) (?x :q ?w))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+    }
+    
+    @Test public void sampling_05()
+    {
+        // Both patterns have more matches than are sampled.
+        Graph graph = GraphFactory.createPlainGraph() ;
+        for ( int i = 0 ; i < 5*ReorderSampling.ProbeLimit ; i++ )
+            graph.add(triple("(:s"+i+" :a "+i+")")) ;
+        for ( int i = 0 ; i < 2*ReorderSampling.ProbeLimit ; i++ )
+            graph.add(triple("(:s"+i+" :b "+i+")")) ;
+        ReorderTransformation transform = ReorderLib.sampling(graph) ;
+        BasicPattern bgp1 = bgp("(bgp (?x :a ?v) (?y :b ?w))") ;
+        BasicPattern bgp2 = bgp("(bgp (?y :b ?w) (?x :a ?v))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+    }
+    
+    @Test public void sampling_04()
+    {
+        // Estimates depend on the predicate and shape, not the values: one probe per predicate.
+        final int[] finds = { 0 } ;
+        Graph graph = new GraphWrapper(graph()) {
+            @Override
+            public ExtendedIterator<Triple> find(Node s, Node p, Node o)
+            {
+                finds[0]++ ;
+                return super.find(s, p, o) ;
+            }
+        } ;
+        ReorderSampling.reset(graph) ;
+        ReorderTransformation transform = ReorderLib.sampling(graph) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+        {
+            BasicPattern bgp1 = bgp("(bgp (:s"+i+" :p ?v) (?x :q ?w))") ;
+            BasicPattern bgp2 = bgp("(bgp (:s"+i+" :p ?v) (?x :q ?w))") ;
+            assertEquals(bgp2, transform.reorder(bgp1)) ;
+        }
+        assertEquals(2, finds[0]) ;
+    }
+    
+    @Test public void sampling_query_01()
+    {
+        // Through the query engine: each query has a wrapper graph of its own,
+        // and the estimates for the graph underneath are used again.
+        Graph base = graph() ;
+        ReorderSampling.reset(base) ;
+        Query query = QueryFactory.create("PREFIX : <http://example/> SELECT * { ?x :p ?v . ?x :q ?w }") ;
+        ResultSetRewindable rs1 = exec(query, ModelFactory.createModelForGraph(new GraphWrapper(base)), ARQ.optReorderSampling, true) ;
+        long misses = ReorderSampling.getCacheMisses() ;
+        long hits = ReorderSampling.getCacheHits() ;
+        ResultSetRewindable rs2 = exec(query, ModelFactory.createModelForGraph(new GraphWrapper(base)), ARQ.optReorderSampling, true) ;
+        assertTrue(ReorderSampling.getCacheHits() >= hits+2) ;
+        assertEquals(misses, ReorderSampling.getCacheMisses()) ;
+        assertEquals(2, rs1.size()) ;
+        assertSameResults(rs1, rs2) ;
+    }
+    
+    @Test public void sampling_union_01()
+    {
+        // Union views of the same graphs of a dataset share estimates.
+        DatasetGraph dsg = DatasetGraphFactory.createMem() ;
+        Node g1 = node(":g1") ;
+        Node g2 = node(":g2") ;
+        dsg.addGraph(g1, graph()) ;
+        dsg.addGraph(g2, graph()) ;
+        List<Node> names = Arrays.asList(g1, g2) ;
+        BasicPattern bgp1 = bgp("(bgp (?x :p ?v) (?x :q ?w))") ;
+        BasicPattern bgp2 = bgp("(bgp (?x :q ?w) (?x :p ?v))") ;
+        assertEquals(bgp2, ReorderLib.sampling(new GraphUnionRead(dsg, names)).reorder(bgp1)) ;
+        long misses = ReorderSampling.getCacheMisses() ;
+        assertEquals(bgp2, ReorderLib.sampling(new GraphUnionRead(dsg, names)).reorder(bgp1)) ;
+        assertEquals(misses, ReorderSampling.getCacheMisses()) ;
+        // A different set of graphs is estimated separately.
+        ReorderLib.sampling(new GraphUnionRead(dsg, Arrays.asList(g1))).reorder(bgp1) ;
+        assertTrue(ReorderSampling.getCacheMisses() > misses) ;
+    }
+    
+    @Test public void collect_01()
+    {
+        Graph graph = graph() ;
+        graph.add(triple("(:s1 rdf:type :T)")) ;
+        graph.add(triple("(:s2 rdf:type :T)")) ;
+        graph.add(triple("(:s3 rdf:type :U)")) ;
+        StatsCollector stats = StatsCollector.gather(graph) ;
+        assertEquals(56, stats.getCount()) ;
+        assertEquals(50, stats.getPredicateStats(node(":p")).getCount()) ;
+        assertEquals(50, stats.getPredicateStats(node(":p")).getDistinctSubjects()) ;
+        assertEquals(10, stats.getPredicateStats(node(":p")).getDistinctObjects()) ;
+        assertEquals(2, stats.getTypeCount(node(":T"))) ;
+        assertEquals(1, stats.getTypeCount(node(":U"))) ;
+        assertNull(stats.getPredicateStats(node(":none"))) ;
+
+        StatsMatcher matcher = stats.getMatcher() ;
+        assertEquals(50, matcher.match(triple("(?x :p ?v)")), 0) ;
+        assertEquals(5, matcher.match(triple("(?x :p :o1)")), 0) ;
+        assertEquals(1, matcher.match(triple("(:s1 :p ?v)")), 0) ;
+        assertEquals(2, matcher.match(triple("(?x rdf:type :T)")), 0) ;
+        assertEquals(3, matcher.match(triple("(?x rdf:type ?t)")), 0) ;
+    }
+
+    @Test public void collect_02()
+    {
+        Graph graph = graph() ;
+        ReorderTransformation transform = new ReorderWeighted(StatsCollector.gather(graph).getMatcher()) ;
+        BasicPattern bgp1 = bgp("(bgp (?x :p ?v) (?x :q ?w))") ;
+        BasicPattern bgp2 = bgp("(bgp (?x :q ?w) (?x :p ?v))") ;
+        assertEquals(bgp2, transform.reorder(bgp1)) ;
+    }
+
+    @Test public void collect_refresh_01()
+    {
+        Graph graph = graph() ;
+        StatsCollector stats = StatsCollector.read(StatsCollector.gather(graph).asItem()) ;
+        assertEquals(10, stats.getPredicateStats(node(":p")).getDistinctObjects()) ;
+        assertEquals(2, stats.getPredicateStats(node(":q")).getCount()) ;
+
+        graph.add(triple("(:s3 :q 3)")) ;
+        graph.add(triple("(:s3 :new 3)")) ;
+        graph.delete(triple("(:o1 :r 1)")) ;
+        stats.refresh(graph) ;
+        // Only :q and :new rescanned
+        assertEquals(2, stats.getRescanCount()) ;
+        assertEquals(54, stats.getCount()) ;
+        assertEquals(3, stats.getPredicateStats(node(":q")).getDistinctSubjects()) ;
+        assertEquals(1, stats.getPredicateStats(node(":new")).getCount()) ;
+        assertNull(stats.getPredicateStats(node(":r"))) ;
+        assertEquals(10, stats.getPredicateStats(node(":p")).getDistinctObjects()) ;
+    }
+
+    @Test public void collect_refresh_02()
+    {
+        // Same count, different triples.
+        Graph graph = graph() ;
+        StatsCollector stats = StatsCollector.read(StatsCollector.gather(graph).asItem()) ;
+        assertEquals(10, stats.getPredicateStats(node(":p")).getDistinctObjects()) ;
+
+        graph.delete(triple("(:s1 :p :o1)")) ;
+        graph.add(triple("(:s1 :p :o99)")) ;
+        stats.refresh(graph) ;
+        assertEquals(1, stats.getRescanCount()) ;
+        assertEquals(50, stats.getPredicateStats(node(":p")).getCount()) ;
+        assertEquals(11, stats.getPredicateStats(node(":p")).getDistinctObjects()) ;
+
+        stats.refresh(graph) ;
+        assertEquals(0, stats.getRescanCount()) ;
+    }
+
+    private static Node node(String str)
+    {
+        return triple("(:s "+str+" :o)").getPredicate() ;
+    }
+
+    private static Graph graph()
+    {
+        Graph graph = GraphFactory.createPlainGraph() ;
+        for ( int i = 0 ; i < 50 ; i++ )
+            graph.add(triple("(:s"+i+" :p :o"+(i%10)+")")) ;
+        graph.add(triple("(:s1 :q 1)")) ;
+        graph.add(triple("(:s2 :q 2)")) ;
+        graph.add(triple("(:o1 :r 1)")) ;
+        return graph ;
+    }
   
 }
@@ -57,6 +57,11 @@ public class TestSortedDataBag extends TestCase
     }
     
     private void testSorting(int numBindings, int threshold)
+    {
+        testSorting(numBindings, threshold, 1, -1);
+    }
+    
+    private void testSorting(int numBindings, int threshold, int threads, int fanIn)
     {
         List<Binding> unsorted = randomBindings(numBindings);
         
@@ -71,7 +76,7 @@ public class TestSortedDataBag extends TestCase
         SortedDataBag<Binding> db = new SortedDataBag<Binding>(
                 new ThresholdPolicyCount<Binding>(threshold),
                 SerializationFactoryFinder.bindingSerializationFactory(),
-                comparator);
+                comparator, threads, fanIn);
         try
         {
             db.addAll(unsorted);
@@ -115,6 +120,102 @@ public class TestSortedDataBag extends TestCase
         }
     }
     
+    @Test public void testSortingParallel()
+    {
+        testSorting(0, 10, 4, -1);
+        testSorting(1, 1, 4, -1);
+        testSorting(100, 1, 4, -1);
+        testSorting(1000, 10, 4, -1);
+        testSorting(1000, 10, 2, -1);
+        testSorting(1000, 1000, 4, -1);
+    }
+    
+    @Test public void testSortingMultiLevelMerge()
+    {
+        // Fan-in less than the number of spill files: several levels of merging.
+        testSorting(5, 1, 1, 2);
+        testSorting(1000, 10, 1, 3);
+        testSorting(1000, 10, 1, 7);
+        testSorting(1000, 10, 4, 2);
+        testSorting(1000, 10, 4, 10);
+        testSorting(1000, 7, 3, 5);
+    }
+    
+    @Test public void testParallelTemporaryFilesAreCleanedUp()
+    {
+        List<Binding> unsorted = randomBindings(500);
+        
+        List<SortCondition> conditions = new ArrayList<SortCondition>(); 
+        conditions.add(new SortCondition(new ExprVar("8"), Query.ORDER_ASCENDING));
+        BindingComparator comparator = new BindingComparator(conditions);
+        
+        SortedDataBag<Binding> db = new SortedDataBag<Binding>(
+                new ThresholdPolicyCount<Binding>(10),
+                SerializationFactoryFinder.bindingSerializationFactory(),
+                comparator, 4, 5);
+        
+        List<File> spillFiles = new ArrayList<File>();
+        try
+        {
+            db.addAll(unsorted);
+            Iterator<Binding> iter = db.iterator();
+            // Merged files are deleted and replaced by the result of the merge.
+            spillFiles.addAll(db.getSpillFiles());
+            assertTrue(spillFiles.size() <= 5);
+            int count = 0;
+            while (iter.hasNext())
+            {
+                iter.next();
+                count++;
+            }
+            assertEquals(500, count);
+            Iter.close(iter);
+        }
+        finally
+        {
+            db.close();
+        }
+        
+        for (File file : spillFiles)
+        {
+            assertFalse(file.exists());
+        }
+    }
+    
+    @Test public void testParallelCloseWithOutstandingSpills()
+    {
+        List<Binding> unsorted = randomBindings(500);
+        
+        List<SortCondition> conditions = new ArrayList<SortCondition>(); 
+        conditions.add(new SortCondition(new ExprVar("8"), Query.ORDER_ASCENDING));
+        BindingComparator comparator = new BindingComparator(conditions);
+        
+        List<File> spillFiles = new ArrayList<File>();
+        for (int i = 0; i < 20; i++)
+        {
+            SortedDataBag<Binding> db = new SortedDataBag<Binding>(
+                    new ThresholdPolicyCount<Binding>(10),
+                    SerializationFactoryFinder.bindingSerializationFactory(),
+                    comparator, 4, -1);
+            try
+            {
+                // Close without reading: spills may still be being written.
+                db.addAll(unsorted);
+                spillFiles.addAll(db.getSpillFiles());
+            }
+            finally
+            {
+                db.close();
+            }
+        }
+        
+        assertFalse(spillFiles.isEmpty());
+        for (File file : spillFiles)
+        {
+            assertFalse(file.exists());
+        }
+    }
+    
     @Test public void testTemporaryFilesAreCleanedUpAfterCompletion()
     {
         List<Binding> unsorted = randomBindings(500);
@@ -34,6 +34,7 @@ import org.junit.runners.Suite ;
     // Peek readers.
     , TestPeekReaderSource.class
     , TestPeekReaderCharSequence.class
+    , TestPeekReaderMapped.class
     , TestPeekInputStreamSource.class
     //, TestPeekInputStreamBytes.class
     
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.io;
+
+import java.io.File ;
+import java.io.FileInputStream ;
+import java.io.FileOutputStream ;
+import java.io.IOException ;
+import java.nio.channels.FileChannel ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Chars ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.junit.Test ;
+
+public class TestPeekReaderMapped extends AbstractTestPeekReader
+{
+    @Override
+    PeekReader make(String contents, int size)
+    {
+        // Small windows so that the file is remapped while reading.
+        CharStream stream = new CharStreamMapped(channel(StrUtils.asUTF8bytes(contents), 0), size, 3) ;
+        return PeekReader.make(stream) ;
+    }
+
+    @Test public void mapped_01() { testUTF8("Àéíÿ") ; }
+    @Test public void mapped_02() { testUTF8("孫子兵法 日本 ☺☻♪♫") ; }
+    @Test public void mapped_03() { testUTF8("abc ءآأ def αβγ\n") ; }
+    // Supplementary character : surrogate pair
+    @Test public void mapped_04() { testUTF8("a𝐀b𝐁") ; }
+
+    @Test public void mapped_05()
+    {
+        // Read from the current position
+        byte[] b = StrUtils.asUTF8bytes("XYZαβγ") ;
+        CharStreamMapped r = new CharStreamMapped(channel(b, 3)) ;
+        assertEquals('α', r.advance()) ;
+        assertEquals('β', r.advance()) ;
+        assertEquals('γ', r.advance()) ;
+        assertEquals(-1, r.advance()) ;
+        r.closeStream() ;
+    }
+
+    @Test public void mapped_06()
+    {
+        // BOM is skipped
+        byte[] b = StrUtils.asUTF8bytes(Chars.BOM+"abc") ;
+        PeekReader r = PeekReader.makeUTF8(channel(b, 0)) ;
+        assertEquals('a', r.readChar()) ;
+        IO.close(r) ;
+    }
+
+    @Test(expected=AtlasException.class)
+    public void mapped_07()
+    {
+        // Truncated sequence
+        byte[] b = { 'a', (byte)0xE2, (byte)0x82 } ;
+        read(new CharStreamMapped(channel(b, 0))) ;
+    }
+
+    @Test(expected=AtlasException.class)
+    public void mapped_08()
+    {
+        // Not a continuation byte
+        byte[] b = { (byte)0xC2, 'a' } ;
+        read(new CharStreamMapped(channel(b, 0))) ;
+    }
+
+    private static void testUTF8(String string)
+    {
+        byte[] b = StrUtils.asUTF8bytes(string) ;
+        for ( int window = 1 ; window <= 6 ; window++ )
+            for ( int size = 2 ; size <= 4 ; size++ )
+                assertEquals(string, read(new CharStreamMapped(channel(b, 0), size, window))) ;
+        assertEquals(string, read(new CharStreamMapped(channel(b, 0)))) ;
+    }
+
+    private static String read(CharStream r)
+    {
+        StringBuilder sb = new StringBuilder() ;
+        int ch ;
+        while ( (ch = r.advance()) != -1 )
+            sb.append((char)ch) ;
+        r.closeStream() ;
+        return sb.toString() ;
+    }
+
+    private static FileChannel channel(byte[] bytes, long position)
+    {
+        try {
+            File f = File.createTempFile("mapped", ".txt") ;
+            f.deleteOnExit() ;
+            FileOutputStream out = new FileOutputStream(f) ;
+            out.write(bytes) ;
+            out.close() ;
+            FileChannel channel = new FileInputStream(f).getChannel() ;
+            channel.position(position) ;
+            return channel ;
+        } catch (IOException ex) { throw new AtlasException(ex) ; }
+    }
+}
@@ -18,13 +18,18 @@
 
 package org.apache.jena.riot;
 
+import java.io.ByteArrayInputStream ;
 import java.io.FileInputStream ;
 import java.io.IOException ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.IRILib ;
+import org.apache.jena.atlas.lib.StrUtils ;
 import org.apache.jena.riot.system.ErrorHandler ;
 import org.apache.jena.riot.system.ErrorHandlerFactory ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.apache.jena.riot.tokens.TokenizerFactory ;
 import org.junit.AfterClass ;
 import org.junit.BeforeClass ;
 import org.junit.Test ;
@@ -34,6 +39,8 @@ import com.hp.hpl.jena.query.Dataset ;
 import com.hp.hpl.jena.query.DatasetFactory ;
 import com.hp.hpl.jena.rdf.model.Model ;
 import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
 import com.hp.hpl.jena.sparql.util.Context ;
 
 /* Tests of RDFDataMgr.
@@ -80,6 +87,43 @@ public class TestReadData extends BaseTest
     @Test public void read_input_2() throws IOException
     { read_stream("D.trig", "trig") ; }
     
+    // Memory mapped files.
+    @Test public void read_mapped_01() { read_mapped("D.nq", RDFLanguages.NQUADS) ; }
+    @Test public void read_mapped_02() { read_mapped("D.trig", RDFLanguages.TRIG) ; }
+    @Test public void read_mapped_03() { read_mapped("D.ttl", RDFLanguages.TURTLE) ; }
+    @Test public void read_mapped_04() { read_mapped("D.nt", RDFLanguages.NTRIPLES) ; }
+    
+    // Parse and load on separate threads.
+    @Test public void read_async_01() { read_async("D.nq", RDFLanguages.NQUADS) ; }
+    @Test public void read_async_02() { read_async("D.trig", RDFLanguages.TRIG) ; }
+    @Test public void read_async_03() { read_async("D.ttl", RDFLanguages.TURTLE) ; }
+    
+    @Test public void read_async_04()
+    {
+        String x = "@prefix : <http://example/> . :s :p 1 . :s :p 2 ." ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        Context cxt = new Context() ;
+        cxt.set(RDFDataMgr.parseAsyncSymbol, true) ;
+        RDFDataMgr.parse(StreamRDFLib.graph(graph), new ByteArrayInputStream(StrUtils.asUTF8bytes(x)), null, RDFLanguages.TURTLE, cxt) ;
+        assertEquals(2, graph.size()) ;
+        assertEquals("http://example/", graph.getPrefixMapping().getNsPrefixURI("")) ;
+    }
+    
+    @Test(expected=RiotException.class)
+    public void read_async_05()
+    {
+        // Parse error, after some triples.
+        String x = "@prefix : <http://example/> . :s :p 1 . :s :p 2 . :s :p" ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        Context cxt = new Context() ;
+        cxt.set(RDFDataMgr.parseAsyncSymbol, true) ;
+        ErrorHandler err = ErrorHandlerFactory.getDefaultErrorHandler() ;
+        try {
+            ErrorHandlerFactory.setDefaultErrorHandler(ErrorHandlerFactory.errorHandlerNoLogging) ;
+            RDFDataMgr.parse(StreamRDFLib.graph(graph), new ByteArrayInputStream(StrUtils.asUTF8bytes(x)), null, RDFLanguages.TURTLE, cxt) ;
+        } finally { ErrorHandlerFactory.setDefaultErrorHandler(err) ; }
+    }
+    
     @Test public void load_01() { RDFDataMgr.loadModel(filename("D.nt")) ; }
     @Test public void load_02() { RDFDataMgr.loadModel(filename("D.nt"), RDFLanguages.NTRIPLES)  ; }
     @Test public void load_03() { RDFDataMgr.loadModel(filename("D-nt"), RDFLanguages.NTRIPLES)  ; }
@@ -165,6 +209,40 @@ public class TestReadData extends BaseTest
         in1.close() ;
     }
     
+    private static void read_mapped(String filename, Lang lang)
+    {
+        String uri = IRILib.filenameToIRI(filename(filename)) ;
+        DatasetGraph dsg0 = DatasetGraphFactory.createMem() ;
+        RDFDataMgr.read(dsg0, uri, lang) ;
+        long x = SysRIOT.mappedInputThreshold ;
+        try {
+            SysRIOT.mappedInputThreshold = 0 ;
+            long mapped = TokenizerFactory.getMappedInputCount() ;
+            DatasetGraph dsg1 = DatasetGraphFactory.createMem() ;
+            RDFDataMgr.read(dsg1, uri, lang) ;
+            assertTrue(TokenizerFactory.getMappedInputCount() > mapped) ;
+            assertFalse(dsg1.isEmpty()) ;
+            assertTrue(dsg0.getDefaultGraph().isIsomorphicWith(dsg1.getDefaultGraph())) ;
+            assertEquals(Iter.count(dsg0.listGraphNodes()), Iter.count(dsg1.listGraphNodes())) ;
+        } finally { SysRIOT.mappedInputThreshold = x ; }
+    }
+    
+    private static void read_async(String filename, Lang lang)
+    {
+        filename = filename(filename) ;
+        DatasetGraph dsg0 = DatasetGraphFactory.createMem() ;
+        RDFDataMgr.read(dsg0, filename, lang) ;
+        Context cxt = new Context() ;
+        cxt.set(RDFDataMgr.parseAsyncSymbol, true) ;
+        DatasetGraph dsg1 = DatasetGraphFactory.createMem() ;
+        RDFDataMgr.read(dsg1, filename, lang, cxt) ;
+        assertFalse(dsg1.isEmpty()) ;
+        assertTrue(dsg0.getDefaultGraph().isIsomorphicWith(dsg1.getDefaultGraph())) ;
+        assertEquals(Iter.count(dsg0.listGraphNodes()), Iter.count(dsg1.listGraphNodes())) ;
+        assertEquals(dsg0.getDefaultGraph().getPrefixMapping().getNsPrefixMap(),
+                     dsg1.getDefaultGraph().getPrefixMapping().getNsPrefixMap()) ;
+    }
+    
     private static Model loadModel(String uri)
     {
         return RDFDataMgr.loadModel(filename(uri)) ;
@@ -37,6 +37,8 @@ import org.junit.runners.Suite ;
     , TestLangRdfJson.class
     , TestParserFactory.class
     , TestPipedRDFIterators.class
+    , TestLangNTupleParallel.class
+    , TestLangRDFBinary.class
 })
 
 
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.ByteArrayInputStream ;
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.RiotReader ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.util.Context ;
+
+public class TestLangNTupleParallel extends BaseTest
+{
+    private static String ntriples(int n)
+    {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            sb.append("<http://example/s"+i+"> <http://example/p> \"value "+i+"\" .\n") ;
+            // Blank nodes used across chunks.
+            sb.append("_:b"+(i%7)+" <http://example/q> <http://example/s"+i+"> .\n") ;
+        }
+        return sb.toString() ;
+    }
+
+    private static String nquads(int n)
+    {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < n ; i++ )
+        {
+            sb.append("<http://example/s"+i+"> <http://example/p> \"vé "+i+"\"@fr <http://example/g"+(i%3)+"> .\r\n") ;
+            sb.append("_:b"+(i%5)+" <http://example/q> \""+i+"\" .\r\n") ;
+        }
+        return sb.toString() ;
+    }
+
+    @Test public void parallel_ntriples_01()
+    {
+        String data = ntriples(200) ;
+        Graph expected = GraphFactory.createDefaultGraph() ;
+        RiotReader.parse(in(data), RDFLanguages.NTRIPLES, null, StreamRDFLib.graph(expected)) ;
+
+        for ( boolean ordered : new boolean[]{ true, false } )
+        {
+            Graph graph = GraphFactory.createDefaultGraph() ;
+            parse(data, RDFLanguages.NTRIPLES, StreamRDFLib.graph(graph), 4, ordered, 100) ;
+            assertEquals(400, graph.size()) ;
+            assertTrue(expected.isIsomorphicWith(graph)) ;
+            // 7 blank nodes, whichever chunk they are met in.
+            HashSet<Object> bnodes = new HashSet<Object>() ;
+            for ( Triple t : graph.find(null, null, null).toList() )
+                if ( t.getSubject().isBlank() )
+                    bnodes.add(t.getSubject()) ;
+            assertEquals(7, bnodes.size()) ;
+        }
+    }
+
+    @Test public void parallel_ntriples_02()
+    {
+        // In order.
+        String data = ntriples(100) ;
+        final List<Triple> seq = new ArrayList<Triple>() ;
+        RiotReader.parse(in(data), RDFLanguages.NTRIPLES, null, collect(seq)) ;
+        List<Triple> par = new ArrayList<Triple>() ;
+        parse(data, RDFLanguages.NTRIPLES, collect(par), 3, true, 64) ;
+        assertEquals(seq.size(), par.size()) ;
+        for ( int i = 0 ; i < seq.size() ; i += 2 )
+            assertEquals(seq.get(i), par.get(i)) ;
+    }
+
+    @Test public void parallel_nquads_01()
+    {
+        String data = nquads(150) ;
+        DatasetGraph expected = DatasetGraphFactory.createMem() ;
+        RiotReader.parse(in(data), RDFLanguages.NQUADS, null, StreamRDFLib.dataset(expected)) ;
+        DatasetGraph dsg = DatasetGraphFactory.createMem() ;
+        parse(data, RDFLanguages.NQUADS, StreamRDFLib.dataset(dsg), 4, false, 200) ;
+        assertEquals(expected.getDefaultGraph().size(), dsg.getDefaultGraph().size()) ;
+        assertTrue(expected.getDefaultGraph().isIsomorphicWith(dsg.getDefaultGraph())) ;
+        for ( int i = 0 ; i < 3 ; i++ )
+        {
+            com.hp.hpl.jena.graph.Node g = com.hp.hpl.jena.graph.Node.createURI("http://example/g"+i) ;
+            assertTrue(expected.getGraph(g).isIsomorphicWith(dsg.getGraph(g))) ;
+        }
+    }
+
+    @Test public void parallel_lines_01()
+    {
+        // A line longer than the chunk size.
+        String data = StrUtils.strjoinNL("<http://example/s> <http://example/p> \"a long literal\" .",
+                                         "<http://example/s> <http://example/p> \"b\" .", "") ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        parse(data, RDFLanguages.NTRIPLES, StreamRDFLib.graph(graph), 2, true, 10) ;
+        assertEquals(2, graph.size()) ;
+        // No final newline.
+        graph = GraphFactory.createDefaultGraph() ;
+        parse("<http://example/s> <http://example/p> <http://example/o> .", RDFLanguages.NTRIPLES, StreamRDFLib.graph(graph), 2, true, 10) ;
+        assertEquals(1, graph.size()) ;
+    }
+
+    @Test public void parallel_release_01()
+    {
+        // Delivered chunks are not kept by the parser.
+        String data = ntriples(200) ;
+        for ( boolean ordered : new boolean[]{ true, false } )
+        {
+            final int[] count = { 0 } ;
+            final int[] held = { 0 } ;
+            final LangNTupleParallel[] parser = new LangNTupleParallel[1] ;
+            StreamRDF dest = new StreamRDFBase() {
+                @Override public void triple(Triple triple) { count[0]++ ; }
+                @Override public void finish() { held[0] = parser[0].completedQueueSize() ; }
+            } ;
+            parser[0] = RiotReader.createParserParallel(in(data), RDFLanguages.NTRIPLES, null, dest, 2, ordered) ;
+            parser[0].setChunkSize(100) ;
+            parser[0].parse() ;
+            assertEquals(400, count[0]) ;
+            assertEquals(0, held[0]) ;
+        }
+    }
+
+    @Test public void parallel_error_01()
+    {
+        // Line numbers are for the whole input.
+        String data = ntriples(50)+"<http://example/s> <http://example/p> .\n"+ntriples(10) ;
+        try {
+            setTestLogging() ;
+            parse(data, RDFLanguages.NTRIPLES, new StreamRDFBase(), 4, true, 100) ;
+            fail("No parse error") ;
+        } catch (RiotException ex) {
+            assertTrue(ex.getMessage().startsWith("[line: 101,")) ;
+        } finally { unsetTestLogging() ; }
+    }
+
+    @Test public void parallel_rdfdatamgr_01()
+    {
+        String data = ntriples(100) ;
+        Graph expected = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.read(expected, in(data), RDFLanguages.NTRIPLES) ;
+        Context cxt = new Context() ;
+        cxt.set(RDFDataMgr.parseThreadsSymbol, 3) ;
+        cxt.set(RDFDataMgr.parseOrderedSymbol, false) ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.parse(StreamRDFLib.graph(graph), in(data), null, RDFLanguages.NTRIPLES, cxt) ;
+        assertTrue(expected.isIsomorphicWith(graph)) ;
+    }
+
+    private static void parse(String data, Lang lang, StreamRDF dest, int threads, boolean ordered, int chunkSize)
+    {
+        LangNTupleParallel parser = RiotReader.createParserParallel(in(data), lang, null, dest, threads, ordered) ;
+        parser.setChunkSize(chunkSize) ;
+        parser.parse() ;
+    }
+
+    private static StreamRDF collect(final List<Triple> acc)
+    {
+        return new StreamRDFBase() {
+            @Override public void triple(Triple triple) { acc.add(triple) ; }
+        } ;
+    }
+
+    private static ByteArrayInputStream in(String data)
+    {
+        return new ByteArrayInputStream(StrUtils.asUTF8bytes(data)) ;
+    }
+}
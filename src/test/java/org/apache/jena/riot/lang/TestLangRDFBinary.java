@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.atlas.lib.Tuple ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.binary.BinaryDecoder ;
+import org.apache.jena.riot.binary.BinaryEncoder ;
+import org.apache.jena.riot.binary.BinaryRDF ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype ;
+import com.hp.hpl.jena.graph.Graph ;
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.sparql.core.DatasetGraph ;
+import com.hp.hpl.jena.sparql.core.DatasetGraphFactory ;
+import com.hp.hpl.jena.sparql.core.Quad ;
+import com.hp.hpl.jena.sparql.core.Var ;
+import com.hp.hpl.jena.sparql.graph.GraphFactory ;
+import com.hp.hpl.jena.sparql.sse.SSE ;
+
+public class TestLangRDFBinary extends BaseTest
+{
+    @Test public void binary_01()
+    {
+        Graph graph = SSE.parseGraph(StrUtils.strjoinNL(
+            "(graph",
+            "  (<http://example/s> <http://example/p> <http://example/o>)",
+            "  (<http://example/s> <http://example/p> 'abc')",
+            "  (<http://example/s> <http://example/p> 'abc'@en)",
+            "  (<http://example/s> <http://example/p> 123)",
+            "  (<http://example/s> <http://example/p> '1.5'^^<http://example/dt>)",
+            "  (_:b <http://example/p> _:b)",
+            "  (_:b <urn:x-local:q> '')",
+            "  (<http://example/> <http://example/p#> 'café 中 𝄞')",
+            ")")) ;
+        Graph graph2 = roundTrip(graph) ;
+        assertTrue(graph.isIsomorphicWith(graph2)) ;
+    }
+
+    @Test public void binary_02()
+    {
+        String x = StrUtils.strjoinNL(
+            "{ <http://example/s> <http://example/p> 1 }",
+            "<http://example/g1> { <http://example/s> <http://example/p> 2 }",
+            "<http://example/g2> { <http://example/s> <http://example/p> 'x'@fr }") ;
+        DatasetGraph dsg = DatasetGraphFactory.createMem() ;
+        RDFDataMgr.read(dsg, new ByteArrayInputStream(StrUtils.asUTF8bytes(x)), Lang.TRIG) ;
+        assertEquals(3, quads(dsg).size()) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, dsg, Lang.RDFBINARY) ;
+        DatasetGraph dsg2 = DatasetGraphFactory.createMem() ;
+        RDFDataMgr.read(dsg2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFBINARY) ;
+        assertEquals(quads(dsg), quads(dsg2)) ;
+    }
+
+    @Test public void binary_03()
+    {
+        // More terms and namespaces than the dictionaries hold, with references back.
+        int N = BinaryRDF.TermDictionarySize + 1000 ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        Node p = Node.createURI("http://example/p") ;
+        for ( int i = 0 ; i < N ; i++ )
+        {
+            Node s = Node.createURI("http://example/ns"+(i%(2*BinaryRDF.NamespaceDictionarySize))+"/s"+i) ;
+            graph.add(new Triple(s, p, Node.createLiteral("v"+i))) ;
+            graph.add(new Triple(s, p, Node.createLiteral("v"+(i/2), null, XSDDatatype.XSDstring))) ;
+            graph.add(new Triple(s, p, Node.createURI("http://example/ns"+(i%3)+"/s"+(i/3)))) ;
+        }
+        Graph graph2 = roundTrip(graph) ;
+        assertEquals(graph.size(), graph2.size()) ;
+        assertTrue(graph.isIsomorphicWith(graph2)) ;
+    }
+
+    @Test public void binary_04()
+    {
+        // Long literals are not put in the dictionary.
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < BinaryRDF.MaxStoredLexicalLength+10 ; i++ )
+            sb.append((char)('a'+i%26)) ;
+        Node lit = Node.createLiteral(sb.toString()) ;
+        Node s = Node.createURI("http://example/s") ;
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        for ( int i = 0 ; i < 3 ; i++ )
+        {
+            Node p = Node.createURI("http://example/p"+i) ;
+            graph.add(new Triple(s, p, lit)) ;
+            graph.add(new Triple(s, p, Node.createLiteral("short"))) ;
+        }
+        Graph graph2 = roundTrip(graph) ;
+        assertTrue(graph.isIsomorphicWith(graph2)) ;
+    }
+
+    @Test public void binary_05()
+    {
+        final Map<String, String> prefixes = new HashMap<String, String>() ;
+        final List<String> bases = new ArrayList<String>() ;
+        final List<Tuple<Node>> tuples = new ArrayList<Tuple<Node>>() ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF w = BinaryRDF.writer(out) ;
+        w.start() ;
+        w.base("http://example/base/") ;
+        w.prefix("ex", "http://example/") ;
+        w.prefix("", "http://example/default#") ;
+        Tuple<Node> tuple = Tuple.create(Node.createURI("http://example/a"), Var.alloc("x"), Node.ANY, null) ;
+        w.tuple(tuple) ;
+        w.finish() ;
+
+        StreamRDF dest = new StreamRDFBase() {
+            @Override public void prefix(String prefix, String iri) { prefixes.put(prefix, iri) ; }
+            @Override public void base(String base)                 { bases.add(base) ; }
+            @Override public void tuple(Tuple<Node> t)              { tuples.add(t) ; }
+        } ;
+        BinaryRDF.parse(new ByteArrayInputStream(out.toByteArray()), dest) ;
+        assertEquals(2, prefixes.size()) ;
+        assertEquals("http://example/", prefixes.get("ex")) ;
+        assertEquals("http://example/default#", prefixes.get("")) ;
+        assertEquals(Arrays.asList("http://example/base/"), bases) ;
+        assertEquals(1, tuples.size()) ;
+        assertEquals(tuple, tuples.get(0)) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void binary_bad_01()
+    {
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.read(graph, new ByteArrayInputStream(StrUtils.asUTF8bytes("<x> <p> <o> .")), Lang.RDFBINARY) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void binary_bad_02()
+    {
+        // Truncated
+        Graph graph = SSE.parseGraph("(graph (<http://example/s> <http://example/p> 'abcdef'))") ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, graph, Lang.RDFBINARY) ;
+        byte[] bytes = Arrays.copyOf(out.toByteArray(), out.size()-3) ;
+        RDFDataMgr.read(GraphFactory.createDefaultGraph(), new ByteArrayInputStream(bytes), Lang.RDFBINARY) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void binary_bad_03()
+    {
+        // Undefined term in a triple
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        BinaryEncoder encoder = new BinaryEncoder(out) ;
+        encoder.writeHeaderRDF() ;
+        encoder.writeByte(BinaryRDF.RecTriple) ;
+        encoder.writeNode(Node.createURI("http://example/s")) ;
+        encoder.writeNode(Node.createURI("http://example/p")) ;
+        encoder.writeNode(null) ;
+        encoder.flush() ;
+        RDFDataMgr.read(GraphFactory.createDefaultGraph(), new ByteArrayInputStream(out.toByteArray()), Lang.RDFBINARY) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void binary_bad_04()
+    {
+        // Undefined graph in a quad
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        BinaryEncoder encoder = new BinaryEncoder(out) ;
+        encoder.writeHeaderRDF() ;
+        encoder.writeByte(BinaryRDF.RecQuad) ;
+        encoder.writeNode(null) ;
+        encoder.writeNode(Node.createURI("http://example/s")) ;
+        encoder.writeNode(Node.createURI("http://example/p")) ;
+        encoder.writeNode(Node.createURI("http://example/o")) ;
+        encoder.flush() ;
+        RDFDataMgr.read(DatasetGraphFactory.createMem(), new ByteArrayInputStream(out.toByteArray()), Lang.RDFBINARY) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void binary_bad_05()
+    {
+        // A string length far beyond the input.
+        byte[] bytes = { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, 'a', 'b' } ;
+        new BinaryDecoder(new ByteArrayInputStream(bytes), LabelToNode.createUseLabelEncoded()).readString() ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void binary_bad_06()
+    {
+        // A code point above 0x10FFFF.
+        byte[] bytes = { 4, (byte)0xF7, (byte)0xBF, (byte)0xBF, (byte)0xBF } ;
+        new BinaryDecoder(new ByteArrayInputStream(bytes), LabelToNode.createUseLabelEncoded()).readString() ;
+    }
+
+    @Test public void binary_registration_01()
+    {
+        assertEquals(Lang.RDFBINARY, RDFLanguages.filenameToLang("data.rdfb")) ;
+        assertTrue(RDFLanguages.isQuads(Lang.RDFBINARY)) ;
+    }
+
+    @Test public void binary_size_01()
+    {
+        // Repeated terms are written once.
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        Node p = Node.createURI("http://example/a/long/namespace/predicate") ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            graph.add(new Triple(Node.createURI("http://example/a/long/namespace/s"+i), p, Node.createLiteral("v"+(i%10)))) ;
+        ByteArrayOutputStream bin = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(bin, graph, Lang.RDFBINARY) ;
+        ByteArrayOutputStream nt = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(nt, graph, Lang.NTRIPLES) ;
+        assertTrue(bin.size()*4 < nt.size()) ;
+    }
+
+    private static Graph roundTrip(Graph graph)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, graph, Lang.RDFBINARY) ;
+        Graph graph2 = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.read(graph2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFBINARY) ;
+        return graph2 ;
+    }
+
+    private static HashSet<Quad> quads(DatasetGraph dsg)
+    {
+        HashSet<Quad> x = new HashSet<Quad>() ;
+        Iterator<Quad> iter = dsg.find() ;
+        while ( iter.hasNext() )
+            x.add(iter.next()) ;
+        return x ;
+    }
+}
@@ -78,8 +78,13 @@ public class TestPipedRDFIterators {
 
     private void test_streamed_triples(int bufferSize, final int generateSize, boolean fair) throws InterruptedException,
             ExecutionException, TimeoutException {
+        test_streamed_triples(bufferSize, generateSize, fair, 1);
+    }
+
+    private void test_streamed_triples(int bufferSize, final int generateSize, boolean fair, int batchSize) throws InterruptedException,
+            ExecutionException, TimeoutException {
         
-        final PipedRDFIterator<Triple> it = new PipedRDFIterator<Triple>(bufferSize, fair);
+        final PipedRDFIterator<Triple> it = new PipedRDFIterator<Triple>(bufferSize, fair, batchSize);
         final PipedTriplesStream out = new PipedTriplesStream(it);
 
         // Create a runnable that will generate triples
@@ -221,8 +226,13 @@ public class TestPipedRDFIterators {
 
     private void test_streamed_quads(int bufferSize, final int generateSize, boolean fair) throws InterruptedException,
             ExecutionException, TimeoutException {
+        test_streamed_quads(bufferSize, generateSize, fair, 1);
+    }
+
+    private void test_streamed_quads(int bufferSize, final int generateSize, boolean fair, int batchSize) throws InterruptedException,
+            ExecutionException, TimeoutException {
         
-        final PipedRDFIterator<Quad> it = new PipedRDFIterator<Quad>(bufferSize, fair);
+        final PipedRDFIterator<Quad> it = new PipedRDFIterator<Quad>(bufferSize, fair, batchSize);
         final PipedQuadsStream out = new PipedQuadsStream(it);
 
         // Create a runnable that will generate quads
@@ -363,6 +373,72 @@ public class TestPipedRDFIterators {
         this.test_streamed_quads(10000, 100000, false);
     }
 
+    /**
+     * Test batching: partial last batch
+     */
+    @Test
+    public void streamed_triples_batched_01() throws InterruptedException, ExecutionException, TimeoutException {
+        this.test_streamed_triples(100, 1005, false, 10);
+    }
+
+    /**
+     * Test batching: buffer smaller than a batch
+     */
+    @Test
+    public void streamed_triples_batched_02() throws InterruptedException, ExecutionException, TimeoutException {
+        this.test_streamed_triples(1, 1000, true, 100);
+    }
+
+    /**
+     * Test batching: fewer items than one batch
+     */
+    @Test
+    public void streamed_triples_batched_03() throws InterruptedException, ExecutionException, TimeoutException {
+        this.test_streamed_triples(10000, 5, false, PipedRDFIterator.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Test batching: nothing sent
+     */
+    @Test
+    public void streamed_triples_batched_04() throws InterruptedException, ExecutionException, TimeoutException {
+        this.test_streamed_triples(10000, 0, false, PipedRDFIterator.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Test batching with many items
+     */
+    @Test
+    public void streamed_quads_batched_01() throws InterruptedException, ExecutionException, TimeoutException {
+        this.test_streamed_quads(PipedRDFIterator.DEFAULT_BUFFER_SIZE, 100000, false, PipedRDFIterator.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Test batching keeps the order of items
+     */
+    @Test
+    public void streamed_quads_batched_02() throws InterruptedException, ExecutionException, TimeoutException {
+        final PipedRDFIterator<Quad> it = new PipedRDFIterator<Quad>(50, false, 7);
+        final PipedQuadsStream out = new PipedQuadsStream(it);
+        final int generateSize = 1000;
+        Future<?> genResult = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                out.start();
+                for (int i = 1; i <= generateSize; i++)
+                    out.quad(new Quad(Quad.defaultGraphIRI, Node.createURI("http://s"), Node.createURI("http://p"), NodeFactory.intToNode(i)));
+                out.finish();
+            }
+        });
+        int i = 0;
+        while (it.hasNext()) {
+            i++;
+            Assert.assertEquals(NodeFactory.intToNode(i), it.next().getObject());
+        }
+        Assert.assertEquals(generateSize, i);
+        genResult.get(5, TimeUnit.SECONDS);
+    }
+
     private void test_streamed_tuples(int bufferSize, final int generateSize, boolean fair) throws InterruptedException,
             ExecutionException, TimeoutException {
         
@@ -523,6 +599,22 @@ public class TestPipedRDFIterators {
         new PipedRDFIterator<Triple>(-1);
     }
 
+    /**
+     * Test for bad batch size
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void streamed_instantiation_bad_03() {
+        new PipedRDFIterator<Triple>(100, false, 0);
+    }
+
+    /**
+     * Test for bad buffer size with batching
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void streamed_instantiation_bad_04() {
+        new PipedRDFIterator<Triple>(0, false, 10);
+    }
+
     /**
      * Tests that the iterate copes correctly in the case of hitting a parser
      * error
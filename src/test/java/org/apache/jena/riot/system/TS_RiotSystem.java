@@ -29,6 +29,7 @@ import org.junit.runners.Suite.SuiteClasses ;
 @RunWith(Suite.class)
 @SuiteClasses({ 
     TestChecker.class
+    , TestParserProfileCache.class
     
     // Prefix Map implementations
     , TestPrefixMap.class
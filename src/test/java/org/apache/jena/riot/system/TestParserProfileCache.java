@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import java.io.ByteArrayInputStream ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.riot.ErrorHandlerTestLib.ErrorHandlerMsg ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.RiotReader ;
+import org.apache.jena.riot.lang.LangRIOT ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Node ;
+import com.hp.hpl.jena.graph.Triple ;
+
+public class TestParserProfileCache extends BaseTest
+{
+    @Test public void nodeCache_01()
+    {
+        String x = StrUtils.strjoinNL("<http://example/s1> <http://example/p> \"1\"^^<http://www.w3.org/2001/XMLSchema#integer> .",
+                                      "<http://example/s2> <http://example/p> \"1\"^^<http://www.w3.org/2001/XMLSchema#integer> .") ;
+        List<Triple> triples = new ArrayList<Triple>() ;
+        ParserProfileBase profile = parse(x, RDFLanguages.NTRIPLES, RiotLib.profile(RDFLanguages.NTRIPLES, null), triples) ;
+        assertEquals(2, triples.size()) ;
+        assertSame(triples.get(0).getPredicate(), triples.get(1).getPredicate()) ;
+        assertSame(triples.get(0).getObject(), triples.get(1).getObject()) ;
+        assertEquals(2, profile.nodeCacheHits()) ;
+        assertEquals(4, profile.nodeCacheMisses()) ;
+        assertEquals(1/3.0, profile.nodeCacheHitRate(), 0.0001) ;
+    }
+
+    @Test public void nodeCache_02()
+    {
+        // Resolved IRIs are cached, not the IRI as written.
+        String x = StrUtils.strjoinNL("@base <http://example/a/> .",
+                                      "<s> <p> 1 .",
+                                      "@base <http://example/b/> .",
+                                      "<s> <p> 1 .") ;
+        List<Triple> triples = new ArrayList<Triple>() ;
+        parse(x, RDFLanguages.TURTLE, RiotLib.profile(RDFLanguages.TURTLE, "http://example/"), triples) ;
+        assertEquals(2, triples.size()) ;
+        assertEquals(Node.createURI("http://example/a/s"), triples.get(0).getSubject()) ;
+        assertEquals(Node.createURI("http://example/b/s"), triples.get(1).getSubject()) ;
+        assertSame(triples.get(0).getObject(), triples.get(1).getObject()) ;
+    }
+
+    @Test public void nodeCache_03()
+    {
+        // Checking happens for every occurrence.
+        String x = StrUtils.strjoinNL("@prefix xsd: <http://www.w3.org/2001/XMLSchema#> .",
+                                      "<http://example/s> <http://example/p> 'abc'^^xsd:integer .",
+                                      "<http://example/s> <http://example/q> 'abc'^^xsd:integer .") ;
+        ErrorHandlerMsg handler = new ErrorHandlerMsg() ;
+        List<Triple> triples = new ArrayList<Triple>() ;
+        parse(x, RDFLanguages.TURTLE, RiotLib.profile(RDFLanguages.TURTLE, "http://example/", handler), triples) ;
+        assertEquals(2, triples.size()) ;
+        assertEquals(2, handler.msgs.size()) ;
+    }
+
+    @Test public void nodeCache_04()
+    {
+        // No cache.
+        String x = StrUtils.strjoinNL("<http://example/s> <http://example/p> <http://example/o> .",
+                                      "<http://example/s> <http://example/p> <http://example/o> .") ;
+        ParserProfileBase profile = (ParserProfileBase)RiotLib.profile(RDFLanguages.NTRIPLES, null) ;
+        profile.setNodeCacheSize(0) ;
+        List<Triple> triples = new ArrayList<Triple>() ;
+        parse(x, RDFLanguages.NTRIPLES, profile, triples) ;
+        assertEquals(triples.get(0), triples.get(1)) ;
+        assertEquals(0, profile.nodeCacheHits()) ;
+        assertEquals(0, profile.nodeCacheMisses()) ;
+        assertEquals(0.0, profile.nodeCacheHitRate(), 0.0) ;
+    }
+
+    @Test public void nodeCache_05()
+    {
+        // Blank node IRIs are not cached.
+        String x = "<_:b> <http://example/p> <_:b> ." ;
+        List<Triple> triples = new ArrayList<Triple>() ;
+        ParserProfileBase profile = parse(x, RDFLanguages.NTRIPLES, RiotLib.profile(RDFLanguages.NTRIPLES, null), triples) ;
+        assertTrue(triples.get(0).getSubject().isBlank()) ;
+        assertEquals(1, profile.nodeCacheMisses()) ;
+    }
+
+    private static ParserProfileBase parse(String string, Lang lang, ParserProfile profile, final List<Triple> triples)
+    {
+        StreamRDF dest = new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple) ; }
+        } ;
+        LangRIOT parser = RiotReader.createParser(new ByteArrayInputStream(StrUtils.asUTF8bytes(string)), lang, null, dest) ;
+        parser.setProfile(profile) ;
+        parser.parse() ;
+        return (ParserProfileBase)profile ;
+    }
+}
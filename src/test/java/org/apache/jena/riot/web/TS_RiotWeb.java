@@ -26,6 +26,7 @@ import org.junit.runners.Suite.SuiteClasses ;
 @SuiteClasses({ 
     TestLangTag.class
     , TestWebContent.class
+    , TestHttpConnectionPool.class
 })
 
 public class TS_RiotWeb
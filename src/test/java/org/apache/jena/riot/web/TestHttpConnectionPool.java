@@ -0,0 +1,578 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.web;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+import static org.junit.Assert.fail ;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.io.OutputStream ;
+import java.lang.reflect.InvocationHandler ;
+import java.lang.reflect.Method ;
+import java.lang.reflect.Proxy ;
+import java.net.InetAddress ;
+import java.net.URI ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.TimeUnit ;
+import java.util.zip.DeflaterOutputStream ;
+import java.util.zip.GZIPOutputStream ;
+
+import org.apache.http.Header ;
+import org.apache.http.HttpEntityEnclosingRequest ;
+import org.apache.http.HttpHost ;
+import org.apache.http.HttpRequest ;
+import org.apache.http.HttpResponse ;
+import org.apache.http.HttpVersion ;
+import org.apache.http.conn.ClientConnectionManager ;
+import org.apache.http.conn.ClientConnectionOperator ;
+import org.apache.http.conn.ClientConnectionRequest ;
+import org.apache.http.conn.ConnectionPoolTimeoutException ;
+import org.apache.http.conn.ManagedClientConnection ;
+import org.apache.http.conn.OperatedClientConnection ;
+import org.apache.http.conn.routing.HttpRoute ;
+import org.apache.http.conn.scheme.SchemeRegistry ;
+import org.apache.http.entity.InputStreamEntity ;
+import org.apache.http.message.BasicHttpResponse ;
+import org.apache.http.params.HttpParams ;
+import org.apache.http.pool.ConnPoolControl ;
+import org.apache.http.pool.PoolStats ;
+import org.apache.http.protocol.HttpContext ;
+import org.apache.http.util.EntityUtils ;
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.riot.WebContent ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+import com.hp.hpl.jena.graph.Triple ;
+import com.hp.hpl.jena.query.QueryExecution ;
+import com.hp.hpl.jena.query.QueryExecutionFactory ;
+import com.hp.hpl.jena.query.ResultSetFormatter ;
+import com.hp.hpl.jena.rdf.model.Model ;
+import com.hp.hpl.jena.rdf.model.ModelFactory ;
+import com.hp.hpl.jena.sparql.engine.http.HttpQuery ;
+import com.hp.hpl.jena.sparql.engine.http.QueryExceptionHTTP ;
+
+/** The pool and its counters, on a pool of the test's own that replaces the
+ *  shared pool for the test.  Connections are opened by a stub that answers
+ *  each request in-process (see {@link #respond}), so no socket is used, but
+ *  the requests go through the HttpClient, and through {@link HttpQuery},
+ *  {@link HttpOp} and remote query execution, as they would to a server. */
+public class TestHttpConnectionPool
+{
+    private static final String base = "http://example" ;
+    private static final String url = base+"/sparql" ;
+    private static final HttpRoute route = HttpConnectionPool.route(url) ;
+    private HttpConnectionPool pool ;
+    private HttpConnectionPool sharedPool ;
+    private ClientConnectionManager manager ;
+    private StubOperator operator ;
+    // "METHOD path" of each request answered.
+    private List<String> received ;
+    private List<HttpRequest> receivedRequests ;
+    
+    @Before public void before()
+    {
+        operator = new StubOperator() ;
+        received = new ArrayList<String>() ;
+        receivedRequests = new ArrayList<HttpRequest>() ;
+        pool = new HttpConnectionPool(operator) ;
+        manager = pool.getConnectionManager() ;
+        sharedPool = HttpConnectionPool.set(pool) ;
+    }
+    
+    @After public void after()
+    {
+        HttpConnectionPool.set(sharedPool) ;
+        manager.shutdown() ;
+    }
+    
+    @Test public void pool_counts()
+    {
+        // Open connections are hits; no host at its limit, so no waits.
+        final boolean[] open = { false, true, true } ;
+        ClientConnectionManager stub = new StubConnectionManager(open) ;
+        HttpConnectionPool.CountingConnectionManager counting =
+            new HttpConnectionPool.CountingConnectionManager(stub, new StubPoolControl(new PoolStats(1, 0, 0, 2))) ;
+        for ( int i = 0 ; i < open.length ; i++ )
+            lease(counting.requestConnection(route, null), 0) ;
+        assertEquals(3, counting.requests.get()) ;
+        assertEquals(2, counting.hits.get()) ;
+        assertEquals(0, counting.waits.get()) ;
+        
+        // At the limit.
+        counting = new HttpConnectionPool.CountingConnectionManager(stub, new StubPoolControl(new PoolStats(2, 0, 0, 2))) ;
+        counting.requestConnection(route, null) ;
+        assertEquals(1, counting.requests.get()) ;
+        assertEquals(1, counting.waits.get()) ;
+    }
+
+    @Test public void pool_waits()
+    {
+        // A request waits for the connection held by another.
+        pool.setMaxPerHost(url, 1) ;
+        ManagedClientConnection first = lease(manager.requestConnection(route, null), 0) ;
+        ClientConnectionRequest request = manager.requestConnection(route, null) ;
+        assertEquals(2, pool.getRequests()) ;
+        assertEquals(1, pool.getWaits()) ;
+        manager.releaseConnection(first, 0, TimeUnit.MILLISECONDS) ;
+        ManagedClientConnection second = lease(request, 0) ;
+        assertEquals(1, pool.getStats().getLeased()) ;
+        manager.releaseConnection(second, 0, TimeUnit.MILLISECONDS) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+        assertEquals(0, pool.getHits()) ;
+    }
+
+    @Test public void pool_exhausted() throws InterruptedException
+    {
+        // A connection that is not released holds the host at its limit:
+        // the next request times out rather than waiting for ever.
+        pool.setMaxPerHost(url, 1) ;
+        ManagedClientConnection held = lease(manager.requestConnection(route, null), 0) ;
+        try {
+            manager.requestConnection(route, null).getConnection(1, TimeUnit.MILLISECONDS) ;
+            fail("Got a connection from an exhausted pool") ;
+        } catch (ConnectionPoolTimeoutException ex) {}
+        assertEquals(1, pool.getWaits()) ;
+        manager.releaseConnection(held, 0, TimeUnit.MILLISECONDS) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void pool_not_limiting()
+    {
+        // By default, concurrent requests to one host do not wait.
+        assertTrue(pool.getMaxPerHost(url) >= 100) ;
+        List<ManagedClientConnection> conns = new ArrayList<ManagedClientConnection>() ;
+        for ( int i = 0 ; i < 20 ; i++ )
+            conns.add(lease(manager.requestConnection(route, null), 0)) ;
+        assertEquals(20, pool.getRequests()) ;
+        assertEquals(0, pool.getWaits()) ;
+        assertEquals(20, pool.getStats().getLeased()) ;
+        for ( ManagedClientConnection conn : conns )
+            manager.releaseConnection(conn, 0, TimeUnit.MILLISECONDS) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+        pool.resetCounters() ;
+        assertEquals(0, pool.getRequests()) ;
+    }
+
+    @Test public void pool_lease_timeout()
+    {
+        assertEquals(HttpConnectionPool.DefaultLeaseTimeout, pool.getLeaseTimeout()) ;
+        pool.setLeaseTimeout(500) ;
+        assertEquals(500, pool.getLeaseTimeout()) ;
+        assertEquals(HttpConnectionPool.DefaultLeaseTimeout, sharedPool.getLeaseTimeout()) ;
+    }
+
+    @Test public void pool_limits()
+    {
+        String other = "http://example.org:8080/sparql" ;
+        int x = pool.getMaxPerHost(other) ;
+        pool.setMaxPerHost(other, 2) ;
+        assertEquals(2, pool.getMaxPerHost(other)) ;
+        assertEquals(x, pool.getMaxPerHost(url)) ;
+        assertFalse(HttpConnectionPool.route(other).equals(route)) ;
+    }
+
+    @Test public void pool_query()
+    {
+        for ( int i = 0 ; i < 5 ; i++ )
+        {
+            QueryExecution qExec = QueryExecutionFactory.sparqlService(url, "SELECT * { ?s ?p ?o }") ;
+            assertEquals(0, ResultSetFormatter.consume(qExec.execSelect())) ;
+            qExec.close() ;
+        }
+        assertEquals(5, pool.getRequests()) ;
+        // Keep-alive: the connection is used again.
+        assertEquals(4, pool.getHits()) ;
+        assertEquals(0, pool.getWaits()) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+        assertEquals(1, operator.opened) ;
+    }
+
+    @Test public void pool_httpOp()
+    {
+        for ( int i = 0 ; i < 3 ; i++ )
+            assertEquals("Hello", HttpOp.execHttpGet(base+"/text")) ;
+        assertEquals(3, pool.getRequests()) ;
+        assertEquals(2, pool.getHits()) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void pool_construct_triples()
+    {
+        // Reading all the triples releases the connection, without closing the execution.
+        for ( int i = 0 ; i < 3 ; i++ )
+        {
+            QueryExecution qExec = QueryExecutionFactory.sparqlService(base+"/rdf", "CONSTRUCT { ?s ?p ?o } WHERE { ?s ?p ?o }") ;
+            Iterator<Triple> iter = qExec.execConstructTriples() ;
+            int count = 0 ;
+            for ( ; iter.hasNext() ; iter.next() )
+                count++ ;
+            assertEquals(100, count) ;
+            assertEquals(0, pool.getStats().getLeased()) ;
+        }
+        assertEquals(2, pool.getHits()) ;
+        
+        // Stopping early and closing the execution also releases it.
+        QueryExecution qExec = QueryExecutionFactory.sparqlService(base+"/nt", "DESCRIBE <http://example/s1>") ;
+        Iterator<Triple> iter = qExec.execDescribeTriples() ;
+        iter.next() ;
+        qExec.close() ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void httpQuery_connection() throws IOException
+    {
+        HttpQuery httpQuery = new HttpQuery(base+"/text") ;
+        assertEquals(0, httpQuery.getResponseCode()) ;
+        InputStream in = httpQuery.exec() ;
+        try {
+            assertEquals(200, httpQuery.getResponseCode()) ;
+            assertEquals(WebContent.contentTypeTextPlain, httpQuery.getContentType()) ;
+            assertNull(httpQuery.getConnection()) ;
+            assertEquals("Hello", IO.readWholeFileAsUTF8(in)) ;
+        } finally { IO.close(in) ; }
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void httpQuery_redirect() throws IOException
+    {
+        // GET follows redirects, on the same connection.
+        assertEquals("Hello", read(new HttpQuery(base+"/redirect"))) ;
+        assertEquals(Arrays.asList("GET /redirect", "GET /text"), received) ;
+        assertEquals(1, pool.getRequests()) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void httpQuery_4xx() throws IOException
+    {
+        HttpQuery httpQuery = new HttpQuery(base+"/missing") ;
+        try {
+            read(httpQuery) ;
+            fail("No exception for a 404") ;
+        } catch (QueryExceptionHTTP ex)
+        {
+            assertEquals(404, ex.getResponseCode()) ;
+            assertTrue(ex.getMessage().contains("No such thing")) ;
+        }
+        assertEquals(404, httpQuery.getResponseCode()) ;
+        // Not tried again with POST.
+        assertEquals(Arrays.asList("GET /missing"), received) ;
+        // The error response was read, so the connection can be used again.
+        assertEquals(0, pool.getStats().getLeased()) ;
+        assertEquals("Hello", read(new HttpQuery(base+"/text"))) ;
+        assertEquals(1, pool.getHits()) ;
+    }
+
+    @Test public void httpQuery_414() throws IOException
+    {
+        // Request-URI Too Long: try again with POST.
+        HttpQuery httpQuery = new HttpQuery(base+"/long") ;
+        httpQuery.addParam("query", "ASK {}") ;
+        assertFalse(httpQuery.usesPOST()) ;
+        String body = read(httpQuery) ;
+        assertEquals(Arrays.asList("GET /long", "POST /long"), received) ;
+        // The POST sends the parameters as a form.
+        assertTrue(body.startsWith("query=")) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void httpQuery_gzip() throws IOException
+    {
+        HttpQuery httpQuery = new HttpQuery(base+"/encoded") ;
+        httpQuery.setAllowGZip(true) ;
+        assertEquals("Hello", read(httpQuery)) ;
+        assertEquals("gzip", receivedRequests.get(0).getFirstHeader("Accept-Encoding").getValue()) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void httpQuery_deflate() throws IOException
+    {
+        HttpQuery httpQuery = new HttpQuery(base+"/encoded") ;
+        httpQuery.setAllowDeflate(true) ;
+        assertEquals("Hello", read(httpQuery)) ;
+        assertEquals("deflate", receivedRequests.get(0).getFirstHeader("Accept-Encoding").getValue()) ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+    }
+
+    @Test public void httpQuery_identity() throws IOException
+    {
+        HttpQuery httpQuery = new HttpQuery(base+"/encoded") ;
+        assertEquals("Hello", read(httpQuery)) ;
+        assertNull(receivedRequests.get(0).getFirstHeader("Accept-Encoding")) ;
+    }
+
+    @Test public void httpQuery_close_drain() throws IOException
+    {
+        // Closing near the end reads the rest: the connection is used again.
+        InputStream in = new HttpQuery(base+"/text").exec() ;
+        in.read() ;
+        in.close() ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+        assertEquals("Hello", read(new HttpQuery(base+"/text"))) ;
+        assertEquals(1, pool.getHits()) ;
+        assertEquals(1, operator.opened) ;
+    }
+
+    @Test public void httpQuery_close_abort() throws IOException
+    {
+        // Closing well before the end drops the connection rather than read the rest.
+        InputStream in = new HttpQuery(base+"/big").exec() ;
+        in.read() ;
+        in.close() ;
+        assertEquals(0, pool.getStats().getLeased()) ;
+        assertEquals(0, pool.getStats().getAvailable()) ;
+        assertEquals("Hello", read(new HttpQuery(base+"/text"))) ;
+        assertEquals(0, pool.getHits()) ;
+        assertEquals(2, operator.opened) ;
+    }
+
+    private static String read(HttpQuery httpQuery) throws IOException
+    {
+        InputStream in = httpQuery.exec() ;
+        try { return IO.readWholeFileAsUTF8(in) ; }
+        finally { IO.close(in) ; }
+    }
+
+    /** The in-process server. */
+    private HttpResponse respond(HttpRequest request, String body) throws IOException
+    {
+        String method = request.getRequestLine().getMethod() ;
+        String path = URI.create(request.getRequestLine().getUri()).getPath() ;
+        received.add(method+" "+path) ;
+        receivedRequests.add(request) ;
+        
+        if ( path.equals("/sparql") )
+        {
+            // Any query: the results of a query on an empty model.
+            QueryExecution qExec = QueryExecutionFactory.create("SELECT * { ?s ?p ?o }", ModelFactory.createDefaultModel()) ;
+            ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+            ResultSetFormatter.outputAsXML(out, qExec.execSelect()) ;
+            qExec.close() ;
+            return response(200, "OK", WebContent.contentTypeResultsXML, out.toByteArray()) ;
+        }
+        if ( path.equals("/text") )
+            return response(200, "OK", WebContent.contentTypeTextPlain, bytes("Hello")) ;
+        if ( path.equals("/big") )
+            return response(200, "OK", WebContent.contentTypeTextPlain, new byte[100*1024]) ;
+        if ( path.equals("/rdf") )
+            return response(200, "OK", WebContent.contentTypeRDFXML, rdf("RDF/XML")) ;
+        if ( path.equals("/nt") )
+            return response(200, "OK", WebContent.contentTypeNTriples, rdf("N-TRIPLES")) ;
+        if ( path.equals("/redirect") )
+        {
+            HttpResponse response = response(302, "Found", WebContent.contentTypeTextPlain, new byte[0]) ;
+            response.setHeader("Location", base+"/text") ;
+            return response ;
+        }
+        if ( path.equals("/long") )
+        {
+            if ( method.equals("GET") )
+                return response(414, "Request-URI Too Long", WebContent.contentTypeTextPlain, bytes("Too long")) ;
+            return response(200, "OK", WebContent.contentTypeTextPlain, bytes(body)) ;
+        }
+        if ( path.equals("/encoded") )
+        {
+            Header accept = request.getFirstHeader("Accept-Encoding") ;
+            String encoding = ( accept == null ) ? null : accept.getValue() ;
+            if ( encoding == null )
+                return response(200, "OK", WebContent.contentTypeTextPlain, bytes("Hello")) ;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream() ;
+            OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(bytes) : new DeflaterOutputStream(bytes) ;
+            out.write(bytes("Hello")) ;
+            out.close() ;
+            HttpResponse response = response(200, "OK", WebContent.contentTypeTextPlain, bytes.toByteArray()) ;
+            response.setHeader("Content-Encoding", encoding) ;
+            ((InputStreamEntity)response.getEntity()).setContentEncoding(encoding) ;
+            return response ;
+        }
+        return response(404, "Not Found", WebContent.contentTypeTextPlain, bytes("No such thing")) ;
+    }
+
+    private static HttpResponse response(int code, String reason, String contentType, byte[] content)
+    {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, code, reason) ;
+        // As the connection would: the entity streams the content, and has the headers.
+        InputStreamEntity entity = new InputStreamEntity(new ByteArrayInputStream(content), content.length) ;
+        entity.setContentType(contentType) ;
+        response.setHeader("Content-Type", contentType) ;
+        response.setHeader("Content-Length", Integer.toString(content.length)) ;
+        response.setEntity(entity) ;
+        return response ;
+    }
+
+    private static byte[] bytes(String string) throws IOException
+    {
+        return string.getBytes("UTF-8") ;
+    }
+
+    // 100 triples.
+    private static byte[] rdf(String lang)
+    {
+        Model model = ModelFactory.createDefaultModel() ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            model.add(model.createResource("http://example/s"+i), model.createProperty("http://example/p"), model.createTypedLiteral(i)) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        model.write(out, lang) ;
+        return out.toByteArray() ;
+    }
+
+    /** Opens stub connections, which pass each request to {@link #respond}. */
+    private class StubOperator implements ClientConnectionOperator
+    {
+        int opened = 0 ;
+
+        @Override
+        public OperatedClientConnection createConnection()
+        { return stubConnection() ; }
+
+        @Override
+        public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local, HttpContext context, HttpParams params)
+            throws IOException
+        {
+            opened++ ;
+            conn.openCompleted(false, params) ;
+        }
+
+        @Override
+        public void updateSecureConnection(OperatedClientConnection conn, HttpHost target, HttpContext context, HttpParams params)
+        { throw new UnsupportedOperationException("updateSecureConnection") ; }
+    }
+
+    private OperatedClientConnection stubConnection()
+    {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean open = false ;
+            private HttpRequest request = null ;
+            private String body = null ;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws IOException
+            {
+                String name = method.getName() ;
+                if ( name.equals("openCompleted") )
+                    open = true ;
+                else if ( name.equals("isOpen") )
+                    return open ;
+                else if ( name.equals("close") || name.equals("shutdown") )
+                    open = false ;
+                else if ( name.equals("sendRequestHeader") )
+                {
+                    request = (HttpRequest)args[0] ;
+                    body = null ;
+                }
+                else if ( name.equals("sendRequestEntity") )
+                    body = EntityUtils.toString(((HttpEntityEnclosingRequest)args[0]).getEntity(), "UTF-8") ;
+                else if ( name.equals("receiveResponseHeader") )
+                    return respond(request, body) ;
+                else if ( name.equals("equals") )
+                    return proxy == args[0] ;
+                else if ( name.equals("hashCode") )
+                    return System.identityHashCode(proxy) ;
+                else if ( name.equals("toString") )
+                    return "StubConnection" ;
+                // Otherwise (and receiveResponseEntity: the response has its entity) nothing to do.
+                Class<?> type = method.getReturnType() ;
+                if ( type == boolean.class )
+                    return false ;
+                if ( type == int.class )
+                    return 0 ;
+                return null ;
+            }
+        } ;
+        return (OperatedClientConnection)Proxy.newProxyInstance(OperatedClientConnection.class.getClassLoader(),
+                                                                new Class<?>[]{ OperatedClientConnection.class }, handler) ;
+    }
+
+    private static ManagedClientConnection lease(ClientConnectionRequest request, long timeout)
+    {
+        try { return request.getConnection(timeout, TimeUnit.MILLISECONDS) ; }
+        catch (Exception ex) { throw new RuntimeException(ex) ; }
+    }
+
+    /** Gives connections that are open or not, in turn. */
+    private static class StubConnectionManager implements ClientConnectionManager
+    {
+        private final boolean[] open ;
+        private int idx = 0 ;
+
+        StubConnectionManager(boolean[] open) { this.open = open ; }
+
+        @Override
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state)
+        {
+            final boolean isOpen = open[idx++ % open.length] ;
+            return new ClientConnectionRequest() {
+                @Override
+                public ManagedClientConnection getConnection(long timeout, TimeUnit tunit)
+                { return connection(isOpen) ; }
+
+                @Override
+                public void abortRequest() {}
+            } ;
+        }
+
+        @Override public SchemeRegistry getSchemeRegistry() { return null ; }
+        @Override public void releaseConnection(ManagedClientConnection conn, long validDuration, TimeUnit timeUnit) {}
+        @Override public void closeExpiredConnections() {}
+        @Override public void closeIdleConnections(long idletime, TimeUnit tunit) {}
+        @Override public void shutdown() {}
+    }
+
+    private static ManagedClientConnection connection(final boolean isOpen)
+    {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                if ( method.getName().equals("isOpen") )
+                    return isOpen ;
+                throw new UnsupportedOperationException(method.getName()) ;
+            }
+        } ;
+        return (ManagedClientConnection)Proxy.newProxyInstance(ManagedClientConnection.class.getClassLoader(),
+                                                               new Class<?>[]{ ManagedClientConnection.class }, handler) ;
+    }
+
+    /** Fixed statistics for every host. */
+    private static class StubPoolControl implements ConnPoolControl<HttpRoute>
+    {
+        private final PoolStats stats ;
+
+        StubPoolControl(PoolStats stats) { this.stats = stats ; }
+
+        @Override public PoolStats getStats(HttpRoute route)        { return stats ; }
+        @Override public PoolStats getTotalStats()                  { return stats ; }
+        @Override public void setMaxTotal(int max)                  {}
+        @Override public int getMaxTotal()                          { return stats.getMax() ; }
+        @Override public void setDefaultMaxPerRoute(int max)        {}
+        @Override public int getDefaultMaxPerRoute()                { return stats.getMax() ; }
+        @Override public void setMaxPerRoute(HttpRoute route, int max) {}
+        @Override public int getMaxPerRoute(HttpRoute route)        { return stats.getMax() ; }
+    }
+}
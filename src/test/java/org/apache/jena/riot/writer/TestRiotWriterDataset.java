@@ -44,6 +44,7 @@ public class TestRiotWriterDataset extends AbstractWriterTest
             , { RDFFormat.TRIG_BLOCKS }
             , { RDFFormat.TRIG_FLAT }
             , { RDFFormat.NQUADS}
+            , { RDFFormat.RDFBINARY }
         }) ; 
     }
 
@@ -49,6 +49,7 @@ public class TestRiotWriterGraph extends AbstractWriterTest
             , { RDFFormat.RDFXML_PRETTY }
             , { RDFFormat.RDFXML_PLAIN }
             , { RDFFormat.RDFJSON }
+            , { RDFFormat.RDFBINARY }
 
             // graph in quad formats.
             , { RDFFormat.TRIG }
@@ -38,6 +38,7 @@ public class TestWriterRegistration extends BaseTest
     @Test public void registration_09() { testregistration(Lang.NQ) ; }
     @Test public void registration_10() { testregistration(Lang.TRIG) ; }
     @Test public void registration_11() { testregistration(Lang.RDFNULL) ; }
+    @Test public void registration_12() { testregistration(Lang.RDFBINARY) ; }
     
     @Test public void registration_20() { testregistration(RDFFormat.TURTLE_PRETTY) ; }
     @Test public void registration_21() { testregistration(RDFFormat.TURTLE) ; }
@@ -56,6 +57,7 @@ public class TestWriterRegistration extends BaseTest
     @Test public void registration_34() { testregistration(RDFFormat.RDFXML_PLAIN) ; }
     @Test public void registration_35() { testregistration(RDFFormat.RDFJSON) ; }
     @Test public void registration_36() { testregistration(RDFFormat.RDFNULL) ; }
+    @Test public void registration_37() { testregistration(RDFFormat.RDFBINARY) ; }
 
     private void testregistration(Lang lang)
     {